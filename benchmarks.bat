@@ -0,0 +1,16 @@
+@echo off
+REM Build and run the benchmark suite
+REM usage: benchmarks.bat [-size 18x12,72x48] [-coins 5,50] [-enemies 3,30] [-filter name] [-csv results.csv] [-fork false]
+
+REM Clean old class files
+if exist benchmarks\classes rmdir /S /Q benchmarks\classes
+
+REM Compile the game together with the benchmarks
+javac -d benchmarks\classes -sourcepath src;benchmarks\src benchmarks\src\bench\Benchmarks.java
+
+if %ERRORLEVEL% NEQ 0 (
+    echo Compilation failed!
+    exit /b 1
+)
+
+java -cp benchmarks\classes bench.Benchmarks %*
@@ -0,0 +1,31 @@
+package bench;
+
+public abstract class Benchmark {
+
+    private final String name;
+
+    protected Benchmark(String name) {
+        /**
+        Initializes the benchmark.
+        @param name - the name shown in the result table
+        @return void
+        */
+        this.name = name;
+    }
+
+    public String getName() {
+        /**
+        Gets the benchmark name.
+        @return the benchmark name
+        */
+        return name;
+    }
+
+    // builds the state the benchmark operates on. it is called once per
+    // parameter combination, before warmup
+    public abstract void setup(BenchmarkParams params);
+
+    // runs one operation of the benchmark. the returned value is consumed by the
+    // harness so the JIT cannot remove the work
+    public abstract long run();
+}
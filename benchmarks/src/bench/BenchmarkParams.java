@@ -0,0 +1,34 @@
+package bench;
+
+public class BenchmarkParams {
+
+    // size of the board and how many objects are placed on it
+    public final int columns;
+    public final int rows;
+    public final int coins;
+    public final int enemies;
+
+    public BenchmarkParams(int columns, int rows, int coins, int enemies) {
+        /**
+        Initializes one combination of benchmark parameters.
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @param coins - the number of coins on the board
+        @param enemies - the number of enemies on the board
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        this.coins = coins;
+        this.enemies = enemies;
+    }
+
+    @Override
+    public String toString() {
+        /**
+        Formats the parameters for the result table.
+        @return the formatted parameters
+        */
+        return columns + "x" + rows + " coins=" + coins + " enemies=" + enemies;
+    }
+}
@@ -0,0 +1,204 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import entities.EntityBenchmarks;
+import game.WorldBenchmarks;
+import pathfinding.PathfindingBenchmarks;
+import ui.BoardBenchmarks;
+import utils.Logger;
+
+public class Benchmarks {
+
+    // a child JVM prints its result on a line starting with this, so it can be
+    // told apart from anything else the benchmark prints
+    private static final String RESULT_PREFIX = "result,";
+
+    public static void main(String[] args) {
+        /**
+        Runs the benchmark suite.
+        Every benchmark is measured for every combination of board size, coin count
+        and enemy count, each in a fresh JVM, so the JIT profile, heap and GC state
+        left by one measurement can't change the next one. Options:
+          -size 18x12,72x48    board sizes (columns x rows)
+          -coins 5,500         coin counts
+          -enemies 3,300       enemy counts
+          -filter name         only run benchmarks whose name contains this text
+          -wi 5 -i 5 -time 500 warmup iterations, measured iterations, ms per iteration
+          -csv results.csv     also write the results to a CSV file
+          -fork false          measure everything in this JVM; faster, but the
+                               results depend on what ran before
+          -run name            measure only the benchmark with this exact name
+                               (what each child JVM is started with)
+        @param args - the command line options
+        @return void
+        */
+        // rendering goes into offscreen images, we never want a window
+        System.setProperty("java.awt.headless", "true");
+
+        String sizes = "18x12,36x24,72x48";
+        String coinCounts = "5,50";
+        String enemyCounts = "3,30";
+        String filter = null;
+        String csv = null;
+        String run = null;
+        boolean fork = true;
+        int warmup = 5;
+        int iterations = 5;
+        long time = 500;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-size": sizes = value; break;
+                case "-coins": coinCounts = value; break;
+                case "-enemies": enemyCounts = value; break;
+                case "-filter": filter = value; break;
+                case "-csv": csv = value; break;
+                case "-run": run = value; break;
+                case "-fork": fork = Boolean.parseBoolean(value); break;
+                case "-wi": warmup = Integer.parseInt(value); break;
+                case "-i": iterations = Integer.parseInt(value); break;
+                case "-time": time = Long.parseLong(value); break;
+                default:
+                    Logger.error("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.addAll(EntityBenchmarks.all());
+        benchmarks.addAll(WorldBenchmarks.all());
+        benchmarks.addAll(PathfindingBenchmarks.all());
+        benchmarks.addAll(BoardBenchmarks.all());
+
+        List<BenchmarkParams> combinations = new ArrayList<>();
+        for (String size : sizes.split(",")) {
+            String[] dimensions = size.split("x");
+            int columns = Integer.parseInt(dimensions[0].trim());
+            int rows = Integer.parseInt(dimensions[1].trim());
+            for (String coins : coinCounts.split(",")) {
+                for (String enemies : enemyCounts.split(",")) {
+                    combinations.add(new BenchmarkParams(
+                        columns, rows, Integer.parseInt(coins.trim()), Integer.parseInt(enemies.trim())));
+                }
+            }
+        }
+
+        Harness harness = new Harness(time, warmup, iterations);
+
+        if (run != null) {
+            // started by measureInChild: measure and hand the results back on stdout
+            for (Benchmark benchmark : benchmarks) {
+                if (benchmark.getName().equals(run)) {
+                    for (BenchmarkParams params : combinations) {
+                        System.out.println(RESULT_PREFIX + harness.measure(benchmark, params));
+                    }
+                    return;
+                }
+            }
+            Logger.error("Unknown benchmark: " + run);
+            System.exit(1);
+        }
+
+        if (!fork) {
+            Logger.error("Measuring in one JVM: the results depend on the order the benchmarks ran in"
+                + " and are not comparable with other runs");
+        }
+        harness.printHeader();
+        for (Benchmark benchmark : benchmarks) {
+            if (filter != null && !benchmark.getName().contains(filter)) {
+                continue;
+            }
+            for (BenchmarkParams params : combinations) {
+                if (fork) {
+                    measureInChild(harness, benchmark, params, warmup, iterations, time);
+                } else {
+                    harness.measure(benchmark, params);
+                }
+            }
+        }
+
+        if (csv != null) {
+            harness.writeCsv(csv);
+        }
+    }
+
+    private static void measureInChild(Harness harness, Benchmark benchmark, BenchmarkParams params,
+            int warmup, int iterations, long time) {
+        /**
+        Measures one benchmark for one parameter combination in a new JVM with the
+        same classpath, and adds its result to the harness.
+        The child prints its row of the result table, which is passed through.
+        Heap and GC options given to this JVM are given to the child as well.
+        @param harness - the harness collecting the results
+        @param benchmark - the benchmark to measure
+        @param params - the parameter combination to measure it with
+        @param warmup - the number of warmup iterations
+        @param iterations - the number of measured iterations
+        @param time - how long each iteration runs in milliseconds
+        @return void
+        */
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-X")) {
+                command.add(argument);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Benchmarks.class.getName());
+        command.add("-run");
+        command.add(benchmark.getName());
+        command.add("-size");
+        command.add(params.columns + "x" + params.rows);
+        command.add("-coins");
+        command.add(Integer.toString(params.coins));
+        command.add("-enemies");
+        command.add(Integer.toString(params.enemies));
+        command.add("-wi");
+        command.add(Integer.toString(warmup));
+        command.add("-i");
+        command.add(Integer.toString(iterations));
+        command.add("-time");
+        command.add(Long.toString(time));
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        String result = null;
+        int exitCode;
+        try {
+            Process process = builder.start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(RESULT_PREFIX)) {
+                        result = line.substring(RESULT_PREFIX.length());
+                    } else {
+                        System.out.println(line);
+                    }
+                }
+            }
+            exitCode = process.waitFor();
+        } catch (IOException exception) {
+            Logger.error("Unable to start benchmark JVM: " + exception.getMessage());
+            return;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (exitCode != 0 || result == null) {
+            Logger.error("Benchmark failed: " + benchmark.getName() + " " + params + " (exit code " + exitCode + ")");
+            return;
+        }
+        harness.addResult(result);
+    }
+}
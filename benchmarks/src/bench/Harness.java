@@ -0,0 +1,178 @@
+package bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import utils.Logger;
+
+public class Harness {
+
+    // how long each warmup and measurement iteration runs
+    private final long iterationNanos;
+    private final int warmupIterations;
+    private final int measurementIterations;
+
+    // per-thread allocation counter, null if the JVM does not support it
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    // values returned by the benchmarks are folded in here so the JIT keeps the work
+    private volatile long sink;
+
+    private final List<String> csvRows = new ArrayList<>();
+
+    public Harness(long iterationMillis, int warmupIterations, int measurementIterations) {
+        /**
+        Initializes the harness.
+        @param iterationMillis - how long each iteration runs in milliseconds
+        @param warmupIterations - the number of discarded warmup iterations
+        @param measurementIterations - the number of measured iterations
+        @return void
+        */
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threadBean = null;
+        }
+    }
+
+    public void printHeader() {
+        /**
+        Prints the header of the result table.
+        @return void
+        */
+        System.out.println(String.format("%-28s %-36s %14s %12s %14s %8s",
+            "benchmark", "params", "ns/op", "error", "B/op", "gc"));
+    }
+
+    public String measure(Benchmark benchmark, BenchmarkParams params) {
+        /**
+        Measures one benchmark for one parameter combination.
+        It runs the warmup iterations, then the measured iterations, and prints the
+        mean time per operation, its standard deviation, the bytes allocated per
+        operation and the number of garbage collections during measurement.
+        @param benchmark - the benchmark to measure
+        @param params - the parameter combination to measure it with
+        @return the result as a CSV row
+        */
+        benchmark.setup(params);
+
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(benchmark);
+        }
+
+        double[] nanosPerOp = new double[measurementIterations];
+        long totalOps = 0;
+        long gcBefore = gcCount();
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < measurementIterations; i++) {
+            long start = System.nanoTime();
+            long ops = runIteration(benchmark);
+            long elapsed = System.nanoTime() - start;
+            nanosPerOp[i] = (double) elapsed / ops;
+            totalOps += ops;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        long gcs = gcCount() - gcBefore;
+
+        double mean = 0;
+        for (double value : nanosPerOp) {
+            mean += value;
+        }
+        mean /= nanosPerOp.length;
+        double variance = 0;
+        for (double value : nanosPerOp) {
+            variance += (value - mean) * (value - mean);
+        }
+        double error = nanosPerOp.length > 1 ? Math.sqrt(variance / (nanosPerOp.length - 1)) : 0;
+        double bytesPerOp = allocated >= 0 ? (double) allocated / totalOps : Double.NaN;
+
+        System.out.println(String.format("%-28s %-36s %14.1f %12.1f %14.1f %8d",
+            benchmark.getName(), params, mean, error, bytesPerOp, gcs));
+        String row = String.format("%s,%d,%d,%d,%d,%.1f,%.1f,%.1f,%d",
+            benchmark.getName(), params.columns, params.rows, params.coins, params.enemies,
+            mean, error, bytesPerOp, gcs);
+        csvRows.add(row);
+        return row;
+    }
+
+    public void addResult(String row) {
+        /**
+        Adds a result measured elsewhere, in a child JVM, to the CSV rows.
+        @param row - the CSV row returned by measure
+        @return void
+        */
+        csvRows.add(row);
+    }
+
+    private long runIteration(Benchmark benchmark) {
+        /**
+        Runs the benchmark repeatedly until the iteration time is used up.
+        The clock is only read every few operations to keep its cost out of the result.
+        @param benchmark - the benchmark to run
+        @return the number of operations run
+        */
+        long ops = 0;
+        long accumulator = 0;
+        long deadline = System.nanoTime() + iterationNanos;
+        do {
+            for (int i = 0; i < 16; i++) {
+                accumulator += benchmark.run();
+            }
+            ops += 16;
+        } while (System.nanoTime() < deadline);
+        sink += accumulator;
+        return ops;
+    }
+
+    private long allocatedBytes() {
+        /**
+        Gets the number of bytes the current thread has allocated so far.
+        @return the allocated bytes, or -1 if not supported
+        */
+        if (threadBean == null) {
+            return -1;
+        }
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private long gcCount() {
+        /**
+        Gets the total number of garbage collections so far.
+        @return the collection count over all collectors
+        */
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    public void writeCsv(String filename) {
+        /**
+        Writes all results measured so far to a CSV file.
+        This makes it easy to compare runs before and after an engine change.
+        @param filename - the file to write to
+        @return void
+        */
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+            writer.println("benchmark,columns,rows,coins,enemies,ns_per_op,error,bytes_per_op,gc_count");
+            for (String row : csvRows) {
+                writer.println(row);
+            }
+        } catch (IOException exception) {
+            Logger.error("Unable to write benchmark results: " + filename + ": " + exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package entities;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import bench.Benchmark;
+import bench.BenchmarkParams;
+import game.CoinIndex;
+import game.World;
+
+public class EntityBenchmarks {
+
+    public static List<Benchmark> all() {
+        /**
+        Gets the benchmarks for the entity hot paths.
+        They live in the entities package so they can reach the package-private
+        pathfinding methods of the traveler.
+        @return the entity benchmarks
+        */
+        return Arrays.asList(
+            new FindNextStep("Traveler.findNextStep", false),
+            new FindNextStep("Traveler.findNextStep (cached path)", true),
+            new FindNearestCoin(),
+            new UpdateEnemies("EnemySystem.update", new EnemySystem()),
+            new UpdateEnemies("EnemySystem.update (1 thread)", new EnemySystem(new ForkJoinPool(1)))
+        );
+    }
+
+    private static class FindNextStep extends Benchmark {
+
+        private Traveler traveler;
+        private Point target;
+        private final boolean cached;
+
+        FindNextStep(String name, boolean cached) {
+            super(name);
+            this.cached = cached;
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            /**
+            Places the traveler in one corner and targets the opposite corner,
+            which makes the BFS visit every tile of the board. Without the cached
+            path every call searches again; with it only the first one does.
+            @param params - the parameter combination to build the state for
+            @return void
+            */
+            World world = new World(params.columns, params.rows, params.coins, params.enemies);
+            traveler = world.getTraveler();
+            target = new Point(0, 0);
+        }
+
+        @Override
+        public long run() {
+            if (!cached) {
+                traveler.forgetPath();
+            }
+            return traveler.findNextStep(target);
+        }
+    }
+
+    private static class FindNearestCoin extends Benchmark {
+
+        private Traveler traveler;
+        private CoinIndex coins;
+
+        FindNearestCoin() {
+            super("Traveler.findNearestCoin");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            World world = new World(params.columns, params.rows, params.coins, params.enemies);
+            traveler = world.getTraveler();
+            coins = world.getCoinIndex();
+        }
+
+        @Override
+        public long run() {
+            return traveler.findNearestCoin(coins);
+        }
+    }
+
+    private static class UpdateEnemies extends Benchmark {
+
+        private World world;
+        private final EnemySystem enemySystem;
+
+        UpdateEnemies(String name, EnemySystem enemySystem) {
+            super(name);
+            this.enemySystem = enemySystem;
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            world = new World(params.columns, params.rows, params.coins, params.enemies);
+        }
+
+        @Override
+        public long run() {
+            /**
+            Updates every enemy once, which is what one tick does.
+            @return the x coordinate of the first enemy
+            */
+            EntityStore store = world.getEntityStore();
+            enemySystem.update(store, world.getOccupancyGrid(), world.getBlockedTiles(), world.getColumns(), world.getRows());
+            return store.size() > 0 ? store.getX(0) : 0;
+        }
+    }
+}
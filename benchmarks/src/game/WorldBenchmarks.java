@@ -0,0 +1,324 @@
+package game;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import bench.Benchmark;
+import bench.BenchmarkParams;
+import entities.EntityStore;
+
+public class WorldBenchmarks {
+
+    public static List<Benchmark> all() {
+        /**
+        Gets the benchmarks for the world's coin handling and the full tick.
+        They live in the game package so they can reach the package-private
+        coin methods of the world.
+        @return the world benchmarks
+        */
+        return Arrays.asList(
+            new CollectCoins(),
+            new CreateCoin(),
+            new NearestCoins(),
+            new Step(),
+            new StepTravelers(),
+            new WriteDelta(),
+            new ReadDelta(),
+            new LoadLevel()
+        );
+    }
+
+    private static class CollectCoins extends Benchmark {
+
+        private World world;
+
+        CollectCoins() {
+            super("World.collectCoins");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            world = new World(params.columns, params.rows, params.coins, params.enemies);
+        }
+
+        @Override
+        public long run() {
+            /**
+            Moves the player onto a coin and collects it, which removes the coin
+            and spawns a replacement.
+            @return the player's score
+            */
+            Point coin = world.getCoins().get(0).getPosition();
+            world.getPlayer().setPosition(coin.x, coin.y);
+            world.collectCoins();
+            return world.getPlayer().getScore();
+        }
+    }
+
+    private static class CreateCoin extends Benchmark {
+
+        private World world;
+
+        CreateCoin() {
+            super("World.createCoin");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            world = new World(params.columns, params.rows, params.coins, params.enemies);
+        }
+
+        @Override
+        public long run() {
+            return world.createCoin().getPosition().x;
+        }
+    }
+
+    private static class NearestCoins extends Benchmark {
+
+        // number of coins each query asks for
+        private static final int K = 8;
+
+        private CoinIndex coinIndex;
+        private int columns;
+        private int rows;
+        private final int[] nearest = new int[K];
+        private int query = 0;
+
+        NearestCoins() {
+            super("CoinIndex.kNearest (k=8)");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            World world = new World(params.columns, params.rows, params.coins, params.enemies);
+            coinIndex = world.getCoinIndex();
+            columns = params.columns;
+            rows = params.rows;
+        }
+
+        @Override
+        public long run() {
+            /**
+            Finds the coins nearest to a different tile every call, walking the
+            board in big strides so queries don't hit the same buckets twice in
+            a row.
+            @return the cell of the nearest coin
+            */
+            query = (query + 7919) % (columns * rows);
+            int count = coinIndex.kNearest(query % columns, query / columns, K, nearest);
+            return count == 0 ? 0 : nearest[0];
+        }
+    }
+
+    private static class Step extends Benchmark {
+
+        private World world;
+        private BenchmarkParams params;
+
+        Step() {
+            super("World.step");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            this.params = params;
+            world = new World(params.columns, params.rows, params.coins, params.enemies);
+        }
+
+        @Override
+        public long run() {
+            /**
+            Runs one full tick, starting a new world when the round is over.
+            @return the number of ticks simulated in the current world
+            */
+            if (world.isGameOver()) {
+                world = new World(params.columns, params.rows, params.coins, params.enemies);
+            }
+            world.step();
+            return world.getTickCount();
+        }
+    }
+
+    private static class StepTravelers extends Benchmark {
+
+        // at most this many travelers, fewer on small boards
+        private static final int MAX_TRAVELERS = 1000;
+
+        private World world;
+        private BenchmarkParams params;
+
+        StepTravelers() {
+            super("World.step (cooperative travelers)");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            this.params = params;
+            world = createWorld();
+        }
+
+        private World createWorld() {
+            /**
+            Creates a world with 20% walls and one traveler per 16 tiles, up to
+            MAX_TRAVELERS, which all plan together.
+            @return the world
+            */
+            World created = new World(params.columns, params.rows, params.coins, params.enemies, 1);
+            created.addRandomWalls(20);
+            created.addTravelers(Math.min(MAX_TRAVELERS, params.columns * params.rows / 16) - 1);
+            return created;
+        }
+
+        @Override
+        public long run() {
+            /**
+            Runs one full tick, starting a new world when the round is over.
+            @return the number of ticks simulated in the current world
+            */
+            if (world.isGameOver()) {
+                world = createWorld();
+            }
+            world.step();
+            return world.getTickCount();
+        }
+    }
+
+    private static class WriteDelta extends Benchmark {
+
+        private final GameState previous = new GameState();
+        private final GameState current = new GameState();
+        private ByteBuffer buffer;
+
+        WriteDelta() {
+            super("GameState.writeDelta (one tick)");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            captureTick(params, previous, current);
+            buffer = ByteBuffer.allocate(current.getMaxDeltaSize(previous));
+        }
+
+        @Override
+        public long run() {
+            /**
+            Encodes the state after a tick as the changes since the state before,
+            as the server does for every player every tick.
+            @return the size of the snapshot
+            */
+            buffer.clear();
+            current.writeDelta(previous, buffer);
+            return buffer.position();
+        }
+    }
+
+    private static class ReadDelta extends Benchmark {
+
+        private final GameState previous = new GameState();
+        private final GameState decoded = new GameState();
+        private ByteBuffer buffer;
+
+        ReadDelta() {
+            super("GameState.readDelta (one tick)");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            GameState current = new GameState();
+            captureTick(params, previous, current);
+            buffer = ByteBuffer.allocate(current.getMaxDeltaSize(previous));
+            current.writeDelta(previous, buffer);
+            buffer.flip();
+        }
+
+        @Override
+        public long run() {
+            /**
+            Decodes a one tick snapshot on top of the state before it, as a
+            client does for every state.
+            @return the number of coins in the decoded state
+            */
+            buffer.rewind();
+            decoded.readDelta(previous, buffer);
+            return decoded.getCoinCount();
+        }
+    }
+
+    private static void captureTick(BenchmarkParams params, GameState before, GameState after) {
+        /**
+        Captures the states before and after a tick of a world with 20% walls and
+        one traveler per 16 tiles, up to 1000, a few seconds into the round so
+        everything is on the move.
+        @param params - the benchmark parameters
+        @param before - the state to capture before the tick
+        @param after - the state to capture after it
+        @return void
+        */
+        World world = new World(params.columns, params.rows, params.coins, params.enemies, 1);
+        world.addRandomWalls(20);
+        world.addTravelers(Math.min(1000, params.columns * params.rows / 16) - 1);
+        for (int tick = 0; tick < 100 && !world.isGameOver(); tick++) {
+            world.step();
+        }
+        before.capture(world);
+        world.step();
+        after.capture(world);
+    }
+
+    private static class LoadLevel extends Benchmark {
+
+        private File file;
+
+        LoadLevel() {
+            super("Level.load");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            /**
+            Saves a level of the benchmark's board size with 20% walls and the
+            benchmark's coins and enemies to a temporary file.
+            @param params - the benchmark parameters
+            @return void
+            */
+            World world = new World(params.columns, params.rows, params.coins, params.enemies, 1);
+            world.addRandomWalls(20);
+            EntityStore store = world.getEntityStore();
+            int[] enemyCells = new int[store.size()];
+            for (int slot = 0; slot < enemyCells.length; slot++) {
+                enemyCells[slot] = store.getY(slot) * params.columns + store.getX(slot);
+            }
+            int[] coinCells = new int[world.getCoins().size()];
+            for (int i = 0; i < coinCells.length; i++) {
+                Point position = world.getCoins().get(i).getPosition();
+                coinCells[i] = position.y * params.columns + position.x;
+            }
+            try {
+                file = File.createTempFile("benchmark", ".lvl");
+                file.deleteOnExit();
+                new Level(world.getBlockedTiles(), 0, params.columns * params.rows - 1, enemyCells, coinCells).save(file);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        @Override
+        public long run() {
+            /**
+            Loads the level file into a fresh wall grid.
+            @return the number of walls loaded
+            */
+            try {
+                return Level.load(file).getBlockedTiles().getBlockedCount();
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+}
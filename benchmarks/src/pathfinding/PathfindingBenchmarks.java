@@ -0,0 +1,222 @@
+package pathfinding;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import bench.Benchmark;
+import bench.BenchmarkParams;
+import game.World;
+
+public class PathfindingBenchmarks {
+
+    public static List<Benchmark> all() {
+        /**
+        Gets the benchmarks for the shared pathfinding structures.
+        @return the pathfinding benchmarks
+        */
+        return Arrays.<Benchmark>asList(
+            new MoveCoin(),
+            new NextStep(),
+            new HierarchicalQuery(),
+            new HierarchicalTileChanged()
+        );
+    }
+
+    private static class MoveCoin extends Benchmark {
+
+        private CoinDistanceField field;
+        private int[] coinX;
+        private int[] coinY;
+        private Random random;
+        private int columns;
+        private int rows;
+        private int next;
+
+        MoveCoin() {
+            super("CoinDistanceField.moveCoin");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            /**
+            Builds a field with the given number of coins at random positions.
+            @param params - the parameter combination to build the state for
+            @return void
+            */
+            columns = params.columns;
+            rows = params.rows;
+            random = new Random(42);
+            field = new CoinDistanceField(columns, rows);
+            coinX = new int[Math.max(1, params.coins)];
+            coinY = new int[coinX.length];
+            for (int i = 0; i < coinX.length; i++) {
+                coinX[i] = random.nextInt(columns);
+                coinY[i] = random.nextInt(rows);
+                field.addSource(coinX[i], coinY[i]);
+            }
+            next = 0;
+        }
+
+        @Override
+        public long run() {
+            /**
+            Collects one coin and respawns it somewhere else, which is the update
+            the world does whenever a coin is picked up.
+            @return the distance from the origin to the nearest coin
+            */
+            field.removeSource(coinX[next], coinY[next]);
+            coinX[next] = random.nextInt(columns);
+            coinY[next] = random.nextInt(rows);
+            field.addSource(coinX[next], coinY[next]);
+            next = (next + 1) % coinX.length;
+            return field.getDistance(0, 0);
+        }
+    }
+
+    private static class NextStep extends Benchmark {
+
+        private CoinDistanceField field;
+        private int columns;
+        private int rows;
+        private int cell;
+
+        NextStep() {
+            super("CoinDistanceField.nextStep");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            columns = params.columns;
+            rows = params.rows;
+            Random random = new Random(42);
+            field = new CoinDistanceField(columns, rows);
+            for (int i = 0; i < Math.max(1, params.coins); i++) {
+                field.addSource(random.nextInt(columns), random.nextInt(rows));
+            }
+            cell = 0;
+        }
+
+        @Override
+        public long run() {
+            /**
+            Asks for the next step from every tile in turn.
+            @return the cell index of the next step
+            */
+            cell = (cell + 7919) % (columns * rows);
+            return field.nextStep(cell % columns, cell / columns);
+        }
+    }
+
+    // percentage of the board the hierarchical pathfinder benchmarks cover with walls
+    private static final int WALL_PERCENT = 20;
+
+    private static int[] randomOpenTiles(BlockedTiles blockedTiles, Random random, int count) {
+        /**
+        Picks random tiles that are not walls.
+        @param blockedTiles - the walls of the board
+        @param random - the random number generator to use
+        @param count - the number of tiles to pick
+        @return the tiles as x, y pairs
+        */
+        int[] tiles = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            int x;
+            int y;
+            do {
+                x = random.nextInt(blockedTiles.getColumns());
+                y = random.nextInt(blockedTiles.getRows());
+            } while (blockedTiles.isBlocked(x, y));
+            tiles[2 * i] = x;
+            tiles[2 * i + 1] = y;
+        }
+        return tiles;
+    }
+
+    private static class HierarchicalQuery extends Benchmark {
+
+        private HierarchicalPathfinder pathfinder;
+        private int[] starts;
+        private int[] targets;
+        private int next;
+
+        HierarchicalQuery() {
+            super("HierarchicalPathfinder.findFirstStep");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            /**
+            Builds the pathfinder on a board with random walls and picks pairs of
+            open tiles anywhere on the board to search between.
+            @param params - the parameter combination to build the state for
+            @return void
+            */
+            World world = new World(params.columns, params.rows, params.coins, 0, 42L);
+            world.addRandomWalls(WALL_PERCENT);
+            pathfinder = new HierarchicalPathfinder(world.getBlockedTiles());
+            Random random = new Random(42);
+            starts = randomOpenTiles(world.getBlockedTiles(), random, 1024);
+            targets = randomOpenTiles(world.getBlockedTiles(), random, 1024);
+            next = 0;
+        }
+
+        @Override
+        public long run() {
+            /**
+            Finds the first step between the next pair of tiles.
+            @return the cell index of the first step
+            */
+            int i = next;
+            next = (next + 1) & 1023;
+            return pathfinder.findFirstStep(starts[2 * i], starts[2 * i + 1], targets[2 * i], targets[2 * i + 1]);
+        }
+    }
+
+    private static class HierarchicalTileChanged extends Benchmark {
+
+        private BlockedTiles blockedTiles;
+        private HierarchicalPathfinder pathfinder;
+        private Random random;
+        private int[] starts;
+        private int next;
+
+        HierarchicalTileChanged() {
+            super("HierarchicalPathfinder.tileChanged");
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            /**
+            Builds the pathfinder on a board with random walls.
+            @param params - the parameter combination to build the state for
+            @return void
+            */
+            World world = new World(params.columns, params.rows, params.coins, 0, 42L);
+            world.addRandomWalls(WALL_PERCENT);
+            blockedTiles = world.getBlockedTiles();
+            pathfinder = new HierarchicalPathfinder(blockedTiles);
+            random = new Random(42);
+            starts = randomOpenTiles(blockedTiles, random, 1024);
+            next = 0;
+        }
+
+        @Override
+        public long run() {
+            /**
+            Toggles a tile next to a start tile, then searches from that start
+            tile to the far corner, so the time includes recomputing the distances
+            of the cluster the change invalidated.
+            @return the cell index of the first step
+            */
+            int i = next;
+            next = (next + 1) & 1023;
+            int x = Math.min(blockedTiles.getColumns() - 1, starts[2 * i] + 1);
+            int y = starts[2 * i + 1];
+            blockedTiles.setBlocked(x, y, !blockedTiles.isBlocked(x, y));
+            pathfinder.tileChanged(x, y);
+            return pathfinder.findFirstStep(starts[2 * i], starts[2 * i + 1],
+                blockedTiles.getColumns() - 1, blockedTiles.getRows() - 1);
+        }
+    }
+}
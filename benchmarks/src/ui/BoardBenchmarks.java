@@ -0,0 +1,69 @@
+package ui;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+import bench.Benchmark;
+import bench.BenchmarkParams;
+import game.World;
+import utils.Contstants;
+
+public class BoardBenchmarks {
+
+    public static List<Benchmark> all() {
+        /**
+        Gets the rendering benchmarks.
+        @return the board benchmarks
+        */
+        return Arrays.<Benchmark>asList(
+            new PaintComponent("Board.paintComponent", false),
+            new PaintComponent("Board.paintComponent (tile)", true)
+        );
+    }
+
+    private static class PaintComponent extends Benchmark {
+
+        private Board board;
+        private BufferedImage image;
+        private Graphics2D graphics;
+        // only repaint a single tile, like a typical dirty-tile repaint does
+        private final boolean clipToTile;
+
+        PaintComponent(String name, boolean clipToTile) {
+            super(name);
+            this.clipToTile = clipToTile;
+        }
+
+        @Override
+        public void setup(BenchmarkParams params) {
+            /**
+            Creates a board for a fresh world without starting its timer and an
+            offscreen image the size of the whole board to paint into. The tile
+            variant clips painting to a single tile.
+            @param params - the parameter combination to build the state for
+            @return void
+            */
+            if (graphics != null) {
+                graphics.dispose();
+            }
+            World world = new World(params.columns, params.rows, params.coins, params.enemies);
+            board = new Board(world);
+            Dimension size = board.getPreferredSize();
+            board.setSize(size);
+            image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            graphics = image.createGraphics();
+            if (clipToTile) {
+                graphics.setClip(Contstants.TILE_SIZE, Contstants.TILE_SIZE, Contstants.TILE_SIZE, Contstants.TILE_SIZE);
+            }
+        }
+
+        @Override
+        public long run() {
+            board.paintComponent(graphics);
+            return image.getRGB(0, 0);
+        }
+    }
+}
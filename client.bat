@@ -0,0 +1,4 @@
+@echo off
+REM Play on a game server, or load test it
+REM usage: client.bat [host[:port]] [--bots N] [--seconds S]
+java Client %*
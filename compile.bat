@@ -5,7 +5,7 @@ REM Clean old class files
 del /Q *.class 2>nul
 
 REM Compile all source files
-javac -d . -sourcepath src src\App.java
+javac -d . -sourcepath src src\App.java src\Headless.java src\Replay.java src\LevelConverter.java src\Server.java src\Client.java
 
 if %ERRORLEVEL% EQU 0 (
     echo Compilation successful!
@@ -0,0 +1,4 @@
+@echo off
+REM Convert a text map into a binary level file
+REM usage: convert.bat map.txt map.lvl
+java LevelConverter %*
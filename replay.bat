@@ -0,0 +1,4 @@
+@echo off
+REM Replay a recorded game without a display
+REM usage: replay.bat recording.bin
+java Replay %*
@@ -1,4 +1,4 @@
 @echo off
 REM Run script for Java 2D Game
-java App
+java App %*
 
@@ -0,0 +1,4 @@
+@echo off
+REM Run the game server
+REM usage: server.bat [--port N] [--board CxR] [--coins N] [--walls P] [--travelers N] [--seed N]
+java Server %*
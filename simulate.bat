@@ -0,0 +1,4 @@
+@echo off
+REM Run the game simulation without a display
+REM usage: simulate.bat [ticks] [seed]
+java Headless %*
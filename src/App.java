@@ -1,16 +1,141 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
 import javax.swing.*;
 
+import game.Level;
+import game.Recording;
+import game.World;
 import ui.Board;
+import ui.GameCanvas;
 import ui.Window;
+import utils.Contstants;
+import utils.Logger;
 
 class App {
 
     public static void main(String[] args) {
 
+        // --active draws with a dedicated render loop instead of Swing repaints,
+        // --frame-stats prints frame time statistics once per second,
+        // --profile times every phase of the ticks and frames, shows the times
+        // over the game and prints them on exit,
+        // --board COLUMNSxROWS plays on a board of that size (larger than the
+        // window scrolls with the player), --coins N sets the number of coins,
+        // --walls PERCENT covers that much of the board with random walls,
+        // --travelers N plays against N travelers that plan their moves together,
+        // --level FILE plays a level made with the LevelConverter program instead
+        // of an empty board, --seed N makes the game reproducible, --record FILE
+        // saves the game on exit so it can be replayed with the Replay program
+        boolean active = false;
+        boolean frameStats = false;
+        boolean profile = false;
+        int columns = Contstants.COLUMNS;
+        int rows = Contstants.ROWS;
+        int coins = Contstants.TOTAL_COINS;
+        int walls = 0;
+        int travelers = 1;
+        Long seed = null;
+        String recordFile = null;
+        String levelFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--active")) {
+                active = true;
+            } else if (args[i].equals("--frame-stats")) {
+                frameStats = true;
+            } else if (args[i].equals("--profile")) {
+                profile = true;
+            } else if (args[i].equals("--board") && i + 1 < args.length) {
+                String[] size = args[++i].split("x");
+                columns = Integer.parseInt(size[0]);
+                rows = Integer.parseInt(size[1]);
+            } else if (args[i].equals("--coins") && i + 1 < args.length) {
+                coins = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--walls") && i + 1 < args.length) {
+                walls = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--travelers") && i + 1 < args.length) {
+                travelers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--record") && i + 1 < args.length) {
+                recordFile = args[++i];
+            } else if (args[i].equals("--level") && i + 1 < args.length) {
+                levelFile = args[++i];
+            }
+        }
+        final boolean activeRendering = active;
+        final boolean printFrameStats = frameStats;
+        final boolean showProfile = profile;
+        final World world;
+        if (levelFile != null) {
+            Level level;
+            try {
+                long start = System.nanoTime();
+                level = Level.load(new File(levelFile));
+                Logger.debug("Loaded level " + levelFile + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+            } catch (IOException exception) {
+                Logger.error("Unable to load level " + levelFile + ": " + exception.getMessage());
+                return;
+            }
+            world = new World(level, seed != null ? seed : new Random().nextLong());
+        } else if (seed != null) {
+            world = new World(columns, rows, coins, Contstants.TOTAL_ENEMIES, seed);
+        } else {
+            world = new World(columns, rows, coins, Contstants.TOTAL_ENEMIES);
+        }
+        if (walls > 0) {
+            world.addRandomWalls(walls);
+        }
+        if (travelers > 1) {
+            world.addTravelers(travelers - 1);
+        }
+
+        if (showProfile) {
+            world.getProfiler().setEnabled(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                public void run() {
+                    synchronized (world) {
+                        Logger.debug(world.getProfiler().describe());
+                    }
+                }
+            }));
+        }
+
+        if (recordFile != null) {
+            // the window exits the JVM when it is closed, save the game on the way out
+            final File file = new File(recordFile);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                public void run() {
+                    synchronized (world) {
+                        try {
+                            Recording.write(world, file);
+                            Logger.debug("Recorded " + world.getTickCount() + " ticks to " + file);
+                        } catch (IOException exception) {
+                            Logger.error("Unable to write recording " + file + ": " + exception.getMessage());
+                        }
+                    }
+                }
+            }));
+        }
+
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
+                if (activeRendering) {
+                    // create the canvas and window, then start the render loop
+                    // once the window is on screen
+                    GameCanvas canvas = new GameCanvas(world);
+                    canvas.setPrintFrameStats(printFrameStats);
+                    canvas.setShowProfile(showProfile);
+                    Window window = new Window(canvas, new JFrame());
+                    window.start();
+                    canvas.start();
+                    return;
+                }
+
                 // create the board and window
-                Board board = new Board();
+                Board board = new Board(world);
+                board.setShowProfile(showProfile);
+                board.start();
                 JFrame windowFrame = new JFrame();
                 Window window = new Window(board, windowFrame);
                 window.start();
@@ -19,4 +144,3 @@ class App {
         });
     }
 }
-
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import javax.swing.*;
+
+import net.GameClient;
+import net.LoopbackBots;
+import net.Protocol;
+import ui.RemoteBoard;
+import ui.Window;
+import utils.Logger;
+
+class Client {
+
+    public static void main(String[] args) {
+
+        // HOST[:PORT] connects to the server running there (default
+        // localhost:7777) and plays on it, --bots N connects N bots instead of
+        // opening a window, which press random keys for --seconds S (default
+        // 30) and print how regularly the states arrive, to load test a server
+        String host = "localhost";
+        int port = Protocol.DEFAULT_PORT;
+        int bots = 0;
+        long seconds = 30;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--bots") && i + 1 < args.length) {
+                bots = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seconds") && i + 1 < args.length) {
+                seconds = Long.parseLong(args[++i]);
+            } else {
+                String[] address = args[i].split(":");
+                host = address[0];
+                if (address.length > 1) {
+                    port = Integer.parseInt(address[1]);
+                }
+            }
+        }
+
+        if (bots > 0) {
+            System.setProperty("java.awt.headless", "true");
+            LoopbackBots loopbackBots = null;
+            try {
+                loopbackBots = new LoopbackBots(host, port, bots);
+                loopbackBots.run(seconds);
+            } catch (IOException exception) {
+                Logger.error("Load test failed: " + exception.getMessage());
+            } finally {
+                if (loopbackBots != null) {
+                    loopbackBots.close();
+                }
+            }
+            return;
+        }
+
+        final GameClient client;
+        try {
+            client = new GameClient(host, port);
+        } catch (IOException exception) {
+            Logger.error("Unable to connect to " + host + ":" + port + ": " + exception.getMessage());
+            return;
+        }
+
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                // create the board and window, then start receiving states
+                RemoteBoard board = new RemoteBoard(client);
+                Window window = new Window(board, new JFrame());
+                window.start();
+                client.start();
+            }
+        });
+    }
+}
@@ -0,0 +1,179 @@
+import java.awt.Point;
+import java.awt.event.KeyEvent;
+
+import entities.TravelerSystem;
+import game.World;
+import utils.Contstants;
+import utils.Profiler;
+
+class Headless {
+
+    // size of the board and what is on it, from the command line
+    private static int columns = Contstants.COLUMNS;
+    private static int rows = Contstants.ROWS;
+    private static int coins = Contstants.TOTAL_COINS;
+    private static int walls = 0;
+    private static int travelers = 1;
+    // times the phases of the ticks across all rounds when --profile is given
+    private static Profiler profiler = new Profiler();
+    // when --edge-keys is given the player is pushed against the edges of the
+    // board on every tick, and checked to stay on it
+    private static boolean edgeKeys = false;
+
+    public static void main(String[] args) {
+        /**
+        Runs the simulation without a display.
+        It steps worlds back to back for the given number of ticks, starting a new
+        round whenever a game ends, and prints the results and the tick rate.
+        @param args - optional total number of ticks to simulate (default 100000),
+                      and optional seed; with a seed every run simulates exactly the
+                      same rounds, which makes timings comparable between runs.
+                      Then optionally --board COLUMNSxROWS, --coins N, --walls
+                      PERCENT and --travelers N, e.g. to load test many travelers,
+                      --profile to print how long each phase of a tick takes,
+                      and --edge-keys to press the player into the nearest edge
+                      of the board every tick, the last one of a round included,
+                      and stop if it ever leaves the board
+        @return void
+        */
+        // make sure nothing tries to open a window
+        System.setProperty("java.awt.headless", "true");
+
+        long totalTicks = 100000;
+        Long seed = null;
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--board") && i + 1 < args.length) {
+                String[] size = args[++i].split("x");
+                columns = Integer.parseInt(size[0]);
+                rows = Integer.parseInt(size[1]);
+            } else if (args[i].equals("--coins") && i + 1 < args.length) {
+                coins = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--walls") && i + 1 < args.length) {
+                walls = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--travelers") && i + 1 < args.length) {
+                travelers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--profile")) {
+                profiler.setEnabled(true);
+            } else if (args[i].equals("--edge-keys")) {
+                edgeKeys = true;
+            } else if (positional == 0) {
+                totalTicks = Long.parseLong(args[i]);
+                positional++;
+            } else if (positional == 1) {
+                seed = Long.valueOf(args[i]);
+                positional++;
+            }
+        }
+
+        int rounds = 0;
+        int travelerWins = 0;
+        long ticks = 0;
+
+        long start = System.nanoTime();
+        World world = createWorld(seed, 0);
+        while (ticks < totalTicks) {
+            if (edgeKeys) {
+                pressTowardEdge(world, ticks);
+            }
+            world.step();
+            ticks++;
+            if (edgeKeys) {
+                checkOnBoard(world, rounds, ticks);
+            }
+
+            // start a new round once the current one is over
+            if (world.isGameOver()) {
+                rounds++;
+                if (world.getTravelerScore() > world.getPlayer().getScore() || world.getCollisionDetected()) {
+                    travelerWins++;
+                }
+                world = createWorld(seed, rounds);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        double seconds = elapsed / 1e9;
+        System.out.println("ticks:         " + ticks);
+        System.out.println("rounds:        " + rounds);
+        System.out.println("traveler wins: " + travelerWins);
+        if (edgeKeys) {
+            System.out.println("edge keys:     the player stayed on the board");
+        }
+        TravelerSystem travelerSystem = world.getTravelerSystem();
+        if (travelerSystem != null) {
+            System.out.println("travelers:     " + world.getTravelers().size());
+            System.out.println("plans:         " + travelerSystem.getPlansCommitted()
+                + " (" + travelerSystem.getPlansRedone() + " redone, " + travelerSystem.getPlansFailed() + " failed, last round)");
+        }
+        System.out.println("elapsed:       " + String.format("%.3f s", seconds));
+        System.out.println("ticks/second:  " + String.format("%.0f", ticks / seconds));
+        if (profiler.isEnabled()) {
+            System.out.println(profiler.describe());
+        }
+    }
+
+    private static World createWorld(Long seed, int round) {
+        /**
+        Creates the world for a round.
+        @param seed - the seed of the run, or null for random worlds
+        @param round - the number of the round
+        @return the new world
+        */
+        World world = seed == null
+            ? new World(columns, rows, coins, Contstants.TOTAL_ENEMIES)
+            : new World(columns, rows, coins, Contstants.TOTAL_ENEMIES, seed + round);
+        world.setProfiler(profiler);
+        if (walls > 0) {
+            world.addRandomWalls(walls);
+        }
+        if (travelers > 1) {
+            world.addTravelers(travelers - 1);
+        }
+        return world;
+    }
+
+    private static void pressTowardEdge(World world, long tick) {
+        /**
+        Queues a key press that moves the player toward the nearest edge of the
+        board, alternating between the horizontal and vertical edge. Once the
+        player is in a corner every press pushes against an edge.
+        @param world - the world to press the key in
+        @param tick - the number of ticks simulated so far
+        @return void
+        */
+        Point position = world.getPlayer().getPosition();
+        if (tick % 2 == 0) {
+            world.keyPressed(position.x < columns / 2 ? KeyEvent.VK_LEFT : KeyEvent.VK_RIGHT);
+        } else {
+            world.keyPressed(position.y < rows / 2 ? KeyEvent.VK_UP : KeyEvent.VK_DOWN);
+        }
+    }
+
+    private static void checkOnBoard(World world, int round, long tick) {
+        /**
+        Checks that the player and the position it is drawn moving from are on
+        the board.
+        @param world - the world that was just stepped
+        @param round - the number of the round
+        @param tick - the number of ticks simulated so far
+        @return void
+        */
+        Point position = world.getPlayer().getPosition();
+        Point previous = world.getPlayer().getPreviousPosition();
+        if (!isOnBoard(position) || !isOnBoard(previous)) {
+            throw new IllegalStateException("Player left the board in round " + round + " at tick " + tick
+                + (world.isGameOver() ? " (game over)" : "") + ": position " + position.x + "," + position.y
+                + ", previous " + previous.x + "," + previous.y);
+        }
+    }
+
+    private static boolean isOnBoard(Point point) {
+        /**
+        Checks if a tile is on the board.
+        @param point - the tile
+        @return true if the tile is on the board, false otherwise
+        */
+        return point.x >= 0 && point.x < columns && point.y >= 0 && point.y < rows;
+    }
+}
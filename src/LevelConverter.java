@@ -0,0 +1,43 @@
+import java.io.File;
+import java.io.IOException;
+
+import game.Level;
+import utils.Logger;
+
+class LevelConverter {
+
+    public static void main(String[] args) {
+        /**
+        Converts a text map into a binary level file.
+        In the text map every line is a row of tiles: '#' is a wall, 'P' the
+        player, 'T' the traveler, 'E' an enemy, 'C' a coin, and anything else is
+        an empty floor tile. The level file can then be played with --level.
+        @param args - the text map to read and the level file to write
+        @return void
+        */
+        if (args.length < 2) {
+            Logger.error("Usage: java LevelConverter <text map> <level file>");
+            return;
+        }
+
+        Level level;
+        try {
+            level = Level.parseText(new File(args[0]));
+        } catch (IOException exception) {
+            Logger.error("Unable to read map " + args[0] + ": " + exception.getMessage());
+            return;
+        }
+        try {
+            level.save(new File(args[1]));
+        } catch (IOException exception) {
+            Logger.error("Unable to write level " + args[1] + ": " + exception.getMessage());
+            return;
+        }
+
+        System.out.println("board:   " + level.getColumns() + "x" + level.getRows());
+        System.out.println("walls:   " + level.getBlockedTiles().getBlockedCount());
+        System.out.println("enemies: " + level.getEnemyCells().length);
+        System.out.println("coins:   " + level.getCoinCells().length);
+        System.out.println("bytes:   " + new File(args[1]).length());
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.File;
+import java.io.IOException;
+
+import game.Recording;
+import game.World;
+import utils.Logger;
+
+class Replay {
+
+    public static void main(String[] args) {
+        /**
+        Replays a recorded game without a display, as fast as possible.
+        It prints the final state of the game and a checksum of it, so a replay can
+        be compared with the game it was recorded from or with other replays.
+        @param args - the recording file to replay
+        @return void
+        */
+        // make sure nothing tries to open a window
+        System.setProperty("java.awt.headless", "true");
+
+        if (args.length < 1) {
+            Logger.error("Usage: java Replay <recording file>");
+            return;
+        }
+
+        World world;
+        long start = System.nanoTime();
+        try {
+            world = Recording.replay(new File(args[0]));
+        } catch (IOException exception) {
+            Logger.error("Unable to replay " + args[0] + ": " + exception.getMessage());
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        double seconds = elapsed / 1e9;
+        System.out.println("seed:           " + world.getSeed());
+        System.out.println("ticks:          " + world.getTickCount());
+        System.out.println("key presses:    " + world.getInputLog().size());
+        System.out.println("player score:   " + world.getPlayer().getScore());
+        System.out.println("traveler score: " + world.getTraveler().getScore());
+        System.out.println("remaining time: " + world.getClock().getRemainingTime());
+        System.out.println("collision:      " + world.getCollisionDetected());
+        System.out.println("checksum:       " + String.format("%016x", world.stateChecksum()));
+        System.out.println("elapsed:        " + String.format("%.3f s", seconds));
+        System.out.println("ticks/second:   " + String.format("%.0f", world.getTickCount() / seconds));
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.IOException;
+
+import net.GameServer;
+import net.Protocol;
+import utils.Logger;
+
+class Server {
+
+    public static void main(String[] args) {
+        /**
+        Runs the game server without a display.
+        Players who connect with the Client program are grouped into matches
+        they play together, simulated on the server, which sends them the state
+        after every tick. Once per second it prints how many players and
+        matches there are and how busy the server is.
+        @param args - optionally --port N (default 7777), --players N (players
+                      per match, default 4), and the settings of the matches:
+                      --board COLUMNSxROWS, --coins N, --walls PERCENT,
+                      --travelers N and --seed N
+        @return void
+        */
+        // make sure nothing tries to open a window
+        System.setProperty("java.awt.headless", "true");
+
+        int port = Protocol.DEFAULT_PORT;
+        GameServer server = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            }
+        }
+        try {
+            server = new GameServer(port);
+        } catch (IOException exception) {
+            Logger.error("Unable to listen on port " + port + ": " + exception.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--board") && i + 1 < args.length) {
+                String[] size = args[++i].split("x");
+                server.setBoard(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+            } else if (args[i].equals("--coins") && i + 1 < args.length) {
+                server.setCoins(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--walls") && i + 1 < args.length) {
+                server.setWalls(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--travelers") && i + 1 < args.length) {
+                server.setTravelers(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--players") && i + 1 < args.length) {
+                server.setPlayersPerMatch(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                server.setSeed(Long.parseLong(args[++i]));
+            }
+        }
+
+        Logger.debug("Listening on port " + server.getPort());
+        server.run();
+    }
+}
@@ -0,0 +1,170 @@
+package entities;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import game.OccupancyGrid;
+import pathfinding.BlockedTiles;
+
+public class EnemySystem {
+
+    // enemies move every 20 ticks (slower than player)
+    private static final int MOVE_DELAY = 20;
+
+    // fewer enemies than this are updated on the calling thread, because handing
+    // the work to other threads would cost more than it saves
+    public static final int PARALLEL_THRESHOLD = 8192;
+    // number of enemies a single parallel task updates
+    private static final int TASK_SIZE = 4096;
+
+    // value in movedFrom for an enemy that did not move
+    private static final int NOT_MOVED = -1;
+
+    // the directions an enemy can move in: up, right, down, left
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {-1, 0, 1, 0};
+
+    // the threads the parallel update runs on
+    private final ForkJoinPool pool;
+
+    // per slot: the cell (y * columns + x) an enemy left during a parallel update,
+    // or NOT_MOVED. the occupancy grid is updated from this after all tasks finished
+    private int[] movedFrom = new int[0];
+
+    public EnemySystem() {
+        /**
+        Initializes the enemy system on the common fork-join pool, which has a
+        thread for every core.
+        @return void
+        */
+        this(ForkJoinPool.commonPool());
+    }
+
+    public EnemySystem(ForkJoinPool pool) {
+        /**
+        Initializes the enemy system on the given threads.
+        @param pool - the pool to run the parallel update on
+        @return void
+        */
+        this.pool = pool;
+    }
+
+    public void update(EntityStore store, OccupancyGrid occupancyGrid, BlockedTiles blockedTiles, int columns, int rows) {
+        /**
+        Updates every enemy in the store.
+        Each enemy waits MOVE_DELAY ticks, then moves one tile in a random direction.
+        Enemies never leave the board or walk into a wall, and the occupancy grid
+        is kept up to date.
+        Large enemy sets are split into ranges of slots that are updated in parallel.
+        Every enemy only reads and writes its own slot and draws from its own random
+        number generator, so the result is the same for any number of threads.
+        @param store - the store holding the enemies
+        @param occupancyGrid - the occupancy grid to record moves in
+        @param blockedTiles - the walls of the board
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @return void
+        */
+        int size = store.size();
+        if (size < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            for (int slot = 0; slot < size; slot++) {
+                int from = updateEnemy(store, blockedTiles, slot, columns, rows);
+                if (from != NOT_MOVED) {
+                    occupancyGrid.moveEnemy(from % columns, from / columns, store.getX(slot), store.getY(slot));
+                }
+            }
+            return;
+        }
+
+        if (movedFrom.length < size) {
+            movedFrom = new int[size];
+        }
+        pool.invoke(new UpdateTask(store, blockedTiles, movedFrom, columns, rows, 0, size));
+
+        // the grid is shared by all enemies, so it is updated on this thread. the
+        // counts don't depend on the order the moves are added in
+        for (int slot = 0; slot < size; slot++) {
+            int from = movedFrom[slot];
+            if (from != NOT_MOVED) {
+                occupancyGrid.moveEnemy(from % columns, from / columns, store.getX(slot), store.getY(slot));
+            }
+        }
+    }
+
+    private static int updateEnemy(EntityStore store, BlockedTiles blockedTiles, int slot, int columns, int rows) {
+        /**
+        Updates a single enemy.
+        @param store - the store holding the enemy
+        @param blockedTiles - the walls of the board
+        @param slot - the slot of the enemy
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @return the cell the enemy left, or NOT_MOVED if it stayed where it was
+        */
+        if (store.getType(slot) != EntityStore.ENEMY) {
+            return NOT_MOVED;
+        }
+
+        // only move every MOVE_DELAY ticks
+        int moveCounter = store.getMoveCounter(slot) + 1;
+        if (moveCounter < MOVE_DELAY) {
+            store.setMoveCounter(slot, moveCounter);
+            return NOT_MOVED;
+        }
+        store.setMoveCounter(slot, 0);
+
+        // move randomly, but prevent the enemy from moving off the board
+        int direction = store.nextRandom(slot, 4);
+        int x = store.getX(slot);
+        int y = store.getY(slot);
+        int newX = Math.max(0, Math.min(columns - 1, x + DX[direction]));
+        int newY = Math.max(0, Math.min(rows - 1, y + DY[direction]));
+
+        if ((newX == x && newY == y) || blockedTiles.isBlocked(newX, newY)) {
+            return NOT_MOVED;
+        }
+        store.setPosition(slot, newX, newY);
+        return y * columns + x;
+    }
+
+    private static class UpdateTask extends RecursiveAction {
+
+        private final EntityStore store;
+        private final BlockedTiles blockedTiles;
+        private final int[] movedFrom;
+        private final int columns;
+        private final int rows;
+        // the range of slots to update, end exclusive
+        private final int start;
+        private final int end;
+
+        UpdateTask(EntityStore store, BlockedTiles blockedTiles, int[] movedFrom, int columns, int rows, int start, int end) {
+            this.store = store;
+            this.blockedTiles = blockedTiles;
+            this.movedFrom = movedFrom;
+            this.columns = columns;
+            this.rows = rows;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            /**
+            Updates the enemies in this task's range, splitting it in half until
+            the ranges are small enough to update directly.
+            @return void
+            */
+            if (end - start <= TASK_SIZE) {
+                for (int slot = start; slot < end; slot++) {
+                    movedFrom[slot] = updateEnemy(store, blockedTiles, slot, columns, rows);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(
+                new UpdateTask(store, blockedTiles, movedFrom, columns, rows, start, middle),
+                new UpdateTask(store, blockedTiles, movedFrom, columns, rows, middle, end));
+        }
+    }
+}
@@ -4,23 +4,28 @@ import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.awt.Point;
-import java.io.File;
-import java.io.IOException;
-import javax.imageio.ImageIO;
 
-import utils.Logger;
 import utils.Contstants;
+import utils.SpriteCache;
 
 public abstract class Entity {
     
-    // image that represents the entity's position on the board
+    // image that represents the entity's position on the board. it is shared
+    // with every other entity that uses the same file, so it must not be modified
     protected BufferedImage image;
     
     // current position of the entity on the board grid
     protected Point position;
+    // position at the start of the current tick, used to draw the entity
+    // in between two ticks
+    protected Point previousPosition;
 
     protected int score;
 
+    // size of the board the entity lives on, used to keep it inside the board
+    protected int columns = Contstants.COLUMNS;
+    protected int rows = Contstants.ROWS;
+
     public Entity(int x, int y) {
         /**
         Initializes the entity.
@@ -30,9 +35,22 @@ public abstract class Entity {
         @return void
         */
         position = new Point(x, y);
+        previousPosition = new Point(x, y);
         score = 0;
     }
     
+    public void setBounds(int columns, int rows) {
+        /**
+        Sets the size of the board the entity lives on.
+        The entity is kept inside these bounds when it ticks.
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+    }
+
     public void addScore(int amount) {
         /**
         Adds to the entity's score.
@@ -53,15 +71,12 @@ public abstract class Entity {
     protected void loadImage(String filename) {
         /**
         Loads the entity image.
-        It loads the entity image from the images folder and throws an error if it fails to load.
+        It gets the shared, pre-scaled sprite from the sprite cache, which only reads
+        the file from the images folder the first time and logs an error if it fails to load.
         @param filename - the filename of the image to load
         @return void
         */
-        try {
-            image = ImageIO.read(new File(filename));
-        } catch (IOException exception) {
-            Logger.imageLoadError(filename, exception);
-        }
+        image = SpriteCache.get(filename);
     }
 
     public void draw(Graphics graphicsController, ImageObserver imageObserver) {
@@ -72,14 +87,39 @@ public abstract class Entity {
         @param imageObserver - the image observer to observe the entity image
         @return void
         */
-        graphicsController.drawImage(
-            image, 
-            position.x * Contstants.TILE_SIZE, 
-            position.y * Contstants.TILE_SIZE,
-            Contstants.TILE_SIZE,
-            Contstants.TILE_SIZE,
-            imageObserver
-        );
+        draw(graphicsController, imageObserver, 1f);
+    }
+
+    public void draw(Graphics graphicsController, ImageObserver imageObserver, float interpolation) {
+        /**
+        Draws the entity image in between two ticks.
+        It draws the entity image part of the way from its position at the start of
+        the tick to its current position. The sprite is already TILE_SIZE, so it is
+        copied without scaling.
+        @param graphicsController - the graphics controller to draw the entity image on
+        @param imageObserver - the image observer to observe the entity image
+        @param interpolation - how far into the next tick we are, from 0 (previous position) to 1 (current position)
+        @return void
+        */
+        float x = previousPosition.x + (position.x - previousPosition.x) * interpolation;
+        float y = previousPosition.y + (position.y - previousPosition.y) * interpolation;
+        int pixelX = Math.round(x * Contstants.TILE_SIZE);
+        int pixelY = Math.round(y * Contstants.TILE_SIZE);
+
+        // skip the entity if it is outside the area being repainted
+        if (!graphicsController.hitClip(pixelX, pixelY, Contstants.TILE_SIZE, Contstants.TILE_SIZE)) {
+            return;
+        }
+        graphicsController.drawImage(image, pixelX, pixelY, imageObserver);
+    }
+
+    public void savePreviousPosition() {
+        /**
+        Remembers the current position as the position at the start of the tick.
+        It is called by the world before each tick updates the entities.
+        @return void
+        */
+        previousPosition.setLocation(position);
     }
 
     public void tick() {
@@ -91,14 +131,14 @@ public abstract class Entity {
         // prevent the entity from moving off the edge of the board sideways
         if (position.x < 0) {
             position.x = 0;
-        } else if (position.x >= Contstants.COLUMNS) {
-            position.x = Contstants.COLUMNS - 1;
+        } else if (position.x >= columns) {
+            position.x = columns - 1;
         }
         // prevent the entity from moving off the edge of the board vertically
         if (position.y < 0) {
             position.y = 0;
-        } else if (position.y >= Contstants.ROWS) {
-            position.y = Contstants.ROWS - 1;
+        } else if (position.y >= rows) {
+            position.y = rows - 1;
         }
     }
 
@@ -111,6 +151,14 @@ public abstract class Entity {
         return position;
     }
 
+    public Point getPreviousPosition() {
+        /**
+        Gets the entity's position at the start of the current tick.
+        @return the previous position as a Point object
+        */
+        return previousPosition;
+    }
+
     public void setPosition(int x, int y) {
         /**
         Sets the entity's position.
@@ -120,6 +168,8 @@ public abstract class Entity {
         @return void
         */
         position.setLocation(x, y);
+        // a jump is not a move, so don't draw the entity sliding there
+        previousPosition.setLocation(x, y);
     }
 }
 
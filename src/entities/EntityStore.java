@@ -0,0 +1,265 @@
+package entities;
+
+import java.util.Arrays;
+
+public class EntityStore {
+
+    // type tags of the entities in the store
+    public static final byte ENEMY = 1;
+
+    // handle value that never refers to an entity
+    public static final int NO_HANDLE = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // number of entities in the store. their data is packed into the first
+    // size slots of the arrays below, so systems loop over them without gaps
+    private int size = 0;
+
+    // per slot: the entity's data, kept in parallel primitive arrays so an update
+    // walks straight through memory instead of chasing one object per entity
+    private byte[] types;
+    private int[] xs;
+    private int[] ys;
+    private int[] previousXs;
+    private int[] previousYs;
+    private int[] moveCounters;
+    private long[] randomStates;
+    // per slot: the handle of the entity in the slot
+    private int[] handles;
+
+    // per handle: the slot of the entity, or NO_HANDLE if the handle is free.
+    // slots change when entities are removed, handles never do
+    private int[] slotOfHandle;
+    // handles of removed entities, reused before new ones are made
+    private int[] freeHandles;
+    private int freeHandleCount = 0;
+    private int handleCount = 0;
+
+    public EntityStore() {
+        /**
+        Initializes an empty entity store.
+        @return void
+        */
+        types = new byte[INITIAL_CAPACITY];
+        xs = new int[INITIAL_CAPACITY];
+        ys = new int[INITIAL_CAPACITY];
+        previousXs = new int[INITIAL_CAPACITY];
+        previousYs = new int[INITIAL_CAPACITY];
+        moveCounters = new int[INITIAL_CAPACITY];
+        randomStates = new long[INITIAL_CAPACITY];
+        handles = new int[INITIAL_CAPACITY];
+        slotOfHandle = new int[INITIAL_CAPACITY];
+        freeHandles = new int[INITIAL_CAPACITY];
+    }
+
+    public int create(byte type, int x, int y, long seed) {
+        /**
+        Adds an entity to the store.
+        @param type - the type tag of the entity
+        @param x - the x coordinate of the entity
+        @param y - the y coordinate of the entity
+        @param seed - the seed of the entity's random number generator
+        @return the handle of the new entity, which stays valid until it is removed
+        */
+        if (size == types.length) {
+            growSlots();
+        }
+        int handle;
+        if (freeHandleCount > 0) {
+            handle = freeHandles[--freeHandleCount];
+        } else {
+            if (handleCount == slotOfHandle.length) {
+                slotOfHandle = Arrays.copyOf(slotOfHandle, handleCount * 2);
+                freeHandles = Arrays.copyOf(freeHandles, handleCount * 2);
+            }
+            handle = handleCount++;
+        }
+
+        int slot = size++;
+        types[slot] = type;
+        xs[slot] = x;
+        ys[slot] = y;
+        previousXs[slot] = x;
+        previousYs[slot] = y;
+        moveCounters[slot] = 0;
+        // xorshift can't leave the all zero state, so never start there
+        randomStates[slot] = seed != 0 ? seed : 0x9E3779B97F4A7C15L;
+        handles[slot] = handle;
+        slotOfHandle[handle] = slot;
+        return handle;
+    }
+
+    public void remove(int handle) {
+        /**
+        Removes an entity from the store in O(1).
+        The last entity is moved into the removed entity's slot, so the slots stay
+        packed. Its handle still refers to it.
+        @param handle - the handle of the entity to remove
+        @return void
+        */
+        int slot = slotOfHandle[handle];
+        int last = --size;
+        if (slot != last) {
+            types[slot] = types[last];
+            xs[slot] = xs[last];
+            ys[slot] = ys[last];
+            previousXs[slot] = previousXs[last];
+            previousYs[slot] = previousYs[last];
+            moveCounters[slot] = moveCounters[last];
+            randomStates[slot] = randomStates[last];
+            handles[slot] = handles[last];
+            slotOfHandle[handles[slot]] = slot;
+        }
+        slotOfHandle[handle] = NO_HANDLE;
+        freeHandles[freeHandleCount++] = handle;
+    }
+
+    private void growSlots() {
+        /**
+        Doubles the number of entities the slot arrays can hold.
+        @return void
+        */
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        previousXs = Arrays.copyOf(previousXs, capacity);
+        previousYs = Arrays.copyOf(previousYs, capacity);
+        moveCounters = Arrays.copyOf(moveCounters, capacity);
+        randomStates = Arrays.copyOf(randomStates, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+    }
+
+    public void savePreviousPositions() {
+        /**
+        Remembers every entity's current position as its position at the start of
+        the tick, so it can be drawn moving between the two.
+        @return void
+        */
+        System.arraycopy(xs, 0, previousXs, 0, size);
+        System.arraycopy(ys, 0, previousYs, 0, size);
+    }
+
+    public int size() {
+        /**
+        Gets the number of entities in the store.
+        Slots 0 to size() - 1 hold entities.
+        @return the number of entities
+        */
+        return size;
+    }
+
+    public int slotOf(int handle) {
+        /**
+        Gets the slot an entity is currently stored in.
+        @param handle - the handle of the entity
+        @return the slot, or NO_HANDLE if the entity was removed
+        */
+        return slotOfHandle[handle];
+    }
+
+    public int getHandle(int slot) {
+        /**
+        Gets the handle of the entity in a slot.
+        @param slot - the slot of the entity
+        @return the handle
+        */
+        return handles[slot];
+    }
+
+    public byte getType(int slot) {
+        /**
+        Gets the type tag of the entity in a slot.
+        @param slot - the slot of the entity
+        @return the type tag
+        */
+        return types[slot];
+    }
+
+    public int getX(int slot) {
+        /**
+        Gets the x coordinate of the entity in a slot.
+        @param slot - the slot of the entity
+        @return the x coordinate
+        */
+        return xs[slot];
+    }
+
+    public int getY(int slot) {
+        /**
+        Gets the y coordinate of the entity in a slot.
+        @param slot - the slot of the entity
+        @return the y coordinate
+        */
+        return ys[slot];
+    }
+
+    public int getPreviousX(int slot) {
+        /**
+        Gets the x coordinate the entity in a slot had at the start of the tick.
+        @param slot - the slot of the entity
+        @return the previous x coordinate
+        */
+        return previousXs[slot];
+    }
+
+    public int getPreviousY(int slot) {
+        /**
+        Gets the y coordinate the entity in a slot had at the start of the tick.
+        @param slot - the slot of the entity
+        @return the previous y coordinate
+        */
+        return previousYs[slot];
+    }
+
+    public void setPosition(int slot, int x, int y) {
+        /**
+        Moves the entity in a slot.
+        @param slot - the slot of the entity
+        @param x - the new x coordinate
+        @param y - the new y coordinate
+        @return void
+        */
+        xs[slot] = x;
+        ys[slot] = y;
+    }
+
+    public int getMoveCounter(int slot) {
+        /**
+        Gets the number of ticks since the entity in a slot last moved.
+        @param slot - the slot of the entity
+        @return the move counter
+        */
+        return moveCounters[slot];
+    }
+
+    public void setMoveCounter(int slot, int moveCounter) {
+        /**
+        Sets the number of ticks since the entity in a slot last moved.
+        @param slot - the slot of the entity
+        @param moveCounter - the new move counter
+        @return void
+        */
+        moveCounters[slot] = moveCounter;
+    }
+
+    public int nextRandom(int slot, int bound) {
+        /**
+        Draws a random number from the entity's own generator (xorshift64*).
+        The generator state is a plain long in the store, so drawing a number
+        doesn't touch any other object.
+        @param slot - the slot of the entity
+        @param bound - the upper bound (exclusive), must be positive
+        @return a random number from 0 to bound - 1
+        */
+        long state = randomStates[slot];
+        state ^= state >>> 12;
+        state ^= state << 25;
+        state ^= state >>> 27;
+        randomStates[slot] = state;
+        // use the high bits, they are the most random ones of xorshift64*
+        long random = (state * 0x2545F4914F6CDD1DL) >>> 33;
+        return (int) ((random * bound) >>> 31);
+    }
+}
@@ -28,8 +28,17 @@ public class Player extends Entity {
         @param keyPressEvent - the key press event to react to
         @return void
         */
-        int key = keyPressEvent.getKeyCode();
-        
+        handleKey(keyPressEvent.getKeyCode());
+    }
+
+    public void handleKey(int key) {
+        /**
+        Reacts to a key code.
+        It moves the player one tile in the direction of the key. This takes a plain
+        key code so the simulation can be driven without AWT events.
+        @param key - the KeyEvent key code to react to
+        @return void
+        */
         if (key == KeyEvent.VK_UP) {
             position.translate(0, -1);
         }
@@ -62,15 +71,16 @@ public class Player extends Entity {
         tick(); // use parent's boundary checking
     }
 
-    public void drawPlayer(Graphics graphicsController, ImageObserver imageObserver) {
+    public void drawPlayer(Graphics graphicsController, ImageObserver imageObserver, float interpolation) {
         /**
         Draws the player image.
         It draws the player image at the current player position on the board.
         @param graphicsController - the graphics controller to draw the player image on
         @param imageObserver - the image observer to observe the player image
+        @param interpolation - how far into the next tick we are, from 0 to 1
         @return void
         */
-        draw(graphicsController, imageObserver); // use parent's draw method
+        draw(graphicsController, imageObserver, interpolation); // use parent's draw method
     }
 }
 
@@ -3,16 +3,36 @@ package entities;
 import java.awt.Graphics;
 import java.awt.image.ImageObserver;
 import java.awt.Point;
-import java.util.*;
 
-import game.Coin;
+import game.CoinIndex;
+import pathfinding.BlockedTiles;
+import pathfinding.CoinDistanceField;
+import pathfinding.GridPathfinder;
+import pathfinding.HierarchicalPathfinder;
 import utils.Contstants;
 
 public class Traveler extends Entity {
 
     private int moveCounter;
     private final int MOVE_DELAY = 15; // traveler moves every 15 ticks
-    private Point targetCoin; // the coin the traveler is currently moving toward
+    private static final int PATH_CAPACITY = 256; // most tiles of a path kept at once; longer paths are searched again at the end
+    private static final int NO_PATH = -1;
+    private Point targetCoin; // the coin the traveler is currently moving toward, kept until it is collected
+
+    // the cached path: the tiles after pathStart toward pathTarget, of which the
+    // traveler has walked the first pathIndex. it stays valid until the target
+    // changes, the traveler leaves it, or walls change in a way that matters
+    private int[] path; // created with the first path, never on boards without walls that are too large for BFS
+    private int pathLength = NO_PATH; // number of tiles in path, or NO_PATH if nothing is cached
+    private int pathIndex;
+    private int pathStart;
+    private int pathTarget;
+    private boolean pathUnreachable; // the last search found no way to pathTarget at all
+    private int pathWallsAdded; // the walls' change counts when the path was checked last
+    private int pathWallsRemoved;
+    private GridPathfinder pathfinder; // reusable BFS buffers sized to the board, created on the first search, never on huge boards
+    private BlockedTiles blockedTiles; // walls of the board, null until the traveler is told about them
+    private HierarchicalPathfinder hierarchicalPathfinder; // paths across huge boards with walls, or null
 
     private String travelerImage = "images/traveler.png";
 
@@ -34,11 +54,14 @@ public class Traveler extends Entity {
         targetCoin = null;
     }
 
-    public void updateTraveler(ArrayList<Coin> coins) {
+    public void updateTraveler(CoinIndex coins) {
         /**
         Updates the traveler state.
-        It finds the nearest coin and moves toward it using pathfinding.
-        @param coins - the list of coins on the board
+        It keeps moving toward the coin it picked until that coin is collected,
+        then asks the coin index for the nearest one. Moves follow the cached
+        path, so as long as the coin and the walls along the way stay put a move
+        is O(1).
+        @param coins - the spatial index of the coins on the board
         @return void
         */
         moveCounter++;
@@ -47,11 +70,13 @@ public class Traveler extends Entity {
         if (moveCounter >= MOVE_DELAY) {
             moveCounter = 0;
             
-            // find nearest coin
-            Coin nearestCoin = findNearestCoin(coins);
+            // find nearest coin once the old target is gone
+            if (targetCoin == null || !coins.contains(targetCoin.x, targetCoin.y)) {
+                int nearest = findNearestCoin(coins);
+                targetCoin = nearest == CoinIndex.NONE ? null : new Point(nearest % columns, nearest / columns);
+            }
             
-            if (nearestCoin != null) {
-                targetCoin = nearestCoin.getCurrentCoinPostion();
+            if (targetCoin != null) {
                 moveTowardTarget();
             }
         }
@@ -60,44 +85,45 @@ public class Traveler extends Entity {
         tick();
     }
 
-    private Coin findNearestCoin(ArrayList<Coin> coins) {
+    public void updateTraveler(CoinDistanceField distanceField) {
         /**
-        Finds the nearest coin to the traveler.
-        @param coins - the list of coins on the board
-        @return the nearest coin, or null if no coins exist
+        Updates the traveler state using the shared coin distance field.
+        The field already knows the path distance from every tile to the nearest
+        coin, so moving is just a step to the neighbor one tile closer, which is O(1)
+        no matter how large the board is.
+        @param distanceField - the distance field to the nearest coin
+        @return void
         */
-        if (coins.isEmpty()) {
-            return null;
-        }
+        moveCounter++;
 
-        Coin nearest = null;
-        int minDistance = Integer.MAX_VALUE;
+        // only move every MOVE_DELAY ticks
+        if (moveCounter >= MOVE_DELAY) {
+            moveCounter = 0;
 
-        for (Coin coin : coins) {
-            int distance = manhattanDistance(position, coin.getCurrentCoinPostion());
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearest = coin;
+            int nextStep = distanceField.nextStep(position.x, position.y);
+            if (nextStep >= 0) {
+                position.setLocation(nextStep % columns, nextStep / columns);
             }
         }
 
-        return nearest;
+        // prevent from going off board
+        tick();
     }
 
-    private int manhattanDistance(Point a, Point b) {
+    int findNearestCoin(CoinIndex coins) {
         /**
-        Calculates the Manhattan distance between two points.
-        @param a - the first point
-        @param b - the second point
-        @return the Manhattan distance
+        Finds the nearest coin to the traveler by Manhattan distance.
+        The coin index only searches the buckets around the traveler, so this
+        does not depend on how many coins there are.
+        @param coins - the spatial index of the coins on the board
+        @return the cell index of the nearest coin, or CoinIndex.NONE if no coins exist
         */
-        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+        return coins.nearest(position.x, position.y, null);
     }
 
     private void moveTowardTarget() {
         /**
-        Moves the traveler one step toward the target coin using pathfinding.
-        Uses BFS to find the shortest path.
+        Moves the traveler one step toward the target coin along its path.
         @return void
         */
         if (targetCoin == null) {
@@ -109,135 +135,220 @@ public class Traveler extends Entity {
             return;
         }
 
-        // use BFS to find shortest path
-        Point nextStep = findNextStep();
+        int nextStep = findNextStep(targetCoin);
         
-        if (nextStep != null) {
-            position.setLocation(nextStep);
+        if (nextStep >= 0) {
+            position.setLocation(nextStep % columns, nextStep / columns);
         }
     }
 
-    private Point findNextStep() {
+    int findNextStep(Point targetCoin) {
         /**
-        Finds the next step toward the target using BFS pathfinding.
-        @return the next position to move to, or null if no path exists
+        Finds the next step toward the target.
+        The traveler follows its cached path and only searches again when the
+        path no longer applies: the target changed, the traveler is not where the
+        path expects it, a wall went up on the rest of the path, a wall was
+        cleared (a shorter path may exist now), or it walked to the end of a path
+        that was cut off. Searches run on preallocated buffers, so they do not
+        allocate any memory.
+        @param targetCoin - the position to move toward
+        @return the cell index (y * columns + x) of the next position, or -1 if there is no target
         */
         if (targetCoin == null) {
-            return null;
+            return -1;
         }
 
-        // BFS to find shortest path
-        Queue<Point> queue = new LinkedList<>();
-        Map<Point, Point> cameFrom = new HashMap<>();
-        Set<Point> visited = new HashSet<>();
-
-        queue.add(position);
-        visited.add(position);
-        cameFrom.put(position, null); 
-
-        Point[] directions = {
-            new Point(0, -1),  // up
-            new Point(1, 0),   // right
-            new Point(0, 1),   // down
-            new Point(-1, 0)   // left
-        };
+        // the search buffers are only allocated once needed, so travelers moved
+        // by a TravelerSystem never pay for them
+        if (pathfinder == null && (long) columns * rows <= Contstants.MAX_SEARCH_CELLS) {
+            pathfinder = new GridPathfinder(columns, rows);
+            pathfinder.setBlockedTiles(blockedTiles);
+        }
 
-        while (!queue.isEmpty()) {
-            Point current = queue.poll();
+        // huge boards have no board-sized search buffers. with walls they use the
+        // hierarchical pathfinder, without walls a straight step toward the
+        // target is also a shortest path
+        if (pathfinder == null && hierarchicalPathfinder == null) {
+            return moveCloserSimple(targetCoin);
+        }
 
-            // found target
-            if (current.equals(targetCoin)) {
-                // reconstruct path and return first step
-                return reconstructFirstStep(cameFrom, current);
-            }
+        int cell = position.y * columns + position.x;
+        int targetCell = targetCoin.y * columns + targetCoin.x;
+        // catch up with the step taken since the last call
+        if (pathIndex < pathLength && path[pathIndex] == cell) {
+            pathIndex++;
+        }
+        if (!isPathValid(cell, targetCell)) {
+            searchPath(cell, targetCell);
+        }
 
-            // explore neighbors
-            for (Point dir : directions) {
-                Point neighbor = new Point(current.x + dir.x, current.y + dir.y);
+        if (pathUnreachable) {
+            // no path found - move closer using simple heuristic
+            return moveCloserSimple(targetCoin);
+        }
+        return pathIndex < pathLength ? path[pathIndex] : cell;
+    }
 
-                // check if neighbor is valid and not visited
-                if (isValidPosition(neighbor) && !visited.contains(neighbor)) {
-                    queue.add(neighbor);
-                    visited.add(neighbor);
-                    cameFrom.put(neighbor, current);
+    private boolean isPathValid(int cell, int targetCell) {
+        /**
+        Checks if the cached path still leads from the traveler's tile to the
+        target. New walls only matter if they are on the rest of the path, so
+        that is checked in O(path length), and only after walls went up.
+        @param cell - the cell the traveler is on
+        @param targetCell - the cell of the target
+        @return true if the traveler can keep following the cached path
+        */
+        if (pathLength == NO_PATH || pathTarget != targetCell) {
+            return false;
+        }
+        if (blockedTiles != null && blockedTiles.getWallsRemoved() != pathWallsRemoved) {
+            return false;
+        }
+        if (pathUnreachable) {
+            // walls going up don't open any way to the target
+            pathWallsAdded = blockedTiles == null ? 0 : blockedTiles.getWallsAdded();
+            return true;
+        }
+        if (cell != (pathIndex == 0 ? pathStart : path[pathIndex - 1])) {
+            return false;
+        }
+        if (pathIndex == pathLength && cell != targetCell) {
+            return false;
+        }
+        if (blockedTiles != null && blockedTiles.getWallsAdded() != pathWallsAdded) {
+            for (int i = pathIndex; i < pathLength; i++) {
+                if (blockedTiles.isBlocked(path[i])) {
+                    return false;
                 }
             }
+            pathWallsAdded = blockedTiles.getWallsAdded();
         }
-
-        // no path found - move closer using simple heuristic
-        return moveCloserSimple();
+        return true;
     }
 
-    private Point reconstructFirstStep(Map<Point, Point> cameFrom, Point target) {
+    private void searchPath(int cell, int targetCell) {
         /**
-        Reconstructs the path and returns the first step from current position.
-        @param cameFrom - the map of where each position came from
-        @param target - the target position
-        @return the first step in the path
+        Searches a new path from the traveler's tile to the target and caches it.
+        @param cell - the cell the traveler is on
+        @param targetCell - the cell of the target
+        @return void
         */
-        Point current = target;
-        Point previous = cameFrom.get(current);
-
-        // backtrack until we find the step right after our current position
-        while (previous != null && !previous.equals(position)) {
-            current = previous;
-            previous = cameFrom.get(current);
+        if (path == null) {
+            path = new int[PATH_CAPACITY];
         }
+        int startX = cell % columns;
+        int startY = cell / columns;
+        int targetX = targetCell % columns;
+        int targetY = targetCell / columns;
+        int length = pathfinder != null
+            ? pathfinder.findPath(startX, startY, targetX, targetY, path)
+            : hierarchicalPathfinder.findPath(startX, startY, targetX, targetY, path);
+
+        pathUnreachable = length < 0;
+        pathLength = Math.max(length, 0);
+        pathIndex = 0;
+        pathStart = cell;
+        pathTarget = targetCell;
+        pathWallsAdded = blockedTiles == null ? 0 : blockedTiles.getWallsAdded();
+        pathWallsRemoved = blockedTiles == null ? 0 : blockedTiles.getWallsRemoved();
+    }
 
-        return current;
+    void forgetPath() {
+        /**
+        Drops the cached path, so the next step searches a new one.
+        @return void
+        */
+        pathLength = NO_PATH;
     }
 
-    private Point moveCloserSimple() {
+    private int moveCloserSimple(Point targetCoin) {
         /**
         Simple fallback movement - move one step closer to target.
-        @return the next position
+        It never steps into a wall, so it can get stuck behind one.
+        @param targetCoin - the position to move toward
+        @return the cell index of the next position
         */
-        if (targetCoin == null) {
-            return position;
-        }
-
         int dx = Integer.compare(targetCoin.x, position.x);
         int dy = Integer.compare(targetCoin.y, position.y);
 
         // try horizontal movement first
-        if (dx != 0) {
-            Point next = new Point(position.x + dx, position.y);
-            if (isValidPosition(next)) {
-                return next;
-            }
+        if (dx != 0 && isInside(position.x + dx, position.y)) {
+            return position.y * columns + position.x + dx;
         }
 
         // try vertical movement
-        if (dy != 0) {
-            Point next = new Point(position.x, position.y + dy);
-            if (isValidPosition(next)) {
-                return next;
-            }
+        if (dy != 0 && isInside(position.x, position.y + dy)) {
+            return (position.y + dy) * columns + position.x;
         }
 
-        return position;
+        return position.y * columns + position.x;
+    }
+
+    private boolean isInside(int x, int y) {
+        /**
+        Checks if a tile is on the board and not a wall.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if the traveler can step onto the tile, false otherwise
+        */
+        return x >= 0 && x < columns && y >= 0 && y < rows
+            && (blockedTiles == null || !blockedTiles.isBlocked(x, y));
     }
 
-    private boolean isValidPosition(Point p) {
+    public void setWalls(BlockedTiles blockedTiles, HierarchicalPathfinder hierarchicalPathfinder) {
         /**
-        Checks if a position is valid (within board bounds).
-        @param p - the position to check
-        @return true if valid, false otherwise
+        Sets the walls the traveler has to walk around.
+        @param blockedTiles - the walls of the board
+        @param hierarchicalPathfinder - the pathfinder to use on boards too large
+                                        for BFS, or null
+        @return void
         */
-        return p.x >= 0 && p.x < Contstants.COLUMNS && 
-               p.y >= 0 && p.y < Contstants.ROWS;
+        this.blockedTiles = blockedTiles;
+        this.hierarchicalPathfinder = hierarchicalPathfinder;
+        if (pathfinder != null) {
+            pathfinder.setBlockedTiles(blockedTiles);
+        }
+        forgetPath();
     }
 
+    @Override
+    public void setBounds(int columns, int rows) {
+        /**
+        Sets the size of the board the traveler lives on.
+        Search buffers sized for another board are dropped; the next search
+        allocates them for this one. Boards with more than MAX_SEARCH_CELLS tiles
+        get no search buffers at all.
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @return void
+        */
+        super.setBounds(columns, rows);
+        if (pathfinder != null && (pathfinder.getColumns() != columns || pathfinder.getRows() != rows)) {
+            pathfinder = null;
+        }
+        forgetPath();
+    }
 
+    void stepTo(int x, int y) {
+        /**
+        Moves the traveler to a tile, as one step of a plan made for it by a
+        TravelerSystem.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return void
+        */
+        position.setLocation(x, y);
+    }
 
-    public void drawTraveler(Graphics graphicsController, ImageObserver imageObserver) {
+    public void drawTraveler(Graphics graphicsController, ImageObserver imageObserver, float interpolation) {
         /**
         Draws the traveler image.
         @param graphicsController - the graphics controller
         @param imageObserver - the image observer
+        @param interpolation - how far into the next tick we are, from 0 to 1
         @return void
         */
-        draw(graphicsController, imageObserver);
+        draw(graphicsController, imageObserver, interpolation);
     }
 
     public boolean isAtPosition(Point coinPosition) {
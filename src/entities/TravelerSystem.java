@@ -0,0 +1,658 @@
+package entities;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import game.CoinIndex;
+import game.OccupancyGrid;
+import pathfinding.BlockedTiles;
+import pathfinding.ReservationTable;
+import pathfinding.SpaceTimePlanner;
+import pathfinding.TileFilter;
+import utils.Contstants;
+import utils.LongIntMap;
+
+public class TravelerSystem {
+
+    // travelers move every 15 ticks, like a single traveler
+    private static final int MOVE_DELAY = 15;
+
+    // number of steps a plan looks ahead
+    public static final int WINDOW = 16;
+    // a traveler plans again once its plan has this many steps or fewer left
+    private static final int REPLAN_AHEAD = WINDOW / 2;
+
+    // default number of plans made per tick
+    public static final int DEFAULT_PLANNING_BUDGET = 64;
+    // fewer plans than this in a tick are made on the calling thread, because
+    // handing them to other threads would cost more than it saves
+    private static final int PARALLEL_THRESHOLD = 16;
+
+    // value used for a traveler without a target coin
+    private static final int NO_TARGET = -1;
+
+    // the directions of the neighboring tiles: up, right, down, left
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {-1, 0, 1, 0};
+
+    // the threads planning runs on
+    private final ForkJoinPool pool;
+
+    private final ArrayList<Traveler> travelers;
+    private final BlockedTiles blockedTiles;
+    private final int columns;
+    private final int rows;
+
+    // which traveler is on which tile at which step, so plans never collide
+    private final ReservationTable reservations;
+    // the traveler heading for each coin, keyed by the coin's cell, so no two
+    // travelers go for the same coin
+    private final LongIntMap claims;
+
+    // per traveler: its plan, as the cell of every step from planStart on. the
+    // traveler stays on the last cell once the plan runs out
+    private final int[] plans;
+    private final int[] planStart;
+    private final int[] planLength;
+    // per traveler: the cell of the coin it is heading for, or NO_TARGET
+    private final int[] targets;
+    // per tile: the connected area of floor it belongs to, so coins walled off
+    // from a traveler are never chosen. null on boards too large for
+    // whole-board buffers
+    private final int[] areas;
+    // per traveler: a coin it found no way to, skipped when choosing the next one
+    private final int[] unreachableTargets;
+    // per traveler: the coin it plans toward by true distance instead of
+    // Manhattan distance, because a plan by Manhattan distance got stuck
+    private final int[] exactTargets;
+    // per traveler: the step before which it is not planned again after a
+    // failed attempt, so travelers with nothing to do don't use up the budget
+    private final int[] retryStep;
+
+    // number of move steps taken so far
+    private int step = 0;
+    private int moveCounter = 0;
+    // the traveler the next tick's planning starts looking at, so every
+    // traveler gets its turn when there are more than the budget allows
+    private int cursor = 0;
+    private int planningBudget = DEFAULT_PLANNING_BUDGET;
+
+    // one planner and one coin filter per thread, created when first needed
+    private final SpaceTimePlanner[] planners;
+    private final TargetFilter[] filters;
+
+    // the plans made in the current tick, before they are checked and committed
+    private int[] selected = new int[0];
+    private int[] selectedTargets = new int[0];
+    private int[] selectedLengths = new int[0];
+    private int[] selectedPlans = new int[0];
+
+    // planning statistics since the system was created
+    private long plansCommitted = 0;
+    private long plansRedone = 0;
+    private long plansFailed = 0;
+
+    public TravelerSystem(ArrayList<Traveler> travelers, BlockedTiles blockedTiles, int columns, int rows) {
+        /**
+        Initializes the traveler system on the common fork-join pool, which has a
+        thread for every core.
+        @param travelers - the travelers to move, each on a different tile
+        @param blockedTiles - the walls of the board
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @return void
+        */
+        this(travelers, blockedTiles, columns, rows, ForkJoinPool.commonPool());
+    }
+
+    public TravelerSystem(ArrayList<Traveler> travelers, BlockedTiles blockedTiles, int columns, int rows, ForkJoinPool pool) {
+        /**
+        Initializes the traveler system on the given threads.
+        Every traveler starts without a plan, staying on its tile.
+        @param travelers - the travelers to move, each on a different tile
+        @param blockedTiles - the walls of the board
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @param pool - the pool to plan on
+        @return void
+        */
+        this.travelers = travelers;
+        this.blockedTiles = blockedTiles;
+        this.columns = columns;
+        this.rows = rows;
+        this.pool = pool;
+
+        int count = travelers.size();
+        reservations = new ReservationTable(count);
+        claims = new LongIntMap(count);
+        plans = new int[count * (WINDOW + 1)];
+        planStart = new int[count];
+        planLength = new int[count];
+        targets = new int[count];
+        unreachableTargets = new int[count];
+        exactTargets = new int[count];
+        retryStep = new int[count];
+        planners = new SpaceTimePlanner[Math.max(1, pool.getParallelism())];
+        filters = new TargetFilter[planners.length];
+        areas = (long) columns * rows <= Contstants.MAX_SEARCH_CELLS ? new int[columns * rows] : null;
+        reset();
+    }
+
+    public void update(CoinIndex coins, OccupancyGrid occupancyGrid) {
+        /**
+        Updates every traveler.
+        Each tick up to the planning budget of travelers plan their next steps;
+        every MOVE_DELAY ticks all travelers take a step of their plans at once.
+        The occupancy grid is kept up to date.
+        @param coins - the spatial index of the coins on the board
+        @param occupancyGrid - the occupancy grid to find coins in and record moves in
+        @return void
+        */
+        plan(coins, occupancyGrid);
+
+        moveCounter++;
+        if (moveCounter >= MOVE_DELAY) {
+            moveCounter = 0;
+            advance(occupancyGrid);
+        }
+    }
+
+    private void plan(CoinIndex coins, OccupancyGrid occupancyGrid) {
+        /**
+        Makes this tick's plans.
+        The travelers that need a plan are first planned independently, in
+        parallel when there are enough of them, against the reservations as they
+        were at the start of the tick. The plans are then checked and committed
+        one by one in a fixed order; a plan that collides with one committed
+        before it in the same tick is made again right there. Nothing depends on
+        which thread made which plan, so the result is the same for any number of
+        threads.
+        @param coins - the spatial index of the coins on the board
+        @param occupancyGrid - the occupancy grid to find coins in
+        @return void
+        */
+        int count = selectTravelers(occupancyGrid);
+        if (count == 0) {
+            return;
+        }
+
+        if (count < PARALLEL_THRESHOLD || planners.length < 2) {
+            for (int i = 0; i < count; i++) {
+                planSelected(0, coins, i);
+            }
+        } else {
+            pool.invoke(new PlanTask(this, coins, count, 0, planners.length));
+        }
+
+        for (int i = 0; i < count; i++) {
+            int traveler = selected[i];
+            int target = selectedTargets[i];
+            int length = selectedLengths[i];
+            int offset = i * (WINDOW + 1);
+            if (target != NO_TARGET && length > 0 && !isStillValid(traveler, target, offset, length)) {
+                // something committed earlier this tick is in the way
+                plansRedone++;
+                target = chooseTarget(traveler, coins, filter(0));
+                length = target == NO_TARGET ? 0 : planToward(planner(0), traveler, target, offset);
+            }
+
+            if (target == NO_TARGET || length <= 0) {
+                if (length == SpaceTimePlanner.UNREACHABLE) {
+                    unreachableTargets[traveler] = target;
+                }
+                // keep following the old plan, but let others have the coin
+                releaseClaim(traveler);
+                plansFailed++;
+                retryStep[traveler] = step + 1;
+                continue;
+            }
+            commit(traveler, target, offset, length);
+        }
+    }
+
+    private int selectTravelers(OccupancyGrid occupancyGrid) {
+        /**
+        Picks up to the planning budget of travelers that need a new plan,
+        starting at the cursor. A traveler needs one when it has no target, its
+        target coin is gone, or its plan is about to run out before the target.
+        @param occupancyGrid - the occupancy grid to find coins in
+        @return the number of travelers picked into selected
+        */
+        int travelerCount = travelers.size();
+        int budget = Math.min(planningBudget, travelerCount);
+        if (selected.length < budget) {
+            selected = new int[budget];
+            selectedTargets = new int[budget];
+            selectedLengths = new int[budget];
+            selectedPlans = new int[budget * (WINDOW + 1)];
+        }
+
+        int count = 0;
+        int checked = 0;
+        while (count < budget && checked < travelerCount) {
+            int traveler = (cursor + checked) % travelerCount;
+            checked++;
+            if (needsPlan(traveler, occupancyGrid)) {
+                selected[count++] = traveler;
+            }
+        }
+        cursor = (cursor + checked) % travelerCount;
+        return count;
+    }
+
+    private boolean needsPlan(int traveler, OccupancyGrid occupancyGrid) {
+        /**
+        Checks if a traveler should plan again.
+        @param traveler - the traveler
+        @param occupancyGrid - the occupancy grid to find coins in
+        @return true if the traveler needs a new plan
+        */
+        if (step < retryStep[traveler]) {
+            return false;
+        }
+        int target = targets[traveler];
+        if (target == NO_TARGET || !occupancyGrid.hasCoin(target % columns, target / columns)) {
+            return true;
+        }
+        int last = planStart[traveler] + planLength[traveler] - 1;
+        return last - step <= REPLAN_AHEAD && plans[traveler * (WINDOW + 1) + planLength[traveler] - 1] != target;
+    }
+
+    void planSelected(int thread, CoinIndex coins, int i) {
+        /**
+        Chooses a target and makes a plan for one of the selected travelers.
+        It only reads shared state, so several can run at the same time.
+        @param thread - the index of the calling thread's planner and filter
+        @param coins - the spatial index of the coins on the board
+        @param i - the index of the traveler in selected
+        @return void
+        */
+        int traveler = selected[i];
+        int target = chooseTarget(traveler, coins, filter(thread));
+        selectedTargets[i] = target;
+        selectedLengths[i] = target == NO_TARGET ? 0 : planToward(planner(thread), traveler, target, i * (WINDOW + 1));
+    }
+
+    private int planToward(SpaceTimePlanner planner, int traveler, int target, int offset) {
+        /**
+        Plans a traveler's next steps toward a coin.
+        The plan is guided by the Manhattan distance, which is cheap. If that
+        plan gets no closer to the coin, the traveler may be in a dead end behind
+        walls, so it plans again by true distance and keeps doing so until it
+        has a new target.
+        @param planner - the planner of the calling thread
+        @param traveler - the traveler
+        @param target - the cell of the coin
+        @param offset - the index in selectedPlans to write the plan to
+        @return the length of the plan, 0 if none was found, or UNREACHABLE
+        */
+        int start = currentCell(traveler);
+        boolean exact = exactTargets[traveler] == target;
+        int length = planner.plan(reservations, traveler, start, step, target, exact, selectedPlans, offset);
+        if (length > 0 && !exact && planner.hasExactDistances()) {
+            int end = selectedPlans[offset + length - 1];
+            if (end != target && planner.manhattanDistance(end, target) >= planner.manhattanDistance(start, target)) {
+                exactTargets[traveler] = target;
+                length = planner.plan(reservations, traveler, start, step, target, true, selectedPlans, offset);
+            }
+        }
+        return length;
+    }
+
+    private int chooseTarget(int traveler, CoinIndex coins, TargetFilter filter) {
+        /**
+        Finds the nearest coin (by Manhattan distance) no other traveler is
+        heading for. The coin index only searches the buckets around the
+        traveler, out to the nearest coin the filter accepts.
+        @param traveler - the traveler
+        @param coins - the spatial index of the coins on the board
+        @param filter - the calling thread's filter
+        @return the cell of the coin, or NO_TARGET if there is none
+        */
+        // once every coin is taken there's nothing to look for, which is common
+        // with more travelers than coins
+        int ownClaim = targets[traveler] != NO_TARGET && claims.get(targets[traveler]) == traveler ? 1 : 0;
+        if (claims.size() - ownClaim >= coins.size()) {
+            return NO_TARGET;
+        }
+
+        Point position = travelers.get(traveler).getPosition();
+        filter.traveler = traveler;
+        filter.area = areas != null ? areas[position.y * columns + position.x] : 0;
+        int best = coins.nearest(position.x, position.y, filter);
+        return best == CoinIndex.NONE ? NO_TARGET : best;
+    }
+
+    private boolean isStillValid(int traveler, int target, int offset, int length) {
+        /**
+        Checks a plan made this tick against the reservations committed since.
+        @param traveler - the traveler the plan is for
+        @param target - the coin the plan heads for
+        @param offset - the index of the plan's first cell in selectedPlans
+        @param length - the number of cells in the plan
+        @return true if the plan can still be committed as it is
+        */
+        int claimedBy = claims.get(target);
+        if (claimedBy != LongIntMap.NONE && claimedBy != traveler) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            if (!reservations.canEnter(selectedPlans[offset + i - 1], selectedPlans[offset + i], step + i - 1, traveler)) {
+                return false;
+            }
+        }
+        return reservations.canPark(selectedPlans[offset + length - 1], step + length - 1, traveler);
+    }
+
+    private void commit(int traveler, int target, int offset, int length) {
+        /**
+        Replaces a traveler's plan and target with a new one.
+        The old plan's reservations and the old claim are released, then the new
+        plan's tiles are reserved and the new target claimed.
+        @param traveler - the traveler
+        @param target - the coin the plan heads for
+        @param offset - the index of the plan's first cell in selectedPlans
+        @param length - the number of cells in the plan
+        @return void
+        */
+        releasePlan(traveler);
+        releaseClaim(traveler);
+
+        int base = traveler * (WINDOW + 1);
+        System.arraycopy(selectedPlans, offset, plans, base, length);
+        planStart[traveler] = step;
+        planLength[traveler] = length;
+        for (int i = 0; i < length - 1; i++) {
+            reservations.reserve(plans[base + i], step + i, traveler);
+        }
+        reservations.park(plans[base + length - 1], step + length - 1, traveler);
+
+        targets[traveler] = target;
+        claims.put(target, traveler);
+        unreachableTargets[traveler] = NO_TARGET;
+        plansCommitted++;
+    }
+
+    private void releaseClaim(int traveler) {
+        /**
+        Lets go of the coin a traveler is heading for.
+        @param traveler - the traveler
+        @return void
+        */
+        if (targets[traveler] != NO_TARGET && claims.get(targets[traveler]) == traveler) {
+            claims.remove(targets[traveler]);
+        }
+        targets[traveler] = NO_TARGET;
+    }
+
+    public void coinRemoved(int x, int y) {
+        /**
+        Drops the claim on a coin that was collected. The traveler that was
+        heading for it notices the coin is gone and plans again.
+        @param x - the x coordinate of the coin
+        @param y - the y coordinate of the coin
+        @return void
+        */
+        claims.remove(y * columns + x);
+    }
+
+    private void releasePlan(int traveler) {
+        /**
+        Releases the reservations of the rest of a traveler's plan.
+        @param traveler - the traveler
+        @return void
+        */
+        int base = traveler * (WINDOW + 1);
+        int last = planLength[traveler] - 1;
+        for (int i = Math.max(0, step - planStart[traveler]); i < last; i++) {
+            reservations.release(plans[base + i], planStart[traveler] + i, traveler);
+        }
+        reservations.unpark(plans[base + last], traveler);
+    }
+
+    private void advance(OccupancyGrid occupancyGrid) {
+        /**
+        Moves every traveler one step along its plan.
+        Plans never put two travelers on the same tile at the same step, so all
+        travelers can move at once.
+        @param occupancyGrid - the occupancy grid to record moves in
+        @return void
+        */
+        step++;
+        for (int traveler = 0; traveler < travelers.size(); traveler++) {
+            int base = traveler * (WINDOW + 1);
+            int index = step - planStart[traveler];
+            int last = planLength[traveler] - 1;
+            // the tile it left is not needed anymore
+            if (index >= 1 && index - 1 < last) {
+                reservations.release(plans[base + index - 1], step - 1, traveler);
+            }
+            int cell = plans[base + Math.min(index, last)];
+
+            Traveler moving = travelers.get(traveler);
+            Point position = moving.getPosition();
+            if (cell != position.y * columns + position.x) {
+                occupancyGrid.moveTraveler(position.x, position.y, cell % columns, cell / columns);
+                moving.stepTo(cell % columns, cell / columns);
+            }
+        }
+    }
+
+    public void reset() {
+        /**
+        Drops every plan, target and reservation and lets each traveler stay on
+        its tile. It must be called when walls change, since plans and cached
+        distances may go through tiles that are walls now.
+        @return void
+        */
+        reservations.clear();
+        claims.clear();
+        for (int traveler = 0; traveler < travelers.size(); traveler++) {
+            int cell = currentCell(traveler);
+            plans[traveler * (WINDOW + 1)] = cell;
+            planStart[traveler] = step;
+            planLength[traveler] = 1;
+            targets[traveler] = NO_TARGET;
+            unreachableTargets[traveler] = NO_TARGET;
+            exactTargets[traveler] = NO_TARGET;
+            retryStep[traveler] = 0;
+            reservations.park(cell, step, traveler);
+        }
+        for (SpaceTimePlanner planner : planners) {
+            if (planner != null) {
+                planner.forgetDistances();
+            }
+        }
+        if (areas != null) {
+            labelAreas();
+        }
+    }
+
+    private void labelAreas() {
+        /**
+        Gives every tile the number of the connected area of floor it is in, by
+        flood filling from every tile not labeled yet. Walls get NO_TARGET.
+        @return void
+        */
+        int cells = columns * rows;
+        Arrays.fill(areas, NO_TARGET);
+        int[] queue = new int[cells];
+        int area = 0;
+        for (int first = 0; first < cells; first++) {
+            if (areas[first] != NO_TARGET || blockedTiles.isBlocked(first)) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = first;
+            areas[first] = area;
+            while (head < tail) {
+                int cell = queue[head++];
+                int x = cell % columns;
+                int y = cell / columns;
+                for (int direction = 0; direction < 4; direction++) {
+                    int nx = x + DX[direction];
+                    int ny = y + DY[direction];
+                    if (nx < 0 || nx >= columns || ny < 0 || ny >= rows) {
+                        continue;
+                    }
+                    int neighbor = ny * columns + nx;
+                    if (areas[neighbor] == NO_TARGET && !blockedTiles.isBlocked(neighbor)) {
+                        areas[neighbor] = area;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            area++;
+        }
+    }
+
+    private int currentCell(int traveler) {
+        /**
+        Gets the cell a traveler is on.
+        @param traveler - the traveler
+        @return the cell index (y * columns + x)
+        */
+        Point position = travelers.get(traveler).getPosition();
+        return position.y * columns + position.x;
+    }
+
+    SpaceTimePlanner planner(int index) {
+        /**
+        Gets a thread's planner, creating it the first time.
+        @param index - the index of the planner
+        @return the planner
+        */
+        if (planners[index] == null) {
+            planners[index] = new SpaceTimePlanner(columns, rows, blockedTiles, WINDOW);
+        }
+        return planners[index];
+    }
+
+    private TargetFilter filter(int index) {
+        /**
+        Gets a thread's coin filter, creating it the first time.
+        @param index - the index of the filter
+        @return the filter
+        */
+        if (filters[index] == null) {
+            filters[index] = new TargetFilter();
+        }
+        return filters[index];
+    }
+
+    public void setPlanningBudget(int planningBudget) {
+        /**
+        Sets the number of plans made per tick at most.
+        @param planningBudget - the number of plans per tick, at least 1
+        @return void
+        */
+        this.planningBudget = Math.max(1, planningBudget);
+    }
+
+    public int getPlanningBudget() {
+        /**
+        Gets the number of plans made per tick at most.
+        @return the planning budget
+        */
+        return planningBudget;
+    }
+
+    public long getPlansCommitted() {
+        /**
+        Gets the number of plans travelers started following.
+        @return the number of committed plans
+        */
+        return plansCommitted;
+    }
+
+    public long getPlansRedone() {
+        /**
+        Gets the number of plans that collided with one committed earlier in the
+        same tick and were made again.
+        @return the number of redone plans
+        */
+        return plansRedone;
+    }
+
+    public long getPlansFailed() {
+        /**
+        Gets the number of planning attempts that found no coin or no way to it.
+        @return the number of failed plans
+        */
+        return plansFailed;
+    }
+
+    public int getReservationCount() {
+        /**
+        Gets the number of reservations currently held.
+        @return the number of reservations
+        */
+        return reservations.size();
+    }
+
+    private class TargetFilter implements TileFilter {
+
+        // the traveler choosing a coin, and the area of the board it is in
+        private int traveler;
+        private int area;
+
+        @Override
+        public boolean accept(int cell) {
+            /**
+            Checks if the traveler may head for a coin: no other traveler claimed
+            it, it didn't turn out unreachable before, and it is in the
+            traveler's area of the board.
+            @param cell - the cell of the coin
+            @return true if the traveler can choose the coin
+            */
+            int claimedBy = claims.get(cell);
+            return (claimedBy == LongIntMap.NONE || claimedBy == traveler) && cell != unreachableTargets[traveler]
+                && (areas == null || areas[cell] == area);
+        }
+    }
+
+    private static class PlanTask extends RecursiveAction {
+
+        private final TravelerSystem system;
+        private final CoinIndex coins;
+        // number of selected travelers
+        private final int count;
+        // the range of planners (and so the share of the selected travelers)
+        // this task covers, end exclusive
+        private final int start;
+        private final int end;
+
+        PlanTask(TravelerSystem system, CoinIndex coins, int count, int start, int end) {
+            this.system = system;
+            this.coins = coins;
+            this.count = count;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            /**
+            Plans this task's share of the selected travelers, splitting the
+            planners in half until each task has one. Each planner is used by one
+            task only.
+            @return void
+            */
+            if (end - start == 1) {
+                int planners = system.planners.length;
+                for (int i = count * start / planners; i < count * (start + 1) / planners; i++) {
+                    system.planSelected(start, coins, i);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(
+                new PlanTask(system, coins, count, start, middle),
+                new PlanTask(system, coins, count, middle, end));
+        }
+    }
+}
@@ -1,87 +1,56 @@
 package game;
 
-import javax.swing.*;
-import java.awt.*;
-
 import utils.Contstants;
 
 public class Clock {
+    // length of a round in seconds (1 minute)
+    public static final int ROUND_SECONDS = 60;
+    // simulated time that passes with every tick, from the tick delay
+    public static final long TICK_NANOS = Contstants.DELAY * 1_000_000L;
+
     // countdown timer variables
-    private int remainingTime = 60; // time in seconds (1 minute)
-    private int tickCounter = 0; // counts ticks to determine when a second has passed
-    private final int TICKS_PER_SECOND = 1000 / 25; // 40 ticks per second at 25ms delay
+    private int remainingTime = ROUND_SECONDS; // time in seconds
+    // simulated time since the round started. it only advances with ticks, so a
+    // round is always the same number of ticks and replays stay exact; the game
+    // loops (FixedTimestep) run ticks as the wall clock passes, which keeps the
+    // simulated time in step with real time
+    private long elapsedNanos = 0;
 
     public Clock() {
         // initialize the state
 
     }
 
-    
-    public void drawTimer(Graphics graphicsController) {
+    public void updateTimer() {
         /**
-        Draws the countdown timer.  
-        It draws the remaining time on the board in the top center of the screen.
-        @param graphicsController - the graphics controller to draw the timer on
-        @param remainingTime - the remaining time to draw
+        Updates the countdown timer.
+        It advances the simulated time by one tick and counts down the remaining
+        time once a full second of it has passed.
         @return void
         */
-        // format the time as MM:SS
-        int minutes = this.remainingTime / 60;
-        int seconds = this.remainingTime % 60;
-        String text = String.format("%d:%02d", minutes, seconds);
-        
-        // we need to cast the Graphics to Graphics2D to draw nicer text
-        Graphics2D g2d = (Graphics2D) graphicsController;
-        g2d.setRenderingHint(
-            RenderingHints.KEY_TEXT_ANTIALIASING,
-            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_RENDERING,
-            RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_FRACTIONALMETRICS,
-            RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        elapsedNanos += TICK_NANOS;
 
-        // set the text color and font
-        g2d.setColor(Contstants.playerScoreTextColor);
-        g2d.setFont(Contstants.scoreTextFont);
-        
-        // draw the timer in the top center of the screen
-        FontMetrics metrics = g2d.getFontMetrics(g2d.getFont());
-        // the text will be contained within this rectangle (top row)
-        Rectangle rect = new Rectangle(0, 0, Contstants.TILE_SIZE * Contstants.COLUMNS, Contstants.TILE_SIZE);
-        // determine the x coordinate for the text
-        int x = rect.x + (rect.width - metrics.stringWidth(text)) / 2;
-        // determine the y coordinate for the text
-        int y = rect.y + ((rect.height - metrics.getHeight()) / 2) + metrics.getAscent();
-        // draw the string
-        graphicsController.drawString(text, x, y);
+        // decrement time if there's time remaining
+        int secondsLeft = ROUND_SECONDS - (int) (elapsedNanos / 1_000_000_000L);
+        if (remainingTime > 0 && secondsLeft < remainingTime) {
+            remainingTime = Math.max(0, secondsLeft);
+        }
     }
 
-    public void updateTimer() {
+    public int getRemainingTime() {
         /**
-        Updates the countdown timer.
-        It decrements the remaining time by one second every TICKS_PER_SECOND ticks.
-        If the time runs out, the game stops.
-        @return void
+        Gets the remaining time.
+        @return the remaining time in seconds
         */
-        tickCounter++;
-        
-        // check if a second has passed
-        if (tickCounter >= TICKS_PER_SECOND) {
-            tickCounter = 0; // reset tick counter
-            
-            // decrement time if there's time remaining
-            if (remainingTime > 0) {
-                remainingTime--;
-            }
-            
-            // optionally: stop the game when time runs out
-            if (remainingTime <= 0) {
-                
-                // you can add game over logic here
-            }
-        }
+        return remainingTime;
+    }
+
+    public long getElapsedNanos() {
+        /**
+        Gets the simulated time since the round started.
+        @return the time in nanoseconds
+        */
+        return elapsedNanos;
     }
 
     public boolean isGameOver() {
@@ -102,4 +71,3 @@ public class Clock {
         remainingTime = 0;
     }
 }
-
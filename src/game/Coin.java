@@ -4,16 +4,13 @@ import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.awt.Point;
-import java.io.File;
-import java.io.IOException;
-import javax.imageio.ImageIO;
 
-import utils.Logger;
 import utils.Contstants;
+import utils.SpriteCache;
 
 public class Coin {
     
-    // image that represents the coin
+    // image that represents the coin, shared by all coins
     private BufferedImage coinImage;
     
     // current position of the coin on the board grid
@@ -35,14 +32,12 @@ public class Coin {
     
     private void loadCoinImage() {
         /**
-        Loads the coin image from the images folder.
+        Gets the coin image from the sprite cache.
+        The file is only read from the images folder for the first coin; every coin
+        after that shares the same pre-scaled image.
         @return void
         */
-        try {
-            coinImage = ImageIO.read(new File(coinImagePath));
-        } catch (IOException exception) {
-            Logger.imageLoadError(coinImagePath, exception);
-        }
+        coinImage = SpriteCache.get(coinImagePath);
     }
 
     public void drawCoin(Graphics graphicsController, ImageObserver imageObserver) {
@@ -52,14 +47,14 @@ public class Coin {
         @param imageObserver - the image observer to observe the coin image
         @return void
         */
-        graphicsController.drawImage(
-            coinImage, 
-            position.x * Contstants.TILE_SIZE, 
-            position.y * Contstants.TILE_SIZE,
-            Contstants.TILE_SIZE,
-            Contstants.TILE_SIZE,
-            imageObserver
-        );
+        int pixelX = position.x * Contstants.TILE_SIZE;
+        int pixelY = position.y * Contstants.TILE_SIZE;
+
+        // skip the coin if it is outside the area being repainted
+        if (!graphicsController.hitClip(pixelX, pixelY, Contstants.TILE_SIZE, Contstants.TILE_SIZE)) {
+            return;
+        }
+        graphicsController.drawImage(coinImage, pixelX, pixelY, imageObserver);
     }
 
     public Point getCurrentCoinPostion() {
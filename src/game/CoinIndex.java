@@ -0,0 +1,362 @@
+package game;
+
+import java.util.Arrays;
+
+import pathfinding.TileFilter;
+
+public class CoinIndex implements TileFilter {
+
+    // value returned when no coin matches
+    public static final int NONE = -1;
+
+    // coins are sorted into square buckets of 2^bucketShift tiles a side, and
+    // a query only looks at the buckets around the point it asks about. buckets
+    // are sized for about two coins each, between 2x2 and 64x64 tiles
+    private static final int MIN_BUCKET_SHIFT = 1;
+    private static final int MAX_BUCKET_SHIFT = 6;
+    private final int bucketShift;
+
+    // size of the grid; cells are indexed as y * columns + x
+    private final int columns;
+    private final int rows;
+    private final int bucketColumns;
+    private final int bucketRows;
+
+    // the cells of the coins in each bucket, packed into the first
+    // bucketCount entries in no particular order. null until a coin lands there
+    private final int[][] bucketCells;
+    private final int[] bucketCount;
+    private int size = 0;
+
+    public CoinIndex(int columns, int rows, int expectedCoins) {
+        /**
+        Initializes an empty index for a board.
+        Dense boards get small buckets so a query doesn't compare many coins
+        that can't be the nearest; sparse boards get large ones so a query
+        doesn't step through many empty buckets.
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @param expectedCoins - the number of coins the board usually has
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        long tilesPerBucket = 2L * columns * rows / Math.max(1, expectedCoins);
+        int shift = MIN_BUCKET_SHIFT;
+        while (shift < MAX_BUCKET_SHIFT && 1L << (2 * (shift + 1)) <= tilesPerBucket) {
+            shift++;
+        }
+        bucketShift = shift;
+        bucketColumns = (columns + (1 << shift) - 1) >> shift;
+        bucketRows = (rows + (1 << shift) - 1) >> shift;
+        bucketCells = new int[bucketColumns * bucketRows][];
+        bucketCount = new int[bucketColumns * bucketRows];
+    }
+
+    public void add(int x, int y) {
+        /**
+        Adds a coin.
+        @param x - the x coordinate of the coin
+        @param y - the y coordinate of the coin
+        @return void
+        */
+        int bucket = bucketOf(x, y);
+        int[] cells = bucketCells[bucket];
+        int count = bucketCount[bucket];
+        if (cells == null) {
+            cells = new int[4];
+            bucketCells[bucket] = cells;
+        } else if (count == cells.length) {
+            cells = Arrays.copyOf(cells, count * 2);
+            bucketCells[bucket] = cells;
+        }
+        cells[count] = y * columns + x;
+        bucketCount[bucket] = count + 1;
+        size++;
+    }
+
+    public boolean remove(int x, int y) {
+        /**
+        Removes a coin, moving the last coin of its bucket into its place.
+        @param x - the x coordinate of the coin
+        @param y - the y coordinate of the coin
+        @return true if there was a coin on the tile, false otherwise
+        */
+        int bucket = bucketOf(x, y);
+        int[] cells = bucketCells[bucket];
+        int count = bucketCount[bucket];
+        int cell = y * columns + x;
+        for (int i = 0; i < count; i++) {
+            if (cells[i] == cell) {
+                cells[i] = cells[count - 1];
+                bucketCount[bucket] = count - 1;
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(int x, int y) {
+        /**
+        Checks if there is a coin on a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if there is a coin on the tile
+        */
+        if (x < 0 || x >= columns || y < 0 || y >= rows) {
+            return false;
+        }
+        int bucket = bucketOf(x, y);
+        int[] cells = bucketCells[bucket];
+        int cell = y * columns + x;
+        for (int i = bucketCount[bucket] - 1; i >= 0; i--) {
+            if (cells[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean accept(int cell) {
+        /**
+        Checks if there is a coin on a cell, so searches can look for coins.
+        @param cell - the cell index of the tile
+        @return true if there is a coin on the tile
+        */
+        return contains(cell % columns, cell / columns);
+    }
+
+    public int nearest(int x, int y, TileFilter filter) {
+        /**
+        Finds the coin closest to a tile by Manhattan distance.
+        The buckets are searched in square rings around the tile's bucket, and
+        the search stops once the next ring can't hold anything closer, so the
+        cost depends on how far the nearest coin is, not on how many coins there
+        are. Of coins equally far away the one with the lowest cell index wins,
+        so the result doesn't depend on the order coins were added in. It reads
+        the index only, so any number of threads may query at once.
+        @param x - the x coordinate to search from
+        @param y - the y coordinate to search from
+        @param filter - skips the coins it doesn't accept, or null to take any coin
+        @return the cell index of the coin, or NONE if no coin matches
+        */
+        if (size == 0) {
+            return NONE;
+        }
+        int bucketX = x >> bucketShift;
+        int bucketY = y >> bucketShift;
+        int lastRing = lastRing(bucketX, bucketY);
+        int best = NONE;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int ring = 0; ring <= lastRing; ring++) {
+            if (best != NONE && ringDistance(x, y, bucketX, bucketY, ring) > bestDistance) {
+                break;
+            }
+            for (int by = bucketY - ring; by <= bucketY + ring; by++) {
+                if (by < 0 || by >= bucketRows) {
+                    continue;
+                }
+                // the rows in between only have the two buckets at the ends
+                int stride = by == bucketY - ring || by == bucketY + ring ? 1 : 2 * ring;
+                for (int bx = bucketX - ring; bx <= bucketX + ring; bx += stride) {
+                    if (bx < 0 || bx >= bucketColumns) {
+                        continue;
+                    }
+                    int bucket = by * bucketColumns + bx;
+                    int[] cells = bucketCells[bucket];
+                    for (int i = bucketCount[bucket] - 1; i >= 0; i--) {
+                        int cell = cells[i];
+                        int distance = Math.abs(cell % columns - x) + Math.abs(cell / columns - y);
+                        if ((distance < bestDistance || (distance == bestDistance && cell < best))
+                                && (filter == null || filter.accept(cell))) {
+                            best = cell;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    public int kNearest(int x, int y, int k, int[] out) {
+        /**
+        Finds the k coins closest to a tile by Manhattan distance.
+        It searches the buckets in rings like nearest() and keeps the best k
+        sorted by insertion, which is cheap for the small k it is meant for.
+        @param x - the x coordinate to search from
+        @param y - the y coordinate to search from
+        @param k - the number of coins to find, at most out.length
+        @param out - receives the cell indexes of the coins, nearest first (ties
+                     by lowest cell index)
+        @return the number of coins found, less than k if there are fewer coins
+        */
+        if (size == 0 || k <= 0) {
+            return 0;
+        }
+        int bucketX = x >> bucketShift;
+        int bucketY = y >> bucketShift;
+        int lastRing = lastRing(bucketX, bucketY);
+        int count = 0;
+        for (int ring = 0; ring <= lastRing; ring++) {
+            if (count == k && ringDistance(x, y, bucketX, bucketY, ring) > distance(out[k - 1], x, y)) {
+                break;
+            }
+            for (int by = bucketY - ring; by <= bucketY + ring; by++) {
+                if (by < 0 || by >= bucketRows) {
+                    continue;
+                }
+                int stride = by == bucketY - ring || by == bucketY + ring ? 1 : 2 * ring;
+                for (int bx = bucketX - ring; bx <= bucketX + ring; bx += stride) {
+                    if (bx < 0 || bx >= bucketColumns) {
+                        continue;
+                    }
+                    int bucket = by * bucketColumns + bx;
+                    int[] cells = bucketCells[bucket];
+                    for (int i = bucketCount[bucket] - 1; i >= 0; i--) {
+                        count = insert(cells[i], x, y, k, out, count);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public int withinRadius(int x, int y, int radius, int[] out) {
+        /**
+        Finds the coins within a Manhattan distance of a tile.
+        Only the buckets overlapping the square around the diamond are read.
+        @param x - the x coordinate to search from
+        @param y - the y coordinate to search from
+        @param radius - the largest distance a coin may be away
+        @param out - receives the cell indexes of the coins, in no particular
+                     order; coins that don't fit are left out
+        @return the number of coins written
+        */
+        int fromX = Math.max(0, x - radius) >> bucketShift;
+        int toX = Math.min(columns - 1, x + radius) >> bucketShift;
+        int fromY = Math.max(0, y - radius) >> bucketShift;
+        int toY = Math.min(rows - 1, y + radius) >> bucketShift;
+        int count = 0;
+        for (int by = fromY; by <= toY; by++) {
+            for (int bx = fromX; bx <= toX; bx++) {
+                int bucket = by * bucketColumns + bx;
+                int[] cells = bucketCells[bucket];
+                for (int i = bucketCount[bucket] - 1; i >= 0 && count < out.length; i--) {
+                    if (distance(cells[i], x, y) <= radius) {
+                        out[count++] = cells[i];
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        /**
+        Gets the number of coins in the index.
+        @return the number of coins
+        */
+        return size;
+    }
+
+    public void clear() {
+        /**
+        Removes every coin, keeping the buckets' arrays.
+        @return void
+        */
+        Arrays.fill(bucketCount, 0);
+        size = 0;
+    }
+
+    private int insert(int cell, int x, int y, int k, int[] out, int count) {
+        /**
+        Adds a coin to a sorted list of the best k so far, if it belongs there.
+        @param cell - the cell of the coin
+        @param x - the x coordinate searched from
+        @param y - the y coordinate searched from
+        @param k - the most coins the list may hold
+        @param out - the list, nearest first
+        @param count - the number of coins in the list
+        @return the new number of coins in the list
+        */
+        int distance = distance(cell, x, y);
+        int i = count < k ? count : k - 1;
+        if (count == k && !isCloser(distance, cell, distance(out[i], x, y), out[i])) {
+            return count;
+        }
+        while (i > 0 && isCloser(distance, cell, distance(out[i - 1], x, y), out[i - 1])) {
+            out[i] = out[i - 1];
+            i--;
+        }
+        out[i] = cell;
+        return count < k ? count + 1 : count;
+    }
+
+    private static boolean isCloser(int distance, int cell, int otherDistance, int otherCell) {
+        /**
+        Orders coins by distance, then by cell index.
+        @param distance - the distance of the first coin
+        @param cell - the cell of the first coin
+        @param otherDistance - the distance of the second coin
+        @param otherCell - the cell of the second coin
+        @return true if the first coin comes before the second
+        */
+        return distance < otherDistance || (distance == otherDistance && cell < otherCell);
+    }
+
+    private int distance(int cell, int x, int y) {
+        /**
+        Gets the Manhattan distance from a cell to a tile.
+        @param cell - the cell index
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the distance
+        */
+        return Math.abs(cell % columns - x) + Math.abs(cell / columns - y);
+    }
+
+    private int ringDistance(int x, int y, int bucketX, int bucketY, int ring) {
+        /**
+        Gets a lower bound of the distance from a tile to any tile in a ring of
+        buckets around the tile's bucket: the distance to the nearest edge of the
+        square the rings inside it cover.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @param bucketX - the bucket column of the tile
+        @param bucketY - the bucket row of the tile
+        @param ring - the ring, 0 for the tile's own bucket
+        @return the smallest distance a coin in the ring can have
+        */
+        if (ring == 0) {
+            return 0;
+        }
+        int left = x - ((bucketX - ring + 1) << bucketShift) + 1;
+        int right = ((bucketX + ring) << bucketShift) - x;
+        int top = y - ((bucketY - ring + 1) << bucketShift) + 1;
+        int bottom = ((bucketY + ring) << bucketShift) - y;
+        return Math.min(Math.min(left, right), Math.min(top, bottom));
+    }
+
+    private int lastRing(int bucketX, int bucketY) {
+        /**
+        Gets the ring that reaches the farthest bucket of the board.
+        @param bucketX - the bucket column searched from
+        @param bucketY - the bucket row searched from
+        @return the last ring worth searching
+        */
+        return Math.max(Math.max(bucketX, bucketColumns - 1 - bucketX), Math.max(bucketY, bucketRows - 1 - bucketY));
+    }
+
+    private int bucketOf(int x, int y) {
+        /**
+        Gets the bucket a tile is in.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the bucket index
+        */
+        return (y >> bucketShift) * bucketColumns + (x >> bucketShift);
+    }
+}
@@ -0,0 +1,111 @@
+package game;
+
+import java.awt.Point;
+
+public class DirtyTiles {
+
+    // size of the board; tiles outside it are never marked
+    private final int columns;
+    private final int rows;
+
+    // bounding box of the tiles that changed, inclusive, in tile coordinates.
+    // an empty box has min > max
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    public DirtyTiles(int columns, int rows) {
+        /**
+        Initializes an empty set of changed tiles.
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        clear();
+    }
+
+    public void mark(int x, int y) {
+        /**
+        Marks a tile as changed.
+        Tiles outside the board are ignored, so the changed area never reaches
+        past it.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return void
+        */
+        if (x < 0 || x >= columns || y < 0 || y >= rows) {
+            return;
+        }
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    public void markMove(Point from, Point to) {
+        /**
+        Marks the tiles an entity left and entered, if it moved at all.
+        @param from - the position before the move
+        @param to - the position after the move
+        @return void
+        */
+        if (from.x != to.x || from.y != to.y) {
+            mark(from.x, from.y);
+            mark(to.x, to.y);
+        }
+    }
+
+    public boolean isEmpty() {
+        /**
+        Checks if any tile changed.
+        @return true if no tile changed since the last clear, false otherwise
+        */
+        return minX > maxX;
+    }
+
+    public void clear() {
+        /**
+        Forgets all changed tiles.
+        @return void
+        */
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        maxY = Integer.MIN_VALUE;
+    }
+
+    public int getX() {
+        /**
+        Gets the left column of the changed area.
+        @return the left column
+        */
+        return minX;
+    }
+
+    public int getY() {
+        /**
+        Gets the top row of the changed area.
+        @return the top row
+        */
+        return minY;
+    }
+
+    public int getWidth() {
+        /**
+        Gets the width of the changed area in tiles.
+        @return the width, or 0 if nothing changed
+        */
+        return isEmpty() ? 0 : maxX - minX + 1;
+    }
+
+    public int getHeight() {
+        /**
+        Gets the height of the changed area in tiles.
+        @return the height, or 0 if nothing changed
+        */
+        return isEmpty() ? 0 : maxY - minY + 1;
+    }
+}
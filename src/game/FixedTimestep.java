@@ -0,0 +1,165 @@
+package game;
+
+public class FixedTimestep {
+
+    // length of one step in nanoseconds
+    private final long stepNanos;
+    // at most this many steps are run per update, so a long stall can't make
+    // the loop spend all its time catching up and never draw again (the spiral
+    // of death: each late update taking long enough to make the next one late)
+    private final int maxStepsPerUpdate;
+    // at most this much time is kept to catch up on over the next updates.
+    // anything beyond it is dropped, and the simulation falls behind real time
+    private final long maxBacklogNanos;
+    // how long before it is due a step may be run, with the difference carried
+    // over to the next step
+    private long earlyNanos = 0;
+
+    // the time of the last update, and the time that has passed since then
+    // without being simulated. can be slightly negative after an early step
+    private long previous;
+    private long accumulator;
+
+    // statistics: every step run, the steps run more than a step after they
+    // were due, and the steps dropped because the backlog was full
+    private long stepsRun = 0;
+    private long lateSteps = 0;
+    private long droppedSteps = 0;
+    private int droppedLastUpdate = 0;
+
+    public FixedTimestep(long stepNanos, int maxStepsPerUpdate, int maxBacklogSteps) {
+        /**
+        Initializes the timestep.
+        @param stepNanos - the length of one step in nanoseconds
+        @param maxStepsPerUpdate - the most steps a single update may run
+        @param maxBacklogSteps - the most steps that are kept to be caught up on later
+        @return void
+        */
+        this.stepNanos = stepNanos;
+        this.maxStepsPerUpdate = maxStepsPerUpdate;
+        this.maxBacklogNanos = maxBacklogSteps * stepNanos;
+    }
+
+    public void setEarlyNanos(long earlyNanos) {
+        /**
+        Lets steps run a little before they are due.
+        Timers fire a little early or late, so a loop driven by a timer that fires
+        once per step would otherwise alternate between running no step and two.
+        Loops that draw in between steps should leave this at 0, since an early
+        step makes the entities jump ahead.
+        @param earlyNanos - how long before it is due a step may be run
+        @return void
+        */
+        this.earlyNanos = earlyNanos;
+    }
+
+    public void start(long now) {
+        /**
+        Starts counting time, with nothing to simulate yet.
+        @param now - the current System.nanoTime()
+        @return void
+        */
+        previous = now;
+        accumulator = 0;
+    }
+
+    public int advance(long now) {
+        /**
+        Adds the time since the last update and works out how many steps to run.
+        Steps that can't be run in this update are kept and caught up on in the
+        next ones, up to the backlog limit; time beyond it is dropped and counted.
+        @param now - the current System.nanoTime()
+        @return the number of steps the caller should run now
+        */
+        accumulator += now - previous;
+        previous = now;
+
+        int steps = 0;
+        while (steps < maxStepsPerUpdate && accumulator >= stepNanos - earlyNanos) {
+            if (accumulator >= 2 * stepNanos) {
+                lateSteps++;
+            }
+            accumulator -= stepNanos;
+            steps++;
+        }
+        stepsRun += steps;
+
+        // give up on the time that is too old to catch up on
+        droppedLastUpdate = 0;
+        if (accumulator > maxBacklogNanos) {
+            droppedLastUpdate = (int) ((accumulator - maxBacklogNanos + stepNanos - 1) / stepNanos);
+            accumulator -= droppedLastUpdate * stepNanos;
+            droppedSteps += droppedLastUpdate;
+        }
+        return steps;
+    }
+
+    public float getInterpolation() {
+        /**
+        Gets how far into the next step the time is, for drawing in between steps.
+        @return a value from 0 (the last step just ran) to 1 (the next step is due)
+        */
+        return Math.max(0f, Math.min(1f, (float) accumulator / stepNanos));
+    }
+
+    public long getNanosUntilNextStep(long now) {
+        /**
+        Gets how long it is until the next step is due, for loops that sleep or
+        wait for I/O in between steps.
+        @param now - the current System.nanoTime()
+        @return the time in nanoseconds, 0 if a step is due already
+        */
+        return Math.max(0, stepNanos - earlyNanos - (accumulator + now - previous));
+    }
+
+    public long getStepsRun() {
+        /**
+        Gets the number of steps run since the timestep was created.
+        @return the number of steps
+        */
+        return stepsRun;
+    }
+
+    public long getLateSteps() {
+        /**
+        Gets the number of steps that ran more than a step after they were due,
+        i.e. while catching up after a stall.
+        @return the number of steps
+        */
+        return lateSteps;
+    }
+
+    public long getDroppedSteps() {
+        /**
+        Gets the number of steps that were never run because the backlog was full.
+        @return the number of steps
+        */
+        return droppedSteps;
+    }
+
+    public int getDroppedLastUpdate() {
+        /**
+        Gets the number of steps the last update dropped.
+        @return the number of steps, 0 if it kept up
+        */
+        return droppedLastUpdate;
+    }
+
+    public long getBehindNanos() {
+        /**
+        Gets how far the simulation is behind real time: the dropped steps, which
+        are lost for good, plus the backlog that has yet to be caught up on.
+        @return the time in nanoseconds
+        */
+        return droppedSteps * stepNanos + Math.max(0, accumulator - stepNanos);
+    }
+
+    public String describe() {
+        /**
+        Describes how well the simulation keeps up with real time.
+        @return the statistics
+        */
+        return String.format("ticks: %d run, %d late, %d dropped, %.0f ms behind real time",
+            stepsRun, lateSteps, droppedSteps, getBehindNanos() / 1e6);
+    }
+}
@@ -0,0 +1,90 @@
+package game;
+
+import java.util.Random;
+
+public class FreeCellSet {
+
+    // value used for cells that are not in the set
+    public static final int NONE = -1;
+
+    // the free cells, packed into the first size entries in no particular order
+    private final int[] cells;
+    // per cell: its index in cells, or NONE if it is not free
+    private final int[] slotOfCell;
+    private int size;
+
+    public FreeCellSet(int cellCount) {
+        /**
+        Initializes the set with every cell free.
+        @param cellCount - the number of cells on the board
+        @return void
+        */
+        cells = new int[cellCount];
+        slotOfCell = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            cells[cell] = cell;
+            slotOfCell[cell] = cell;
+        }
+        size = cellCount;
+    }
+
+    public void add(int cell) {
+        /**
+        Marks a cell as free.
+        @param cell - the cell index
+        @return void
+        */
+        if (slotOfCell[cell] != NONE) {
+            return;
+        }
+        cells[size] = cell;
+        slotOfCell[cell] = size;
+        size++;
+    }
+
+    public void remove(int cell) {
+        /**
+        Marks a cell as taken in O(1).
+        The last free cell is moved into the removed cell's place.
+        @param cell - the cell index
+        @return void
+        */
+        int slot = slotOfCell[cell];
+        if (slot == NONE) {
+            return;
+        }
+        int last = cells[--size];
+        cells[slot] = last;
+        slotOfCell[last] = slot;
+        slotOfCell[cell] = NONE;
+    }
+
+    public boolean contains(int cell) {
+        /**
+        Checks if a cell is free.
+        @param cell - the cell index
+        @return true if the cell is free, false otherwise
+        */
+        return slotOfCell[cell] != NONE;
+    }
+
+    public int size() {
+        /**
+        Gets the number of free cells.
+        @return the number of free cells
+        */
+        return size;
+    }
+
+    public int sample(Random random) {
+        /**
+        Picks a free cell uniformly at random in O(1).
+        @param random - the random number generator to use
+        @return the cell index, or NONE if no cell is free
+        */
+        if (size == 0) {
+            return NONE;
+        }
+        return cells[random.nextInt(size)];
+    }
+}
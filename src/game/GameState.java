@@ -0,0 +1,998 @@
+package game;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import entities.EntityStore;
+import entities.Player;
+import entities.Traveler;
+
+public class GameState {
+
+    // flags packed into one byte
+    private static final int GAME_OVER = 1;
+    private static final int COLLISION = 2;
+
+    // the parts of the state a snapshot holds because they differ from the
+    // baseline, one bit each in the snapshot's second field
+    private static final int REMAINING_TIME = 1;
+    private static final int FLAGS = 2;
+    private static final int PLAYERS = 4;
+    private static final int PLAYER_SCORES = 8;
+    private static final int TRAVELER_SCORE = 16;
+    private static final int TRAVELERS = 32;
+    private static final int ENEMIES = 64;
+    private static final int COINS = 128;
+
+    // how the changed entities of a list are marked: a bitmask with one bit
+    // per entity, or the gaps between the indices of the changed ones, which
+    // is smaller when only a few of many entities moved
+    private static final int MASK = 0;
+    private static final int GAPS = 1;
+
+    // the baseline of a full snapshot: nothing on the board, every number 0
+    private static final GameState EMPTY = new GameState();
+
+    // everything a client needs to draw a world, copied out of it into plain
+    // arrays. the arrays only grow, so capturing, encoding and decoding states
+    // over and over does not allocate once they are large enough
+
+    private long tick;
+    private int remainingTime;
+    private boolean gameOver;
+    private boolean collisionDetected;
+
+    private int travelerScore;
+
+    // players, travelers and enemies keep their index from state to state, so
+    // a snapshot only needs the ones that moved
+    private int playerCount;
+    private int[] playerX = new int[1];
+    private int[] playerY = new int[1];
+    private int[] playerScore = new int[1];
+    private boolean[] playerOut = new boolean[1];
+
+    private int travelerCount;
+    private int[] travelerX = new int[1];
+    private int[] travelerY = new int[1];
+
+    private int enemyCount;
+    private int[] enemyX = new int[4];
+    private int[] enemyY = new int[4];
+
+    // the coins are a set: their order in the world changes as they are
+    // collected, so they are kept sorted by y << 32 | x, which lets two coin
+    // sets be compared in one pass
+    private int coinCount;
+    private long[] coinKeys = new long[8];
+
+    public void capture(World world) {
+        /**
+        Copies the current state of a world.
+        @param world - the world to copy
+        @return void
+        */
+        tick = world.getTickCount();
+        remainingTime = world.getClock().getRemainingTime();
+        gameOver = world.isGameOver();
+        collisionDetected = world.getCollisionDetected();
+
+        travelerScore = world.getTravelerScore();
+
+        ArrayList<Player> players = world.getPlayers();
+        setPlayerCount(players.size());
+        Point position;
+        for (int i = 0; i < playerCount; i++) {
+            position = players.get(i).getPosition();
+            playerX[i] = position.x;
+            playerY[i] = position.y;
+            playerScore[i] = players.get(i).getScore();
+            playerOut[i] = world.isPlayerOut(i);
+        }
+
+        ArrayList<Traveler> travelers = world.getTravelers();
+        setTravelerCount(travelers.size());
+        for (int i = 0; i < travelerCount; i++) {
+            position = travelers.get(i).getPosition();
+            travelerX[i] = position.x;
+            travelerY[i] = position.y;
+        }
+
+        EntityStore store = world.getEntityStore();
+        int enemies = 0;
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (store.getType(slot) == EntityStore.ENEMY) {
+                enemies++;
+            }
+        }
+        setEnemyCount(enemies);
+        enemies = 0;
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (store.getType(slot) == EntityStore.ENEMY) {
+                enemyX[enemies] = store.getX(slot);
+                enemyY[enemies] = store.getY(slot);
+                enemies++;
+            }
+        }
+
+        ArrayList<Coin> coins = world.getCoins();
+        setCoinCount(coins.size());
+        for (int i = 0; i < coinCount; i++) {
+            position = coins.get(i).getPosition();
+            coinKeys[i] = coinKey(position.x, position.y);
+        }
+        Arrays.sort(coinKeys, 0, coinCount);
+    }
+
+    public int getMaxDeltaSize(GameState baseline) {
+        /**
+        Gets the most bytes writeDelta() can put into a buffer for this state.
+        @param baseline - the state the delta is against, or null for a full snapshot
+        @return the number of bytes
+        */
+        if (baseline == null) {
+            baseline = EMPTY;
+        }
+        return 10 + 1 + 5 + 1 + 5
+            + maxEntitiesSize(playerCount) + 5 * playerCount
+            + maxEntitiesSize(travelerCount) + maxEntitiesSize(enemyCount)
+            + 5 + 2 * 5 * (coinCount + baseline.coinCount);
+    }
+
+    private static int maxEntitiesSize(int count) {
+        /**
+        Gets the most bytes a list of entities takes in a snapshot.
+        @param count - the number of entities
+        @return the number of bytes
+        */
+        return 5 + 5 + (count + 7) / 8 + 2 * 5 * count;
+    }
+
+    public void writeDelta(GameState baseline, ByteBuffer buffer) {
+        /**
+        Writes a snapshot of this state as the changes since a baseline, to be
+        read back with readDelta() and the same baseline.
+        Parts that didn't change take no space beyond a bit in a mask. Numbers
+        are variable length integers, coordinates are written as the (zigzag)
+        difference to the baseline, and of the players, travelers, enemies and
+        coins only the ones that moved, appeared or disappeared are written. A
+        state that changed in one tick usually takes a few bytes; without a
+        baseline it is a full snapshot. It doesn't allocate.
+        @param baseline - the state the reader already has, or null for a full snapshot
+        @param buffer - the buffer to write to, with room for getMaxDeltaSize() bytes
+        @return void
+        */
+        if (baseline == null) {
+            baseline = EMPTY;
+        }
+        int changedPlayers = countChanged(playerCount, playerX, playerY,
+            baseline.playerCount, baseline.playerX, baseline.playerY);
+        int changedTravelers = countChanged(travelerCount, travelerX, travelerY,
+            baseline.travelerCount, baseline.travelerX, baseline.travelerY);
+        int changedEnemies = countChanged(enemyCount, enemyX, enemyY,
+            baseline.enemyCount, baseline.enemyX, baseline.enemyY);
+        int changedCoins = countCoinChanges(baseline);
+
+        int changed = 0;
+        if (remainingTime != baseline.remainingTime) {
+            changed |= REMAINING_TIME;
+        }
+        if (getFlags() != baseline.getFlags()) {
+            changed |= FLAGS;
+        }
+        if (changedPlayers > 0 || playerCount != baseline.playerCount) {
+            changed |= PLAYERS;
+        }
+        if (playerScoresChanged(baseline)) {
+            changed |= PLAYER_SCORES;
+        }
+        if (travelerScore != baseline.travelerScore) {
+            changed |= TRAVELER_SCORE;
+        }
+        if (changedTravelers > 0 || travelerCount != baseline.travelerCount) {
+            changed |= TRAVELERS;
+        }
+        if (changedEnemies > 0 || enemyCount != baseline.enemyCount) {
+            changed |= ENEMIES;
+        }
+        if (changedCoins > 0) {
+            changed |= COINS;
+        }
+
+        writeVarLong(buffer, zigzag(tick - baseline.tick));
+        buffer.put((byte) changed);
+        if ((changed & REMAINING_TIME) != 0) {
+            writeVarInt(buffer, remainingTime);
+        }
+        if ((changed & FLAGS) != 0) {
+            buffer.put((byte) getFlags());
+        }
+        if ((changed & TRAVELER_SCORE) != 0) {
+            writeVarInt(buffer, travelerScore);
+        }
+        if ((changed & PLAYERS) != 0) {
+            writeEntities(buffer, playerCount, playerX, playerY,
+                baseline.playerCount, baseline.playerX, baseline.playerY, changedPlayers);
+        }
+        if ((changed & PLAYER_SCORES) != 0) {
+            // there are only a few players, so all of their scores are written
+            for (int i = 0; i < playerCount; i++) {
+                writeVarInt(buffer, playerScore[i] << 1 | (playerOut[i] ? 1 : 0));
+            }
+        }
+        if ((changed & TRAVELERS) != 0) {
+            writeEntities(buffer, travelerCount, travelerX, travelerY,
+                baseline.travelerCount, baseline.travelerX, baseline.travelerY, changedTravelers);
+        }
+        if ((changed & ENEMIES) != 0) {
+            writeEntities(buffer, enemyCount, enemyX, enemyY,
+                baseline.enemyCount, baseline.enemyX, baseline.enemyY, changedEnemies);
+        }
+        if ((changed & COINS) != 0) {
+            writeCoins(buffer, baseline, changedCoins);
+        }
+    }
+
+    public void readDelta(GameState baseline, ByteBuffer buffer) {
+        /**
+        Reads a snapshot writeDelta() wrote, replacing this state with the
+        baseline plus the changes in the snapshot.
+        @param baseline - the baseline the snapshot was written against, or null
+                          for a full snapshot; it must not be this state
+        @param buffer - the buffer to read from, at its position
+        @return void
+        @throws BufferUnderflowException if the buffer ends before the snapshot does
+        @throws IllegalArgumentException if the snapshot doesn't fit the baseline
+        */
+        if (baseline == null) {
+            baseline = EMPTY;
+        }
+        if (baseline == this) {
+            throw new IllegalArgumentException("A state can't be read against itself");
+        }
+        tick = baseline.tick + unzigzag(readVarLong(buffer));
+        int changed = buffer.get() & 0xFF;
+        remainingTime = (changed & REMAINING_TIME) != 0 ? readVarInt(buffer) : baseline.remainingTime;
+        int flags = (changed & FLAGS) != 0 ? buffer.get() : baseline.getFlags();
+        gameOver = (flags & GAME_OVER) != 0;
+        collisionDetected = (flags & COLLISION) != 0;
+        travelerScore = (changed & TRAVELER_SCORE) != 0 ? readVarInt(buffer) : baseline.travelerScore;
+
+        boolean playersChanged = (changed & PLAYERS) != 0;
+        setPlayerCount(playersChanged ? readCount(buffer, baseline.playerCount) : baseline.playerCount);
+        readEntities(buffer, playersChanged, playerCount, playerX, playerY,
+            baseline.playerCount, baseline.playerX, baseline.playerY);
+        if ((changed & PLAYER_SCORES) != 0) {
+            for (int i = 0; i < playerCount; i++) {
+                int status = readVarInt(buffer);
+                playerScore[i] = status >>> 1;
+                playerOut[i] = (status & 1) != 0;
+            }
+        } else if (playerCount == baseline.playerCount) {
+            System.arraycopy(baseline.playerScore, 0, playerScore, 0, playerCount);
+            System.arraycopy(baseline.playerOut, 0, playerOut, 0, playerCount);
+        } else {
+            throw new IllegalArgumentException("Missing scores of new players");
+        }
+
+        boolean travelersChanged = (changed & TRAVELERS) != 0;
+        setTravelerCount(travelersChanged ? readCount(buffer, baseline.travelerCount) : baseline.travelerCount);
+        readEntities(buffer, travelersChanged, travelerCount, travelerX, travelerY,
+            baseline.travelerCount, baseline.travelerX, baseline.travelerY);
+
+        boolean enemiesChanged = (changed & ENEMIES) != 0;
+        setEnemyCount(enemiesChanged ? readCount(buffer, baseline.enemyCount) : baseline.enemyCount);
+        readEntities(buffer, enemiesChanged, enemyCount, enemyX, enemyY,
+            baseline.enemyCount, baseline.enemyX, baseline.enemyY);
+
+        if ((changed & COINS) != 0) {
+            readCoins(buffer, baseline);
+        } else {
+            setCoinCount(baseline.coinCount);
+            System.arraycopy(baseline.coinKeys, 0, coinKeys, 0, coinCount);
+        }
+    }
+
+    private boolean playerScoresChanged(GameState baseline) {
+        /**
+        Checks if any player's score changed or a player went out since the
+        baseline, or the number of players changed.
+        @param baseline - the baseline
+        @return true if the scores have to be written
+        */
+        if (playerCount != baseline.playerCount) {
+            return true;
+        }
+        for (int i = 0; i < playerCount; i++) {
+            if (playerScore[i] != baseline.playerScore[i] || playerOut[i] != baseline.playerOut[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countChanged(int count, int[] x, int[] y, int baseCount, int[] baseX, int[] baseY) {
+        /**
+        Counts the entities of a list that are not where they were in the
+        baseline, including those the baseline doesn't have.
+        @param count - the number of entities
+        @param x - the x coordinates
+        @param y - the y coordinates
+        @param baseCount - the number of entities in the baseline
+        @param baseX - the x coordinates in the baseline
+        @param baseY - the y coordinates in the baseline
+        @return the number of changed entities
+        */
+        int common = Math.min(count, baseCount);
+        int changed = count - common;
+        for (int i = 0; i < common; i++) {
+            if (x[i] != baseX[i] || y[i] != baseY[i]) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private static void writeEntities(ByteBuffer buffer, int count, int[] x, int[] y,
+            int baseCount, int[] baseX, int[] baseY, int changedCount) {
+        /**
+        Writes the changes to a list of entities: its length, which entities
+        changed, and their new positions. Entities the baseline has are written
+        as the difference to their old position, new ones in full.
+        @param buffer - the buffer to write to
+        @param count - the number of entities
+        @param x - the x coordinates
+        @param y - the y coordinates
+        @param baseCount - the number of entities in the baseline
+        @param baseX - the x coordinates in the baseline
+        @param baseY - the y coordinates in the baseline
+        @param changedCount - the number of changed entities, from countChanged()
+        @return void
+        */
+        writeVarInt(buffer, count);
+        // a gap usually takes one or two bytes, the mask a bit per entity
+        int maskBytes = (count + 7) >>> 3;
+        boolean gaps = changedCount * 2 < maskBytes;
+        writeVarInt(buffer, changedCount << 1 | (gaps ? GAPS : MASK));
+
+        if (gaps) {
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                if (i < baseCount && x[i] == baseX[i] && y[i] == baseY[i]) {
+                    continue;
+                }
+                writeVarInt(buffer, i - previous - 1);
+                writePosition(buffer, i, x, y, baseCount, baseX, baseY);
+                previous = i;
+            }
+            return;
+        }
+
+        // the mask goes in front of the positions, it is filled in as the
+        // entities are written
+        int maskStart = buffer.position();
+        buffer.position(maskStart + maskBytes);
+        int mask = 0;
+        for (int i = 0; i < count; i++) {
+            if (i >= baseCount || x[i] != baseX[i] || y[i] != baseY[i]) {
+                mask |= 1 << (i & 7);
+                writePosition(buffer, i, x, y, baseCount, baseX, baseY);
+            }
+            if ((i & 7) == 7 || i == count - 1) {
+                buffer.put(maskStart + (i >>> 3), (byte) mask);
+                mask = 0;
+            }
+        }
+    }
+
+    private static void writePosition(ByteBuffer buffer, int index, int[] x, int[] y,
+            int baseCount, int[] baseX, int[] baseY) {
+        /**
+        Writes the position of a changed entity.
+        @param buffer - the buffer to write to
+        @param index - the index of the entity
+        @param x - the x coordinates
+        @param y - the y coordinates
+        @param baseCount - the number of entities in the baseline
+        @param baseX - the x coordinates in the baseline
+        @param baseY - the y coordinates in the baseline
+        @return void
+        */
+        if (index < baseCount) {
+            writeVarInt(buffer, zigzag(x[index] - baseX[index]));
+            writeVarInt(buffer, zigzag(y[index] - baseY[index]));
+        } else {
+            writeVarInt(buffer, x[index]);
+            writeVarInt(buffer, y[index]);
+        }
+    }
+
+    private static int readCount(ByteBuffer buffer, int baseCount) {
+        /**
+        Reads the length of a list of entities, checking that the buffer can hold
+        the entities the baseline doesn't have before any array is grown for them.
+        @param buffer - the buffer to read from
+        @param baseCount - the number of entities in the baseline
+        @return the number of entities
+        */
+        int count = readVarInt(buffer);
+        if (count < 0 || count > baseCount + buffer.remaining() / 2) {
+            throw new IllegalArgumentException("Invalid number of entities: " + count);
+        }
+        return count;
+    }
+
+    private static void readEntities(ByteBuffer buffer, boolean changed, int count, int[] x, int[] y,
+            int baseCount, int[] baseX, int[] baseY) {
+        /**
+        Reads the changes to a list of entities whose length was already read,
+        starting from the positions in the baseline.
+        @param buffer - the buffer to read from
+        @param changed - whether the snapshot has changes to the list at all
+        @param count - the number of entities
+        @param x - the array for the x coordinates
+        @param y - the array for the y coordinates
+        @param baseCount - the number of entities in the baseline
+        @param baseX - the x coordinates in the baseline
+        @param baseY - the y coordinates in the baseline
+        @return void
+        */
+        int common = Math.min(count, baseCount);
+        System.arraycopy(baseX, 0, x, 0, common);
+        System.arraycopy(baseY, 0, y, 0, common);
+        if (!changed) {
+            return;
+        }
+
+        int header = readVarInt(buffer);
+        int changedCount = header >>> 1;
+        if (changedCount > count) {
+            throw new IllegalArgumentException("Invalid number of changed entities: " + changedCount);
+        }
+        // every entity the baseline doesn't have must be in the snapshot
+        int added = 0;
+        if ((header & 1) == GAPS) {
+            int index = -1;
+            for (int i = 0; i < changedCount; i++) {
+                index += readVarInt(buffer) + 1;
+                if (index < 0 || index >= count) {
+                    throw new IllegalArgumentException("Invalid entity index: " + index);
+                }
+                readPosition(buffer, index, x, y, baseCount, baseX, baseY);
+                if (index >= baseCount) {
+                    added++;
+                }
+            }
+        } else {
+            int maskStart = buffer.position();
+            buffer.position(maskStart + ((count + 7) >>> 3));
+            for (int i = 0; i < count; i++) {
+                if ((buffer.get(maskStart + (i >>> 3)) & (1 << (i & 7))) != 0) {
+                    readPosition(buffer, i, x, y, baseCount, baseX, baseY);
+                    if (i >= baseCount) {
+                        added++;
+                    }
+                }
+            }
+        }
+        if (added != count - common) {
+            throw new IllegalArgumentException("Missing positions of new entities");
+        }
+    }
+
+    private static void readPosition(ByteBuffer buffer, int index, int[] x, int[] y,
+            int baseCount, int[] baseX, int[] baseY) {
+        /**
+        Reads the position of a changed entity.
+        @param buffer - the buffer to read from
+        @param index - the index of the entity
+        @param x - the array for the x coordinates
+        @param y - the array for the y coordinates
+        @param baseCount - the number of entities in the baseline
+        @param baseX - the x coordinates in the baseline
+        @param baseY - the y coordinates in the baseline
+        @return void
+        */
+        if (index < baseCount) {
+            x[index] = baseX[index] + unzigzag(readVarInt(buffer));
+            y[index] = baseY[index] + unzigzag(readVarInt(buffer));
+        } else {
+            x[index] = readVarInt(buffer);
+            y[index] = readVarInt(buffer);
+        }
+    }
+
+    private int countCoinChanges(GameState baseline) {
+        /**
+        Counts the coins that were added or removed since the baseline, by
+        walking both sorted coin sets side by side.
+        @param baseline - the baseline
+        @return the number of coins added plus the number removed
+        */
+        long[] baseKeys = baseline.coinKeys;
+        int baseCount = baseline.coinCount;
+        int changes = 0;
+        int i = 0;
+        int j = 0;
+        while (i < coinCount && j < baseCount) {
+            if (coinKeys[i] == baseKeys[j]) {
+                i++;
+                j++;
+            } else if (coinKeys[i] < baseKeys[j]) {
+                changes++;
+                i++;
+            } else {
+                changes++;
+                j++;
+            }
+        }
+        return changes + (coinCount - i) + (baseCount - j);
+    }
+
+    private void writeCoins(ByteBuffer buffer, GameState baseline, int changes) {
+        /**
+        Writes the coins that were added or removed since the baseline, in the
+        order of their keys. Each one is the rows since the previous one (and
+        whether it was added), then its column, or the columns since the previous
+        one if it is on the same row, so neighbouring coins take two bytes.
+        @param buffer - the buffer to write to
+        @param baseline - the baseline
+        @param changes - the number of changes, from countCoinChanges()
+        @return void
+        */
+        writeVarInt(buffer, changes);
+        long[] baseKeys = baseline.coinKeys;
+        int baseCount = baseline.coinCount;
+        long previous = 0;
+        int i = 0;
+        int j = 0;
+        while (i < coinCount || j < baseCount) {
+            if (i < coinCount && j < baseCount && coinKeys[i] == baseKeys[j]) {
+                i++;
+                j++;
+            } else if (j == baseCount || (i < coinCount && coinKeys[i] < baseKeys[j])) {
+                previous = writeCoinChange(buffer, coinKeys[i++], true, previous);
+            } else {
+                previous = writeCoinChange(buffer, baseKeys[j++], false, previous);
+            }
+        }
+    }
+
+    private static long writeCoinChange(ByteBuffer buffer, long key, boolean added, long previous) {
+        /**
+        Writes one added or removed coin.
+        @param buffer - the buffer to write to
+        @param key - the coin's key
+        @param added - true if the coin was added, false if it was removed
+        @param previous - the key of the previous change, 0 for the first
+        @return the key, to pass as previous with the next change
+        */
+        int rows = coinY(key) - coinY(previous);
+        writeVarInt(buffer, rows << 1 | (added ? 1 : 0));
+        writeVarInt(buffer, rows == 0 ? coinX(key) - coinX(previous) : coinX(key));
+        return key;
+    }
+
+    private void readCoins(ByteBuffer buffer, GameState baseline) {
+        /**
+        Reads the coins that were added or removed since the baseline, merging
+        them into the baseline's coins.
+        @param buffer - the buffer to read from
+        @param baseline - the baseline
+        @return void
+        */
+        int changes = readVarInt(buffer);
+        if (changes < 0 || changes > buffer.remaining() / 2) {
+            throw new IllegalArgumentException("Invalid number of coin changes: " + changes);
+        }
+        long[] baseKeys = baseline.coinKeys;
+        int baseCount = baseline.coinCount;
+        // room for every change being an added coin
+        setCoinCount(baseCount + changes);
+
+        int count = 0;
+        int j = 0;
+        long previous = 0;
+        for (int i = 0; i < changes; i++) {
+            int header = readVarInt(buffer);
+            int rows = header >>> 1;
+            int y = coinY(previous) + rows;
+            int x = rows == 0 ? coinX(previous) + readVarInt(buffer) : readVarInt(buffer);
+            long key = coinKey(x, y);
+            if (i > 0 && key <= previous) {
+                throw new IllegalArgumentException("Coin changes out of order");
+            }
+            previous = key;
+
+            // the baseline's coins in front of this one stay
+            while (j < baseCount && baseKeys[j] < key) {
+                coinKeys[count++] = baseKeys[j++];
+            }
+            boolean inBaseline = j < baseCount && baseKeys[j] == key;
+            if ((header & 1) != 0) {
+                if (inBaseline) {
+                    throw new IllegalArgumentException("Added coin is already there");
+                }
+                coinKeys[count++] = key;
+            } else {
+                if (!inBaseline) {
+                    throw new IllegalArgumentException("Removed coin is not there");
+                }
+                j++;
+            }
+        }
+        while (j < baseCount) {
+            coinKeys[count++] = baseKeys[j++];
+        }
+        coinCount = count;
+    }
+
+    private static long coinKey(int x, int y) {
+        /**
+        Gets the key coins are sorted by: row first, then column.
+        @param x - the coin's x coordinate
+        @param y - the coin's y coordinate
+        @return the key
+        */
+        return (long) y << 32 | (x & 0xFFFFFFFFL);
+    }
+
+    private static int coinX(long key) {
+        /**
+        Gets the x coordinate of a coin key.
+        @param key - the key
+        @return the x coordinate
+        */
+        return (int) key;
+    }
+
+    private static int coinY(long key) {
+        /**
+        Gets the y coordinate of a coin key.
+        @param key - the key
+        @return the y coordinate
+        */
+        return (int) (key >>> 32);
+    }
+
+    private int getFlags() {
+        /**
+        Packs the game over and collision flags into one number.
+        @return the flags
+        */
+        return (gameOver ? GAME_OVER : 0) | (collisionDetected ? COLLISION : 0);
+    }
+
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+        /**
+        Writes a number as a variable length integer: 7 bits per byte, lowest
+        first, the top bit set on every byte but the last. Numbers below 128 take
+        one byte. Negative numbers take five, so signed values are zigzagged first.
+        @param buffer - the buffer to write to
+        @param value - the number, read as unsigned
+        @return void
+        */
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+        /**
+        Writes a 64-bit number as a variable length integer.
+        @param buffer - the buffer to write to
+        @param value - the number, read as unsigned
+        @return void
+        */
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        /**
+        Reads a number writeVarInt() wrote.
+        @param buffer - the buffer to read from
+        @return the number
+        */
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte part = buffer.get();
+            value |= (part & 0x7F) << shift;
+            if (part >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Variable length integer is too long");
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        /**
+        Reads a number writeVarLong() wrote.
+        @param buffer - the buffer to read from
+        @return the number
+        */
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte part = buffer.get();
+            value |= (long) (part & 0x7F) << shift;
+            if (part >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Variable length integer is too long");
+    }
+
+    private static int zigzag(int value) {
+        /**
+        Maps a signed number to an unsigned one so small negative numbers stay
+        small: 0, -1, 1, -2, 2 become 0, 1, 2, 3, 4.
+        @param value - the signed number
+        @return the unsigned number
+        */
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        /**
+        Maps a signed 64-bit number to an unsigned one, like zigzag(int).
+        @param value - the signed number
+        @return the unsigned number
+        */
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unzigzag(int value) {
+        /**
+        Reverses zigzag().
+        @param value - the unsigned number
+        @return the signed number
+        */
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        /**
+        Reverses zigzag(long).
+        @param value - the unsigned number
+        @return the signed number
+        */
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void setPlayerCount(int count) {
+        /**
+        Sets the number of players, growing their arrays if needed.
+        @param count - the number of players
+        @return void
+        */
+        playerCount = count;
+        if (count > playerX.length) {
+            playerX = new int[Math.max(count, playerX.length * 2)];
+            playerY = new int[playerX.length];
+            playerScore = new int[playerX.length];
+            playerOut = new boolean[playerX.length];
+        }
+    }
+
+    private void setTravelerCount(int count) {
+        /**
+        Sets the number of travelers, growing their arrays if needed.
+        @param count - the number of travelers
+        @return void
+        */
+        travelerCount = count;
+        if (count > travelerX.length) {
+            travelerX = new int[Math.max(count, travelerX.length * 2)];
+            travelerY = new int[travelerX.length];
+        }
+    }
+
+    private void setEnemyCount(int count) {
+        /**
+        Sets the number of enemies, growing their arrays if needed.
+        @param count - the number of enemies
+        @return void
+        */
+        enemyCount = count;
+        if (count > enemyX.length) {
+            enemyX = new int[Math.max(count, enemyX.length * 2)];
+            enemyY = new int[enemyX.length];
+        }
+    }
+
+    private void setCoinCount(int count) {
+        /**
+        Sets the number of coins, growing their array if needed.
+        @param count - the number of coins
+        @return void
+        */
+        coinCount = count;
+        if (count > coinKeys.length) {
+            coinKeys = Arrays.copyOf(coinKeys, Math.max(count, coinKeys.length * 2));
+        }
+    }
+
+    public String getWinnerText() {
+        /**
+        Gets the text announcing the winner, the same way the world does.
+        @return the winner text
+        */
+        int best = 0;
+        for (int i = 1; i < playerCount; i++) {
+            if (playerScore[i] > playerScore[best]) {
+                best = i;
+            }
+        }
+        return World.getWinnerText(best, playerCount == 0 ? 0 : playerScore[best], playerCount,
+            travelerScore, collisionDetected);
+    }
+
+    public long getTick() {
+        /**
+        Gets the number of ticks the world had run.
+        @return the number of ticks
+        */
+        return tick;
+    }
+
+    public int getRemainingTime() {
+        /**
+        Gets the remaining time of the round.
+        @return the remaining time in seconds
+        */
+        return remainingTime;
+    }
+
+    public boolean isGameOver() {
+        /**
+        Checks if the game was over.
+        @return true if the game was over
+        */
+        return gameOver;
+    }
+
+    public boolean getCollisionDetected() {
+        /**
+        Checks if every player had hit an enemy.
+        @return true if every player had hit an enemy
+        */
+        return collisionDetected;
+    }
+
+    public int getPlayerCount() {
+        /**
+        Gets the number of players.
+        @return the number of players
+        */
+        return playerCount;
+    }
+
+    public int getPlayerX(int index) {
+        /**
+        Gets a player's x coordinate.
+        @param index - the index of the player
+        @return the x coordinate in tiles
+        */
+        return playerX[index];
+    }
+
+    public int getPlayerY(int index) {
+        /**
+        Gets a player's y coordinate.
+        @param index - the index of the player
+        @return the y coordinate in tiles
+        */
+        return playerY[index];
+    }
+
+    public int getPlayerScore(int index) {
+        /**
+        Gets a player's score.
+        @param index - the index of the player
+        @return the score
+        */
+        return playerScore[index];
+    }
+
+    public boolean isPlayerOut(int index) {
+        /**
+        Checks if a player had hit an enemy.
+        @param index - the index of the player
+        @return true if the player was out
+        */
+        return playerOut[index];
+    }
+
+    public int getTravelerScore() {
+        /**
+        Gets the score of all travelers together.
+        @return the score
+        */
+        return travelerScore;
+    }
+
+    public int getTravelerCount() {
+        /**
+        Gets the number of travelers.
+        @return the number of travelers
+        */
+        return travelerCount;
+    }
+
+    public int getTravelerX(int index) {
+        /**
+        Gets a traveler's x coordinate.
+        @param index - the index of the traveler, below getTravelerCount()
+        @return the x coordinate in tiles
+        */
+        return travelerX[index];
+    }
+
+    public int getTravelerY(int index) {
+        /**
+        Gets a traveler's y coordinate.
+        @param index - the index of the traveler, below getTravelerCount()
+        @return the y coordinate in tiles
+        */
+        return travelerY[index];
+    }
+
+    public int getEnemyCount() {
+        /**
+        Gets the number of enemies.
+        @return the number of enemies
+        */
+        return enemyCount;
+    }
+
+    public int getEnemyX(int index) {
+        /**
+        Gets an enemy's x coordinate.
+        @param index - the index of the enemy, below getEnemyCount()
+        @return the x coordinate in tiles
+        */
+        return enemyX[index];
+    }
+
+    public int getEnemyY(int index) {
+        /**
+        Gets an enemy's y coordinate.
+        @param index - the index of the enemy, below getEnemyCount()
+        @return the y coordinate in tiles
+        */
+        return enemyY[index];
+    }
+
+    public int getCoinCount() {
+        /**
+        Gets the number of coins.
+        @return the number of coins
+        */
+        return coinCount;
+    }
+
+    public int getCoinX(int index) {
+        /**
+        Gets a coin's x coordinate.
+        @param index - the index of the coin, below getCoinCount()
+        @return the x coordinate in tiles
+        */
+        return coinX(coinKeys[index]);
+    }
+
+    public int getCoinY(int index) {
+        /**
+        Gets a coin's y coordinate.
+        @param index - the index of the coin, below getCoinCount()
+        @return the y coordinate in tiles
+        */
+        return coinY(coinKeys[index]);
+    }
+}
@@ -0,0 +1,56 @@
+package game;
+
+import java.util.Arrays;
+
+public class InputLog {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // per entry: the tick the key was pressed before (the number of ticks that had
+    // been simulated at the time) and its key code
+    private long[] ticks = new long[INITIAL_CAPACITY];
+    private int[] keyCodes = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    public void record(long tick, int keyCode) {
+        /**
+        Adds a key press to the end of the log.
+        @param tick - the number of ticks simulated when the key was pressed
+        @param keyCode - the KeyEvent key code of the pressed key
+        @return void
+        */
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            keyCodes = Arrays.copyOf(keyCodes, size * 2);
+        }
+        ticks[size] = tick;
+        keyCodes[size] = keyCode;
+        size++;
+    }
+
+    public int size() {
+        /**
+        Gets the number of key presses in the log.
+        @return the number of entries
+        */
+        return size;
+    }
+
+    public long getTick(int index) {
+        /**
+        Gets the tick of a key press.
+        @param index - the index of the entry
+        @return the number of ticks simulated when the key was pressed
+        */
+        return ticks[index];
+    }
+
+    public int getKeyCode(int index) {
+        /**
+        Gets the key code of a key press.
+        @param index - the index of the entry
+        @return the KeyEvent key code
+        */
+        return keyCodes[index];
+    }
+}
@@ -0,0 +1,103 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InputQueue {
+
+    // number of slots, a power of two so a position maps to its slot with a mask.
+    // far more key presses than anyone can make in one tick
+    private static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+
+    // per slot: the key code and when it was pressed (System.nanoTime())
+    private final int[] keyCodes = new int[CAPACITY];
+    private final long[] timestamps = new long[CAPACITY];
+
+    // one thread adds key presses (the producer, e.g. the event thread) and one
+    // takes them out (the consumer, the thread stepping the world), so neither
+    // side needs a lock. positions only ever grow; a slot is position & MASK.
+    // the producer writes a slot and then publishes it by moving tail with a
+    // release store (lazySet), the consumer reads tail before the slot, and the
+    // same the other way around for head, so a slot is never read half written
+    // or overwritten before it was read
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    // each side's last look at the other side's position, so the shared one is
+    // only read again when the queue looks full (producer) or empty (consumer)
+    private long producerHead = 0;
+    private long consumerTail = 0;
+    // key presses thrown away because the queue was full
+    private final AtomicLong dropped = new AtomicLong();
+
+    // the entry the last successful poll() took out, for the consumer
+    private int keyCode;
+    private long timestamp;
+
+    public boolean offer(int keyCode, long timestamp) {
+        /**
+        Adds a key press to the queue. Only the producer thread may call this.
+        It does not lock, wait or allocate.
+        @param keyCode - the KeyEvent key code of the pressed key
+        @param timestamp - when the key was pressed, from System.nanoTime()
+        @return true if it was added, false if the queue was full and it was dropped
+        */
+        long position = tail.get();
+        if (position - producerHead == CAPACITY) {
+            producerHead = head.get();
+            if (position - producerHead == CAPACITY) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        int slot = (int) position & MASK;
+        keyCodes[slot] = keyCode;
+        timestamps[slot] = timestamp;
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    public boolean poll() {
+        /**
+        Takes the oldest key press out of the queue. Only the consumer thread may
+        call this. The key press is then read with getKeyCode() and getTimestamp().
+        It does not lock, wait or allocate.
+        @return true if a key press was taken out, false if the queue was empty
+        */
+        long position = head.get();
+        if (position == consumerTail) {
+            consumerTail = tail.get();
+            if (position == consumerTail) {
+                return false;
+            }
+        }
+        int slot = (int) position & MASK;
+        keyCode = keyCodes[slot];
+        timestamp = timestamps[slot];
+        head.lazySet(position + 1);
+        return true;
+    }
+
+    public int getKeyCode() {
+        /**
+        Gets the key code of the key press the last poll() took out.
+        @return the KeyEvent key code
+        */
+        return keyCode;
+    }
+
+    public long getTimestamp() {
+        /**
+        Gets when the key press the last poll() took out happened.
+        @return the System.nanoTime() of the key press
+        */
+        return timestamp;
+    }
+
+    public long getDropped() {
+        /**
+        Gets the number of key presses dropped because the queue was full.
+        @return the number of key presses
+        */
+        return dropped.get();
+    }
+}
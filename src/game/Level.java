@@ -0,0 +1,311 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import pathfinding.BlockedTiles;
+
+public class Level {
+
+    // "LEVL" at the start of every level file, followed by the format version
+    private static final int MAGIC = 0x4C45564C;
+    private static final int VERSION = 1;
+    // magic, version, columns, rows, player cell, traveler cell, enemy count and
+    // coin count, as ints. the terrain words right after it start 8-byte aligned
+    private static final int HEADER_BYTES = 8 * 4;
+
+    // value used for a spawn point the level doesn't set
+    public static final int NO_SPAWN = -1;
+
+    // characters of the text map format
+    private static final char WALL = '#';
+    private static final char PLAYER = 'P';
+    private static final char TRAVELER = 'T';
+    private static final char ENEMY = 'E';
+    private static final char COIN = 'C';
+
+    // the walls, which also know the size of the board
+    private final BlockedTiles blockedTiles;
+    // spawn points as cell indexes (y * columns + x)
+    private final int playerCell;
+    private final int travelerCell;
+    private final int[] enemyCells;
+    private final int[] coinCells;
+    // the file the level was loaded from, or null if it was built in memory
+    private File file;
+
+    public Level(BlockedTiles blockedTiles, int playerCell, int travelerCell, int[] enemyCells, int[] coinCells) {
+        /**
+        Initializes a level.
+        @param blockedTiles - the walls, sized to the board
+        @param playerCell - the cell the player starts on, or NO_SPAWN for the top left corner
+        @param travelerCell - the cell the traveler starts on, or NO_SPAWN for the bottom right corner
+        @param enemyCells - the cells the enemies start on, one per enemy
+        @param coinCells - the cells the coins start on, one per coin
+        @return void
+        */
+        this.blockedTiles = blockedTiles;
+        this.playerCell = playerCell;
+        this.travelerCell = travelerCell;
+        this.enemyCells = enemyCells;
+        this.coinCells = coinCells;
+    }
+
+    public static Level load(File file) throws IOException {
+        /**
+        Loads a level file.
+        The file is memory-mapped and the terrain is copied into the board's bit
+        grid in one bulk copy, with no parsing and no object per tile, so even a
+        100 million tile level (12.5 MB of terrain) loads in milliseconds.
+        @param file - the level file to load
+        @return the level
+        */
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a level: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a level: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported level version " + version + ": " + file);
+            }
+            int columns = buffer.getInt();
+            int rows = buffer.getInt();
+            int playerCell = buffer.getInt();
+            int travelerCell = buffer.getInt();
+            int enemyCount = buffer.getInt();
+            int coinCount = buffer.getInt();
+
+            long cells = (long) columns * rows;
+            if (columns <= 0 || rows <= 0 || cells > Integer.MAX_VALUE || enemyCount < 0 || coinCount < 0) {
+                throw new IOException("Malformed level header: " + file);
+            }
+            BlockedTiles blockedTiles = new BlockedTiles(columns, rows);
+            long expected = HEADER_BYTES + 8L * blockedTiles.getWordCount() + 4L * enemyCount + 4L * coinCount;
+            if (size != expected) {
+                throw new IOException("Level has " + size + " bytes, expected " + expected + ": " + file);
+            }
+
+            blockedTiles.readFrom(buffer.asLongBuffer());
+            buffer.position(HEADER_BYTES + 8 * blockedTiles.getWordCount());
+            int[] enemyCells = new int[enemyCount];
+            buffer.asIntBuffer().get(enemyCells);
+            buffer.position(buffer.position() + 4 * enemyCount);
+            int[] coinCells = new int[coinCount];
+            buffer.asIntBuffer().get(coinCells);
+
+            checkSpawn(playerCell, blockedTiles, file);
+            checkSpawn(travelerCell, blockedTiles, file);
+            for (int cell : enemyCells) {
+                checkSpawn(cell, blockedTiles, file);
+            }
+            for (int cell : coinCells) {
+                checkSpawn(cell, blockedTiles, file);
+            }
+
+            Level level = new Level(blockedTiles, playerCell, travelerCell, enemyCells, coinCells);
+            level.file = file;
+            return level;
+        }
+    }
+
+    private static void checkSpawn(int cell, BlockedTiles blockedTiles, File file) throws IOException {
+        /**
+        Checks that a spawn point read from a file is on the board and not a wall.
+        @param cell - the cell index of the spawn point
+        @param blockedTiles - the walls of the level being loaded
+        @param file - the file being loaded, for the error message
+        @return void
+        */
+        if (cell == NO_SPAWN) {
+            return;
+        }
+        if (cell < 0 || cell >= (long) blockedTiles.getColumns() * blockedTiles.getRows()) {
+            throw new IOException("Spawn point " + cell + " is off the board: " + file);
+        }
+        if (blockedTiles.isBlocked(cell)) {
+            throw new IOException("Spawn point " + cell + " is a wall: " + file);
+        }
+    }
+
+    public void save(File file) throws IOException {
+        /**
+        Writes the level to a file in the binary format load() reads.
+        All numbers are little-endian: a header of eight ints (magic, version,
+        columns, rows, player cell, traveler cell, enemy count, coin count), the
+        terrain as one bit per tile packed into longs, then the enemy and the
+        coin cells as ints.
+        @param file - the file to write to
+        @return void
+        */
+        long size = HEADER_BYTES + 8L * blockedTiles.getWordCount() + 4L * enemyCells.length + 4L * coinCells.length;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(blockedTiles.getColumns());
+            buffer.putInt(blockedTiles.getRows());
+            buffer.putInt(playerCell);
+            buffer.putInt(travelerCell);
+            buffer.putInt(enemyCells.length);
+            buffer.putInt(coinCells.length);
+
+            blockedTiles.writeTo(buffer.asLongBuffer());
+            buffer.position(HEADER_BYTES + 8 * blockedTiles.getWordCount());
+            buffer.asIntBuffer().put(enemyCells);
+            buffer.position(buffer.position() + 4 * enemyCells.length);
+            buffer.asIntBuffer().put(coinCells);
+            buffer.force();
+        }
+        this.file = file;
+    }
+
+    public static Level parseText(File file) throws IOException {
+        /**
+        Reads a level from a text map.
+        Every line is a row of tiles: '#' is a wall, 'P' the player, 'T' the
+        traveler, 'E' an enemy, 'C' a coin, and anything else is an empty floor
+        tile. Rows shorter than the longest one are padded with floor.
+        @param file - the text map to read
+        @return the level
+        */
+        ArrayList<String> lines = new ArrayList<>();
+        int columns = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                columns = Math.max(columns, line.length());
+            }
+        }
+        // ignore trailing empty lines
+        while (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+            lines.remove(lines.size() - 1);
+        }
+        int rows = lines.size();
+        if (columns == 0 || rows == 0) {
+            throw new IOException("Empty map: " + file);
+        }
+
+        BlockedTiles blockedTiles = new BlockedTiles(columns, rows);
+        int playerCell = NO_SPAWN;
+        int travelerCell = NO_SPAWN;
+        int[] enemyCells = new int[16];
+        int enemyCount = 0;
+        int[] coinCells = new int[16];
+        int coinCount = 0;
+        for (int y = 0; y < rows; y++) {
+            String line = lines.get(y);
+            for (int x = 0; x < line.length(); x++) {
+                int cell = y * columns + x;
+                char tile = line.charAt(x);
+                if (tile == WALL) {
+                    blockedTiles.setBlocked(x, y, true);
+                } else if (tile == PLAYER) {
+                    if (playerCell != NO_SPAWN) {
+                        throw new IOException("More than one player in " + file);
+                    }
+                    playerCell = cell;
+                } else if (tile == TRAVELER) {
+                    if (travelerCell != NO_SPAWN) {
+                        throw new IOException("More than one traveler in " + file);
+                    }
+                    travelerCell = cell;
+                } else if (tile == ENEMY) {
+                    if (enemyCount == enemyCells.length) {
+                        enemyCells = Arrays.copyOf(enemyCells, enemyCount * 2);
+                    }
+                    enemyCells[enemyCount++] = cell;
+                } else if (tile == COIN) {
+                    if (coinCount == coinCells.length) {
+                        coinCells = Arrays.copyOf(coinCells, coinCount * 2);
+                    }
+                    coinCells[coinCount++] = cell;
+                }
+            }
+        }
+        return new Level(blockedTiles, playerCell, travelerCell,
+            Arrays.copyOf(enemyCells, enemyCount), Arrays.copyOf(coinCells, coinCount));
+    }
+
+    public int getColumns() {
+        /**
+        Gets the number of board columns.
+        @return the number of columns
+        */
+        return blockedTiles.getColumns();
+    }
+
+    public int getRows() {
+        /**
+        Gets the number of board rows.
+        @return the number of rows
+        */
+        return blockedTiles.getRows();
+    }
+
+    public BlockedTiles getBlockedTiles() {
+        /**
+        Gets the walls of the level.
+        A world created from the level uses this grid directly.
+        @return the blocked tiles
+        */
+        return blockedTiles;
+    }
+
+    public int getPlayerCell() {
+        /**
+        Gets the cell the player starts on.
+        @return the cell index, or NO_SPAWN
+        */
+        return playerCell;
+    }
+
+    public int getTravelerCell() {
+        /**
+        Gets the cell the traveler starts on.
+        @return the cell index, or NO_SPAWN
+        */
+        return travelerCell;
+    }
+
+    public int[] getEnemyCells() {
+        /**
+        Gets the cells the enemies start on.
+        @return the cell indexes, one per enemy
+        */
+        return enemyCells;
+    }
+
+    public int[] getCoinCells() {
+        /**
+        Gets the cells the coins start on.
+        @return the cell indexes, one per coin
+        */
+        return coinCells;
+    }
+
+    public File getFile() {
+        /**
+        Gets the file the level was loaded from or last saved to.
+        @return the file, or null if the level only exists in memory
+        */
+        return file;
+    }
+}
@@ -0,0 +1,417 @@
+package game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import pathfinding.BlockedTiles;
+import utils.Contstants;
+
+public class OccupancyGrid {
+
+    // value used for "nothing here" and for positions outside the grid
+    public static final int NONE = -1;
+
+    // the grid is stored in square chunks of CHUNK_SIZE x CHUNK_SIZE tiles that are
+    // only allocated once something is put on them, so a huge, mostly empty board
+    // costs memory for the parts that are used, not for its whole area
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // size of the grid; cells are indexed as y * columns + x
+    private final int columns;
+    private final int rows;
+    // number of chunks across the grid
+    private final int chunkColumns;
+
+    // per chunk: index of the coin on each cell in the world's coin list, or NONE
+    private final int[][] coinSlotChunks;
+    // per chunk: number of enemies on each cell
+    private final int[][] enemyCountChunks;
+    // per chunk: number of travelers on each cell
+    private final int[][] travelerCountChunks;
+    // walls; nothing can be put on a blocked tile
+    private final BlockedTiles blockedTiles;
+    // cell of every player, or NONE while off the board. there are only a few
+    // players, so they are looked up by scanning this
+    private int[] playerCells = {NONE};
+
+    // the tiles nothing is on, kept up to date on every change so a random free
+    // tile can be picked in O(1). null on boards too large to list every tile
+    private final FreeCellSet freeCells;
+
+    public OccupancyGrid(int columns, int rows, BlockedTiles blockedTiles) {
+        /**
+        Initializes an empty occupancy grid.
+        @param columns - the number of grid columns
+        @param rows - the number of grid rows
+        @param blockedTiles - the walls of the board, which are never free
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        this.blockedTiles = blockedTiles;
+
+        chunkColumns = (columns + CHUNK_MASK) >> CHUNK_SHIFT;
+        int chunkRows = (rows + CHUNK_MASK) >> CHUNK_SHIFT;
+        coinSlotChunks = new int[chunkColumns * chunkRows][];
+        enemyCountChunks = new int[chunkColumns * chunkRows][];
+        travelerCountChunks = new int[chunkColumns * chunkRows][];
+
+        if ((long) columns * rows <= Contstants.MAX_SEARCH_CELLS) {
+            freeCells = new FreeCellSet(columns * rows);
+            if (blockedTiles.getBlockedCount() > 0) {
+                for (int cell = 0; cell < columns * rows; cell++) {
+                    if (blockedTiles.isBlocked(cell)) {
+                        freeCells.remove(cell);
+                    }
+                }
+            }
+        } else {
+            freeCells = null;
+        }
+    }
+
+    private int chunkIndex(int x, int y) {
+        /**
+        Gets the index of the chunk a tile is in.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the chunk index
+        */
+        return (y >> CHUNK_SHIFT) * chunkColumns + (x >> CHUNK_SHIFT);
+    }
+
+    private static int offsetInChunk(int x, int y) {
+        /**
+        Gets the position of a tile inside its chunk.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the index of the tile in the chunk's arrays
+        */
+        return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+    }
+
+    private int[] coinChunk(int x, int y) {
+        /**
+        Gets the coin chunk a tile is in, allocating it if it doesn't exist yet.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the coin slots of the chunk
+        */
+        int chunk = chunkIndex(x, y);
+        if (coinSlotChunks[chunk] == null) {
+            coinSlotChunks[chunk] = new int[CHUNK_SIZE * CHUNK_SIZE];
+            Arrays.fill(coinSlotChunks[chunk], NONE);
+        }
+        return coinSlotChunks[chunk];
+    }
+
+    private int[] enemyChunk(int x, int y) {
+        /**
+        Gets the enemy chunk a tile is in, allocating it if it doesn't exist yet.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the enemy counts of the chunk
+        */
+        int chunk = chunkIndex(x, y);
+        if (enemyCountChunks[chunk] == null) {
+            enemyCountChunks[chunk] = new int[CHUNK_SIZE * CHUNK_SIZE];
+        }
+        return enemyCountChunks[chunk];
+    }
+
+    private int[] travelerChunk(int x, int y) {
+        /**
+        Gets the traveler chunk a tile is in, allocating it if it doesn't exist yet.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the traveler counts of the chunk
+        */
+        int chunk = chunkIndex(x, y);
+        if (travelerCountChunks[chunk] == null) {
+            travelerCountChunks[chunk] = new int[CHUNK_SIZE * CHUNK_SIZE];
+        }
+        return travelerCountChunks[chunk];
+    }
+
+    public int cellIndex(int x, int y) {
+        /**
+        Gets the flat index of a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the cell index, or NONE if the tile is outside the grid
+        */
+        if (x < 0 || x >= columns || y < 0 || y >= rows) {
+            return NONE;
+        }
+        return y * columns + x;
+    }
+
+    public void setCoinSlot(int x, int y, int slot) {
+        /**
+        Records that a coin is on a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @param slot - the index of the coin in the world's coin list
+        @return void
+        */
+        coinChunk(x, y)[offsetInChunk(x, y)] = slot;
+        if (freeCells != null) {
+            freeCells.remove(y * columns + x);
+        }
+    }
+
+    public void removeCoin(int x, int y) {
+        /**
+        Records that a tile no longer has a coin.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return void
+        */
+        int[] chunk = coinSlotChunks[chunkIndex(x, y)];
+        if (chunk != null) {
+            chunk[offsetInChunk(x, y)] = NONE;
+        }
+        refreshFreeCell(y * columns + x);
+    }
+
+    public int getCoinSlot(int x, int y) {
+        /**
+        Gets the coin on a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the index of the coin in the world's coin list, or NONE
+        */
+        if (cellIndex(x, y) == NONE) {
+            return NONE;
+        }
+        int[] chunk = coinSlotChunks[chunkIndex(x, y)];
+        return chunk == null ? NONE : chunk[offsetInChunk(x, y)];
+    }
+
+    public boolean hasCoin(int x, int y) {
+        /**
+        Checks if a tile has a coin.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if there is a coin on the tile, false otherwise
+        */
+        return getCoinSlot(x, y) != NONE;
+    }
+
+    public void addEnemy(int x, int y) {
+        /**
+        Records that an enemy entered a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return void
+        */
+        enemyChunk(x, y)[offsetInChunk(x, y)]++;
+        if (freeCells != null) {
+            freeCells.remove(y * columns + x);
+        }
+    }
+
+    public void moveEnemy(int fromX, int fromY, int toX, int toY) {
+        /**
+        Records that an enemy moved from one tile to another.
+        @param fromX - the x coordinate of the tile it left
+        @param fromY - the y coordinate of the tile it left
+        @param toX - the x coordinate of the tile it entered
+        @param toY - the y coordinate of the tile it entered
+        @return void
+        */
+        enemyChunk(fromX, fromY)[offsetInChunk(fromX, fromY)]--;
+        enemyChunk(toX, toY)[offsetInChunk(toX, toY)]++;
+        if (freeCells != null) {
+            refreshFreeCell(fromY * columns + fromX);
+            freeCells.remove(toY * columns + toX);
+        }
+    }
+
+    public int getEnemyCount(int x, int y) {
+        /**
+        Gets the number of enemies on a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the number of enemies
+        */
+        if (cellIndex(x, y) == NONE) {
+            return 0;
+        }
+        int[] chunk = enemyCountChunks[chunkIndex(x, y)];
+        return chunk == null ? 0 : chunk[offsetInChunk(x, y)];
+    }
+
+    public boolean hasEnemy(int x, int y) {
+        /**
+        Checks if a tile has an enemy.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if there is at least one enemy on the tile, false otherwise
+        */
+        return getEnemyCount(x, y) > 0;
+    }
+
+    public void setPlayer(int index, int x, int y) {
+        /**
+        Records a player's tile.
+        @param index - the index of the player, 0 for the first one
+        @param x - the x coordinate of the player
+        @param y - the y coordinate of the player
+        @return void
+        @throws IllegalArgumentException if the tile is outside the grid; a player
+                recorded nowhere would be missed by every collision check
+        */
+        int cell = cellIndex(x, y);
+        if (cell == NONE) {
+            throw new IllegalArgumentException("Player " + index + " is off the board at " + x + "," + y);
+        }
+        if (index >= playerCells.length) {
+            int oldLength = playerCells.length;
+            playerCells = Arrays.copyOf(playerCells, index + 1);
+            Arrays.fill(playerCells, oldLength, playerCells.length, NONE);
+        }
+        int oldCell = playerCells[index];
+        playerCells[index] = cell;
+        refreshFreeCell(oldCell);
+        refreshFreeCell(playerCells[index]);
+    }
+
+    public boolean isPlayerAt(int x, int y) {
+        /**
+        Checks if a player is on a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if at least one player is on the tile, false otherwise
+        */
+        int cell = cellIndex(x, y);
+        if (cell == NONE) {
+            return false;
+        }
+        for (int i = 0; i < playerCells.length; i++) {
+            if (playerCells[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void addTraveler(int x, int y) {
+        /**
+        Records that a traveler entered a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return void
+        */
+        travelerChunk(x, y)[offsetInChunk(x, y)]++;
+        if (freeCells != null) {
+            freeCells.remove(y * columns + x);
+        }
+    }
+
+    public void moveTraveler(int fromX, int fromY, int toX, int toY) {
+        /**
+        Records that a traveler moved from one tile to another.
+        @param fromX - the x coordinate of the tile it left
+        @param fromY - the y coordinate of the tile it left
+        @param toX - the x coordinate of the tile it entered
+        @param toY - the y coordinate of the tile it entered
+        @return void
+        */
+        travelerChunk(fromX, fromY)[offsetInChunk(fromX, fromY)]--;
+        travelerChunk(toX, toY)[offsetInChunk(toX, toY)]++;
+        if (freeCells != null) {
+            refreshFreeCell(fromY * columns + fromX);
+            freeCells.remove(toY * columns + toX);
+        }
+    }
+
+    public boolean isTravelerAt(int x, int y) {
+        /**
+        Checks if a traveler is on a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if at least one traveler is on the tile, false otherwise
+        */
+        if (cellIndex(x, y) == NONE) {
+            return false;
+        }
+        int[] chunk = travelerCountChunks[chunkIndex(x, y)];
+        return chunk != null && chunk[offsetInChunk(x, y)] > 0;
+    }
+
+    public boolean isOccupied(int x, int y) {
+        /**
+        Checks if anything is on a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if a coin, enemy, player or traveler is on the tile
+        */
+        return hasCoin(x, y) || hasEnemy(x, y) || isPlayerAt(x, y) || isTravelerAt(x, y);
+    }
+
+    public boolean isFree(int x, int y) {
+        /**
+        Checks if a new object can be put on a tile.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if nothing is on the tile and it is not a wall, false otherwise
+        */
+        return !isOccupied(x, y) && !blockedTiles.isBlocked(x, y);
+    }
+
+    public void refreshTile(int x, int y) {
+        /**
+        Updates the free tiles after a tile was blocked or cleared.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return void
+        */
+        refreshFreeCell(cellIndex(x, y));
+    }
+
+    private void refreshFreeCell(int cell) {
+        /**
+        Adds a cell to or removes it from the free cells, depending on whether
+        anything is on it or it is a wall.
+        @param cell - the cell index, or NONE to do nothing
+        @return void
+        */
+        if (freeCells == null || cell == NONE) {
+            return;
+        }
+        if (!isFree(cell % columns, cell / columns)) {
+            freeCells.remove(cell);
+        } else {
+            freeCells.add(cell);
+        }
+    }
+
+    public boolean tracksFreeCells() {
+        /**
+        Checks if the grid keeps a list of the free tiles.
+        Boards with more than MAX_SEARCH_CELLS tiles don't.
+        @return true if randomFreeCell() can be used, false otherwise
+        */
+        return freeCells != null;
+    }
+
+    public int getFreeCellCount() {
+        /**
+        Gets the number of tiles nothing is on that are not walls.
+        @return the number of free tiles, or 0 if the grid doesn't track them
+        */
+        return freeCells == null ? 0 : freeCells.size();
+    }
+
+    public int randomFreeCell(Random random) {
+        /**
+        Picks a tile nothing is on that is not a wall, uniformly at random, in O(1).
+        @param random - the random number generator to use
+        @return the cell index (y * columns + x), or NONE if no tile is free or the grid doesn't track free tiles
+        */
+        return freeCells == null ? NONE : freeCells.sample(random);
+    }
+}
@@ -0,0 +1,155 @@
+package game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class Recording {
+
+    // "COIN" at the start of every recording file, followed by the format version
+    private static final int MAGIC = 0x434F494E;
+    private static final int VERSION = 4;
+
+    public static void write(World world, File file) throws IOException {
+        /**
+        Writes the recording of a world to a file.
+        A world is fully determined by its seed, its settings (including the
+        percentage of random walls, the level file it was made from and the
+        number of travelers) and the keys pressed
+        in it, so that is all the file holds: a small header, the number of ticks
+        that were simulated, and one entry per key press. Each entry stores the
+        ticks since the previous key press and the key code as variable length
+        integers, which takes two bytes for a typical arrow key press.
+        @param world - the world whose recording to write
+        @param file - the file to write to
+        @return void
+        */
+        InputLog inputLog = world.getInputLog();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(world.getSeed());
+            out.writeInt(world.getColumns());
+            out.writeInt(world.getRows());
+            out.writeInt(world.getTotalCoins());
+            out.writeInt(world.getNumEnemies());
+            out.writeInt(world.getWallPercent());
+            Level level = world.getLevel();
+            out.writeUTF(level != null && level.getFile() != null ? level.getFile().getPath() : "");
+            out.writeInt(world.getTravelers().size());
+            out.writeLong(world.getTickCount());
+            out.writeInt(inputLog.size());
+
+            long previousTick = 0;
+            for (int i = 0; i < inputLog.size(); i++) {
+                writeVarLong(out, inputLog.getTick(i) - previousTick);
+                writeVarLong(out, inputLog.getKeyCode(i));
+                previousTick = inputLog.getTick(i);
+            }
+        }
+    }
+
+    public static World replay(File file) throws IOException {
+        /**
+        Replays a recording as fast as possible.
+        It creates a world with the recorded seed and settings, then steps it for
+        the recorded number of ticks, pressing every recorded key right before the
+        tick it was pressed before. The result is the same world, down to every
+        position and score, as the one that was recorded.
+        @param file - the recording to replay
+        @return the world at the end of the recording
+        */
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a recording: " + file);
+            }
+            int version = in.readInt();
+            // version 1 recordings were made before boards had walls, version 2
+            // before worlds could be made from level files, version 3 before
+            // there could be more than one traveler
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported recording version " + version + ": " + file);
+            }
+            long seed = in.readLong();
+            int columns = in.readInt();
+            int rows = in.readInt();
+            int totalCoins = in.readInt();
+            int numEnemies = in.readInt();
+            int wallPercent = version >= 2 ? in.readInt() : 0;
+            String levelPath = version >= 3 ? in.readUTF() : "";
+            int travelers = version >= 4 ? in.readInt() : 1;
+            long endTick = in.readLong();
+            int entries = in.readInt();
+
+            World world;
+            if (levelPath.isEmpty()) {
+                world = new World(columns, rows, totalCoins, numEnemies, seed);
+            } else {
+                // the level file is referenced, not copied, so it must not have changed
+                world = new World(Level.load(new File(levelPath)), seed);
+            }
+            if (wallPercent > 0) {
+                world.addRandomWalls(wallPercent);
+            }
+            if (travelers > 1) {
+                world.addTravelers(travelers - 1);
+            }
+
+            long tick = 0;
+            for (int i = 0; i < entries; i++) {
+                tick += readVarLong(in);
+                int keyCode = (int) readVarLong(in);
+                // simulate up to the tick the key was pressed before
+                while (world.getTickCount() < tick) {
+                    world.step();
+                }
+                world.keyPressed(keyCode);
+            }
+            while (world.getTickCount() < endTick) {
+                world.step();
+            }
+            return world;
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        /**
+        Writes a non-negative number 7 bits at a time, using the top bit of each
+        byte to mark that more bytes follow.
+        @param out - the stream to write to
+        @param value - the number to write
+        @return void
+        */
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        /**
+        Reads a number written by writeVarLong().
+        @param in - the stream to read from
+        @return the number
+        */
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift >= 64) {
+                throw new IOException("Malformed number in recording");
+            }
+        }
+    }
+}
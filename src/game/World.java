@@ -0,0 +1,1153 @@
+package game;
+
+import java.awt.Point;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import entities.EnemySystem;
+import entities.EntityStore;
+import entities.Player;
+import entities.Traveler;
+import entities.TravelerSystem;
+import pathfinding.BlockedTiles;
+import pathfinding.CoinDistanceField;
+import pathfinding.HierarchicalPathfinder;
+import utils.Contstants;
+import utils.Logger;
+import utils.Profiler;
+
+public class World {
+
+    // objects that live in the simulation
+    // the first player, who plays alone unless more players are added
+    private Player player;
+    // every player, the first one included, and which of them hit an enemy.
+    // a player who hit an enemy stops where they are; the game ends once
+    // every player has
+    private ArrayList<Player> players = new ArrayList<>();
+    private boolean[] playersOut = new boolean[1];
+    private ArrayList<Coin> coins;
+    // the coins sorted into buckets by position, for nearest-coin queries that
+    // don't scan every coin
+    private CoinIndex coinIndex;
+    // the enemies, stored as parallel primitive arrays so thousands of them can
+    // be updated every tick
+    private EntityStore entityStore;
+    // updates the enemies, in parallel when there are many of them
+    private EnemySystem enemySystem = new EnemySystem();
+    // the first traveler, which plays alone unless more travelers are added
+    private Traveler traveler;
+    // every traveler, the first one included
+    private ArrayList<Traveler> travelers = new ArrayList<>();
+    // plans the moves of all travelers together once there is more than one,
+    // null while the first traveler plays alone
+    private TravelerSystem travelerSystem;
+
+    // the walls on the board, which nothing can stand on or move through
+    private BlockedTiles blockedTiles;
+
+    // what is on every tile, for O(1) coin pickup and collision checks
+    private OccupancyGrid occupancyGrid;
+
+    // distance from every tile to the nearest coin, shared by all AI agents.
+    // null on boards too large to keep a value for every tile
+    private CoinDistanceField coinDistanceField;
+    // paths around walls on boards too large for the coin distance field. only
+    // built once such a board gets walls, null before that and on smaller boards
+    private HierarchicalPathfinder hierarchicalPathfinder;
+
+    private Clock clock = new Clock();
+
+    private boolean collisionDetected = false;
+
+    // tiles that changed since the renderer last asked
+    private DirtyTiles dirtyTiles;
+    // times the phases of every tick and frame
+    private Profiler profiler = new Profiler();
+
+    // number of ticks simulated so far
+    private long tickCount = 0;
+
+    // size of the board and how many objects are placed on it
+    private final int columns;
+    private final int rows;
+    private final int totalCoins;
+    private final int numEnemies;
+    // percentage of the board addRandomWalls() turned into walls
+    private int wallPercent = 0;
+    // the level the world was made from, or null for an empty board
+    private final Level level;
+
+    // every random decision in the world comes from this one generator, so a
+    // world is fully determined by its seed and the keys pressed in it
+    private final long seed;
+    private final Random random;
+    // every key press, so the game can be saved and replayed
+    private InputLog inputLog = new InputLog();
+    // key presses waiting for the next tick, one queue per player. the event
+    // thread adds them without locking and the tick applies them before
+    // anything else moves, so input always lands at the same point of a tick
+    // and replays exactly
+    private ArrayList<InputQueue> inputQueues = new ArrayList<>();
+    // when the key presses applied since the last frame was shown were made,
+    // for measuring how long input takes to reach the screen
+    private final long[] unpresentedInputs = new long[16];
+    private int unpresentedCount = 0;
+
+    public World() {
+        /**
+        Initializes the world with the default board size from Contstants.
+        @return void
+        */
+        this(Contstants.COLUMNS, Contstants.ROWS, Contstants.TOTAL_COINS, Contstants.TOTAL_ENEMIES);
+    }
+
+    public World(int columns, int rows, int totalCoins, int numEnemies) {
+        /**
+        Initializes the world with a random seed.
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @param totalCoins - the number of coins on the board at any time
+        @param numEnemies - the number of enemies
+        @return void
+        */
+        this(columns, rows, totalCoins, numEnemies, new Random().nextLong());
+    }
+
+    public World(int columns, int rows, int totalCoins, int numEnemies, long seed) {
+        /**
+        Initializes the world on an empty board.
+        It creates the player, coins, enemies and traveler. Nothing in here depends on
+        Swing, so a world can be stepped without a display. Two worlds with the same
+        settings and seed that get the same key presses at the same ticks end up in
+        exactly the same state.
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @param totalCoins - the number of coins on the board at any time
+        @param numEnemies - the number of enemies
+        @param seed - the seed of all random decisions in the world
+        @return void
+        */
+        this(columns, rows, totalCoins, numEnemies, seed, null);
+    }
+
+    public World(Level level, long seed) {
+        /**
+        Initializes the world from a level.
+        The board size, walls and the starting tiles of the player, traveler,
+        enemies and coins come from the level. The world uses the level's wall
+        grid directly instead of copying it, so walls changed in the world also
+        change in the level. Collected coins respawn on random free tiles as usual.
+        @param level - the level to play
+        @param seed - the seed of all random decisions in the world
+        @return void
+        */
+        this(level.getColumns(), level.getRows(), level.getCoinCells().length, level.getEnemyCells().length, seed, level);
+    }
+
+    private World(int columns, int rows, int totalCoins, int numEnemies, long seed, Level level) {
+        /**
+        Initializes the world, on an empty board or from a level.
+        @param columns - the number of board columns
+        @param rows - the number of board rows
+        @param totalCoins - the number of coins on the board at any time
+        @param numEnemies - the number of enemies
+        @param seed - the seed of all random decisions in the world
+        @param level - the level to take the walls and starting tiles from, or null
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        this.totalCoins = totalCoins;
+        this.numEnemies = numEnemies;
+        this.seed = seed;
+        random = new Random(seed);
+        this.level = level;
+
+        blockedTiles = level != null ? level.getBlockedTiles() : new BlockedTiles(columns, rows);
+        occupancyGrid = new OccupancyGrid(columns, rows, blockedTiles);
+        dirtyTiles = new DirtyTiles(columns, rows);
+        coinIndex = new CoinIndex(columns, rows, level != null ? level.getCoinCells().length : totalCoins);
+        player = new Player();
+        player.setBounds(columns, rows);
+        if (level != null && level.getPlayerCell() != Level.NO_SPAWN) {
+            player.setPosition(level.getPlayerCell() % columns, level.getPlayerCell() / columns);
+        }
+        players.add(player);
+        inputQueues.add(new InputQueue());
+        occupancyGrid.setPlayer(0, player.getPosition().x, player.getPosition().y);
+        if ((long) columns * rows <= Contstants.MAX_SEARCH_CELLS) {
+            coinDistanceField = new CoinDistanceField(columns, rows, blockedTiles);
+        }
+        entityStore = new EntityStore();
+        createEnemies();
+        traveler = new Traveler(columns - 1, rows - 1); // start in opposite corner from player
+        if (level != null && level.getTravelerCell() != Level.NO_SPAWN) {
+            traveler.setPosition(level.getTravelerCell() % columns, level.getTravelerCell() / columns);
+        }
+        traveler.setBounds(columns, rows);
+        traveler.setWalls(blockedTiles, null);
+        travelers.add(traveler);
+        occupancyGrid.addTraveler(traveler.getPosition().x, traveler.getPosition().y);
+        if (coinDistanceField == null && blockedTiles.getBlockedCount() > 0) {
+            createHierarchicalPathfinder();
+        }
+        // place the coins last, so they don't start under any of the entities
+        coins = populateBoardWithCoins();
+    }
+
+    public void step() {
+        /**
+        Advances the simulation by one tick.
+        It updates the timer, moves the entities, collects coins and checks for collisions.
+        @return void
+        */
+        long tickStart = profiler.start(Profiler.TICK);
+
+        // apply the key presses made since the last tick, as if they had been
+        // made right before it
+        applyInputs();
+
+        tickCount++;
+
+        // remember where everything was so renderers can draw in between ticks
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).savePreviousPosition();
+        }
+        for (int i = 0; i < travelers.size(); i++) {
+            travelers.get(i).savePreviousPosition();
+        }
+        entityStore.savePreviousPositions();
+
+        // update the countdown timer
+        long phaseStart = profiler.start(Profiler.TICK_CLOCK);
+        clock.updateTimer();
+        profiler.stop(Profiler.TICK_CLOCK, phaseStart);
+
+        // only update game state if game is not over
+        if (!clock.isGameOver()) {
+            // prevent the players from disappearing off the board
+            phaseStart = profiler.start(Profiler.TICK_PLAYER);
+            for (int i = 0; i < players.size(); i++) {
+                if (!playersOut[i]) {
+                    Player moved = players.get(i);
+                    moved.movePlayer();
+                    occupancyGrid.setPlayer(i, moved.getPosition().x, moved.getPosition().y);
+                }
+            }
+
+            // give the players points for collecting coins
+            collectCoins();
+            profiler.stop(Profiler.TICK_PLAYER, phaseStart);
+
+            // update the travelers and let them collect coins
+            phaseStart = profiler.start(Profiler.TICK_TRAVELERS);
+            if (travelerSystem != null) {
+                travelerSystem.update(coinIndex, occupancyGrid);
+                for (int i = 0; i < travelers.size(); i++) {
+                    collectCoinsForTraveler(travelers.get(i));
+                }
+            } else {
+                Point oldPosition = traveler.getPreviousPosition();
+                if (coinDistanceField != null) {
+                    traveler.updateTraveler(coinDistanceField);
+                } else {
+                    traveler.updateTraveler(coinIndex);
+                }
+                Point position = traveler.getPosition();
+                if (!position.equals(oldPosition)) {
+                    occupancyGrid.moveTraveler(oldPosition.x, oldPosition.y, position.x, position.y);
+                }
+                collectCoinsForTraveler(traveler);
+            }
+            profiler.stop(Profiler.TICK_TRAVELERS, phaseStart);
+
+            // update enemies
+            phaseStart = profiler.start(Profiler.TICK_ENEMIES);
+            updateEnemies();
+            profiler.stop(Profiler.TICK_ENEMIES, phaseStart);
+
+            // check for collision with enemies
+            phaseStart = profiler.start(Profiler.TICK_COLLISIONS);
+            if (checkEnemyCollisions()) {
+                clock.setTimeToZero();
+                collisionDetected = true;
+            }
+            profiler.stop(Profiler.TICK_COLLISIONS, phaseStart);
+
+            // remember which tiles the moving entities left and entered
+            markMovedEntities();
+        }
+        profiler.stop(Profiler.TICK, tickStart);
+    }
+
+    private void markMovedEntities() {
+        /**
+        Marks the tiles of every entity that moved during this tick as changed.
+        @return void
+        */
+        for (int i = 0; i < players.size(); i++) {
+            Player moved = players.get(i);
+            dirtyTiles.markMove(moved.getPreviousPosition(), moved.getPosition());
+        }
+        for (int i = 0; i < travelers.size(); i++) {
+            Traveler moved = travelers.get(i);
+            dirtyTiles.markMove(moved.getPreviousPosition(), moved.getPosition());
+        }
+        for (int slot = 0; slot < entityStore.size(); slot++) {
+            int x = entityStore.getX(slot);
+            int y = entityStore.getY(slot);
+            int previousX = entityStore.getPreviousX(slot);
+            int previousY = entityStore.getPreviousY(slot);
+            if (x != previousX || y != previousY) {
+                dirtyTiles.mark(previousX, previousY);
+                dirtyTiles.mark(x, y);
+            }
+        }
+    }
+
+    public void step(int ticks) {
+        /**
+        Advances the simulation by the given number of ticks.
+        @param ticks - the number of ticks to simulate
+        @return void
+        */
+        for (int i = 0; i < ticks; i++) {
+            step();
+        }
+    }
+
+    public void keyPressed(int keyCode) {
+        /**
+        Queues a key press for the next tick.
+        It can be called from any one thread (e.g. the event thread) while
+        another thread steps the world, without locking.
+        @param keyCode - the KeyEvent key code of the pressed key
+        @return void
+        */
+        keyPressed(keyCode, System.nanoTime());
+    }
+
+    public void keyPressed(int keyCode, long pressedAt) {
+        /**
+        Queues a key press of the first player for the next tick, with the time
+        it was made.
+        @param keyCode - the KeyEvent key code of the pressed key
+        @param pressedAt - when the key was pressed, from System.nanoTime()
+        @return void
+        */
+        keyPressed(0, keyCode, pressedAt);
+    }
+
+    public void keyPressed(int playerIndex, int keyCode, long pressedAt) {
+        /**
+        Queues a key press of a player for the next tick, with the time it was made.
+        Every player has a queue of their own, each filled by any one thread.
+        @param playerIndex - the index of the player, 0 for the first one
+        @param keyCode - the KeyEvent key code of the pressed key
+        @param pressedAt - when the key was pressed, from System.nanoTime()
+        @return void
+        */
+        if (!inputQueues.get(playerIndex).offer(keyCode, pressedAt)) {
+            Logger.error("Input queue full, dropped key press " + keyCode);
+        }
+    }
+
+    private void applyInputs() {
+        /**
+        Applies the queued key presses, oldest first, one player after the other.
+        When profiling, it records how long each one waited for its tick.
+        @return void
+        */
+        for (int i = 0; i < inputQueues.size(); i++) {
+            InputQueue queue = inputQueues.get(i);
+            while (queue.poll()) {
+                applyKey(i, queue.getKeyCode());
+                if (profiler.isEnabled()) {
+                    long pressedAt = queue.getTimestamp();
+                    profiler.record(Profiler.INPUT_TO_STATE, System.nanoTime() - pressedAt);
+                    if (unpresentedCount < unpresentedInputs.length) {
+                        unpresentedInputs[unpresentedCount++] = pressedAt;
+                    }
+                }
+            }
+        }
+    }
+
+    public void inputPresented(long now) {
+        /**
+        Tells the world that a frame showing its current state is on screen.
+        When profiling, it records how long the key presses applied since the
+        last frame took to get there.
+        @param now - the current System.nanoTime()
+        @return void
+        */
+        for (int i = 0; i < unpresentedCount; i++) {
+            profiler.record(Profiler.INPUT_TO_PRESENT, now - unpresentedInputs[i]);
+        }
+        unpresentedCount = 0;
+    }
+
+    private void applyKey(int playerIndex, int keyCode) {
+        /**
+        Applies a key press to a player.
+        The player does not move into walls or off the board. Key presses are ignored once the
+        game is over, or the player hit an enemy. Every key press of the first
+        player that is applied is added to the input log.
+        @param playerIndex - the index of the player
+        @param keyCode - the KeyEvent key code of the pressed key
+        @return void
+        */
+        if (!clock.isGameOver() && !playersOut[playerIndex]) {
+            if (playerIndex == 0) {
+                inputLog.record(tickCount, keyCode);
+            }
+            Player moved = players.get(playerIndex);
+            Point position = moved.getPosition();
+            int oldX = position.x;
+            int oldY = position.y;
+            moved.handleKey(keyCode);
+            // walls and the edges of the board stop the player
+            if (!blockedTiles.isPassable(position.x, position.y)) {
+                position.setLocation(oldX, oldY);
+            }
+            if (position.x != oldX || position.y != oldY) {
+                occupancyGrid.setPlayer(playerIndex, position.x, position.y);
+                dirtyTiles.mark(oldX, oldY);
+                dirtyTiles.mark(position.x, position.y);
+            }
+        }
+    }
+
+    public void keyPressed(KeyEvent keyPressEvent) {
+        /**
+        Queues an AWT key press event for the next tick.
+        @param keyPressEvent - the key press event to react to
+        @return void
+        */
+        keyPressed(keyPressEvent.getKeyCode());
+    }
+
+    public boolean isGameOver() {
+        /**
+        Checks if the game is over.
+        @return true if the game is over, false otherwise
+        */
+        return clock.isGameOver();
+    }
+
+    public String getWinnerText() {
+        /**
+        Gets the text announcing the winner.
+        The traveler wins if it has more points (all travelers together) than
+        the best player or if every player hit an enemy.
+        @return the winner text
+        */
+        int best = 0;
+        for (int i = 1; i < players.size(); i++) {
+            if (players.get(i).getScore() > players.get(best).getScore()) {
+                best = i;
+            }
+        }
+        return getWinnerText(best, players.get(best).getScore(), players.size(), getTravelerScore(), collisionDetected);
+    }
+
+    public static String getWinnerText(int bestPlayer, int bestScore, int playerCount, int travelerScore,
+            boolean collisionDetected) {
+        /**
+        Gets the text announcing the winner of a game that ended with the given
+        scores, for code that only has a copy of the state (e.g. a remote client).
+        @param bestPlayer - the index of the player with the highest score (the
+                            first of them on a tie)
+        @param bestScore - that player's score
+        @param playerCount - the number of players
+        @param travelerScore - the score of all travelers together
+        @param collisionDetected - whether every player hit an enemy
+        @return the winner text
+        */
+        if (travelerScore > bestScore || collisionDetected) {
+            return "The traveler wins!";
+        }
+        if (playerCount == 1) {
+            return "The player wins!";
+        }
+        return "Player " + (bestPlayer + 1) + " wins!";
+    }
+
+    Coin createCoin() {
+        /**
+        Creates a new coin on a random free tile.
+        The occupancy grid keeps a list of the tiles nothing is on, so a tile is
+        picked uniformly from it in O(1) with no retries. Boards too large for that
+        list are so sparse that random tiles almost never hit anything; there it
+        tries random tiles first and scans for a free tile if those keep hitting.
+        Either way a coin never lands on a wall, a coin, an enemy, the player or
+        the traveler.
+        @return a new Coin object, or null if no tile is free
+        */
+        int cell = randomFreeCell();
+        if (cell == OccupancyGrid.NONE) {
+            return null;
+        }
+        return new Coin(cell % columns, cell / columns);
+    }
+
+    private int randomFreeCell() {
+        /**
+        Picks a random tile nothing is on that is not a wall.
+        @return the cell index (y * columns + x), or NONE if no tile is free
+        */
+        if (occupancyGrid.tracksFreeCells()) {
+            return occupancyGrid.randomFreeCell(random);
+        }
+
+        int attempts = 0;
+        int maxAttempts = 100; // prevent infinite loop
+
+        while (attempts < maxAttempts) {
+            int x = random.nextInt(columns);
+            int y = random.nextInt(rows);
+            if (occupancyGrid.isFree(x, y)) {
+                return y * columns + x;
+            }
+            attempts++;
+        }
+
+        // scan the board starting at a random tile
+        int cells = columns * rows;
+        int start = random.nextInt(cells);
+        for (int i = 0; i < cells; i++) {
+            int cell = (start + i) % cells;
+            if (occupancyGrid.isFree(cell % columns, cell / columns)) {
+                return cell;
+            }
+        }
+        return OccupancyGrid.NONE;
+    }
+
+    private ArrayList<Coin> populateBoardWithCoins() {
+        /**
+        Populates the board with coins.
+        It creates the given number of coins in random positions on the board, or
+        on the level's coin tiles if the world was made from a level.
+        Each coin is also recorded in the occupancy grid and the coin distance field.
+        @return the coins on the board
+        */
+        coins = new ArrayList<>();
+
+        if (level != null) {
+            for (int cell : level.getCoinCells()) {
+                addCoin(new Coin(cell % columns, cell / columns));
+            }
+            return coins;
+        }
+
+        // create the given number of coins in random free positions on the board
+        for (int i = 0; i < totalCoins; i++) {
+            spawnCoin();
+        }
+        return coins;
+    }
+
+    void collectCoins() {
+        /**
+        Collects the coins.
+        It allows the players to pickup coins and adds points to their scores,
+        the first player first.
+        Uses an O(1) occupancy grid lookup for collision detection.
+        @return void
+        */
+        for (int i = 0; i < players.size(); i++) {
+            if (!playersOut[i]) {
+                collectCoinsForPlayer(players.get(i));
+            }
+        }
+    }
+
+    private void collectCoinsForPlayer(Player collector) {
+        /**
+        Allows a player to collect the coin on their tile.
+        @param collector - the player
+        @return void
+        */
+        Point playerPos = collector.getCurrentPlayerPosition();
+
+        if (occupancyGrid.hasCoin(playerPos.x, playerPos.y)) {
+            // give the player some points for picking this up
+            collector.addScore(100);
+
+            // remove old coin and add a new one
+            removeCoin(playerPos.x, playerPos.y);
+            spawnCoin();
+        }
+    }
+
+    private void spawnCoin() {
+        /**
+        Creates a coin at a random free position and adds it to the world.
+        Nothing is added if every tile already has a coin.
+        @return void
+        */
+        Coin newCoin = createCoin();
+        if (newCoin != null) {
+            addCoin(newCoin);
+        }
+    }
+
+    private void removeCoin(int x, int y) {
+        /**
+        Removes the coin on a tile in O(1).
+        The last coin in the list is moved into the removed coin's slot, so nothing
+        has to be shifted or searched for.
+        @param x - the x coordinate of the coin
+        @param y - the y coordinate of the coin
+        @return void
+        */
+        int slot = occupancyGrid.getCoinSlot(x, y);
+        int last = coins.size() - 1;
+        Coin moved = coins.get(last);
+        coins.set(slot, moved);
+        coins.remove(last);
+
+        occupancyGrid.removeCoin(x, y);
+        coinIndex.remove(x, y);
+        if (slot != last) {
+            occupancyGrid.setCoinSlot(moved.getPosition().x, moved.getPosition().y, slot);
+        }
+        if (coinDistanceField != null) {
+            coinDistanceField.removeSource(x, y);
+        }
+        if (travelerSystem != null) {
+            travelerSystem.coinRemoved(x, y);
+        }
+        dirtyTiles.mark(x, y);
+    }
+
+    public void addCoin(Coin coin) {
+        /**
+        Adds a coin to the world.
+        It adds the given coin to the coin list, the occupancy grid, the coin
+        index and the coin distance field. A tile holds at most one coin, so the coin is ignored if
+        its tile already has one.
+        @param coin - the coin to add to the world
+        @return void
+        */
+        Point position = coin.getPosition();
+        if (occupancyGrid.hasCoin(position.x, position.y)) {
+            return;
+        }
+        occupancyGrid.setCoinSlot(position.x, position.y, coins.size());
+        coins.add(coin);
+        coinIndex.add(position.x, position.y);
+        if (coinDistanceField != null) {
+            coinDistanceField.addSource(position.x, position.y);
+        }
+        dirtyTiles.mark(position.x, position.y);
+    }
+
+    private void createEnemies() {
+        /**
+        Creates enemies.
+        It adds the enemies to the entity store in random positions on the board, or
+        on the level's enemy tiles if the world was made from a level.
+        Each enemy gets its own random number stream, split off one generator, so
+        enemies can be updated independently (and in parallel) and still move the
+        same way.
+        @return void
+        */
+        SplittableRandom rand = new SplittableRandom(random.nextLong());
+
+        for (int i = 0; i < numEnemies; i++) {
+            int enemyX;
+            int enemyY;
+            if (level != null) {
+                enemyX = level.getEnemyCells()[i] % columns;
+                enemyY = level.getEnemyCells()[i] / columns;
+            } else {
+                enemyX = rand.nextInt(columns);
+                enemyY = rand.nextInt(rows);
+            }
+            entityStore.create(EntityStore.ENEMY, enemyX, enemyY, rand.split().nextLong());
+            occupancyGrid.addEnemy(enemyX, enemyY);
+        }
+    }
+
+    public boolean setBlocked(int x, int y, boolean blocked) {
+        /**
+        Turns a tile into a wall or clears it.
+        Tiles that something is on can't become walls. Everything that knows about
+        walls is updated: the free tiles, the coin distance field (rebuilt, which
+        is O(tiles)) and the hierarchical pathfinder (only the clusters around the
+        tile are rebuilt).
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @param blocked - true to make the tile a wall, false to clear it
+        @return true if the tile is now in the requested state, false otherwise
+        */
+        if (occupancyGrid.cellIndex(x, y) == OccupancyGrid.NONE) {
+            return false;
+        }
+        if (blocked && occupancyGrid.isOccupied(x, y)) {
+            return false;
+        }
+        if (!applyBlocked(x, y, blocked)) {
+            return true;
+        }
+        if (coinDistanceField != null) {
+            coinDistanceField.rebuild();
+        } else if (hierarchicalPathfinder != null) {
+            hierarchicalPathfinder.tileChanged(x, y);
+        } else {
+            createHierarchicalPathfinder();
+        }
+        if (travelerSystem != null) {
+            travelerSystem.reset();
+        }
+        return true;
+    }
+
+    public void addRandomWalls(int percent) {
+        /**
+        Covers about the given percentage of the board with short random walls.
+        The walls are straight lines of 2 to 8 tiles and never cover anything
+        already on the board. They are drawn from the world's random number
+        generator, so the same seed gives the same walls. Call it once, before
+        the first step.
+        @param percent - the percentage of tiles to turn into walls, from 0 to 100
+        @return void
+        */
+        long target = (long) columns * rows * percent / 100;
+        long placed = 0;
+        long attempts = 0;
+        while (placed < target && attempts < target * 4) {
+            attempts++;
+            int x = random.nextInt(columns);
+            int y = random.nextInt(rows);
+            boolean horizontal = random.nextBoolean();
+            int length = 2 + random.nextInt(7);
+            for (int i = 0; i < length && placed < target; i++) {
+                int wallX = horizontal ? x + i : x;
+                int wallY = horizontal ? y : y + i;
+                if (occupancyGrid.cellIndex(wallX, wallY) == OccupancyGrid.NONE) {
+                    break;
+                }
+                if (!occupancyGrid.isOccupied(wallX, wallY) && applyBlocked(wallX, wallY, true)) {
+                    placed++;
+                }
+            }
+        }
+        wallPercent = percent;
+
+        // rebuild everything once instead of once per tile
+        if (coinDistanceField != null) {
+            coinDistanceField.rebuild();
+        } else if (placed > 0) {
+            createHierarchicalPathfinder();
+        }
+        if (travelerSystem != null) {
+            travelerSystem.reset();
+        }
+    }
+
+    public void addPlayers(int count) {
+        /**
+        Adds more players on random free tiles, for matches several people play
+        together. Every player has their own key presses (see keyPressed()) and
+        score, and plays until they hit an enemy; the travelers win if they
+        collect more than the best player or every player hits an enemy. Only the
+        first player's key presses go into the input log, so a world with more
+        players can't be replayed from it. Call it once, before the first step.
+        @param count - the number of players to add
+        @return void
+        */
+        for (int i = 0; i < count; i++) {
+            int cell = randomFreeCell();
+            if (cell == OccupancyGrid.NONE) {
+                break;
+            }
+            Player added = new Player();
+            added.setBounds(columns, rows);
+            added.setPosition(cell % columns, cell / columns);
+            players.add(added);
+            inputQueues.add(new InputQueue());
+            occupancyGrid.setPlayer(players.size() - 1, cell % columns, cell / columns);
+        }
+        playersOut = new boolean[players.size()];
+    }
+
+    public void addTravelers(int count) {
+        /**
+        Adds more travelers on random free tiles.
+        From then on all travelers plan their moves together, so they never
+        bump into each other or go for the same coin (see TravelerSystem). Their
+        tiles are drawn from the world's random number generator, so the same
+        seed gives the same travelers. Call it once, before the first step and
+        after addRandomWalls().
+        @param count - the number of travelers to add
+        @return void
+        */
+        for (int i = 0; i < count; i++) {
+            int cell = randomFreeCell();
+            if (cell == OccupancyGrid.NONE) {
+                break;
+            }
+            Traveler added = new Traveler(cell % columns, cell / columns);
+            added.setBounds(columns, rows);
+            travelers.add(added);
+            occupancyGrid.addTraveler(cell % columns, cell / columns);
+        }
+        if (travelers.size() > 1) {
+            travelerSystem = new TravelerSystem(travelers, blockedTiles, columns, rows);
+        }
+    }
+
+    private boolean applyBlocked(int x, int y, boolean blocked) {
+        /**
+        Changes a tile's wall state and updates the free tiles, without
+        rebuilding any pathfinding structure.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @param blocked - true to make the tile a wall, false to clear it
+        @return true if the tile changed, false if it already was in that state
+        */
+        if (!blockedTiles.setBlocked(x, y, blocked)) {
+            return false;
+        }
+        occupancyGrid.refreshTile(x, y);
+        dirtyTiles.mark(x, y);
+        return true;
+    }
+
+    private void createHierarchicalPathfinder() {
+        /**
+        Builds the hierarchical pathfinder from the current walls and hands it to
+        the traveler, or rebuilds it if it already exists.
+        @return void
+        */
+        if (hierarchicalPathfinder == null) {
+            hierarchicalPathfinder = new HierarchicalPathfinder(blockedTiles);
+        } else {
+            hierarchicalPathfinder.rebuild();
+        }
+        traveler.setWalls(blockedTiles, hierarchicalPathfinder);
+    }
+
+    void updateEnemies() {
+        /**
+        Updates the enemies.
+        It updates each enemy's position and behavior, and keeps the occupancy grid
+        up to date.
+        @return void
+        */
+        enemySystem.update(entityStore, occupancyGrid, blockedTiles, columns, rows);
+    }
+
+    private boolean checkEnemyCollisions() {
+        /**
+        Checks for collision with enemies.
+        A player who collides with an enemy is out; once every player is, the
+        game ends.
+        Uses an O(1) occupancy grid lookup per player instead of checking every enemy.
+        @return true if every player has collided, false otherwise
+        */
+        boolean allOut = true;
+        for (int i = 0; i < players.size(); i++) {
+            Point playerPos = players.get(i).getPosition();
+            if (occupancyGrid.hasEnemy(playerPos.x, playerPos.y)) {
+                playersOut[i] = true;
+            }
+            allOut &= playersOut[i];
+        }
+        return allOut;
+    }
+
+    private void collectCoinsForTraveler(Traveler collector) {
+        /**
+        Allows a traveler to collect coins.
+        Uses an O(1) occupancy grid lookup for collision detection.
+        @param collector - the traveler
+        @return void
+        */
+        Point travelerPos = collector.getPosition();
+
+        if (occupancyGrid.hasCoin(travelerPos.x, travelerPos.y)) {
+            // traveler collects the coin
+            collector.addScore(100);
+
+            // remove old coin and add a new one
+            removeCoin(travelerPos.x, travelerPos.y);
+            spawnCoin();
+        }
+    }
+
+    public int getColumns() {
+        /**
+        Gets the number of board columns.
+        @return the number of columns
+        */
+        return columns;
+    }
+
+    public int getRows() {
+        /**
+        Gets the number of board rows.
+        @return the number of rows
+        */
+        return rows;
+    }
+
+    public Player getPlayer() {
+        /**
+        Gets the first player.
+        @return the player
+        */
+        return player;
+    }
+
+    public ArrayList<Player> getPlayers() {
+        /**
+        Gets every player, the first one included.
+        @return the players
+        */
+        return players;
+    }
+
+    public boolean isPlayerOut(int playerIndex) {
+        /**
+        Checks if a player hit an enemy and stopped playing.
+        @param playerIndex - the index of the player
+        @return true if the player is out
+        */
+        return playersOut[playerIndex];
+    }
+
+    public Traveler getTraveler() {
+        /**
+        Gets the first traveler.
+        @return the traveler
+        */
+        return traveler;
+    }
+
+    public ArrayList<Traveler> getTravelers() {
+        /**
+        Gets every traveler, the first one included.
+        @return the travelers
+        */
+        return travelers;
+    }
+
+    public TravelerSystem getTravelerSystem() {
+        /**
+        Gets the system that plans the moves of all travelers together.
+        @return the traveler system, or null while there is only one traveler
+        */
+        return travelerSystem;
+    }
+
+    public int getTravelerScore() {
+        /**
+        Gets the score of all travelers together.
+        @return the travelers' score
+        */
+        int score = 0;
+        for (int i = 0; i < travelers.size(); i++) {
+            score += travelers.get(i).getScore();
+        }
+        return score;
+    }
+
+    public EntityStore getEntityStore() {
+        /**
+        Gets the store that holds the enemies.
+        @return the entity store
+        */
+        return entityStore;
+    }
+
+    public ArrayList<Coin> getCoins() {
+        /**
+        Gets the coins currently on the board.
+        @return the list of coins
+        */
+        return coins;
+    }
+
+    public CoinIndex getCoinIndex() {
+        /**
+        Gets the spatial index of the coins, for nearest-coin queries.
+        @return the coin index
+        */
+        return coinIndex;
+    }
+
+    public OccupancyGrid getOccupancyGrid() {
+        /**
+        Gets the grid that knows what is on every tile.
+        @return the occupancy grid
+        */
+        return occupancyGrid;
+    }
+
+    public BlockedTiles getBlockedTiles() {
+        /**
+        Gets the walls on the board.
+        @return the blocked tiles
+        */
+        return blockedTiles;
+    }
+
+    public HierarchicalPathfinder getHierarchicalPathfinder() {
+        /**
+        Gets the pathfinder used on huge boards with walls.
+        @return the hierarchical pathfinder, or null if the world doesn't use one
+        */
+        return hierarchicalPathfinder;
+    }
+
+    public CoinDistanceField getCoinDistanceField() {
+        /**
+        Gets the distance field to the nearest coin.
+        @return the coin distance field, or null if the board is too large for one
+        */
+        return coinDistanceField;
+    }
+
+    public DirtyTiles getDirtyTiles() {
+        /**
+        Gets the tiles that changed since they were last cleared.
+        Renderers clear them after repainting the changed area.
+        @return the changed tiles
+        */
+        return dirtyTiles;
+    }
+
+    public Profiler getProfiler() {
+        /**
+        Gets the profiler that times the phases of the world's ticks and frames.
+        @return the profiler
+        */
+        return profiler;
+    }
+
+    public void setProfiler(Profiler profiler) {
+        /**
+        Replaces the profiler, e.g. to keep one profiler across several worlds.
+        @param profiler - the profiler to use
+        @return void
+        */
+        this.profiler = profiler;
+    }
+
+    public Clock getClock() {
+        /**
+        Gets the countdown clock.
+        @return the clock
+        */
+        return clock;
+    }
+
+    public boolean getCollisionDetected() {
+        /**
+        Gets the collision detected flag, set once every player hit an enemy.
+        @return the collision detected flag
+        */
+        return collisionDetected;
+    }
+
+    public long getTickCount() {
+        /**
+        Gets the number of ticks simulated so far.
+        @return the tick count
+        */
+        return tickCount;
+    }
+
+    public int getTotalCoins() {
+        /**
+        Gets the number of coins on the board at any time.
+        @return the number of coins
+        */
+        return totalCoins;
+    }
+
+    public int getNumEnemies() {
+        /**
+        Gets the number of enemies the world started with.
+        @return the number of enemies
+        */
+        return numEnemies;
+    }
+
+    public Level getLevel() {
+        /**
+        Gets the level the world was made from.
+        @return the level, or null if the world started on an empty board
+        */
+        return level;
+    }
+
+    public int getWallPercent() {
+        /**
+        Gets the percentage of the board addRandomWalls() turned into walls.
+        @return the wall percentage, 0 if the board has no random walls
+        */
+        return wallPercent;
+    }
+
+    public long getSeed() {
+        /**
+        Gets the seed of all random decisions in the world.
+        @return the seed
+        */
+        return seed;
+    }
+
+    public InputLog getInputLog() {
+        /**
+        Gets the log of every key press applied to the world.
+        @return the input log
+        */
+        return inputLog;
+    }
+
+    public long stateChecksum() {
+        /**
+        Computes a checksum of the game state.
+        It covers the tick count, the timer, every score, and the positions of the
+        player, every traveler, every coin and every enemy, so two worlds with the
+        same checksum are (almost certainly) in the same state.
+        @return the checksum
+        */
+        long checksum = tickCount;
+        checksum = checksum * 31 + clock.getRemainingTime();
+        checksum = checksum * 31 + (collisionDetected ? 1 : 0);
+        checksum = checksum * 31 + player.getScore();
+        checksum = checksum * 31 + traveler.getScore();
+        checksum = checksum * 31 + player.getPosition().x;
+        checksum = checksum * 31 + player.getPosition().y;
+        checksum = checksum * 31 + traveler.getPosition().x;
+        checksum = checksum * 31 + traveler.getPosition().y;
+        for (int i = 1; i < travelers.size(); i++) {
+            checksum = checksum * 31 + travelers.get(i).getScore();
+            checksum = checksum * 31 + travelers.get(i).getPosition().x;
+            checksum = checksum * 31 + travelers.get(i).getPosition().y;
+        }
+        for (Coin coin : coins) {
+            checksum = checksum * 31 + coin.getPosition().x;
+            checksum = checksum * 31 + coin.getPosition().y;
+        }
+        for (int slot = 0; slot < entityStore.size(); slot++) {
+            checksum = checksum * 31 + entityStore.getX(slot);
+            checksum = checksum * 31 + entityStore.getY(slot);
+        }
+        for (int i = 1; i < players.size(); i++) {
+            checksum = checksum * 31 + players.get(i).getScore();
+            checksum = checksum * 31 + players.get(i).getPosition().x;
+            checksum = checksum * 31 + players.get(i).getPosition().y;
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,102 @@
+package net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+class Connection {
+
+    // size the buffers start at; the outgoing one grows for large boards
+    private static final int IN_CAPACITY = 4096;
+    private static final int OUT_CAPACITY = 64 * 1024;
+
+    final SocketChannel channel;
+    final SelectionKey key;
+
+    // bytes received that don't make a whole frame yet, in write mode
+    final ByteBuffer in = ByteBuffer.allocate(IN_CAPACITY);
+    // bytes waiting to be sent, in read mode (between position and limit). it
+    // is direct, so the socket writes from it without copying it first
+    private ByteBuffer out = ByteBuffer.allocateDirect(OUT_CAPACITY);
+
+    // the player's match and their index in it, or null while they wait for
+    // the next match to start, and for how many ticks they have waited
+    Match match;
+    int playerIndex;
+    int ticksWaiting;
+    int matchesPlayed;
+
+    // the newest state of the match the client acknowledged, which the next
+    // state is sent as the changes since, -1 for none yet, and whether the
+    // state the match ended with was sent
+    int ackedSequence = -1;
+    boolean gameOverSent;
+
+    // states put into the outgoing buffer, and states skipped because the
+    // client had not taken the previous ones yet
+    long statesSent;
+    long statesSkipped;
+
+    Connection(SocketChannel channel, SelectionKey key) {
+        /**
+        Initializes a connection for an accepted channel.
+        @param channel - the client's channel, non-blocking
+        @param key - the channel's registration with the server's selector
+        @return void
+        */
+        this.channel = channel;
+        this.key = key;
+        out.flip();
+    }
+
+    boolean hasPendingOutput() {
+        /**
+        Checks if bytes from earlier frames are still waiting to be sent.
+        @return true if the client has not taken everything yet
+        */
+        return out.hasRemaining();
+    }
+
+    ByteBuffer beginWrite(int size) {
+        /**
+        Makes room for a frame after the bytes still waiting to be sent.
+        @param size - the most bytes the frame will take
+        @return the outgoing buffer, in write mode, with room for size bytes
+        */
+        out.compact();
+        if (out.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + size));
+            out.flip();
+            larger.put(out);
+            out = larger;
+        }
+        return out;
+    }
+
+    int endWrite() throws IOException {
+        /**
+        Finishes writing frames and sends as much as the socket takes right away.
+        @return the number of bytes sent
+        @throws IOException if the connection is broken
+        */
+        out.flip();
+        return flush();
+    }
+
+    int flush() throws IOException {
+        /**
+        Sends as much of the waiting bytes as the socket takes without blocking.
+        If some are left the server is told to wait until the socket can take
+        more, otherwise it stops waiting for that.
+        @return the number of bytes sent
+        @throws IOException if the connection is broken
+        */
+        int written = channel.write(out);
+        int interest = out.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (key.interestOps() != interest) {
+            key.interestOps(interest);
+        }
+        return written;
+    }
+}
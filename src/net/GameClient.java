@@ -0,0 +1,269 @@
+package net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import game.GameState;
+import pathfinding.BlockedTiles;
+import utils.Logger;
+
+public class GameClient implements Runnable {
+
+    // size the incoming buffer starts at; it grows for large boards
+    private static final int IN_CAPACITY = 64 * 1024;
+
+    // the client only has one connection, so it uses a blocking channel: a
+    // thread of its own waits for the server's messages, and key presses are
+    // written from the event thread as they happen
+    private final SocketChannel channel;
+    // bytes received that don't make a whole frame yet, in read mode
+    private ByteBuffer in = ByteBuffer.allocateDirect(IN_CAPACITY);
+    // the key press or acknowledgement being sent, reused for every frame
+    private final ByteBuffer outFrame = ByteBuffer.allocate(Protocol.HEADER_SIZE + 2 * 4);
+
+    // the states received, which the server sends as the changes since one
+    // of them. each is read into a state other than the newest one outside
+    // the lock, so drawing never waits for the network
+    private final SnapshotHistory history = new SnapshotHistory();
+
+    // the newest state, the board of its match and which of the match's
+    // players is this client's, guarded by this client
+    private GameState state = new GameState();
+    private BlockedTiles walls;
+    private int match;
+    private int playerIndex;
+    private long statesReceived = 0;
+
+    // called on the client's thread whenever a state arrived
+    private Runnable listener;
+    private volatile boolean running = false;
+
+    public GameClient(String host, int port) throws IOException {
+        /**
+        Connects to a server and waits for the first match to start, so the
+        board size is known when this returns.
+        @param host - the server's host name or address
+        @param port - the server's port
+        @return void
+        @throws IOException if the server can't be reached
+        */
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        in.flip();
+        while (statesReceived == 0) {
+            readMessage();
+        }
+    }
+
+    public void setListener(Runnable listener) {
+        /**
+        Sets what is called on the client's thread whenever a new state arrived.
+        @param listener - the code to call, e.g. to repaint
+        @return void
+        */
+        this.listener = listener;
+    }
+
+    public void start() {
+        /**
+        Starts the thread that receives the states.
+        @return void
+        */
+        running = true;
+        Thread thread = new Thread(this, "Game client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        /**
+        Receives messages until the connection is closed.
+        @return void
+        */
+        try {
+            while (running) {
+                readMessage();
+            }
+        } catch (IOException exception) {
+            if (running) {
+                Logger.error("Disconnected from the server: " + exception.getMessage());
+            }
+        }
+    }
+
+    public void close() {
+        /**
+        Closes the connection.
+        @return void
+        */
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException exception) {
+            Logger.error("Unable to close the connection: " + exception.getMessage());
+        }
+    }
+
+    public void sendKey(int keyCode) {
+        /**
+        Sends a key press to the server, which applies it on its next tick.
+        @param keyCode - the KeyEvent key code of the pressed key
+        @return void
+        */
+        synchronized (outFrame) {
+            outFrame.clear();
+            int start = Protocol.beginFrame(outFrame, Protocol.KEY);
+            outFrame.putInt(keyCode);
+            Protocol.endFrame(outFrame, start);
+            try {
+                sendFrame();
+            } catch (IOException exception) {
+                Logger.error("Unable to send key press: " + exception.getMessage());
+            }
+        }
+    }
+
+    private void acknowledge(int stateMatch, int sequence) throws IOException {
+        /**
+        Tells the server a state arrived.
+        @param stateMatch - the number of the match the state belongs to
+        @param sequence - the sequence number of the state
+        @return void
+        @throws IOException if the connection is broken
+        */
+        synchronized (outFrame) {
+            outFrame.clear();
+            Protocol.writeAck(outFrame, stateMatch, sequence);
+            sendFrame();
+        }
+    }
+
+    private void sendFrame() throws IOException {
+        /**
+        Sends the frame in the outgoing buffer. The caller must hold its lock.
+        @return void
+        @throws IOException if the connection is broken
+        */
+        outFrame.flip();
+        while (outFrame.hasRemaining()) {
+            channel.write(outFrame);
+        }
+    }
+
+    private void readMessage() throws IOException {
+        /**
+        Waits for the next message and handles it.
+        @return void
+        @throws IOException if the connection is broken or the message is invalid
+        */
+        int length = nextFrame();
+        int end = in.position() + Protocol.LENGTH_SIZE + length;
+        int limit = in.limit();
+        in.position(in.position() + Protocol.LENGTH_SIZE);
+        byte type = in.get();
+        // nothing may read past the end of the frame
+        in.limit(end);
+        try {
+            if (type == Protocol.WELCOME) {
+                int newMatch = in.getInt();
+                int newPlayerIndex = in.getInt();
+                BlockedTiles newWalls = Protocol.readWelcomeWalls(in);
+                // the new match numbers its states from 0 again
+                history.clear();
+                synchronized (this) {
+                    match = newMatch;
+                    playerIndex = newPlayerIndex;
+                    walls = newWalls;
+                }
+            } else if (type == Protocol.STATE) {
+                int sequence = Protocol.readState(in, history);
+                GameState received = history.get(sequence);
+                int stateMatch;
+                synchronized (this) {
+                    if (playerIndex >= received.getPlayerCount()) {
+                        throw new IOException("Player " + playerIndex + " is not in the state");
+                    }
+                    state = received;
+                    stateMatch = match;
+                    statesReceived++;
+                }
+                acknowledge(stateMatch, sequence);
+                if (listener != null) {
+                    listener.run();
+                }
+            }
+        } catch (RuntimeException exception) {
+            // a buffer underflow or a bad count: the message doesn't fit its frame
+            throw new IOException("Invalid message from the server: " + exception);
+        } finally {
+            in.limit(limit);
+            in.position(end);
+        }
+    }
+
+    private int nextFrame() throws IOException {
+        /**
+        Reads from the server until a whole frame is in the buffer.
+        @return the length of the frame after its length field
+        @throws IOException if the connection is broken or the frame is invalid
+        */
+        int length;
+        while ((length = Protocol.frameLength(in, Protocol.MAX_FRAME_SIZE)) < 0) {
+            in = Protocol.makeRoomForFrame(in);
+            in.compact();
+            int read = channel.read(in);
+            in.flip();
+            if (read < 0) {
+                throw new EOFException("The server closed the connection");
+            }
+        }
+        return length;
+    }
+
+    public GameState getState() {
+        /**
+        Gets the newest state. The caller must hold the lock of this client while
+        using it, since it is replaced by the next one when that arrives.
+        @return the state
+        */
+        return state;
+    }
+
+    public BlockedTiles getWalls() {
+        /**
+        Gets the walls and the size of the board of the current match. The caller
+        must hold the lock of this client while using them.
+        @return the walls
+        */
+        return walls;
+    }
+
+    public int getPlayerIndex() {
+        /**
+        Gets the index of this client's player in the current match. The caller
+        must hold the lock of this client, like for getState().
+        @return the index of the player
+        */
+        return playerIndex;
+    }
+
+    public synchronized int getMatch() {
+        /**
+        Gets the number of the current match.
+        @return the number of the match
+        */
+        return match;
+    }
+
+    public synchronized long getStatesReceived() {
+        /**
+        Gets the number of states received since connecting.
+        @return the number of states
+        */
+        return statesReceived;
+    }
+}
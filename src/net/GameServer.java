@@ -0,0 +1,603 @@
+package net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import game.Clock;
+import game.FixedTimestep;
+import game.GameState;
+import game.World;
+import pathfinding.BlockedTiles;
+import utils.Contstants;
+import utils.LatencyHistogram;
+import utils.Logger;
+
+public class GameServer implements Runnable {
+
+    // a new match starts this long after the last one ended, so the players
+    // can see who won
+    private static final int RESTART_TICKS = 3000 / Contstants.DELAY;
+    // players wait this long for others to fill a match before it starts
+    // with fewer players
+    private static final int MAX_WAIT_TICKS = 1000 / Contstants.DELAY;
+    // how often the statistics are printed
+    private static final long REPORT_NANOS = 1_000_000_000L;
+
+    // one thread does everything: it waits for the sockets with the selector
+    // until the next tick is due, handles whatever arrived, then steps every
+    // match and sends each player the new state. nothing blocks, so a slow or
+    // stalled client never holds up the others
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ArrayList<Connection> connections = new ArrayList<>();
+    // the players waiting for a match, longest waiting first, and the matches
+    // being played
+    private final ArrayList<Connection> waiting = new ArrayList<>();
+    private final ArrayList<Match> matches = new ArrayList<>();
+    private final FixedTimestep timestep = new FixedTimestep(
+        Clock.TICK_NANOS, Contstants.MAX_CATCH_UP_TICKS, Contstants.MAX_BACKLOG_TICKS);
+    private volatile boolean running = false;
+
+    // settings of the matches
+    private int columns = Contstants.COLUMNS;
+    private int rows = Contstants.ROWS;
+    private int coins = Contstants.TOTAL_COINS;
+    private int walls = 0;
+    private int travelers = 1;
+    private int playersPerMatch = 4;
+    private Long seed = null;
+    private int matchesStarted = 0;
+
+    // statistics since the last report: how long stepping every match and
+    // sending the states took per tick, how long the thread was doing anything
+    // but waiting, and what went over the network
+    private final LatencyHistogram updateTimes = new LatencyHistogram();
+    private long reportStart;
+    private long busyNanos = 0;
+    private long ticksRun = 0;
+    private long bytesSent = 0;
+    private long bytesReceived = 0;
+    private long keysReceived = 0;
+    private long statesSkipped = 0;
+    private long finalStatesSkipped = 0;
+    private long droppedTicks = 0;
+
+    public GameServer(int port) throws IOException {
+        /**
+        Initializes the server and starts listening.
+        Players can connect once run() is called.
+        @param port - the port to listen on, 0 for any free port
+        @return void
+        @throws IOException if the port can't be opened
+        */
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        // a load test connects hundreds of players at once
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        // the selector wakes up about when the next tick is due, sometimes a
+        // millisecond early
+        timestep.setEarlyNanos(Clock.TICK_NANOS / 4);
+    }
+
+    public void setBoard(int columns, int rows) {
+        /**
+        Sets the board size of the matches that start from now on.
+        @param columns - the number of columns
+        @param rows - the number of rows
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public void setCoins(int coins) {
+        /**
+        Sets the number of coins of the matches that start from now on.
+        @param coins - the number of coins
+        @return void
+        */
+        this.coins = coins;
+    }
+
+    public void setWalls(int walls) {
+        /**
+        Sets how much of the board is covered with random walls in the matches
+        that start from now on.
+        @param walls - the percentage of the board
+        @return void
+        */
+        this.walls = walls;
+    }
+
+    public void setTravelers(int travelers) {
+        /**
+        Sets the number of travelers of the matches that start from now on.
+        @param travelers - the number of travelers
+        @return void
+        */
+        this.travelers = travelers;
+    }
+
+    public void setPlayersPerMatch(int playersPerMatch) {
+        /**
+        Sets how many players play a match together. A match starts as soon as
+        that many are waiting, or with fewer once the first of them has waited
+        a second.
+        @param playersPerMatch - the number of players per match, at least 1
+        @return void
+        */
+        this.playersPerMatch = Math.max(1, playersPerMatch);
+    }
+
+    public void setSeed(Long seed) {
+        /**
+        Makes the matches reproducible. Match n is played with seed + n.
+        @param seed - the seed, or null for random matches
+        @return void
+        */
+        this.seed = seed;
+    }
+
+    public int getPort() {
+        /**
+        Gets the port the server listens on.
+        @return the port
+        */
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getPlayerCount() {
+        /**
+        Gets the number of connected players. Only the server thread may call this.
+        @return the number of players
+        */
+        return connections.size();
+    }
+
+    public int getMatchCount() {
+        /**
+        Gets the number of matches being played. Only the server thread may call this.
+        @return the number of matches
+        */
+        return matches.size();
+    }
+
+    public void stop() {
+        /**
+        Makes run() return soon. It may be called from any thread.
+        @return void
+        */
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        /**
+        Runs the server until stop() is called.
+        Players who connect are grouped into matches of up to playersPerMatch
+        players who share one world, which the server steps with the wall clock
+        the same way the local game does. A few seconds after a match ends its
+        players start the next one.
+        @return void
+        */
+        running = true;
+        long now = System.nanoTime();
+        timestep.start(now);
+        reportStart = now;
+        try {
+            while (running) {
+                long wait = timestep.getNanosUntilNextStep(System.nanoTime());
+                if (wait > 0) {
+                    selector.select(Math.max(1, (wait + 999_999) / 1_000_000));
+                } else {
+                    selector.selectNow();
+                }
+
+                long start = System.nanoTime();
+                handleReadyChannels(start);
+
+                int ticks = timestep.advance(start);
+                droppedTicks += timestep.getDroppedLastUpdate();
+                if (ticks > 0) {
+                    long updateStart = System.nanoTime();
+                    tick(ticks);
+                    broadcast();
+                    startMatches();
+                    updateTimes.record(System.nanoTime() - updateStart);
+                }
+
+                long end = System.nanoTime();
+                busyNanos += end - start;
+                if (end - reportStart >= REPORT_NANOS) {
+                    report(end);
+                }
+            }
+        } catch (IOException exception) {
+            Logger.error("Server stopped: " + exception.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    private void handleReadyChannels(long now) throws IOException {
+        /**
+        Accepts new players, reads their key presses and sends what is waiting
+        to be sent, for every channel the selector found ready.
+        @param now - the current System.nanoTime(), used as the time the keys arrived
+        @return void
+        @throws IOException if the server socket fails
+        */
+        Iterator<SelectionKey> ready = selector.selectedKeys().iterator();
+        while (ready.hasNext()) {
+            SelectionKey key = ready.next();
+            ready.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    read(connection, now);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    bytesSent += connection.flush();
+                }
+            } catch (IOException exception) {
+                disconnect(connection, exception);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        /**
+        Accepts every player waiting to connect, who then wait for a match.
+        @return void
+        @throws IOException if the server socket fails
+        */
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            // states are small and go out every tick, send them right away
+            // instead of waiting to fill a packet
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Connection connection = new Connection(channel, key);
+            key.attach(connection);
+            connections.add(connection);
+            waiting.add(connection);
+            Logger.debug("Player connected from " + channel.getRemoteAddress() + ", " + connections.size() + " playing");
+        }
+    }
+
+    private void read(Connection connection, long now) throws IOException {
+        /**
+        Reads what a player sent and queues their key presses for the next tick.
+        Key presses of players waiting for a match are ignored.
+        @param connection - the player's connection
+        @param now - the time the keys arrived
+        @return void
+        @throws IOException if the connection is broken or closed
+        */
+        ByteBuffer in = connection.in;
+        int read = connection.channel.read(in);
+        if (read < 0) {
+            throw new EOFException("disconnected");
+        }
+        bytesReceived += read;
+
+        in.flip();
+        int length;
+        while ((length = Protocol.frameLength(in, in.capacity() - Protocol.LENGTH_SIZE)) >= 0) {
+            int end = in.position() + Protocol.LENGTH_SIZE + length;
+            in.position(in.position() + Protocol.LENGTH_SIZE);
+            byte type = in.get();
+            if (type == Protocol.KEY && length >= 1 + 4) {
+                int keyCode = in.getInt();
+                if (connection.match != null) {
+                    connection.match.world.keyPressed(connection.playerIndex, keyCode, now);
+                    keysReceived++;
+                }
+            } else if (type == Protocol.ACK && length >= 1 + 2 * 4) {
+                acknowledge(connection, in.getInt(), in.getInt());
+            }
+            // skip the rest, which also skips messages this server doesn't know
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    private void acknowledge(Connection connection, int matchNumber, int sequence) {
+        /**
+        Notes that a player received a state, so the next ones can be sent as the
+        changes since it. Acknowledgements of states from an earlier match, or
+        older than one already acknowledged, are ignored.
+        @param connection - the player's connection
+        @param matchNumber - the number of the match the state belongs to
+        @param sequence - the sequence number of the state
+        @return void
+        */
+        Match match = connection.match;
+        if (match != null && matchNumber == match.number && sequence < match.nextSequence
+                && sequence > connection.ackedSequence) {
+            connection.ackedSequence = sequence;
+        }
+    }
+
+    private void tick(int ticks) {
+        /**
+        Steps every match that is running, and counts the time since the end
+        of the ones that are over and how long the waiting players have waited.
+        @param ticks - the number of ticks to run
+        @return void
+        */
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int i = 0; i < matches.size(); i++) {
+                Match match = matches.get(i);
+                if (match.world.isGameOver()) {
+                    match.ticksSinceGameOver++;
+                } else {
+                    match.world.step();
+                }
+            }
+        }
+        for (int i = 0; i < waiting.size(); i++) {
+            waiting.get(i).ticksWaiting += ticks;
+        }
+        ticksRun += ticks;
+    }
+
+    private void broadcast() {
+        /**
+        Sends every player the state of their match. The players of a match that
+        has been over long enough go back to waiting, at the front and as if
+        they had waited long enough already, so they start the next match right
+        away, with players who are waiting if there is room.
+        @return void
+        */
+        // backwards, so matches can be removed on the way
+        for (int i = matches.size() - 1; i >= 0; i--) {
+            Match match = matches.get(i);
+            if (match.ticksSinceGameOver < RESTART_TICKS) {
+                sendStates(match);
+                continue;
+            }
+            matches.remove(i);
+            for (int player = match.players.length - 1; player >= 0; player--) {
+                Connection connection = match.players[player];
+                if (connection != null) {
+                    connection.match = null;
+                    connection.ticksWaiting = MAX_WAIT_TICKS;
+                    waiting.add(0, connection);
+                }
+            }
+        }
+    }
+
+    private void sendStates(Match match) {
+        /**
+        Captures the state of a match, once for all of its players, and sends it
+        to each of them.
+        @param match - the match
+        @return void
+        */
+        boolean gameOver = match.world.isGameOver();
+        // nothing changes once the game is over
+        if (!match.finalStateCaptured) {
+            match.history.put(match.nextSequence++).capture(match.world);
+            match.finalStateCaptured = gameOver;
+        }
+        int sequence = match.nextSequence - 1;
+        for (int i = 0; i < match.players.length; i++) {
+            Connection connection = match.players[i];
+            if (connection == null) {
+                continue;
+            }
+            try {
+                sendState(connection, sequence, gameOver);
+            } catch (IOException exception) {
+                disconnect(connection, exception);
+            }
+        }
+    }
+
+    private void sendState(Connection connection, int sequence, boolean gameOver) throws IOException {
+        /**
+        Sends a player a state of their match.
+        The state is sent as the changes since the newest state the player
+        acknowledged, or in full if there is none (or it is too old). A player who
+        has not taken the last state yet skips this one: no state depends on one
+        that wasn't acknowledged, so only the newest matters, and the bytes
+        waiting for a slow client never pile up. The state a game ended with is
+        sent once, but only skipped until the client can take it.
+        @param connection - the player's connection
+        @param sequence - the sequence number of the state
+        @param gameOver - whether it is the state the game ended with
+        @return void
+        @throws IOException if the connection is broken
+        */
+        if (gameOver && connection.gameOverSent) {
+            return;
+        }
+        if (connection.hasPendingOutput()) {
+            connection.statesSkipped++;
+            statesSkipped++;
+            if (gameOver) {
+                finalStatesSkipped++;
+            }
+            return;
+        }
+        SnapshotHistory history = connection.match.history;
+        GameState baseline = history.get(connection.ackedSequence);
+        ByteBuffer out = connection.beginWrite(Protocol.stateSize(history.get(sequence), baseline));
+        Protocol.writeState(out, history, sequence, connection.ackedSequence);
+        connection.statesSent++;
+        bytesSent += connection.endWrite();
+        connection.gameOverSent = gameOver;
+    }
+
+    private void startMatches() {
+        /**
+        Starts matches for the waiting players: one for every playersPerMatch of
+        them, and one with fewer once the first has waited MAX_WAIT_TICKS.
+        @return void
+        */
+        while (waiting.size() >= playersPerMatch
+                || (!waiting.isEmpty() && waiting.get(0).ticksWaiting >= MAX_WAIT_TICKS)) {
+            World world = createWorld(matchesStarted, Math.min(playersPerMatch, waiting.size()));
+            // a small board may not have had room for every player
+            int playerCount = world.getPlayers().size();
+            Match match = new Match(matchesStarted++, world, playerCount);
+            matches.add(match);
+            for (int i = 0; i < playerCount; i++) {
+                Connection connection = waiting.remove(0);
+                connection.match = match;
+                connection.playerIndex = i;
+                connection.ackedSequence = -1;
+                connection.gameOverSent = false;
+                connection.matchesPlayed++;
+                match.players[i] = connection;
+                match.connected++;
+            }
+
+            // the first state goes out in full with the board, which is the
+            // same for every player but for which one they are
+            GameState state = match.history.put(match.nextSequence++);
+            state.capture(match.world);
+            BlockedTiles blockedTiles = match.world.getBlockedTiles();
+            int size = Protocol.welcomeSize(blockedTiles) + Protocol.stateSize(state, null);
+            for (int i = 0; i < playerCount; i++) {
+                Connection connection = match.players[i];
+                try {
+                    ByteBuffer out = connection.beginWrite(size);
+                    Protocol.writeWelcome(out, match.number, i, blockedTiles);
+                    Protocol.writeState(out, match.history, 0, -1);
+                    connection.statesSent++;
+                    bytesSent += connection.endWrite();
+                } catch (IOException exception) {
+                    disconnect(connection, exception);
+                }
+            }
+        }
+    }
+
+    private World createWorld(int match, int playerCount) {
+        /**
+        Creates the world for a match.
+        @param match - the number of the match
+        @param playerCount - the number of players
+        @return the new world
+        */
+        World world = seed == null
+            ? new World(columns, rows, coins, Contstants.TOTAL_ENEMIES)
+            : new World(columns, rows, coins, Contstants.TOTAL_ENEMIES, seed + match);
+        if (walls > 0) {
+            world.addRandomWalls(walls);
+        }
+        if (playerCount > 1) {
+            world.addPlayers(playerCount - 1);
+        }
+        if (travelers > 1) {
+            world.addTravelers(travelers - 1);
+        }
+        return world;
+    }
+
+    private void disconnect(Connection connection, IOException reason) {
+        /**
+        Closes a player's connection. Their player stays in the match, standing
+        still; a match nobody is connected to any more is dropped.
+        @param connection - the player's connection
+        @param reason - why the connection ended
+        @return void
+        */
+        connections.remove(connection);
+        waiting.remove(connection);
+        Match match = connection.match;
+        if (match != null) {
+            match.players[connection.playerIndex] = null;
+            match.connected--;
+            if (match.connected == 0) {
+                matches.remove(match);
+            }
+            connection.match = null;
+        }
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException exception) {
+            // it is going away either way
+        }
+        Logger.debug("Player left after " + connection.matchesPlayed + " matches (" + reason.getMessage() + "), "
+            + connection.statesSent + " states sent, " + connection.statesSkipped + " skipped, "
+            + connections.size() + " playing");
+    }
+
+    private void report(long now) {
+        /**
+        Prints the statistics since the last report and starts counting again.
+        The share of the time the server thread was busy shows how close it is to
+        its limit: at 100% it can't keep up and starts to drop ticks.
+        @param now - the current System.nanoTime()
+        @return void
+        */
+        double seconds = (now - reportStart) / 1e9;
+        if (!connections.isEmpty() || bytesReceived > 0 || bytesSent > 0) {
+            double busy = busyNanos / (now - (double) reportStart);
+            Logger.debug(String.format(
+                "%d players (%d waiting), %d matches, %.0f ticks/s, update p50 %.2f p99 %.2f max %.2f ms, busy %.0f%%"
+                    + ", out %.0f KB/s, in %.1f KB/s, %.0f keys/s, %d states skipped (%d final), %d ticks dropped",
+                connections.size(), waiting.size(), matches.size(), ticksRun / seconds,
+                updateTimes.getPercentile(50) / 1e6, updateTimes.getPercentile(99) / 1e6, updateTimes.getMax() / 1e6,
+                busy * 100, bytesSent / 1024.0 / seconds, bytesReceived / 1024.0 / seconds, keysReceived / seconds,
+                statesSkipped, finalStatesSkipped, droppedTicks));
+        }
+        reportStart = now;
+        updateTimes.reset();
+        busyNanos = 0;
+        ticksRun = 0;
+        bytesSent = 0;
+        bytesReceived = 0;
+        keysReceived = 0;
+        statesSkipped = 0;
+        finalStatesSkipped = 0;
+        droppedTicks = 0;
+    }
+
+    private void close() {
+        /**
+        Disconnects every player and stops listening.
+        @return void
+        */
+        for (Connection connection : connections) {
+            try {
+                connection.channel.close();
+            } catch (IOException exception) {
+                // shutting down either way
+            }
+        }
+        connections.clear();
+        waiting.clear();
+        matches.clear();
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException exception) {
+            Logger.error("Unable to close the server: " + exception.getMessage());
+        }
+    }
+}
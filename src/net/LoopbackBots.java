@@ -0,0 +1,263 @@
+package net;
+
+import java.awt.event.KeyEvent;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+import game.GameState;
+import utils.LatencyHistogram;
+import utils.Logger;
+
+public class LoopbackBots {
+
+    // how often each bot presses a key, about as often as a busy player
+    private static final long KEY_INTERVAL_NANOS = 150_000_000L;
+    private static final int[] KEYS = {KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT};
+    private static final long REPORT_NANOS = 1_000_000_000L;
+    private static final int IN_CAPACITY = 64 * 1024;
+
+    // one bot per connection, all driven by one thread with a selector, so
+    // hundreds of them cost the machine little more than the server does
+    private static class Bot {
+        SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocateDirect(IN_CAPACITY);
+        // the current match and the states received in it, which the next
+        // ones are the changes since
+        int match;
+        SnapshotHistory history = new SnapshotHistory();
+        long nextKeyAt;
+        // when the last state arrived, and whether its game was still running
+        // (after a game ends no states come until the next match starts)
+        long lastStateAt;
+        boolean playing;
+    }
+
+    private final Selector selector;
+    private final ArrayList<Bot> bots = new ArrayList<>();
+    private final Random random = new Random();
+    private final ByteBuffer keyFrame = ByteBuffer.allocate(Protocol.HEADER_SIZE + 4);
+    private final ByteBuffer ackFrame = ByteBuffer.allocate(Protocol.HEADER_SIZE + 2 * 4);
+
+    // statistics since the last report and since the start
+    private final LatencyHistogram stateGaps = new LatencyHistogram();
+    private final LatencyHistogram totalStateGaps = new LatencyHistogram();
+    private long statesReceived = 0;
+    private long bytesReceived = 0;
+    private long totalStates = 0;
+    private int connected = 0;
+    private int disconnected = 0;
+
+    public LoopbackBots(String host, int port, int count) throws IOException {
+        /**
+        Starts connecting the bots to a server.
+        @param host - the server's host name or address
+        @param port - the server's port
+        @param count - the number of bots
+        @return void
+        @throws IOException if the connections can't be opened
+        */
+        selector = Selector.open();
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        for (int i = 0; i < count; i++) {
+            Bot bot = new Bot();
+            bot.channel = SocketChannel.open();
+            bot.channel.configureBlocking(false);
+            bot.channel.socket().setTcpNoDelay(true);
+            bot.in.flip();
+            bot.key = bot.channel.register(selector, SelectionKey.OP_CONNECT, bot);
+            bot.channel.connect(address);
+            bots.add(bot);
+        }
+    }
+
+    public void run(long seconds) throws IOException {
+        /**
+        Plays with every bot for a while, printing once per second how many states
+        arrived and how long the longest waits for the next state were, and a
+        summary at the end. A server that keeps up sends every bot a state every
+        tick; one that doesn't sends them late and the gaps grow.
+        @param seconds - how long to play
+        @return void
+        @throws IOException if the selector fails
+        */
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long reportStart = start;
+        long now = start;
+        while (now < end) {
+            selector.select(5);
+            now = System.nanoTime();
+
+            Iterator<SelectionKey> ready = selector.selectedKeys().iterator();
+            while (ready.hasNext()) {
+                SelectionKey key = ready.next();
+                ready.remove();
+                Bot bot = (Bot) key.attachment();
+                try {
+                    if (key.isConnectable()) {
+                        bot.channel.finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                        bot.nextKeyAt = now + (long) (random.nextDouble() * KEY_INTERVAL_NANOS);
+                        connected++;
+                    } else if (key.isReadable()) {
+                        read(bot, now);
+                    }
+                } catch (IOException exception) {
+                    Logger.error("Bot disconnected: " + exception.getMessage());
+                    key.cancel();
+                    bot.channel.close();
+                    disconnected++;
+                }
+            }
+
+            pressKeys(now);
+
+            if (now - reportStart >= REPORT_NANOS) {
+                report(now - reportStart);
+                reportStart = now;
+            }
+        }
+
+        double elapsed = (now - start) / 1e9;
+        Logger.debug(String.format("%d bots, %d connected, %d disconnected, %.1f states/s per bot"
+                + ", gap between states p50 %.1f p99 %.1f max %.1f ms",
+            bots.size(), connected, disconnected, totalStates / elapsed / Math.max(1, connected - disconnected),
+            totalStateGaps.getPercentile(50) / 1e6, totalStateGaps.getPercentile(99) / 1e6, totalStateGaps.getMax() / 1e6));
+    }
+
+    public void close() {
+        /**
+        Disconnects every bot.
+        @return void
+        */
+        for (Bot bot : bots) {
+            try {
+                bot.channel.close();
+            } catch (IOException exception) {
+                // closing either way
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException exception) {
+            Logger.error("Unable to close the bots: " + exception.getMessage());
+        }
+    }
+
+    private void read(Bot bot, long now) throws IOException {
+        /**
+        Reads what the server sent a bot, decodes the states in it and
+        acknowledges them, the same work a client does.
+        @param bot - the bot
+        @param now - the current System.nanoTime()
+        @return void
+        @throws IOException if the connection is broken or a message is invalid
+        */
+        ByteBuffer in = Protocol.makeRoomForFrame(bot.in);
+        bot.in = in;
+        in.compact();
+        int read = bot.channel.read(in);
+        in.flip();
+        if (read < 0) {
+            throw new EOFException("The server closed the connection");
+        }
+        bytesReceived += read;
+
+        int length;
+        while ((length = Protocol.frameLength(in, Protocol.MAX_FRAME_SIZE)) >= 0) {
+            int end = in.position() + Protocol.LENGTH_SIZE + length;
+            int limit = in.limit();
+            in.position(in.position() + Protocol.LENGTH_SIZE);
+            byte type = in.get();
+            if (type == Protocol.WELCOME) {
+                bot.match = in.getInt();
+                bot.history.clear();
+            } else if (type == Protocol.STATE) {
+                in.limit(end);
+                int sequence;
+                try {
+                    sequence = Protocol.readState(in, bot.history);
+                } catch (RuntimeException exception) {
+                    throw new IOException("Invalid message from the server: " + exception);
+                }
+                in.limit(limit);
+                acknowledge(bot, sequence);
+                GameState state = bot.history.get(sequence);
+                if (bot.playing) {
+                    stateGaps.record(now - bot.lastStateAt);
+                    totalStateGaps.record(now - bot.lastStateAt);
+                }
+                bot.lastStateAt = now;
+                bot.playing = !state.isGameOver();
+                statesReceived++;
+                totalStates++;
+            }
+            in.position(end);
+        }
+    }
+
+    private void acknowledge(Bot bot, int sequence) throws IOException {
+        /**
+        Tells the server a bot received a state.
+        @param bot - the bot
+        @param sequence - the sequence number of the state
+        @return void
+        @throws IOException if the connection is broken
+        */
+        ackFrame.clear();
+        Protocol.writeAck(ackFrame, bot.match, sequence);
+        ackFrame.flip();
+        // like a key press, an acknowledgement that doesn't go through is lost,
+        // and the server keeps sending the changes since an older state
+        bot.channel.write(ackFrame);
+    }
+
+    private void pressKeys(long now) throws IOException {
+        /**
+        Sends a random arrow key for every bot whose turn it is.
+        @param now - the current System.nanoTime()
+        @return void
+        @throws IOException if a connection is broken
+        */
+        for (int i = 0; i < bots.size(); i++) {
+            Bot bot = bots.get(i);
+            if (!bot.channel.isConnected() || now < bot.nextKeyAt) {
+                continue;
+            }
+            bot.nextKeyAt += KEY_INTERVAL_NANOS;
+            keyFrame.clear();
+            int start = Protocol.beginFrame(keyFrame, Protocol.KEY);
+            keyFrame.putInt(KEYS[random.nextInt(KEYS.length)]);
+            Protocol.endFrame(keyFrame, start);
+            keyFrame.flip();
+            // a 9 byte write only fails to go through if the server stopped
+            // reading altogether, then the key is simply lost
+            bot.channel.write(keyFrame);
+        }
+    }
+
+    private void report(long nanos) {
+        /**
+        Prints the statistics since the last report and starts counting again.
+        @param nanos - the time since the last report
+        @return void
+        */
+        double seconds = nanos / 1e9;
+        Logger.debug(String.format("%d bots connected, %.0f states/s, gap p50 %.1f p99 %.1f max %.1f ms, in %.0f KB/s",
+            connected - disconnected, statesReceived / seconds,
+            stateGaps.getPercentile(50) / 1e6, stateGaps.getPercentile(99) / 1e6, stateGaps.getMax() / 1e6,
+            bytesReceived / 1024.0 / seconds));
+        stateGaps.reset();
+        statesReceived = 0;
+        bytesReceived = 0;
+    }
+}
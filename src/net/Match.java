@@ -0,0 +1,40 @@
+package net;
+
+import game.World;
+
+class Match {
+
+    // the match's number, which the server counts up, and its world, shared
+    // by all of its players
+    final int number;
+    final World world;
+
+    // the players' connections by their index in the world, null once a
+    // player left. the player stays in the world, standing still
+    final Connection[] players;
+    int connected;
+
+    // the states of the match, captured once per tick for all of its players
+    // and numbered from 0, which each player gets as the changes since the
+    // last one they acknowledged
+    final SnapshotHistory history = new SnapshotHistory();
+    int nextSequence;
+    // whether the state the game ended with was captured, after which
+    // nothing changes any more
+    boolean finalStateCaptured;
+    // ticks since the game ended
+    int ticksSinceGameOver;
+
+    Match(int number, World world, int playerCount) {
+        /**
+        Initializes a match that has not captured a state yet.
+        @param number - the number of the match
+        @param world - the world of the match, with a player per connection
+        @param playerCount - the number of players
+        @return void
+        */
+        this.number = number;
+        this.world = world;
+        players = new Connection[playerCount];
+    }
+}
@@ -0,0 +1,218 @@
+package net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import game.GameState;
+import pathfinding.BlockedTiles;
+
+public class Protocol {
+
+    // port the server listens on unless told otherwise
+    public static final int DEFAULT_PORT = 7777;
+
+    // every message in either direction is a frame: the length of the rest of
+    // the frame (int), the message type (byte) and the payload. a frame may
+    // arrive in pieces or together with others, the length says where it ends
+    public static final int LENGTH_SIZE = 4;
+    public static final int HEADER_SIZE = LENGTH_SIZE + 1;
+    // no frame is larger than this, so a bad length can't make the reader wait
+    // for (or allocate) gigabytes
+    public static final int MAX_FRAME_SIZE = 1 << 24;
+
+    // client to server: a key press. payload: the key code (int)
+    public static final byte KEY = 1;
+    // client to server: a state arrived, so the server may send the next ones
+    // as the changes since it. payload: the match number and the state's
+    // sequence number in the match (int each)
+    public static final byte ACK = 2;
+
+    // server to client: a new match has started. payload: the match number
+    // (int), the index of the client's player in the match (int), the board
+    // size (columns and rows, int) and the walls as the bitset BlockedTiles
+    // stores them (long words)
+    public static final byte WELCOME = 10;
+    // server to client: the state of the match after a tick. payload: its
+    // sequence number in the match (int), how many sequence numbers back its baseline is
+    // (byte, 0 for none) and the state as GameState.writeDelta() writes it
+    // against that baseline
+    public static final byte STATE = 11;
+
+    public static int beginFrame(ByteBuffer buffer, byte type) {
+        /**
+        Starts a frame at the buffer's position. The length is filled in by
+        endFrame() once the payload has been written.
+        @param buffer - the buffer to write to
+        @param type - the message type
+        @return the position of the frame, to pass to endFrame()
+        */
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.put(type);
+        return start;
+    }
+
+    public static void endFrame(ByteBuffer buffer, int start) {
+        /**
+        Finishes a frame by writing its length.
+        @param buffer - the buffer the frame was written to
+        @param start - the position beginFrame() returned
+        @return void
+        */
+        buffer.putInt(start, buffer.position() - start - LENGTH_SIZE);
+    }
+
+    public static int frameLength(ByteBuffer buffer, int maxLength) throws IOException {
+        /**
+        Checks if the buffer holds a whole frame at its position.
+        It does not move the position.
+        @param buffer - the buffer to read from, between position and limit
+        @param maxLength - the longest frame the reader accepts, after the length field
+        @return the length of the frame after its length field, or -1 if the
+                frame has not fully arrived yet
+        @throws IOException if the length is invalid
+        */
+        if (buffer.remaining() < LENGTH_SIZE) {
+            return -1;
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length < 1 || length > Math.min(maxLength, MAX_FRAME_SIZE)) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        return buffer.remaining() - LENGTH_SIZE >= length ? length : -1;
+    }
+
+    public static ByteBuffer makeRoomForFrame(ByteBuffer buffer) {
+        /**
+        Grows a buffer if the frame at its position is larger than the buffer.
+        Call it after frameLength() found the frame incomplete.
+        @param buffer - the buffer, in read mode
+        @return the buffer, or a larger copy of it
+        */
+        if (buffer.remaining() >= LENGTH_SIZE) {
+            int needed = LENGTH_SIZE + buffer.getInt(buffer.position());
+            if (needed > buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(needed);
+                larger.put(buffer);
+                larger.flip();
+                return larger;
+            }
+        }
+        return buffer;
+    }
+
+    public static int welcomeSize(BlockedTiles walls) {
+        /**
+        Gets the size of a welcome frame.
+        @param walls - the walls of the match
+        @return the size in bytes, with the frame header
+        */
+        return HEADER_SIZE + 4 * 4 + walls.getWordCount() * 8;
+    }
+
+    public static void writeWelcome(ByteBuffer buffer, int match, int playerIndex, BlockedTiles walls) {
+        /**
+        Writes a welcome frame.
+        @param buffer - the buffer to write to, with room for welcomeSize() bytes
+        @param match - the number of the match
+        @param playerIndex - the index of the client's player in the match
+        @param walls - the walls of the match
+        @return void
+        */
+        int start = beginFrame(buffer, WELCOME);
+        buffer.putInt(match);
+        buffer.putInt(playerIndex);
+        buffer.putInt(walls.getColumns());
+        buffer.putInt(walls.getRows());
+        walls.writeTo(buffer.asLongBuffer());
+        buffer.position(buffer.position() + walls.getWordCount() * 8);
+        endFrame(buffer, start);
+    }
+
+    public static int stateSize(GameState state, GameState baseline) {
+        /**
+        Gets the most bytes a state frame can take.
+        @param state - the state to send
+        @param baseline - the state it is sent as the changes since, or null
+        @return the size in bytes, with the frame header
+        */
+        return HEADER_SIZE + 4 + 1 + state.getMaxDeltaSize(baseline);
+    }
+
+    static void writeState(ByteBuffer buffer, SnapshotHistory history, int sequence, int baselineSequence) {
+        /**
+        Writes a state frame, as the changes since the baseline if the history
+        still has it and in full otherwise.
+        @param buffer - the buffer to write to, with room for stateSize() bytes
+        @param history - the states sent, which has the state to send
+        @param sequence - the sequence number of the state to send
+        @param baselineSequence - the sequence number of the newest state the
+                                  client acknowledged, or -1
+        @return void
+        */
+        GameState baseline = history.get(baselineSequence);
+        int start = beginFrame(buffer, STATE);
+        buffer.putInt(sequence);
+        buffer.put((byte) (baseline == null ? 0 : sequence - baselineSequence));
+        history.get(sequence).writeDelta(baseline, buffer);
+        endFrame(buffer, start);
+    }
+
+    static int readState(ByteBuffer buffer, SnapshotHistory history) throws IOException {
+        /**
+        Reads the payload of a state frame into the history, on top of the
+        baseline it was sent against.
+        @param buffer - the buffer to read from, at the payload and limited to the frame
+        @param history - the states received
+        @return the sequence number of the state, to acknowledge it
+        @throws IOException if the baseline is not in the history
+        */
+        int sequence = buffer.getInt();
+        int age = buffer.get() & 0xFF;
+        if (sequence < 0) {
+            throw new IOException("Invalid state sequence number " + sequence);
+        }
+        GameState baseline = null;
+        if (age > 0) {
+            baseline = age < SnapshotHistory.SIZE ? history.get(sequence - age) : null;
+            if (baseline == null) {
+                throw new IOException("State " + sequence + " is based on one that was not received");
+            }
+        }
+        history.put(sequence).readDelta(baseline, buffer);
+        return sequence;
+    }
+
+    static void writeAck(ByteBuffer buffer, int match, int sequence) {
+        /**
+        Writes an acknowledgement frame.
+        @param buffer - the buffer to write to
+        @param match - the number of the match the state belongs to
+        @param sequence - the sequence number of the state that arrived
+        @return void
+        */
+        int start = beginFrame(buffer, ACK);
+        buffer.putInt(match);
+        buffer.putInt(sequence);
+        endFrame(buffer, start);
+    }
+
+    public static BlockedTiles readWelcomeWalls(ByteBuffer buffer) throws IOException {
+        /**
+        Reads the board size and walls of a welcome frame, after the match number
+        and player index.
+        @param buffer - the buffer to read from, at the board size
+        @return the walls
+        @throws IOException if the board size does not fit the frame
+        */
+        int columns = buffer.getInt();
+        int rows = buffer.getInt();
+        if (columns < 1 || rows < 1 || ((long) columns * rows + 63) / 64 * 8 > buffer.remaining()) {
+            throw new IOException("Invalid board size " + columns + "x" + rows);
+        }
+        BlockedTiles walls = new BlockedTiles(columns, rows);
+        walls.readFrom(buffer.asLongBuffer());
+        buffer.position(buffer.position() + walls.getWordCount() * 8);
+        return walls;
+    }
+}
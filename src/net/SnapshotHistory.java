@@ -0,0 +1,79 @@
+package net;
+
+import game.GameState;
+
+class SnapshotHistory {
+
+    // how many states back a snapshot can be delta encoded against. at 40
+    // ticks per second that is 400 ms for an acknowledgement to come back;
+    // when it takes longer the next state is sent in full
+    static final int SIZE = 16;
+
+    // the last states sent (or received) and their sequence numbers. a new
+    // state replaces the one that was put longest ago, so the newest state,
+    // which a client may be drawing, is never written to. the states are
+    // reused, so keeping the history doesn't allocate
+    private final GameState[] states = new GameState[SIZE];
+    private final int[] sequences = new int[SIZE];
+    // when each state was put, counting puts
+    private final long[] putAt = new long[SIZE];
+    private long puts = 0;
+
+    SnapshotHistory() {
+        /**
+        Creates an empty history.
+        @return void
+        */
+        for (int i = 0; i < SIZE; i++) {
+            states[i] = new GameState();
+            sequences[i] = -1;
+        }
+    }
+
+    GameState put(int sequence) {
+        /**
+        Gets the state to fill in for a sequence number, replacing the state that
+        was put longest ago.
+        @param sequence - the sequence number, not negative
+        @return the state
+        */
+        int oldest = 0;
+        for (int i = 1; i < SIZE; i++) {
+            if (putAt[i] < putAt[oldest]) {
+                oldest = i;
+            }
+        }
+        sequences[oldest] = sequence;
+        putAt[oldest] = ++puts;
+        return states[oldest];
+    }
+
+    GameState get(int sequence) {
+        /**
+        Gets the state of a sequence number if it is still in the history.
+        @param sequence - the sequence number
+        @return the state, or null if it was replaced or never put
+        */
+        if (sequence < 0) {
+            return null;
+        }
+        for (int i = 0; i < SIZE; i++) {
+            if (sequences[i] == sequence) {
+                return states[i];
+            }
+        }
+        return null;
+    }
+
+    void clear() {
+        /**
+        Forgets every sequence number, when a new match starts numbering its
+        states from 0 again. The states stay where they are, so the newest one
+        is still the last to be replaced.
+        @return void
+        */
+        for (int i = 0; i < SIZE; i++) {
+            sequences[i] = -1;
+        }
+    }
+}
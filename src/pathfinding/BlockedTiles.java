@@ -0,0 +1,191 @@
+package pathfinding;
+
+import java.nio.LongBuffer;
+
+public class BlockedTiles {
+
+    // size of the grid; cells are indexed as y * columns + x
+    private final int columns;
+    private final int rows;
+
+    // one bit per cell, set if the cell is a wall. a bit per tile keeps even a
+    // 100 million tile board at 12.5 MB
+    private final long[] words;
+    private int blockedCount = 0;
+    // how many times a tile was turned into a wall or cleared, so cached paths
+    // can tell whether they may have become blocked or merely longer than needed
+    private int wallsAdded = 0;
+    private int wallsRemoved = 0;
+
+    public BlockedTiles(int columns, int rows) {
+        /**
+        Initializes a grid with no blocked tiles.
+        @param columns - the number of grid columns
+        @param rows - the number of grid rows
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        words = new long[(int) (((long) columns * rows + 63) >>> 6)];
+    }
+
+    public boolean isBlocked(int x, int y) {
+        /**
+        Checks if a tile is a wall.
+        Tiles outside the grid are not walls, callers check the bounds themselves.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if the tile is blocked, false otherwise
+        */
+        if (x < 0 || x >= columns || y < 0 || y >= rows) {
+            return false;
+        }
+        return isBlocked(y * columns + x);
+    }
+
+    public boolean isBlocked(int cell) {
+        /**
+        Checks if a cell is a wall.
+        @param cell - the cell index, must be on the grid
+        @return true if the cell is blocked, false otherwise
+        */
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public boolean isPassable(int x, int y) {
+        /**
+        Checks if a tile is on the grid and not a wall.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if an agent can stand on the tile, false otherwise
+        */
+        return x >= 0 && x < columns && y >= 0 && y < rows && !isBlocked(y * columns + x);
+    }
+
+    public boolean setBlocked(int x, int y, boolean blocked) {
+        /**
+        Makes a tile a wall or clears it.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @param blocked - true to block the tile, false to clear it
+        @return true if the tile changed, false if it already was in that state
+        */
+        int cell = y * columns + x;
+        if (isBlocked(cell) == blocked) {
+            return false;
+        }
+        words[cell >>> 6] ^= 1L << cell;
+        if (blocked) {
+            blockedCount++;
+            wallsAdded++;
+        } else {
+            blockedCount--;
+            wallsRemoved++;
+        }
+        return true;
+    }
+
+    public int countBlocked(int fromCell, int toCell) {
+        /**
+        Counts the blocked cells in a range of cells, a word at a time.
+        @param fromCell - the first cell of the range
+        @param toCell - the end of the range (exclusive)
+        @return the number of blocked cells in the range
+        */
+        int count = 0;
+        int cell = fromCell;
+        while (cell < toCell) {
+            int word = cell >>> 6;
+            int bit = cell & 63;
+            int bits = Math.min(64 - bit, toCell - cell);
+            long mask = bits == 64 ? -1L : ((1L << bits) - 1) << bit;
+            count += Long.bitCount(words[word] & mask);
+            cell += bits;
+        }
+        return count;
+    }
+
+    public void readFrom(LongBuffer source) {
+        /**
+        Replaces every tile with the bits read from a buffer.
+        The layout is the one writeTo() writes: cell i is bit i % 64 of word
+        i / 64. It is one bulk copy, so loading a huge board does no per-tile work.
+        @param source - the buffer to read getWordCount() words from
+        @return void
+        */
+        source.get(words);
+        // bits past the last cell must stay clear, or they would be counted
+        int usedBits = (int) (((long) columns * rows) & 63);
+        if (usedBits != 0) {
+            words[words.length - 1] &= (1L << usedBits) - 1;
+        }
+        blockedCount = 0;
+        for (long word : words) {
+            blockedCount += Long.bitCount(word);
+        }
+        // any tile may have changed either way
+        wallsAdded++;
+        wallsRemoved++;
+    }
+
+    public void writeTo(LongBuffer target) {
+        /**
+        Writes every tile to a buffer, in the layout readFrom() reads.
+        @param target - the buffer to write getWordCount() words to
+        @return void
+        */
+        target.put(words);
+    }
+
+    public int getWordCount() {
+        /**
+        Gets the number of 64-bit words the tiles are stored in.
+        @return the number of words
+        */
+        return words.length;
+    }
+
+    public int getWallsAdded() {
+        /**
+        Gets how many times a tile has been turned into a wall.
+        Only changes matter, not the value: a path is still open if this did not
+        change since it was found.
+        @return the number of tiles blocked so far
+        */
+        return wallsAdded;
+    }
+
+    public int getWallsRemoved() {
+        /**
+        Gets how many times a wall has been cleared.
+        A path found before a wall was cleared is still open, but a shorter one
+        may exist now.
+        @return the number of tiles cleared so far
+        */
+        return wallsRemoved;
+    }
+
+    public int getBlockedCount() {
+        /**
+        Gets the number of blocked tiles.
+        @return the number of walls on the grid
+        */
+        return blockedCount;
+    }
+
+    public int getColumns() {
+        /**
+        Gets the number of grid columns.
+        @return the number of columns
+        */
+        return columns;
+    }
+
+    public int getRows() {
+        /**
+        Gets the number of grid rows.
+        @return the number of rows
+        */
+        return rows;
+    }
+}
@@ -0,0 +1,339 @@
+package pathfinding;
+
+import java.util.Arrays;
+
+public class CoinDistanceField {
+
+    // distance stored for tiles that no coin can be reached from
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // neighbor offsets in the order they are explored: up, right, down, left
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {-1, 0, 1, 0};
+
+    // size of the grid; cells are indexed as y * columns + x
+    private final int columns;
+    private final int rows;
+
+    // path distance from every cell to its nearest coin
+    private final int[] distance;
+    // number of coins on each cell (coins can share a tile)
+    private final int[] sourceCount;
+    // walls no path goes through, or null if the board has none
+    private final BlockedTiles blockedTiles;
+
+    // scratch buffers reused by every update so updates do not allocate
+    private final int[] queue;
+    private final long[] seeds; // packed as (distance << 32) | cell so sorting orders by distance
+    // marks cells as part of the reset region or as a seed; bumping the stamp
+    // clears the marks in O(1)
+    private final int[] mark;
+    private int currentStamp = 0;
+
+    public CoinDistanceField(int columns, int rows) {
+        /**
+        Initializes an empty distance field on a board without walls.
+        @param columns - the number of grid columns
+        @param rows - the number of grid rows
+        @return void
+        */
+        this(columns, rows, null);
+    }
+
+    public CoinDistanceField(int columns, int rows, BlockedTiles blockedTiles) {
+        /**
+        Initializes an empty distance field.
+        Every cell starts unreachable until coins are added. Paths never go
+        through blocked tiles, and blocked tiles stay unreachable.
+        @param columns - the number of grid columns
+        @param rows - the number of grid rows
+        @param blockedTiles - the walls of the board, or null if it has none
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        this.blockedTiles = blockedTiles;
+
+        int cells = columns * rows;
+        distance = new int[cells];
+        sourceCount = new int[cells];
+        queue = new int[cells];
+        seeds = new long[cells];
+        mark = new int[cells];
+        clear();
+    }
+
+    public void clear() {
+        /**
+        Removes all coins from the field.
+        @return void
+        */
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(sourceCount, 0);
+    }
+
+    public void addSource(int x, int y) {
+        /**
+        Adds a coin to the field.
+        It runs a BFS from the new coin that only visits the cells which are now
+        closer to this coin than to any other, so the cost is proportional to the
+        area the coin takes over rather than to the whole board.
+        @param x - the x coordinate of the coin
+        @param y - the y coordinate of the coin
+        @return void
+        */
+        int cell = y * columns + x;
+        sourceCount[cell]++;
+        if (sourceCount[cell] > 1) {
+            // the tile already had a coin, nothing changes
+            return;
+        }
+
+        distance[cell] = 0;
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = cell;
+        while (head < tail) {
+            tail = relaxNeighbors(queue[head++], tail);
+        }
+    }
+
+    public void removeSource(int x, int y) {
+        /**
+        Removes a coin from the field.
+        All cells that can no longer reach a coin at their stored distance are
+        reset, then they are filled in again from the surrounding cells that still
+        have a valid distance. The border cells are processed in order of distance,
+        merged with the BFS queue, so every cell gets its exact new distance in a
+        single pass.
+        @param x - the x coordinate of the coin
+        @param y - the y coordinate of the coin
+        @return void
+        */
+        int cell = y * columns + x;
+        if (sourceCount[cell] == 0) {
+            return;
+        }
+        sourceCount[cell]--;
+        if (sourceCount[cell] > 0) {
+            // another coin is still on this tile
+            return;
+        }
+
+        // STEP 1: collect the region that depended on the removed coin. cells are
+        // visited in order of distance, so by the time a cell is checked every
+        // cell one step closer to a coin has already been classified. a cell
+        // keeps its distance if any neighbor one step closer is still valid
+        int regionStamp = nextStamp();
+        int regionSize = 0;
+        queue[regionSize++] = cell;
+        mark[cell] = regionStamp;
+        for (int i = 0; i < regionSize; i++) {
+            int current = queue[i];
+            int nextDistance = distance[current] + 1;
+            int cx = current % columns;
+            int cy = current / columns;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = cx + DX[direction];
+                int ny = cy + DY[direction];
+                if (!isInside(nx, ny)) {
+                    continue;
+                }
+                int neighbor = ny * columns + nx;
+                if (mark[neighbor] != regionStamp && distance[neighbor] == nextDistance
+                        && !hasSupport(neighbor, regionStamp)) {
+                    mark[neighbor] = regionStamp;
+                    queue[regionSize++] = neighbor;
+                }
+            }
+        }
+        for (int i = 0; i < regionSize; i++) {
+            distance[queue[i]] = UNREACHABLE;
+        }
+
+        // STEP 2: the cells bordering the region that still reach a coin are
+        // where the refill starts from
+        int seedCount = collectSeeds(regionSize);
+        Arrays.sort(seeds, 0, seedCount);
+
+        // STEP 3: refill the region, always expanding the closest cell next
+        int nextSeed = 0;
+        int head = 0;
+        int tail = 0;
+        while (nextSeed < seedCount || head < tail) {
+            int current;
+            if (head == tail) {
+                current = (int) seeds[nextSeed++];
+            } else if (nextSeed < seedCount && (seeds[nextSeed] >>> 32) <= distance[queue[head]]) {
+                current = (int) seeds[nextSeed++];
+            } else {
+                current = queue[head++];
+            }
+            tail = relaxNeighbors(current, tail);
+        }
+    }
+
+    public void rebuild() {
+        /**
+        Recomputes every distance from the coins currently in the field.
+        Call it after walls were added or removed. It is a single BFS from all
+        coins at once, so it costs O(cells) no matter how many walls changed.
+        @return void
+        */
+        Arrays.fill(distance, UNREACHABLE);
+        int tail = 0;
+        for (int cell = 0; cell < sourceCount.length; cell++) {
+            if (sourceCount[cell] > 0) {
+                distance[cell] = 0;
+                queue[tail++] = cell;
+            }
+        }
+        int head = 0;
+        while (head < tail) {
+            tail = relaxNeighbors(queue[head++], tail);
+        }
+    }
+
+    private boolean hasSupport(int cell, int regionStamp) {
+        /**
+        Checks if a cell still has a neighbor one step closer to a coin that is
+        not part of the region being reset.
+        @param cell - the cell to check
+        @param regionStamp - the stamp marking the reset region
+        @return true if the cell keeps its distance, false otherwise
+        */
+        int wanted = distance[cell] - 1;
+        int cx = cell % columns;
+        int cy = cell / columns;
+        for (int direction = 0; direction < 4; direction++) {
+            int nx = cx + DX[direction];
+            int ny = cy + DY[direction];
+            if (!isInside(nx, ny)) {
+                continue;
+            }
+            int neighbor = ny * columns + nx;
+            if (distance[neighbor] == wanted && mark[neighbor] != regionStamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int collectSeeds(int regionSize) {
+        /**
+        Collects the reachable cells next to the reset region into the seed buffer.
+        Each cell is added at most once.
+        @param regionSize - the number of region cells at the front of the queue
+        @return the number of seeds collected
+        */
+        int seedStamp = nextStamp();
+        int seedCount = 0;
+        for (int i = 0; i < regionSize; i++) {
+            int current = queue[i];
+            int cx = current % columns;
+            int cy = current / columns;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = cx + DX[direction];
+                int ny = cy + DY[direction];
+                if (!isInside(nx, ny)) {
+                    continue;
+                }
+                int neighbor = ny * columns + nx;
+                if (distance[neighbor] != UNREACHABLE && mark[neighbor] != seedStamp) {
+                    mark[neighbor] = seedStamp;
+                    seeds[seedCount++] = ((long) distance[neighbor] << 32) | neighbor;
+                }
+            }
+        }
+        return seedCount;
+    }
+
+    private int nextStamp() {
+        /**
+        Starts a new marking generation.
+        When the stamp wraps around the marks are cleared once so old stamps
+        cannot be mistaken for the new generation.
+        @return the new stamp
+        */
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            currentStamp = 1;
+        }
+        return currentStamp;
+    }
+
+    private int relaxNeighbors(int current, int tail) {
+        /**
+        Lowers the distance of the neighbors of a cell that can be reached faster
+        through it, and queues the ones that changed.
+        @param current - the cell to expand
+        @param tail - the current end of the queue
+        @return the new end of the queue
+        */
+        int nextDistance = distance[current] + 1;
+        int cx = current % columns;
+        int cy = current / columns;
+        for (int direction = 0; direction < 4; direction++) {
+            int nx = cx + DX[direction];
+            int ny = cy + DY[direction];
+            if (!isInside(nx, ny)) {
+                continue;
+            }
+            int neighbor = ny * columns + nx;
+            if (distance[neighbor] > nextDistance
+                    && (blockedTiles == null || !blockedTiles.isBlocked(neighbor))) {
+                distance[neighbor] = nextDistance;
+                queue[tail++] = neighbor;
+            }
+        }
+        return tail;
+    }
+
+    public int nextStep(int x, int y) {
+        /**
+        Finds the step that brings an agent one tile closer to the nearest coin.
+        It only looks at the four neighbors, so it runs in O(1).
+        @param x - the x coordinate of the agent
+        @param y - the y coordinate of the agent
+        @return the cell index of the next position, or -1 if the agent is already
+                on a coin or no coin can be reached
+        */
+        if (!isInside(x, y)) {
+            return -1;
+        }
+        int current = distance[y * columns + x];
+        if (current == 0 || current == UNREACHABLE) {
+            return -1;
+        }
+        for (int direction = 0; direction < 4; direction++) {
+            int nx = x + DX[direction];
+            int ny = y + DY[direction];
+            if (isInside(nx, ny) && distance[ny * columns + nx] == current - 1) {
+                return ny * columns + nx;
+            }
+        }
+        return -1;
+    }
+
+    public int getDistance(int x, int y) {
+        /**
+        Gets the path distance from a tile to the nearest coin.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the distance, or UNREACHABLE if no coin can be reached
+        */
+        return distance[y * columns + x];
+    }
+
+    public boolean isInside(int x, int y) {
+        /**
+        Checks if a position is within the grid.
+        @param x - the x coordinate
+        @param y - the y coordinate
+        @return true if the position is on the grid, false otherwise
+        */
+        return x >= 0 && x < columns && y >= 0 && y < rows;
+    }
+}
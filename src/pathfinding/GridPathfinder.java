@@ -0,0 +1,288 @@
+package pathfinding;
+
+import java.util.Arrays;
+
+public class GridPathfinder {
+
+    // neighbor offsets in the order they are explored: up, right, down, left
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {-1, 0, 1, 0};
+
+    // size of the grid; cells are indexed as y * columns + x
+    private final int columns;
+    private final int rows;
+
+    // BFS queue of cell indexes. every cell is enqueued at most once per search,
+    // so an array with one slot per cell never overflows and never has to wrap
+    private final int[] queue;
+    // the cell each visited cell was reached from
+    private final int[] parent;
+    // a cell is visited in the current search if its stamp equals searchStamp.
+    // bumping the stamp clears the whole array in O(1) between searches
+    private final int[] visitedStamp;
+    private int searchStamp = 0;
+
+    // walls the search goes around, or null if the board has none
+    private BlockedTiles blockedTiles;
+
+    public GridPathfinder(int columns, int rows) {
+        /**
+        Initializes the pathfinder.
+        It allocates all search buffers up front so searches do not allocate.
+        @param columns - the number of grid columns
+        @param rows - the number of grid rows
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+
+        int cells = columns * rows;
+        queue = new int[cells];
+        parent = new int[cells];
+        visitedStamp = new int[cells];
+    }
+
+    public int findFirstStep(int startX, int startY, int targetX, int targetY) {
+        /**
+        Finds the first step of a shortest path using BFS.
+        It does not allocate any memory.
+        @param startX - the x coordinate to start from
+        @param startY - the y coordinate to start from
+        @param targetX - the x coordinate of the target
+        @param targetY - the y coordinate of the target
+        @return the cell index of the first step, the start cell if start and target
+                are the same, or -1 if the target cannot be reached
+        */
+        if (!isInside(startX, startY) || !isInside(targetX, targetY)) {
+            return -1;
+        }
+
+        int start = startY * columns + startX;
+        int target = targetY * columns + targetX;
+        if (start == target) {
+            return start;
+        }
+
+        nextStamp();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visitedStamp[start] = searchStamp;
+        parent[start] = -1;
+
+        while (head < tail) {
+            int current = queue[head++];
+
+            // found target
+            if (current == target) {
+                return reconstructFirstStep(start, target);
+            }
+
+            int x = current % columns;
+            int y = current / columns;
+
+            // explore neighbors
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + DX[direction];
+                int ny = y + DY[direction];
+                if (!isInside(nx, ny)) {
+                    continue;
+                }
+                int neighbor = ny * columns + nx;
+                if (visitedStamp[neighbor] != searchStamp
+                        && (blockedTiles == null || !blockedTiles.isBlocked(neighbor))) {
+                    visitedStamp[neighbor] = searchStamp;
+                    parent[neighbor] = current;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    public int findPath(int startX, int startY, int targetX, int targetY, int[] path) {
+        /**
+        Finds a shortest path using BFS and writes its tiles into an array.
+        The search runs backward from the target, so the parent links lead from
+        the start toward the target and the path can be written front to back.
+        It stops as soon as the start is reached and does not allocate any memory.
+        @param startX - the x coordinate to start from
+        @param startY - the y coordinate to start from
+        @param targetX - the x coordinate of the target
+        @param targetY - the y coordinate of the target
+        @param path - receives the cell indexes of the path after the start, up to
+                      its length; longer paths are cut off there
+        @return the number of cells written, 0 if start and target are the same,
+                or -1 if the target cannot be reached
+        */
+        if (!isInside(startX, startY) || !isInside(targetX, targetY)) {
+            return -1;
+        }
+
+        int start = startY * columns + startX;
+        int target = targetY * columns + targetX;
+        if (start == target) {
+            return 0;
+        }
+
+        nextStamp();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = target;
+        visitedStamp[target] = searchStamp;
+        parent[target] = -1;
+
+        while (head < tail && visitedStamp[start] != searchStamp) {
+            int current = queue[head++];
+            int x = current % columns;
+            int y = current / columns;
+
+            // explore neighbors
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + DX[direction];
+                int ny = y + DY[direction];
+                if (!isInside(nx, ny)) {
+                    continue;
+                }
+                int neighbor = ny * columns + nx;
+                if (visitedStamp[neighbor] != searchStamp
+                        && (blockedTiles == null || !blockedTiles.isBlocked(neighbor))) {
+                    visitedStamp[neighbor] = searchStamp;
+                    parent[neighbor] = current;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+
+        if (visitedStamp[start] != searchStamp) {
+            return -1;
+        }
+        int count = 0;
+        for (int current = parent[start]; current != -1 && count < path.length; current = parent[current]) {
+            path[count++] = current;
+        }
+        return count;
+    }
+
+    public int findNearest(int startX, int startY, TileFilter targets, int k, int[] out) {
+        /**
+        Finds the k tiles nearest to the start by walking distance that a filter
+        accepts, e.g. the coins nearest by path instead of by straight distance.
+        BFS discovers tiles in order of distance, so it stops at the k-th match
+        and only visits the tiles closer than that, however many targets the
+        board has. It does not allocate any memory.
+        @param startX - the x coordinate to start from
+        @param startY - the y coordinate to start from
+        @param targets - accepts the tiles that are looked for
+        @param k - the number of tiles to find, at most out.length
+        @param out - receives the cell indexes of the tiles, nearest first
+        @return the number of tiles found, less than k if fewer can be reached
+        */
+        if (!isInside(startX, startY) || k <= 0) {
+            return 0;
+        }
+
+        int start = startY * columns + startX;
+        nextStamp();
+        int head = 0;
+        int tail = 0;
+        int count = 0;
+        queue[tail++] = start;
+        visitedStamp[start] = searchStamp;
+
+        while (head < tail) {
+            int current = queue[head++];
+            if (targets.accept(current)) {
+                out[count++] = current;
+                if (count == k) {
+                    break;
+                }
+            }
+
+            int x = current % columns;
+            int y = current / columns;
+
+            // explore neighbors
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + DX[direction];
+                int ny = y + DY[direction];
+                if (!isInside(nx, ny)) {
+                    continue;
+                }
+                int neighbor = ny * columns + nx;
+                if (visitedStamp[neighbor] != searchStamp
+                        && (blockedTiles == null || !blockedTiles.isBlocked(neighbor))) {
+                    visitedStamp[neighbor] = searchStamp;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return count;
+    }
+
+    public void setBlockedTiles(BlockedTiles blockedTiles) {
+        /**
+        Sets the walls searches have to go around.
+        They are read during every search, so walls that change later are seen
+        by the next search without telling the pathfinder.
+        @param blockedTiles - the walls of the board, or null if it has none
+        @return void
+        */
+        this.blockedTiles = blockedTiles;
+    }
+
+    private int reconstructFirstStep(int start, int target) {
+        /**
+        Walks the parent links back from the target to the start.
+        @param start - the cell the search started from
+        @param target - the cell that was found
+        @return the cell right after the start on the path
+        */
+        int current = target;
+        while (parent[current] != start) {
+            current = parent[current];
+        }
+        return current;
+    }
+
+    private void nextStamp() {
+        /**
+        Starts a new search generation.
+        When the stamp wraps around the visited array is cleared once so old
+        stamps cannot be mistaken for the new generation.
+        @return void
+        */
+        searchStamp++;
+        if (searchStamp == Integer.MAX_VALUE) {
+            Arrays.fill(visitedStamp, 0);
+            searchStamp = 1;
+        }
+    }
+
+    public boolean isInside(int x, int y) {
+        /**
+        Checks if a position is within the grid.
+        @param x - the x coordinate
+        @param y - the y coordinate
+        @return true if the position is on the grid, false otherwise
+        */
+        return x >= 0 && x < columns && y >= 0 && y < rows;
+    }
+
+    public int getColumns() {
+        /**
+        Gets the number of grid columns.
+        @return the number of columns
+        */
+        return columns;
+    }
+
+    public int getRows() {
+        /**
+        Gets the number of grid rows.
+        @return the number of rows
+        */
+        return rows;
+    }
+}
@@ -0,0 +1,945 @@
+package pathfinding;
+
+import java.util.Arrays;
+
+public class HierarchicalPathfinder {
+
+    // width and height of a cluster in tiles
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+    // an open stretch of border at least this long gets an entrance at both of
+    // its ends, a shorter one gets a single entrance in its middle
+    private static final int LONG_ENTRANCE = 6;
+
+    // value used for "no node" and "no parent"
+    private static final int NONE = -1;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // the walls; cells are indexed as y * columns + x
+    private final BlockedTiles blockedTiles;
+    private final int columns;
+    private final int rows;
+
+    // the board is cut into clusterSize x clusterSize clusters (smaller at the
+    // right and bottom edges), numbered row by row
+    private final int clusterSize;
+    private final int clusterColumns;
+    private final int clusterRows;
+
+    // per cluster: its entrance nodes, the first clusterNodeCount entries are used
+    private final int[][] clusterNodes;
+    private final int[] clusterNodeCount;
+    // per cluster: number of blocked tiles in it. a cluster without walls has
+    // straight paths between its entrances, so their costs are not stored
+    private final int[] clusterBlockedCount;
+    // per cluster with walls: path length between each pair of its entrance
+    // nodes (count x count, by index in clusterNodes), UNREACHABLE if there is no
+    // path inside the cluster. null for clusters without walls and for clusters
+    // whose distances are stale; those are computed the first time a search
+    // needs them, so building the graph and changing a tile only touch borders
+    private final int[][] clusterDistances;
+    // per cluster: the nodes on both sides of its right and bottom borders
+    private final int[][] eastBorderNodes;
+    private final int[][] southBorderNodes;
+
+    // per node: its cell and coordinates, its cluster, its index in the
+    // cluster's node list and the node on the other side of the border it is an
+    // entrance of
+    private int[] nodeCell = new int[0];
+    private int[] nodeX = new int[0];
+    private int[] nodeY = new int[0];
+    private int[] nodeCluster = new int[0];
+    private int[] nodeIndex = new int[0];
+    private int[] nodePartner = new int[0];
+    // ids of removed nodes, reused before new ones are made
+    private int[] freeNodes = new int[0];
+    private int freeNodeCount = 0;
+    private int nodeIdCount = 0;
+    private int liveNodeCount = 0;
+
+    // A* state per node. a node is open or closed in the current search if its
+    // stamp equals searchStamp, so nothing is cleared between searches
+    private int[] gScore = new int[0];
+    private int[] parentNode = new int[0];
+    private int[] openStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int searchStamp = 0;
+    // open list: one bucket per estimated total cost, each a stack of entries
+    // linked through entryNext. edge costs are path lengths, so the Manhattan
+    // estimate is consistent and A* never opens a node below the bucket it is
+    // expanding: popping just walks forward through the buckets, and both push
+    // and pop are O(1). the stacks expand the most recently opened (deepest)
+    // node of a bucket first, which keeps A* from spreading out over the many
+    // equally good nodes a grid has. stale entries are skipped when popped
+    // instead of being removed
+    private int[] bucketHead = new int[0];
+    private int[] entryNode = new int[64];
+    private int[] entryNext = new int[64];
+    private int entryCount = 0;
+    // estimated total cost of bucket 0, which no path can beat
+    private int baseCost = 0;
+    private int currentBucket = 0;
+    private int highestBucket = -1;
+
+    // BFS buffers for a single cluster, indexed by position inside the cluster
+    private final int[] localQueue;
+    private final int[] startDistance;
+    private final int[] startParent;
+    private final int[] targetDistance;
+    private final int[] buildDistance;
+    // scratch list used while the entrances of a border are collected
+    private final int[] borderScratch;
+    // scratch list of the clusters a tile change has to rebuild
+    private final int[] touched = new int[5];
+    // scratch list of the nodes of a path, from the start on
+    private int[] pathNodes = new int[64];
+
+    public HierarchicalPathfinder(BlockedTiles blockedTiles) {
+        /**
+        Initializes the pathfinder with DEFAULT_CLUSTER_SIZE clusters.
+        @param blockedTiles - the walls of the board
+        @return void
+        */
+        this(blockedTiles, DEFAULT_CLUSTER_SIZE);
+    }
+
+    public HierarchicalPathfinder(BlockedTiles blockedTiles, int clusterSize) {
+        /**
+        Initializes the pathfinder and builds its abstract graph.
+        The board is cut into square clusters. Every open stretch along the
+        border of two clusters gets one or two entrances, which are pairs of
+        nodes facing each other across the border. Nodes of the same cluster are
+        connected by the length of the shortest path between them inside the
+        cluster. A search then only runs A* over these nodes and BFS inside the
+        clusters of the start and the target, instead of over every tile.
+        @param blockedTiles - the walls of the board
+        @param clusterSize - the width and height of a cluster in tiles
+        @return void
+        */
+        this.blockedTiles = blockedTiles;
+        this.columns = blockedTiles.getColumns();
+        this.rows = blockedTiles.getRows();
+        this.clusterSize = clusterSize;
+        clusterColumns = (columns + clusterSize - 1) / clusterSize;
+        clusterRows = (rows + clusterSize - 1) / clusterSize;
+
+        int clusters = clusterColumns * clusterRows;
+        clusterNodes = new int[clusters][];
+        clusterNodeCount = new int[clusters];
+        clusterBlockedCount = new int[clusters];
+        clusterDistances = new int[clusters][];
+        eastBorderNodes = new int[clusters][];
+        southBorderNodes = new int[clusters][];
+
+        int area = clusterSize * clusterSize;
+        localQueue = new int[area];
+        startDistance = new int[area];
+        startParent = new int[area];
+        targetDistance = new int[area];
+        buildDistance = new int[area];
+        borderScratch = new int[2 * clusterSize + 2];
+
+        rebuild();
+    }
+
+    public void rebuild() {
+        /**
+        Builds the whole abstract graph from the current walls.
+        Use it after changing many tiles at once; single tiles are cheaper to
+        update with tileChanged().
+        @return void
+        */
+        int clusters = clusterColumns * clusterRows;
+        Arrays.fill(clusterNodeCount, 0);
+        Arrays.fill(clusterBlockedCount, 0);
+        Arrays.fill(clusterDistances, null);
+        Arrays.fill(eastBorderNodes, null);
+        Arrays.fill(southBorderNodes, null);
+        freeNodeCount = 0;
+        nodeIdCount = 0;
+        liveNodeCount = 0;
+
+        if (blockedTiles.getBlockedCount() > 0) {
+            // count each cluster's share of every row a word at a time
+            for (int y = 0; y < rows; y++) {
+                int rowCluster = (y / clusterSize) * clusterColumns;
+                for (int cx = 0; cx < clusterColumns; cx++) {
+                    int from = y * columns + cx * clusterSize;
+                    int to = y * columns + Math.min(columns, (cx + 1) * clusterSize);
+                    clusterBlockedCount[rowCluster + cx] += blockedTiles.countBlocked(from, to);
+                }
+            }
+        }
+
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            buildBorder(cluster, true);
+            buildBorder(cluster, false);
+        }
+    }
+
+    public void tileChanged(int x, int y) {
+        /**
+        Updates the abstract graph after a tile was blocked or cleared.
+        Only the clusters the tile can affect are touched: the entrances of any
+        cluster border the tile lies on are rebuilt, and the distances inside its
+        cluster and the clusters across those borders are dropped, to be
+        computed again when a search first needs them. Call it exactly once per
+        change.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return void
+        */
+        int cluster = clusterOf(x, y);
+        clusterBlockedCount[cluster] += blockedTiles.isBlocked(x, y) ? 1 : -1;
+
+        int cx = cluster % clusterColumns;
+        int cy = cluster / clusterColumns;
+        int localX = x - cx * clusterSize;
+        int localY = y - cy * clusterSize;
+
+        // a tile on a border changes the entrances of that border, which
+        // changes the nodes of the clusters on both sides of it
+        int touchedCount = 0;
+        touched[touchedCount++] = cluster;
+        if (localX == 0 && cx > 0) {
+            rebuildBorder(cluster - 1, true);
+            touched[touchedCount++] = cluster - 1;
+        }
+        if (localX == clusterWidth(cluster) - 1 && cx + 1 < clusterColumns) {
+            rebuildBorder(cluster, true);
+            touched[touchedCount++] = cluster + 1;
+        }
+        if (localY == 0 && cy > 0) {
+            rebuildBorder(cluster - clusterColumns, false);
+            touched[touchedCount++] = cluster - clusterColumns;
+        }
+        if (localY == clusterHeight(cluster) - 1 && cy + 1 < clusterRows) {
+            rebuildBorder(cluster, false);
+            touched[touchedCount++] = cluster + clusterColumns;
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            clusterDistances[touched[i]] = null;
+        }
+    }
+
+    public int findFirstStep(int startX, int startY, int targetX, int targetY) {
+        /**
+        Finds the first step of a path from the start to the target.
+        If both are in the same cluster and connected inside it, a BFS over the
+        cluster finds the path directly. Otherwise A* runs over the entrance
+        nodes, starting from the entrances the start can reach inside its cluster
+        and ending at the ones the target can be reached from inside its
+        cluster. Only the first stretch of the result is refined back to tiles,
+        since that is all a caller that re-plans every move needs. The path is
+        near optimal: it may be a few steps longer than the shortest one,
+        because clusters are only entered and left through their entrances.
+        @param startX - the x coordinate to start from
+        @param startY - the y coordinate to start from
+        @param targetX - the x coordinate of the target
+        @param targetY - the y coordinate of the target
+        @return the cell index of the first step, the start cell if start and
+                target are the same, or -1 if the target cannot be reached
+        */
+        if (!blockedTiles.isPassable(startX, startY) || !blockedTiles.isPassable(targetX, targetY)) {
+            return -1;
+        }
+        int start = startY * columns + startX;
+        int target = targetY * columns + targetX;
+        if (start == target) {
+            return start;
+        }
+
+        int startCluster = clusterOf(startX, startY);
+        int targetCluster = clusterOf(targetX, targetY);
+        searchCluster(startCluster, start, startDistance, startParent);
+        if (startCluster == targetCluster && startDistance[localIndex(startCluster, target)] != UNREACHABLE) {
+            return firstStepInCluster(startCluster, start, target);
+        }
+        searchCluster(targetCluster, target, targetDistance, null);
+
+        // a start or target walled in inside its cluster can't reach anything
+        if (!reachesEntrance(startCluster, startDistance) || !reachesEntrance(targetCluster, targetDistance)) {
+            return -1;
+        }
+
+        int goalNode = searchAbstractGraph(start, startCluster, targetCluster, targetX, targetY);
+        if (goalNode == NONE) {
+            return -1;
+        }
+
+        // walk back to the first node on the path that is not on the start tile
+        int first = NONE;
+        for (int node = goalNode; node != NONE; node = parentNode[node]) {
+            if (nodeCell[node] != start) {
+                first = node;
+            }
+        }
+        if (first == NONE) {
+            return -1;
+        }
+        if (nodeCluster[first] == startCluster) {
+            return firstStepInCluster(startCluster, start, nodeCell[first]);
+        }
+        // the first node is across the border from an entrance on the start tile
+        return nodeCell[first];
+    }
+
+    public int findPath(int startX, int startY, int targetX, int targetY, int[] path) {
+        /**
+        Finds a path from the start to the target and writes its tiles into an
+        array. The search is the one findFirstStep() runs; the nodes of the
+        result are then refined into tiles one cluster at a time, with a BFS
+        inside each cluster the path crosses, until the array is full. A path
+        longer than the array costs no more refining than the part that fits.
+        @param startX - the x coordinate to start from
+        @param startY - the y coordinate to start from
+        @param targetX - the x coordinate of the target
+        @param targetY - the y coordinate of the target
+        @param path - receives the cell indexes of the path after the start, up to
+                      its length; longer paths are cut off there
+        @return the number of cells written, 0 if start and target are the same,
+                or -1 if the target cannot be reached
+        */
+        if (!blockedTiles.isPassable(startX, startY) || !blockedTiles.isPassable(targetX, targetY)) {
+            return -1;
+        }
+        int start = startY * columns + startX;
+        int target = targetY * columns + targetX;
+        if (start == target) {
+            return 0;
+        }
+
+        int startCluster = clusterOf(startX, startY);
+        int targetCluster = clusterOf(targetX, targetY);
+        searchCluster(startCluster, start, startDistance, startParent);
+        if (startCluster == targetCluster && startDistance[localIndex(startCluster, target)] != UNREACHABLE) {
+            return writeSegment(startCluster, target, path, 0);
+        }
+        searchCluster(targetCluster, target, targetDistance, null);
+        if (!reachesEntrance(startCluster, startDistance) || !reachesEntrance(targetCluster, targetDistance)) {
+            return -1;
+        }
+
+        int goalNode = searchAbstractGraph(start, startCluster, targetCluster, targetX, targetY);
+        if (goalNode == NONE) {
+            return -1;
+        }
+
+        // the parent links run from the goal back to the start
+        int nodeCount = 0;
+        for (int node = goalNode; node != NONE; node = parentNode[node]) {
+            nodeCount++;
+        }
+        if (pathNodes.length < nodeCount) {
+            pathNodes = new int[Math.max(nodeCount, pathNodes.length * 2)];
+        }
+        int index = nodeCount;
+        for (int node = goalNode; node != NONE; node = parentNode[node]) {
+            pathNodes[--index] = node;
+        }
+
+        // the start search is still in the buffers for the first stretch
+        int count = writeSegment(startCluster, nodeCell[pathNodes[0]], path, 0);
+        for (int i = 1; i < nodeCount && count < path.length; i++) {
+            int from = pathNodes[i - 1];
+            int to = pathNodes[i];
+            if (nodeCluster[from] != nodeCluster[to]) {
+                // an entrance: one step across the border
+                path[count++] = nodeCell[to];
+            } else {
+                searchCluster(nodeCluster[to], nodeCell[from], startDistance, startParent);
+                count = writeSegment(nodeCluster[to], nodeCell[to], path, count);
+            }
+        }
+        if (count < path.length) {
+            searchCluster(targetCluster, nodeCell[goalNode], startDistance, startParent);
+            count = writeSegment(targetCluster, target, path, count);
+        }
+        return count;
+    }
+
+    private int writeSegment(int cluster, int goal, int[] path, int count) {
+        /**
+        Writes the tiles of the last start search's path to a tile into a path,
+        after the ones already in it. The parent links are walked back from the
+        tile, so the tiles are written from the last to the first; the ones that
+        don't fit are skipped.
+        @param cluster - the cluster the search ran in
+        @param goal - a cell of the cluster the search reached
+        @param path - the array to write to
+        @param count - the number of cells already in the path
+        @return the number of cells in the path now, at most its length
+        */
+        int current = localIndex(cluster, goal);
+        int length = startDistance[current];
+        int width = clusterWidth(cluster);
+        int originX = (cluster % clusterColumns) * clusterSize;
+        int originY = (cluster / clusterColumns) * clusterSize;
+        for (int i = count + length - 1; i >= count; i--) {
+            if (i < path.length) {
+                path[i] = (originY + current / width) * columns + originX + current % width;
+            }
+            current = startParent[current];
+        }
+        return Math.min(count + length, path.length);
+    }
+
+    private int searchAbstractGraph(int start, int startCluster, int targetCluster, int targetX, int targetY) {
+        /**
+        Runs A* over the entrance nodes.
+        The start cluster's nodes start out open at their distance from the
+        start, and a node in the target cluster completes a path with its
+        distance to the target. The search stops once no open node can lead to a
+        shorter path than the best one found. The estimate is the Manhattan
+        distance to the target, which never overestimates on a 4-connected grid.
+        @param start - the start cell
+        @param startCluster - the cluster of the start tile
+        @param targetCluster - the cluster of the target tile
+        @param targetX - the x coordinate of the target
+        @param targetY - the y coordinate of the target
+        @return the last node of the best path, or NONE if there is no path
+        */
+        nextSearchStamp();
+        // no path can be shorter than the straight distance from the start
+        resetOpenList(Math.abs(start % columns - targetX) + Math.abs(start / columns - targetY));
+
+        int[] startNodes = clusterNodes[startCluster];
+        for (int i = 0; i < clusterNodeCount[startCluster]; i++) {
+            int node = startNodes[i];
+            int distance = startDistance[localIndex(startCluster, nodeCell[node])];
+            if (distance != UNREACHABLE) {
+                open(node, distance, NONE, targetX, targetY);
+            }
+        }
+
+        int best = UNREACHABLE;
+        int bestNode = NONE;
+        while (true) {
+            int node = popOpen(best);
+            if (node == NONE) {
+                break;
+            }
+            if (closedStamp[node] == searchStamp) {
+                continue;
+            }
+            closedStamp[node] = searchStamp;
+            int g = gScore[node];
+
+            if (nodeCluster[node] == targetCluster) {
+                int remaining = targetDistance[localIndex(targetCluster, nodeCell[node])];
+                if (remaining != UNREACHABLE && g + remaining < best) {
+                    best = g + remaining;
+                    bestNode = node;
+                }
+            }
+
+            // cross the border
+            int partner = nodePartner[node];
+            if (partner != NONE) {
+                open(partner, g + 1, node, targetX, targetY);
+            }
+
+            // move to the other entrances of the cluster. intra-cluster costs are
+            // shortest paths, so a node that was reached from inside its cluster
+            // (or straight from the start) can't reach its siblings any cheaper
+            // than the node it was reached from already did
+            int cluster = nodeCluster[node];
+            int parent = parentNode[node];
+            if (parent == NONE || nodeCluster[parent] == cluster) {
+                continue;
+            }
+            int count = clusterNodeCount[cluster];
+            int[] nodes = clusterNodes[cluster];
+            int index = nodeIndex[node];
+            if (clusterBlockedCount[cluster] == 0) {
+                int x = nodeX[node];
+                int y = nodeY[node];
+                for (int i = 0; i < count; i++) {
+                    int other = nodes[i];
+                    if (i != index) {
+                        open(other, g + Math.abs(nodeX[other] - x) + Math.abs(nodeY[other] - y), node, targetX, targetY);
+                    }
+                }
+                continue;
+            }
+            int[] distances = clusterDistances[cluster];
+            if (distances == null) {
+                distances = buildDistances(cluster);
+            }
+            for (int i = 0, row = index * count; i < count; i++) {
+                int cost = distances[row + i];
+                if (i != index && cost != UNREACHABLE) {
+                    open(nodes[i], g + cost, node, targetX, targetY);
+                }
+            }
+        }
+        return bestNode;
+    }
+
+    private void open(int node, int g, int parent, int targetX, int targetY) {
+        /**
+        Opens a node, or lowers its cost if it was reached in a cheaper way.
+        @param node - the node
+        @param g - the cost of reaching it from the start
+        @param parent - the node it was reached from, or NONE
+        @param targetX - the x coordinate of the target
+        @param targetY - the y coordinate of the target
+        @return void
+        */
+        if (closedStamp[node] == searchStamp) {
+            return;
+        }
+        if (openStamp[node] == searchStamp && gScore[node] <= g) {
+            return;
+        }
+        openStamp[node] = searchStamp;
+        gScore[node] = g;
+        parentNode[node] = parent;
+        pushOpen(node, g + Math.abs(nodeX[node] - targetX) + Math.abs(nodeY[node] - targetY));
+    }
+
+    private void resetOpenList(int lowestCost) {
+        /**
+        Empties the open list for a new search.
+        @param lowestCost - a lower bound of the estimated total cost of every
+                            node the search will open
+        @return void
+        */
+        if (highestBucket >= 0) {
+            Arrays.fill(bucketHead, 0, highestBucket + 1, NONE);
+        }
+        entryCount = 0;
+        baseCost = lowestCost;
+        currentBucket = 0;
+        highestBucket = -1;
+    }
+
+    private void pushOpen(int node, int cost) {
+        /**
+        Adds a node to the open list.
+        @param node - the node
+        @param cost - its estimated total cost
+        @return void
+        */
+        int bucket = Math.max(0, cost - baseCost);
+        if (bucket >= bucketHead.length) {
+            int oldLength = bucketHead.length;
+            bucketHead = Arrays.copyOf(bucketHead, Math.max(bucket + 1, oldLength * 2));
+            Arrays.fill(bucketHead, oldLength, bucketHead.length, NONE);
+        }
+        if (entryCount == entryNode.length) {
+            entryNode = Arrays.copyOf(entryNode, entryCount * 2);
+            entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+        int entry = entryCount++;
+        entryNode[entry] = node;
+        entryNext[entry] = bucketHead[bucket];
+        bucketHead[bucket] = entry;
+        highestBucket = Math.max(highestBucket, bucket);
+        currentBucket = Math.min(currentBucket, bucket);
+    }
+
+    private int popOpen(int limit) {
+        /**
+        Removes a node with the lowest estimated total cost from the open list.
+        @param limit - only nodes with an estimated total cost below this count
+        @return the node, or NONE if there is no such node
+        */
+        while (currentBucket <= highestBucket && baseCost + currentBucket < limit) {
+            int entry = bucketHead[currentBucket];
+            if (entry != NONE) {
+                bucketHead[currentBucket] = entryNext[entry];
+                return entryNode[entry];
+            }
+            currentBucket++;
+        }
+        return NONE;
+    }
+
+    private void nextSearchStamp() {
+        /**
+        Starts a new search generation.
+        When the stamp wraps around the stamps are cleared once so old ones
+        cannot be mistaken for the new generation.
+        @return void
+        */
+        searchStamp++;
+        if (searchStamp == Integer.MAX_VALUE) {
+            Arrays.fill(openStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            searchStamp = 1;
+        }
+    }
+
+    private boolean reachesEntrance(int cluster, int[] distance) {
+        /**
+        Checks if the last search of a cluster reached any of its entrances.
+        @param cluster - the cluster that was searched
+        @param distance - the distances the search produced
+        @return true if at least one entrance node was reached, false otherwise
+        */
+        int[] nodes = clusterNodes[cluster];
+        for (int i = 0; i < clusterNodeCount[cluster]; i++) {
+            if (distance[localIndex(cluster, nodeCell[nodes[i]])] != UNREACHABLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void searchCluster(int cluster, int from, int[] distance, int[] parent) {
+        /**
+        Runs a BFS from a tile that stays inside its cluster.
+        @param cluster - the cluster to search
+        @param from - the cell to start from, must be in the cluster
+        @param distance - receives the distance of every tile of the cluster, by
+                          position in the cluster
+        @param parent - receives the position each tile was reached from, or null
+        @return void
+        */
+        int originX = (cluster % clusterColumns) * clusterSize;
+        int originY = (cluster / clusterColumns) * clusterSize;
+        int width = clusterWidth(cluster);
+        int height = clusterHeight(cluster);
+        Arrays.fill(distance, 0, width * height, UNREACHABLE);
+
+        int first = localIndex(cluster, from);
+        distance[first] = 0;
+        if (parent != null) {
+            parent[first] = NONE;
+        }
+        int origin = originY * columns + originX;
+        int head = 0;
+        int tail = 0;
+        localQueue[tail++] = first;
+        while (head < tail) {
+            int current = localQueue[head++];
+            int x = current % width;
+            int y = current / width;
+            int cell = origin + y * columns + x;
+            int next = distance[current] + 1;
+            // up, right, down, left
+            if (y > 0) {
+                tail = visit(current - width, cell - columns, current, next, distance, parent, tail);
+            }
+            if (x + 1 < width) {
+                tail = visit(current + 1, cell + 1, current, next, distance, parent, tail);
+            }
+            if (y + 1 < height) {
+                tail = visit(current + width, cell + columns, current, next, distance, parent, tail);
+            }
+            if (x > 0) {
+                tail = visit(current - 1, cell - 1, current, next, distance, parent, tail);
+            }
+        }
+    }
+
+    private int visit(int local, int cell, int from, int nextDistance, int[] distance, int[] parent, int tail) {
+        /**
+        Queues a tile of a cluster search if it is open and not reached yet.
+        @param local - the position of the tile in the cluster
+        @param cell - the cell index of the tile
+        @param from - the position it is reached from
+        @param nextDistance - its distance if it is reached now
+        @param distance - the distances of the search
+        @param parent - the parent links of the search, or null
+        @param tail - the current end of the queue
+        @return the new end of the queue
+        */
+        if (distance[local] != UNREACHABLE || blockedTiles.isBlocked(cell)) {
+            return tail;
+        }
+        distance[local] = nextDistance;
+        if (parent != null) {
+            parent[local] = from;
+        }
+        localQueue[tail] = local;
+        return tail + 1;
+    }
+
+    private int firstStepInCluster(int cluster, int start, int goal) {
+        /**
+        Walks the parent links of the last start search back from a tile to the
+        start, which refines the first stretch of a path into tiles.
+        @param cluster - the cluster of the start tile
+        @param start - the cell the search started from
+        @param goal - a cell of the cluster the search reached
+        @return the cell right after the start on the path to the goal
+        */
+        int startIndex = localIndex(cluster, start);
+        int current = localIndex(cluster, goal);
+        while (startParent[current] != startIndex) {
+            current = startParent[current];
+        }
+        int width = clusterWidth(cluster);
+        int x = (cluster % clusterColumns) * clusterSize + current % width;
+        int y = (cluster / clusterColumns) * clusterSize + current / width;
+        return y * columns + x;
+    }
+
+    private void rebuildBorder(int cluster, boolean east) {
+        /**
+        Replaces the entrances of a border with ones matching the current walls.
+        @param cluster - the cluster left of or above the border
+        @param east - true for its right border, false for its bottom border
+        @return void
+        */
+        int[] old = east ? eastBorderNodes[cluster] : southBorderNodes[cluster];
+        if (old != null) {
+            for (int node : old) {
+                removeNode(node);
+            }
+        }
+        buildBorder(cluster, east);
+    }
+
+    private void buildBorder(int cluster, boolean east) {
+        /**
+        Finds the entrances of a border and adds a pair of nodes for each.
+        An entrance is a place where the tiles on both sides of the border are
+        open. Open stretches shorter than LONG_ENTRANCE get one entrance in their
+        middle, longer ones get one at each end.
+        @param cluster - the cluster left of or above the border
+        @param east - true for its right border, false for its bottom border
+        @return void
+        */
+        int cx = cluster % clusterColumns;
+        int cy = cluster / clusterColumns;
+        int neighbor;
+        int length;
+        if (east) {
+            if (cx + 1 >= clusterColumns) {
+                return;
+            }
+            neighbor = cluster + 1;
+            length = clusterHeight(cluster);
+        } else {
+            if (cy + 1 >= clusterRows) {
+                return;
+            }
+            neighbor = cluster + clusterColumns;
+            length = clusterWidth(cluster);
+        }
+
+        int count = 0;
+        int spanStart = NONE;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && blockedTiles.isPassable(borderX(cluster, east, i), borderY(cluster, east, i))
+                && blockedTiles.isPassable(borderX(cluster, east, i) + (east ? 1 : 0), borderY(cluster, east, i) + (east ? 0 : 1));
+            if (open && spanStart == NONE) {
+                spanStart = i;
+            } else if (!open && spanStart != NONE) {
+                int spanEnd = i - 1;
+                if (spanEnd - spanStart + 1 < LONG_ENTRANCE) {
+                    count = addEntrance(cluster, neighbor, east, (spanStart + spanEnd) / 2, count);
+                } else {
+                    count = addEntrance(cluster, neighbor, east, spanStart, count);
+                    count = addEntrance(cluster, neighbor, east, spanEnd, count);
+                }
+                spanStart = NONE;
+            }
+        }
+
+        int[] nodes = Arrays.copyOf(borderScratch, count);
+        if (east) {
+            eastBorderNodes[cluster] = nodes;
+        } else {
+            southBorderNodes[cluster] = nodes;
+        }
+    }
+
+    private int addEntrance(int cluster, int neighbor, boolean east, int offset, int count) {
+        /**
+        Adds the pair of nodes of one entrance.
+        @param cluster - the cluster left of or above the border
+        @param neighbor - the cluster right of or below the border
+        @param east - true for a right border, false for a bottom border
+        @param offset - the position of the entrance along the border
+        @param count - the number of nodes collected for the border so far
+        @return the new number of nodes collected for the border
+        */
+        int x = borderX(cluster, east, offset);
+        int y = borderY(cluster, east, offset);
+        int inside = addNode(y * columns + x, cluster);
+        int outside = east ? addNode(y * columns + x + 1, neighbor) : addNode((y + 1) * columns + x, neighbor);
+        nodePartner[inside] = outside;
+        nodePartner[outside] = inside;
+        borderScratch[count++] = inside;
+        borderScratch[count++] = outside;
+        return count;
+    }
+
+    private int borderX(int cluster, boolean east, int offset) {
+        /**
+        Gets the x coordinate of a tile on the inner side of a border.
+        @param cluster - the cluster left of or above the border
+        @param east - true for its right border, false for its bottom border
+        @param offset - the position along the border
+        @return the x coordinate
+        */
+        int originX = (cluster % clusterColumns) * clusterSize;
+        return east ? originX + clusterWidth(cluster) - 1 : originX + offset;
+    }
+
+    private int borderY(int cluster, boolean east, int offset) {
+        /**
+        Gets the y coordinate of a tile on the inner side of a border.
+        @param cluster - the cluster left of or above the border
+        @param east - true for its right border, false for its bottom border
+        @param offset - the position along the border
+        @return the y coordinate
+        */
+        int originY = (cluster / clusterColumns) * clusterSize;
+        return east ? originY + offset : originY + clusterHeight(cluster) - 1;
+    }
+
+    private int[] buildDistances(int cluster) {
+        /**
+        Computes the path lengths between the entrance nodes of a cluster with
+        walls, with a BFS inside the cluster from each node. Clusters without
+        walls never need this, since the Manhattan distance is the path length
+        there.
+        @param cluster - the cluster
+        @return the distances, also stored in clusterDistances
+        */
+        int count = clusterNodeCount[cluster];
+        int[] nodes = clusterNodes[cluster];
+        int[] distances = new int[count * count];
+        for (int i = 0; i < count; i++) {
+            searchCluster(cluster, nodeCell[nodes[i]], buildDistance, null);
+            for (int j = 0; j < count; j++) {
+                distances[i * count + j] = buildDistance[localIndex(cluster, nodeCell[nodes[j]])];
+            }
+        }
+        clusterDistances[cluster] = distances;
+        return distances;
+    }
+
+    private int addNode(int cell, int cluster) {
+        /**
+        Adds an entrance node to a cluster.
+        @param cell - the cell of the node
+        @param cluster - the cluster the cell is in
+        @return the id of the new node
+        */
+        int node;
+        if (freeNodeCount > 0) {
+            node = freeNodes[--freeNodeCount];
+        } else {
+            if (nodeIdCount == nodeCell.length) {
+                growNodes();
+            }
+            node = nodeIdCount++;
+        }
+        liveNodeCount++;
+
+        int count = clusterNodeCount[cluster];
+        if (clusterNodes[cluster] == null) {
+            clusterNodes[cluster] = new int[8];
+        } else if (count == clusterNodes[cluster].length) {
+            clusterNodes[cluster] = Arrays.copyOf(clusterNodes[cluster], count * 2);
+        }
+        clusterNodes[cluster][count] = node;
+        clusterNodeCount[cluster] = count + 1;
+
+        nodeCell[node] = cell;
+        nodeX[node] = cell % columns;
+        nodeY[node] = cell / columns;
+        nodeCluster[node] = cluster;
+        nodeIndex[node] = count;
+        nodePartner[node] = NONE;
+        return node;
+    }
+
+    private void removeNode(int node) {
+        /**
+        Removes an entrance node from its cluster.
+        The cluster's last node takes its place in the node list, so the
+        cluster's distances must be rebuilt afterwards.
+        @param node - the id of the node
+        @return void
+        */
+        int cluster = nodeCluster[node];
+        int last = --clusterNodeCount[cluster];
+        int moved = clusterNodes[cluster][last];
+        clusterNodes[cluster][nodeIndex[node]] = moved;
+        nodeIndex[moved] = nodeIndex[node];
+        freeNodes[freeNodeCount++] = node;
+        liveNodeCount--;
+    }
+
+    private void growNodes() {
+        /**
+        Doubles the number of nodes the per node arrays can hold.
+        @return void
+        */
+        int capacity = Math.max(64, nodeCell.length * 2);
+        nodeCell = Arrays.copyOf(nodeCell, capacity);
+        nodeX = Arrays.copyOf(nodeX, capacity);
+        nodeY = Arrays.copyOf(nodeY, capacity);
+        nodeCluster = Arrays.copyOf(nodeCluster, capacity);
+        nodeIndex = Arrays.copyOf(nodeIndex, capacity);
+        nodePartner = Arrays.copyOf(nodePartner, capacity);
+        freeNodes = Arrays.copyOf(freeNodes, capacity);
+        gScore = Arrays.copyOf(gScore, capacity);
+        parentNode = Arrays.copyOf(parentNode, capacity);
+        openStamp = Arrays.copyOf(openStamp, capacity);
+        closedStamp = Arrays.copyOf(closedStamp, capacity);
+    }
+
+    private int clusterOf(int x, int y) {
+        /**
+        Gets the cluster a tile is in.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return the cluster index
+        */
+        return (y / clusterSize) * clusterColumns + x / clusterSize;
+    }
+
+    private int clusterWidth(int cluster) {
+        /**
+        Gets the width of a cluster, which is smaller at the right edge.
+        @param cluster - the cluster index
+        @return the width in tiles
+        */
+        return Math.min(clusterSize, columns - (cluster % clusterColumns) * clusterSize);
+    }
+
+    private int clusterHeight(int cluster) {
+        /**
+        Gets the height of a cluster, which is smaller at the bottom edge.
+        @param cluster - the cluster index
+        @return the height in tiles
+        */
+        return Math.min(clusterSize, rows - (cluster / clusterColumns) * clusterSize);
+    }
+
+    private int localIndex(int cluster, int cell) {
+        /**
+        Gets the position of a cell inside its cluster.
+        @param cluster - the cluster the cell is in
+        @param cell - the cell index
+        @return the index of the cell in the cluster's BFS buffers
+        */
+        int x = cell % columns - (cluster % clusterColumns) * clusterSize;
+        int y = cell / columns - (cluster / clusterColumns) * clusterSize;
+        return y * clusterWidth(cluster) + x;
+    }
+
+    public int getNodeCount() {
+        /**
+        Gets the number of entrance nodes in the abstract graph.
+        @return the number of nodes
+        */
+        return liveNodeCount;
+    }
+
+    public int getClusterSize() {
+        /**
+        Gets the width and height of a cluster.
+        @return the cluster size in tiles
+        */
+        return clusterSize;
+    }
+}
@@ -0,0 +1,173 @@
+package pathfinding;
+
+import utils.LongIntMap;
+
+public class ReservationTable {
+
+    // value used for a tile nobody holds
+    public static final int NONE = -1;
+
+    // agent holding each (tile, step), keyed by step << 32 | cell
+    private final LongIntMap reservations;
+    // agents that stay on a tile for good once their planned path ends there,
+    // and the step they arrive, keyed by cell
+    private final LongIntMap parkedAgents;
+    private final LongIntMap parkedSince;
+    // the last step anything was reserved for
+    private int latestStep = 0;
+
+    public ReservationTable(int agents) {
+        /**
+        Initializes an empty reservation table.
+        @param agents - the number of agents, used to size the tables
+        @return void
+        */
+        reservations = new LongIntMap(agents * 8);
+        parkedAgents = new LongIntMap(agents);
+        parkedSince = new LongIntMap(agents);
+    }
+
+    private static long key(int cell, int step) {
+        /**
+        Gets the key of a tile at a step.
+        @param cell - the cell index of the tile
+        @param step - the step
+        @return the key
+        */
+        return ((long) step << 32) | cell;
+    }
+
+    public int getHolder(int cell, int step) {
+        /**
+        Gets the agent that is on a tile at a step.
+        @param cell - the cell index of the tile
+        @param step - the step
+        @return the agent, or NONE if the tile is free at that step
+        */
+        int agent = reservations.get(key(cell, step));
+        if (agent != LongIntMap.NONE) {
+            return agent;
+        }
+        agent = parkedAgents.get(cell);
+        if (agent != LongIntMap.NONE && parkedSince.get(cell) <= step) {
+            return agent;
+        }
+        return NONE;
+    }
+
+    public boolean canEnter(int from, int to, int step, int agent) {
+        /**
+        Checks if an agent can move from one tile to another between two steps.
+        The target tile must be free (or the agent's own) at the next step, and
+        the move must not swap places with an agent coming the other way.
+        @param from - the cell the agent is on at the step
+        @param to - the cell the agent wants to be on at the next step, may be from
+        @param step - the step the agent is on the first tile
+        @param agent - the agent
+        @return true if the move does not collide with any other agent
+        */
+        int holder = getHolder(to, step + 1);
+        if (holder != NONE && holder != agent) {
+            return false;
+        }
+        if (from != to) {
+            int oncoming = getHolder(to, step);
+            if (oncoming != NONE && oncoming != agent && getHolder(from, step + 1) == oncoming) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean canPark(int cell, int step, int agent) {
+        /**
+        Checks if an agent can stay on a tile from a step on, for good.
+        No other agent may be on it at that step or any later one.
+        @param cell - the cell index of the tile
+        @param step - the first step the agent would be on the tile
+        @param agent - the agent
+        @return true if the tile is the agent's from that step on
+        */
+        int parked = parkedAgents.get(cell);
+        if (parked != LongIntMap.NONE && parked != agent) {
+            return false;
+        }
+        for (int later = step; later <= latestStep; later++) {
+            int holder = reservations.get(key(cell, later));
+            if (holder != LongIntMap.NONE && holder != agent) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void reserve(int cell, int step, int agent) {
+        /**
+        Reserves a tile at a step for an agent.
+        @param cell - the cell index of the tile
+        @param step - the step
+        @param agent - the agent
+        @return void
+        */
+        reservations.put(key(cell, step), agent);
+        latestStep = Math.max(latestStep, step);
+    }
+
+    public void release(int cell, int step, int agent) {
+        /**
+        Releases an agent's reservation of a tile at a step.
+        Reservations held by other agents are left alone.
+        @param cell - the cell index of the tile
+        @param step - the step
+        @param agent - the agent
+        @return void
+        */
+        long key = key(cell, step);
+        if (reservations.get(key) == agent) {
+            reservations.remove(key);
+        }
+    }
+
+    public void park(int cell, int step, int agent) {
+        /**
+        Reserves a tile for an agent from a step on, for good.
+        @param cell - the cell index of the tile
+        @param step - the first step the agent is on the tile
+        @param agent - the agent
+        @return void
+        */
+        parkedAgents.put(cell, agent);
+        parkedSince.put(cell, step);
+    }
+
+    public void unpark(int cell, int agent) {
+        /**
+        Releases an agent's open-ended reservation of a tile.
+        @param cell - the cell index of the tile
+        @param agent - the agent
+        @return void
+        */
+        if (parkedAgents.get(cell) == agent) {
+            parkedAgents.remove(cell);
+            parkedSince.remove(cell);
+        }
+    }
+
+    public int size() {
+        /**
+        Gets the number of reservations, counting each parked agent once.
+        @return the number of reservations
+        */
+        return reservations.size() + parkedAgents.size();
+    }
+
+    public void clear() {
+        /**
+        Releases every reservation.
+        @return void
+        */
+        reservations.clear();
+        parkedAgents.clear();
+        parkedSince.clear();
+    }
+}
@@ -0,0 +1,326 @@
+package pathfinding;
+
+import java.util.Arrays;
+
+import utils.Contstants;
+
+public class SpaceTimePlanner {
+
+    // value plan() returns when the target can't be reached at all
+    public static final int UNREACHABLE = -1;
+
+    // the moves an agent can make in one step: wait, up, right, down, left
+    private static final int[] DX = {0, 0, 1, 0, -1};
+    private static final int[] DY = {0, -1, 0, 1, 0};
+
+    // most space-time nodes a single plan may expand, so a crowded spot can't
+    // make one plan eat the whole tick
+    private static final int MAX_EXPANSIONS = 4096;
+
+    // value used for "no node" and for unknown distances
+    private static final int NONE = -1;
+
+    // size of the grid; cells are indexed as y * columns + x
+    private final int columns;
+    private final int rows;
+    // the walls of the board
+    private final BlockedTiles blockedTiles;
+    // the number of steps a plan looks ahead
+    private final int window;
+
+    // the search runs in a (2 * window + 1)^2 box of tiles around the start,
+    // since no plan can leave it, times window + 1 steps. node = step * boxArea + tile in box
+    private final int boxSide;
+    private final int boxArea;
+    private final int[] nodeStamp;
+    private final int[] parent;
+    private int searchStamp = 0;
+
+    // open list: one bucket per f = step + heuristic, as linked lists. every move
+    // costs one step and the heuristic is consistent, so f never decreases and a
+    // plan's f values lie within 2 * window of the start's
+    private final int[] bucketHead;
+    private final int[] nextInBucket;
+
+    // exact heuristic: true distances to the target, from a breadth-first
+    // search backwards from the target that is only expanded as far as the
+    // planner asks (reverse resumable search). it is reused while the target
+    // stays the same. null on boards too large for whole-board buffers, which
+    // only have the Manhattan distance
+    private final int[] distance;
+    private final int[] distanceStamp;
+    private final int[] reverseQueue;
+    private int reverseHead;
+    private int reverseTail;
+    private int distanceGeneration = 0;
+    private int heuristicTarget = NONE;
+
+    public SpaceTimePlanner(int columns, int rows, BlockedTiles blockedTiles, int window) {
+        /**
+        Initializes the planner.
+        It allocates all search buffers up front so planning does not allocate.
+        @param columns - the number of grid columns
+        @param rows - the number of grid rows
+        @param blockedTiles - the walls of the board
+        @param window - the number of steps a plan looks ahead
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        this.blockedTiles = blockedTiles;
+        this.window = window;
+
+        boxSide = 2 * window + 1;
+        boxArea = boxSide * boxSide;
+        nodeStamp = new int[(window + 1) * boxArea];
+        parent = new int[(window + 1) * boxArea];
+        nextInBucket = new int[(window + 1) * boxArea];
+        bucketHead = new int[2 * window + 1];
+
+        if ((long) columns * rows <= Contstants.MAX_SEARCH_CELLS) {
+            distance = new int[columns * rows];
+            distanceStamp = new int[columns * rows];
+            reverseQueue = new int[columns * rows];
+        } else {
+            distance = null;
+            distanceStamp = null;
+            reverseQueue = null;
+        }
+    }
+
+    public int plan(ReservationTable table, int agent, int start, int step, int target, boolean exact, int[] path, int offset) {
+        /**
+        Plans an agent's moves for the next steps with a space-time A* search.
+        Each step the agent waits or moves to a neighboring tile, never onto a
+        wall, a tile another agent holds at that step, or through an agent coming
+        the other way. The plan ends when it reaches the target or after window
+        steps, whichever comes first, on a tile the agent can then stay on for
+        good. It does not allocate any memory.
+        The search is guided by the Manhattan distance to the target, or by the
+        true walking distance if exact is set. The Manhattan distance costs
+        nothing, but can lead into dead ends behind walls; the true distance
+        gets out of them, but costs a backward search from the target.
+        @param table - the reservations of the other agents (the agent's own are ignored)
+        @param agent - the agent to plan for
+        @param start - the cell the agent is on at the step
+        @param step - the step the plan starts at
+        @param target - the cell to move toward
+        @param exact - true to guide the search by the true distance, if the board has buffers for it
+        @param path - receives the cell of every step of the plan, starting with start
+        @param offset - the index in path to write the first cell to
+        @return the number of cells written (at least 1), 0 if no plan was found
+                within the expansion limit, or UNREACHABLE
+        */
+        exact = exact && distance != null;
+        int startDistance = heuristic(start, target, exact);
+        if (startDistance == NONE) {
+            return UNREACHABLE;
+        }
+
+        nextStamp();
+        Arrays.fill(bucketHead, NONE);
+        int originX = start % columns - window;
+        int originY = start / columns - window;
+        int startNode = (window * boxSide) + window;
+        nodeStamp[startNode] = searchStamp;
+        parent[startNode] = NONE;
+        push(startNode, 0);
+
+        int bucket = 0;
+        int expansions = 0;
+        while (expansions < MAX_EXPANSIONS) {
+            while (bucket < bucketHead.length && bucketHead[bucket] == NONE) {
+                bucket++;
+            }
+            if (bucket == bucketHead.length) {
+                break;
+            }
+            int node = bucketHead[bucket];
+            bucketHead[bucket] = nextInBucket[node];
+            expansions++;
+
+            int time = node / boxArea;
+            int local = node - time * boxArea;
+            int x = originX + local % boxSide;
+            int y = originY + local / boxSide;
+            int cell = y * columns + x;
+
+            // a plan ends on the target or at the edge of the window, on a tile
+            // nobody else needs later
+            if ((cell == target || time == window) && table.canPark(cell, step + time, agent)) {
+                return writePath(node, originX, originY, path, offset);
+            }
+            if (time == window) {
+                continue;
+            }
+
+            for (int move = 0; move < DX.length; move++) {
+                int nx = x + DX[move];
+                int ny = y + DY[move];
+                if (nx < 0 || nx >= columns || ny < 0 || ny >= rows) {
+                    continue;
+                }
+                int neighbor = ny * columns + nx;
+                if (blockedTiles.isBlocked(neighbor)) {
+                    continue;
+                }
+                int next = (time + 1) * boxArea + (ny - originY) * boxSide + (nx - originX);
+                if (nodeStamp[next] == searchStamp) {
+                    continue;
+                }
+                if (!table.canEnter(cell, neighbor, step + time, agent)) {
+                    continue;
+                }
+                int neighborDistance = heuristic(neighbor, target, exact);
+                if (neighborDistance == NONE) {
+                    continue;
+                }
+                nodeStamp[next] = searchStamp;
+                parent[next] = node;
+                // f - startDistance, which the bounds above keep inside the buckets
+                push(next, time + 1 + neighborDistance - startDistance);
+            }
+        }
+        return 0;
+    }
+
+    private void push(int node, int bucket) {
+        /**
+        Adds a node to the front of its bucket, so the most recently found (and
+        deepest) node of equal f is expanded first.
+        @param node - the node
+        @param bucket - the bucket of the node's f
+        @return void
+        */
+        nextInBucket[node] = bucketHead[bucket];
+        bucketHead[bucket] = node;
+    }
+
+    private int writePath(int node, int originX, int originY, int[] path, int offset) {
+        /**
+        Writes the cells from the start to a node into the path.
+        @param node - the last node of the plan
+        @param originX - the x coordinate of the box's corner
+        @param originY - the y coordinate of the box's corner
+        @param path - the array to write to
+        @param offset - the index of the start's cell
+        @return the number of cells written
+        */
+        int length = node / boxArea + 1;
+        for (int i = length - 1; i >= 0; i--) {
+            int local = node % boxArea;
+            path[offset + i] = (originY + local / boxSide) * columns + originX + local % boxSide;
+            node = parent[node];
+        }
+        return length;
+    }
+
+    public int manhattanDistance(int cell, int target) {
+        /**
+        Gets the Manhattan distance between two cells.
+        @param cell - the first cell
+        @param target - the second cell
+        @return the distance
+        */
+        return Math.abs(cell % columns - target % columns) + Math.abs(cell / columns - target / columns);
+    }
+
+    public boolean hasExactDistances() {
+        /**
+        Checks if the planner can guide searches by the true walking distance.
+        Boards with more than MAX_SEARCH_CELLS tiles have no buffers for it.
+        @return true if exact plans are possible
+        */
+        return distance != null;
+    }
+
+    private int heuristic(int cell, int target, boolean exact) {
+        /**
+        Gets the distance from a cell to the target, ignoring other agents.
+        The exact distance comes from the backward search, which is expanded
+        until the cell is reached.
+        @param cell - the cell
+        @param target - the target cell
+        @param exact - true for the true walking distance, false for the Manhattan distance
+        @return the distance, or NONE if the cell can't reach the target
+        */
+        if (!exact) {
+            return manhattanDistance(cell, target);
+        }
+        if (target != heuristicTarget) {
+            startReverseSearch(target);
+        }
+        while (distanceStamp[cell] != distanceGeneration) {
+            if (reverseHead == reverseTail) {
+                return NONE;
+            }
+            expandReverseSearch();
+        }
+        return distance[cell];
+    }
+
+    private void startReverseSearch(int target) {
+        /**
+        Starts a new backward search from a target.
+        @param target - the target cell
+        @return void
+        */
+        distanceGeneration++;
+        if (distanceGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(distanceStamp, 0);
+            distanceGeneration = 1;
+        }
+        heuristicTarget = target;
+        reverseHead = 0;
+        reverseTail = 0;
+        reverseQueue[reverseTail++] = target;
+        distanceStamp[target] = distanceGeneration;
+        distance[target] = 0;
+    }
+
+    private void expandReverseSearch() {
+        /**
+        Expands the next cell of the backward search, giving its neighbors their
+        distances.
+        @return void
+        */
+        int current = reverseQueue[reverseHead++];
+        int x = current % columns;
+        int y = current / columns;
+        for (int move = 1; move < DX.length; move++) {
+            int nx = x + DX[move];
+            int ny = y + DY[move];
+            if (nx < 0 || nx >= columns || ny < 0 || ny >= rows) {
+                continue;
+            }
+            int neighbor = ny * columns + nx;
+            if (distanceStamp[neighbor] != distanceGeneration && !blockedTiles.isBlocked(neighbor)) {
+                distanceStamp[neighbor] = distanceGeneration;
+                distance[neighbor] = distance[current] + 1;
+                reverseQueue[reverseTail++] = neighbor;
+            }
+        }
+    }
+
+    public void forgetDistances() {
+        /**
+        Drops the cached distances, which are stale once walls change.
+        @return void
+        */
+        heuristicTarget = NONE;
+    }
+
+    private void nextStamp() {
+        /**
+        Starts a new search generation.
+        When the stamp wraps around the stamp array is cleared once so old stamps
+        cannot be mistaken for the new generation.
+        @return void
+        */
+        searchStamp++;
+        if (searchStamp == Integer.MAX_VALUE) {
+            Arrays.fill(nodeStamp, 0);
+            searchStamp = 1;
+        }
+    }
+}
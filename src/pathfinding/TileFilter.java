@@ -0,0 +1,11 @@
+package pathfinding;
+
+public interface TileFilter {
+
+    /**
+    Checks if a tile is one the caller is looking for.
+    @param cell - the cell index of the tile (y * columns + x)
+    @return true if the tile matches
+    */
+    boolean accept(int cell);
+}
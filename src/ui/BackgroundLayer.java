@@ -0,0 +1,161 @@
+package ui;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+import utils.Contstants;
+import utils.SpriteCache;
+
+public class BackgroundLayer {
+
+    // number of tiles in the rendered layer. the checkerboard repeats every two
+    // tiles, so the layer only has to cover the view; it is drawn at the even tile
+    // at or before the view's first tile to line up with the pattern
+    private int columns;
+    private int rows;
+
+    // colors of the checkerboard
+    private Color tileColor1 = Contstants.tileColor1;
+    private Color tileColor2 = Contstants.tileColor2;
+
+    // the rendered layer. a VolatileImage lives in video memory when possible;
+    // the BufferedImage is used when there is no display to create one for
+    private VolatileImage volatileImage;
+    private BufferedImage bufferedImage;
+
+    public void setTheme(Color tileColor1, Color tileColor2) {
+        /**
+        Sets the checkerboard colors.
+        The layer is rendered again the next time it is drawn.
+        @param tileColor1 - the color of the even tiles
+        @param tileColor2 - the color of the odd tiles
+        @return void
+        */
+        if (!tileColor1.equals(this.tileColor1) || !tileColor2.equals(this.tileColor2)) {
+            this.tileColor1 = tileColor1;
+            this.tileColor2 = tileColor2;
+            invalidate();
+        }
+    }
+
+    public void invalidate() {
+        /**
+        Throws away the rendered layer so it is rendered again on the next draw.
+        @return void
+        */
+        if (volatileImage != null) {
+            volatileImage.flush();
+            volatileImage = null;
+        }
+        bufferedImage = null;
+    }
+
+    public void draw(Graphics graphicsController, Component component, int firstColumn, int firstRow, int columns, int rows) {
+        /**
+        Draws the background layer behind a range of tiles.
+        The checkerboard is rendered once into a cached image that covers the view
+        and then copied with a single drawImage call, so drawing costs the same no
+        matter how large the world is. It is only rendered again when the view grows,
+        the theme changes, or when video memory lost the contents of the image.
+        @param graphicsController - the graphics controller to draw the background on, in world coordinates
+        @param component - the component the background is drawn for
+        @param firstColumn - the first visible column
+        @param firstRow - the first visible row
+        @param columns - the number of visible columns
+        @param rows - the number of visible rows
+        @return void
+        */
+        // one extra tile for starting at an even tile, rounded up to whole pattern repeats
+        int neededColumns = (columns + 2) & ~1;
+        int neededRows = (rows + 2) & ~1;
+        if (neededColumns > this.columns || neededRows > this.rows) {
+            this.columns = Math.max(neededColumns, this.columns);
+            this.rows = Math.max(neededRows, this.rows);
+            invalidate();
+        }
+
+        int width = this.columns * Contstants.TILE_SIZE;
+        int height = this.rows * Contstants.TILE_SIZE;
+        int x = (firstColumn & ~1) * Contstants.TILE_SIZE;
+        int y = (firstRow & ~1) * Contstants.TILE_SIZE;
+
+        GraphicsConfiguration configuration = component.getGraphicsConfiguration();
+        if (configuration == null) {
+            // not on a screen (e.g. rendering offscreen), so use a plain image
+            drawBuffered(graphicsController, x, y, width, height);
+            return;
+        }
+
+        // a volatile image can lose its contents at any time (e.g. when the display
+        // mode changes), so keep rendering until a frame got through intact
+        do {
+            if (volatileImage == null) {
+                volatileImage = configuration.createCompatibleVolatileImage(width, height, Transparency.OPAQUE);
+                renderTiles(volatileImage.getGraphics());
+            }
+            int status = volatileImage.validate(configuration);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                // the image was made for another screen, start over
+                volatileImage.flush();
+                volatileImage = null;
+                continue;
+            }
+            if (status == VolatileImage.IMAGE_RESTORED) {
+                renderTiles(volatileImage.getGraphics());
+            }
+            graphicsController.drawImage(volatileImage, x, y, null);
+        } while (volatileImage == null || volatileImage.contentsLost());
+    }
+
+    private void drawBuffered(Graphics graphicsController, int x, int y, int width, int height) {
+        /**
+        Draws the layer from a cached BufferedImage.
+        @param graphicsController - the graphics controller to draw the background on
+        @param x - the x coordinate to draw the layer at
+        @param y - the y coordinate to draw the layer at
+        @param width - the width of the layer in pixels
+        @param height - the height of the layer in pixels
+        @return void
+        */
+        if (bufferedImage == null) {
+            bufferedImage = SpriteCache.createCompatibleImage(width, height, Transparency.OPAQUE);
+            renderTiles(bufferedImage.getGraphics());
+        }
+        graphicsController.drawImage(bufferedImage, x, y, null);
+    }
+
+    private void renderTiles(Graphics graphicsController) {
+        /**
+        Renders the checkerboard into the cached image.
+        @param graphicsController - the graphics controller of the cached image
+        @return void
+        */
+        // fill the whole layer with the first tile color
+        graphicsController.setColor(tileColor1);
+        graphicsController.fillRect(0, 0, columns * Contstants.TILE_SIZE, rows * Contstants.TILE_SIZE);
+
+        // set the color to the second tile color
+        graphicsController.setColor(tileColor2);
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                // only color every other tile
+                if ((row + col) % 2 == 1) {
+                    // draw a square tile at the current row/column position
+                    graphicsController.fillRect(
+                        col * Contstants.TILE_SIZE,
+                        row * Contstants.TILE_SIZE,
+                        Contstants.TILE_SIZE,
+                        Contstants.TILE_SIZE
+                    );
+                }
+            }
+        }
+        graphicsController.dispose();
+    }
+}
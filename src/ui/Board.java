@@ -2,117 +2,188 @@ package ui;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
 import javax.swing.*;
 
-import entities.Player;
-import entities.Enemy;
-import entities.Traveler;
 import game.Clock;
 import game.Coin;
+import game.DirtyTiles;
+import game.FixedTimestep;
+import game.World;
 import utils.Contstants;
+import utils.Logger;
 
 public class Board extends JPanel implements ActionListener, KeyListener {
-    
+
     // keep a reference to the timer object that triggers actionPerformed() in
     // case we need access to it in another method
     private Timer timer;
-    // objects that appear on the game board
-    private Player player;
-    private ArrayList<Coin> coins;
-    private Map<Point, Coin> coinPositionMap; // O(1) lookup for collision detection
-    private ArrayList<Enemy> enemies;
-    private Traveler traveler;
-    
-    private Clock clock = new Clock();
+    // the simulation that holds all of the game state; the board only draws it
+    // and forwards keyboard input to it
+    private World world;
+    // draws the world, shared with the active rendering canvas
+    private WorldRenderer renderer;
+    // works out how many ticks are due from the wall clock, since the timer
+    // can fire late or skip (coalesce) callbacks when the event thread stalls
+    private FixedTimestep timestep = new FixedTimestep(
+        Clock.TICK_NANOS, Contstants.MAX_CATCH_UP_TICKS, Contstants.MAX_BACKLOG_TICKS);
+
+    // the values the UI showed after the last repaint, so the board knows when
+    // the text needs to be drawn again
+    private int shownPlayerScore = -1;
+    private int shownTravelerScore = -1;
+    private int shownRemainingTime = -1;
+    private boolean shownGameOver = false;
 
-    private boolean collisionDetected = false;
-    
     public boolean getCollisionDetected() {
         /**
         Gets the collision detected flag.
         @return the collision detected flag
         */
-        return collisionDetected;
+        return world.getCollisionDetected();
     }
-    
+
 
     public Board() {
         /**
         Initializes the board.
-        It sets the game board size and background color, initializes the game state,
-        and starts the timer.
+        It creates a new world to display and starts the timer.
+        @return void
+        */
+        this(new World());
+        start();
+    }
+
+    public Board(World world) {
+        /**
+        Initializes the board for an existing world.
+        It sets the game board size and background color. The timer is not started
+        so the board can also be used to render a world that is stepped elsewhere.
+        @param world - the world to display
         @return void
         */
-        
-        // set the game board size
-        setPreferredSize(new Dimension(Contstants.TILE_SIZE * Contstants.COLUMNS, Contstants.TILE_SIZE * Contstants.ROWS));
+        this.world = world;
+        renderer = new WorldRenderer(world);
+
+        // set the game board size to the view, larger worlds scroll inside it
+        Camera camera = renderer.getCamera();
+        setPreferredSize(new Dimension(camera.getViewWidth(), camera.getViewHeight()));
         // set the game board background color
         setBackground(Contstants.tileColor1);
 
-        // initialize the game state
-        player = new Player();
-        coinPositionMap = new HashMap<>(); // Initialize the map
-        coins = populateBoardWithCoins();
-        enemies = createEnemies();
-        traveler = new Traveler(Contstants.COLUMNS - 1, Contstants.ROWS - 1); // start in opposite corner from player
-
-        // this timer will call the actionPerformed() method every DELAY ms
+        // this timer will call the actionPerformed() method every DELAY ms. it
+        // fires a little early or late, which the timestep evens out
         timer = new Timer(Contstants.DELAY, this);
+        timestep.setEarlyNanos(Clock.TICK_NANOS / 4);
+    }
+
+    public void start() {
+        /**
+        Starts the timer that steps the world.
+        @return void
+        */
+        timestep.start(System.nanoTime());
         timer.start();
     }
 
+    public void setShowProfile(boolean showProfile) {
+        /**
+        Turns the debug overlay with the tick and frame phase times on or off.
+        @param showProfile - true to draw the overlay
+        @return void
+        */
+        renderer.setShowProfile(showProfile);
+    }
+
+    public FixedTimestep getTimestep() {
+        /**
+        Gets the timestep that decides how many ticks the board runs.
+        @return the timestep, with how many ticks ran late or were dropped
+        */
+        return timestep;
+    }
+
+    public World getWorld() {
+        /**
+        Gets the world displayed by the board.
+        @return the world
+        */
+        return world;
+    }
+
     @Override
     public void actionPerformed(ActionEvent actionEvent) {
         /**
         Updates the board state.
-        It moves the player, collects coins, updates the timer, and repaints the board.
+        It steps the world by as many ticks as are due by the wall clock (usually
+        one, more after a stall) and repaints the parts of the board that changed.
         @param actionEvent - the action event to update the board state
         @return void
         */
+        int ticks = timestep.advance(System.nanoTime());
+        for (int i = 0; i < ticks; i++) {
+            world.step();
+        }
+        if (timestep.getDroppedLastUpdate() > 0) {
+            Logger.debug("Fell behind, dropped " + timestep.getDroppedLastUpdate() + " ticks. " + timestep.describe());
+        }
 
-        // update the countdown timer
-        clock.updateTimer();
-
-        // only update game state if game is not over
-        if (!clock.isGameOver()) {
-            // prevent the player from disappearing off the board
-            player.movePlayer();
+        repaintChanges();
+    }
 
-            // give the player points for collecting coins
-            collectCoins();
+    private void repaintChanges() {
+        /**
+        Repaints only the parts of the board that changed.
+        It repaints the tiles the world marked as changed (moves, collected and new
+        coins) and the rows of UI text whose value changed. If nothing changed no
+        repaint is requested at all. Swing merges the requested areas into one
+        rectangle, and paintComponent() skips everything outside of it.
+        @return void
+        */
+        // calling repaint() will trigger paintComponent() to run again,
+        // which will refresh/redraw the graphics.
 
-            // update traveler and let it collect coins
-            traveler.updateTraveler(coins);
-            collectCoinsForTraveler();
+        // the game over screen covers the middle of the board, and when the view
+        // scrolls every tile moves on screen, so redraw everything
+        Camera camera = renderer.getCamera();
+        boolean scrolled = camera.follow(world.getPlayer(), 1f);
+        if (world.isGameOver() != shownGameOver || scrolled) {
+            shownGameOver = world.isGameOver();
+            world.getDirtyTiles().clear();
+            repaint();
+            return;
+        }
 
-            // update enemies
-            updateEnemies();
+        DirtyTiles dirtyTiles = world.getDirtyTiles();
+        if (!dirtyTiles.isEmpty()) {
+            // the changed tiles are in world coordinates, the repaint is on screen
+            repaint(
+                dirtyTiles.getX() * Contstants.TILE_SIZE - camera.getX(),
+                dirtyTiles.getY() * Contstants.TILE_SIZE - camera.getY(),
+                dirtyTiles.getWidth() * Contstants.TILE_SIZE,
+                dirtyTiles.getHeight() * Contstants.TILE_SIZE
+            );
+            dirtyTiles.clear();
+        }
 
-            // check for collision with enemies
-            if (checkEnemyCollision()) {
-                clock.setTimeToZero();
-                collisionDetected = true;
-            }
+        // the scores are drawn across the bottom row
+        int playerScore = world.getPlayer().getScore();
+        int travelerScore = world.getTravelerScore();
+        if (playerScore != shownPlayerScore || travelerScore != shownTravelerScore) {
+            shownPlayerScore = playerScore;
+            shownTravelerScore = travelerScore;
+            repaint(0, Contstants.TILE_SIZE * (camera.getViewRows() - 1), getWidth(), Contstants.TILE_SIZE);
         }
 
-        // calling repaint() will trigger paintComponent() to run again,
-        // which will refresh/redraw the graphics.
-        repaint();
-    }
+        // the timer is drawn across the top row
+        int remainingTime = world.getClock().getRemainingTime();
+        if (remainingTime != shownRemainingTime) {
+            shownRemainingTime = remainingTime;
+            repaint(0, 0, getWidth(), Contstants.TILE_SIZE);
+        }
 
-    private void drawCoins(Graphics graphicsController) {
-        /**
-        Draws the coins.
-        It draws the coins on the board.
-        @param graphicsController - the graphics controller to draw the coins on
-        @return void
-        */
-        for (Coin coin : coins) {
-            coin.drawCoin(graphicsController, this);
+        // the debug overlay changes all the time, keep it up to date
+        if (renderer.isShowingProfile()) {
+            repaint(renderer.getProfileBounds());
         }
     }
 
@@ -124,42 +195,17 @@ public class Board extends JPanel implements ActionListener, KeyListener {
         @param graphicsController - the graphics controller to paint the board on
         @return void
         */
-        super.paintComponent(graphicsController);
-        // when calling g.drawImage() we can use "this" for the ImageObserver 
-        // because Component implements the ImageObserver interface, and JPanel 
-        // extends from Component. So "this" Board instance, as a Component, can 
-        // react to imageUpdate() events triggered by g.drawImage()
-
-        // draw our graphics.
-        
-        drawBackground(graphicsController);
-        
-        drawCoins(graphicsController);
-        
-        drawEnemies(graphicsController);
-        
-        traveler.drawTraveler(graphicsController, this);
-        
-        player.drawPlayer(graphicsController, this);
-        
-        // draw UI elements last so they appear on top
-        UI.drawScore(graphicsController, player);
-        UI.drawTravelerScore(graphicsController, traveler);
-        clock.drawTimer(graphicsController);
+        // super.paintComponent() is not called: it would only fill the panel with
+        // the background color, and the background layer already covers all of it.
 
-        // draw game over message if game is over
-        if (clock.isGameOver()) {
-            String winnerText;
-            if (traveler.getScore() > player.getScore() || collisionDetected) {
-                winnerText = "The traveler wins!";
-            } else {
-                winnerText = "The player wins!";
-            }
-            UI.drawGameOverScreen(graphicsController, winnerText);
-        }
+        // draw the current state of the world. the board repaints right after each
+        // tick, so entities are drawn at their current positions
+        renderer.render(graphicsController, world, this, 1f);
 
         // this smooths out animations on some systems
         Toolkit.getDefaultToolkit().sync();
+        // Swing copies the back buffer to the screen right after this returns
+        world.inputPresented(System.nanoTime());
     }
 
     @Override
@@ -176,15 +222,13 @@ public class Board extends JPanel implements ActionListener, KeyListener {
     public void keyPressed(KeyEvent keyPressEvent) {
         /**
         Reacts to a key pressed event.
-        It moves the player one tile in the direction of the pressed key.
+        It forwards the key press to the world, which moves the player on the
+        next tick.
         @param keyPressEvent - the key pressed event to react to
         @return void
         */
-        // only allow player movement if game is not over
-        if (!clock.isGameOver()) {
-            // react to key down events
-            player.keyPressed(keyPressEvent);
-        }
+        // react to key down events
+        world.keyPressed(keyPressEvent);
     }
 
     @Override
@@ -198,194 +242,12 @@ public class Board extends JPanel implements ActionListener, KeyListener {
         // react to key up events
     }
 
-    private void drawBackground(Graphics graphicsController) {
-        /**
-        Draws the background.
-        It draws a checkered background on the board.
-        @param graphicsController - the graphics controller to draw the background on
-        @return void
-        */
-        // draw a checkered background
-        
-        // set the color to the second tile color
-        graphicsController.setColor(Contstants.tileColor2);
-
-        for (int row = 0; row < Contstants.ROWS; row++) {
-            for (int col = 0; col < Contstants.COLUMNS; col++) {
-                // only color every other tile
-                if ((row + col) % 2 == 1) {
-                    // draw a square tile at the current row/column position
-                    graphicsController.fillRect(
-                        col * Contstants.TILE_SIZE, 
-                        row * Contstants.TILE_SIZE, 
-                        Contstants.TILE_SIZE, 
-                        Contstants.TILE_SIZE
-                    );
-                }
-            }    
-        }
-    }
-
-    
-
-    private Coin createCoin() {
-        /**
-        Creates a new coin at a random unoccupied position.
-        Keeps trying until it finds an empty spot to avoid overlapping coins.
-        @return a new Coin object
-        */
-        Random randomNumberGenerator = new Random();
-        Point newPosition;
-        int attempts = 0;
-        int maxAttempts = 100; // prevent infinite loop
-        
-        do {
-            int coinXPosition = randomNumberGenerator.nextInt(Contstants.COLUMNS);
-            int coinYPosition = randomNumberGenerator.nextInt(Contstants.ROWS);
-            newPosition = new Point(coinXPosition, coinYPosition);
-            attempts++;
-        } while (coinPositionMap.containsKey(newPosition) && attempts < maxAttempts);
-        
-        return new Coin(newPosition.x, newPosition.y);
-    }
-    private ArrayList<Coin> populateBoardWithCoins() {
-        /**
-        Populates the board with coins.
-        It creates the given number of coins in random positions on the board.
-        Also populates the coinPositionMap for O(1) collision detection.
-        @return the coins on the board
-        */
-        ArrayList<Coin> coins = new ArrayList<>();
-        
-
-        // create the given number of coins in random positions on the board.
-        // note that there is not check here to prevent two coins from occupying the same
-        // spot, nor to prevent coins from spawning in the same spot as the player
-        for (int i = 0; i < Contstants.TOTAL_COINS; i++) { 
-            Coin coin = createCoin();
-            coins.add(coin);
-            coinPositionMap.put(coin.getCurrentCoinPostion(), coin); // Add to map for O(1) lookup
-        }
-            return coins;
-    }
-
-    private void collectCoins() {
-        /**
-        Collects the coins.
-        It allows the player to pickup coins and adds points to the player's score.
-        Uses O(1) HashMap lookup for collision detection (optimized from O(n) iteration).
-        @return void
-        */
-        Point playerPos = player.getCurrentPlayerPosition();
-        Coin coin = coinPositionMap.get(playerPos); // O(1) lookup instead of O(n) iteration
-        
-        if (coin != null) {
-            // give the player some points for picking this up
-            player.addScore(100);
-            
-            // remove old coin
-            coins.remove(coin);
-            coinPositionMap.remove(playerPos);
-            
-            // add new coin
-            Coin newCoin = createCoin();
-            coins.add(newCoin);
-            coinPositionMap.put(newCoin.getCurrentCoinPostion(), newCoin);
-        }
-    }
- 
     public void addCoin(Coin coin) {
         /**
         Adds a coin to the board.
-        It adds the given coin to both the ArrayList and the HashMap.
         @param coin - the coin to add to the board
         @return void
         */
-        coins.add(coin);
-        coinPositionMap.put(coin.getCurrentCoinPostion(), coin); // Maintain map consistency
-    }
-
-    private ArrayList<Enemy> createEnemies() {
-        /**
-        Creates enemies.
-        It creates a list of enemies in random positions on the board.
-        @return the list of enemies
-        */
-        ArrayList<Enemy> enemyList = new ArrayList<>();
-        Random rand = new Random();
-        
-        // create 3 enemies
-        int numEnemies = 3;
-        for (int i = 0; i < numEnemies; i++) {
-            int enemyX = rand.nextInt(Contstants.COLUMNS);
-            int enemyY = rand.nextInt(Contstants.ROWS);
-            enemyList.add(new Enemy(enemyX, enemyY));
-        }
-        
-        return enemyList;
-    }
-
-    private void updateEnemies() {
-        /**
-        Updates the enemies.
-        It updates each enemy's position and behavior.
-        @return void
-        */
-        for (Enemy enemy : enemies) {
-            enemy.updateEnemy();
-        }
+        world.addCoin(coin);
     }
-
-    private void drawEnemies(Graphics graphicsController) {
-        /**
-        Draws the enemies.
-        It draws all enemies on the board.
-        @param graphicsController - the graphics controller to draw the enemies on
-        @return void
-        */
-        for (Enemy enemy : enemies) {
-            enemy.drawEnemy(graphicsController, this);
-        }
-    }
-
-    private boolean checkEnemyCollision() {
-        /**
-        Checks for collision with enemies.
-        If the player collides with an enemy, the game ends.
-        @return true if collision detected, false otherwise
-        */
-        for (Enemy enemy : enemies) {
-            if (enemy.collidesWithPlayer(player)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private void collectCoinsForTraveler() {
-        /**
-        Allows the traveler to collect coins.
-        Uses O(1) HashMap lookup for collision detection (optimized from O(n) iteration).
-        @return void
-        */
-        Point travelerPos = traveler.getPosition();
-        Coin coin = coinPositionMap.get(travelerPos); // O(1) lookup instead of O(n) iteration
-        
-        if (coin != null) {
-            // traveler collects the coin
-            traveler.addScore(100);
-            
-            // remove old coin
-            coins.remove(coin);
-            coinPositionMap.remove(travelerPos);
-            
-            // add new coin
-            Coin newCoin = createCoin();
-            coins.add(newCoin);
-            coinPositionMap.put(newCoin.getCurrentCoinPostion(), newCoin);
-        }
-    }
-
-    
 }
-
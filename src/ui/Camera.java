@@ -0,0 +1,138 @@
+package ui;
+
+import java.awt.Point;
+
+import entities.Entity;
+import utils.Contstants;
+
+public class Camera {
+
+    // size of the whole world in pixels
+    private final int worldWidth;
+    private final int worldHeight;
+
+    // size of the visible part of the world in tiles and in pixels
+    private final int viewColumns;
+    private final int viewRows;
+    private final int viewWidth;
+    private final int viewHeight;
+
+    // top left corner of the view in world pixels
+    private int x = 0;
+    private int y = 0;
+
+    public Camera(int worldColumns, int worldRows, int viewColumns, int viewRows) {
+        /**
+        Initializes the camera.
+        The view is never larger than the world, so a small world is shown whole
+        and never scrolls.
+        @param worldColumns - the number of columns in the world
+        @param worldRows - the number of rows in the world
+        @param viewColumns - the number of columns that fit on screen
+        @param viewRows - the number of rows that fit on screen
+        @return void
+        */
+        this.viewColumns = Math.min(worldColumns, viewColumns);
+        this.viewRows = Math.min(worldRows, viewRows);
+        worldWidth = worldColumns * Contstants.TILE_SIZE;
+        worldHeight = worldRows * Contstants.TILE_SIZE;
+        viewWidth = this.viewColumns * Contstants.TILE_SIZE;
+        viewHeight = this.viewRows * Contstants.TILE_SIZE;
+    }
+
+    public boolean follow(Entity entity, float interpolation) {
+        /**
+        Centers the view on an entity.
+        The entity's position is interpolated the same way it is drawn, so the view
+        scrolls smoothly with it. The view stops at the edges of the world.
+        @param entity - the entity to follow
+        @param interpolation - how far into the next tick we are, from 0 to 1
+        @return true if the view moved, false otherwise
+        */
+        Point previous = entity.getPreviousPosition();
+        Point current = entity.getPosition();
+        float tileX = previous.x + (current.x - previous.x) * interpolation;
+        float tileY = previous.y + (current.y - previous.y) * interpolation;
+        return follow(tileX, tileY);
+    }
+
+    public boolean follow(float tileX, float tileY) {
+        /**
+        Centers the view on a position in tiles, e.g. the player's position in a
+        state received from a server. The view stops at the edges of the world.
+        @param tileX - the x coordinate of the position in tiles
+        @param tileY - the y coordinate of the position in tiles
+        @return true if the view moved, false otherwise
+        */
+        // put the center of the entity's tile in the center of the view
+        int centerX = Math.round((tileX + 0.5f) * Contstants.TILE_SIZE);
+        int centerY = Math.round((tileY + 0.5f) * Contstants.TILE_SIZE);
+        int newX = clamp(centerX - viewWidth / 2, worldWidth - viewWidth);
+        int newY = clamp(centerY - viewHeight / 2, worldHeight - viewHeight);
+
+        if (newX == x && newY == y) {
+            return false;
+        }
+        x = newX;
+        y = newY;
+        return true;
+    }
+
+    private static int clamp(int value, int max) {
+        /**
+        Limits a value to the range 0 to max.
+        @param value - the value to limit
+        @param max - the largest allowed value
+        @return the limited value
+        */
+        return Math.max(0, Math.min(value, max));
+    }
+
+    public int getX() {
+        /**
+        Gets the left edge of the view.
+        @return the x coordinate in world pixels
+        */
+        return x;
+    }
+
+    public int getY() {
+        /**
+        Gets the top edge of the view.
+        @return the y coordinate in world pixels
+        */
+        return y;
+    }
+
+    public int getViewColumns() {
+        /**
+        Gets the number of columns that fit in the view.
+        @return the number of columns
+        */
+        return viewColumns;
+    }
+
+    public int getViewRows() {
+        /**
+        Gets the number of rows that fit in the view.
+        @return the number of rows
+        */
+        return viewRows;
+    }
+
+    public int getViewWidth() {
+        /**
+        Gets the width of the view.
+        @return the width in pixels
+        */
+        return viewWidth;
+    }
+
+    public int getViewHeight() {
+        /**
+        Gets the height of the view.
+        @return the height in pixels
+        */
+        return viewHeight;
+    }
+}
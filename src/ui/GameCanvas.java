@@ -0,0 +1,325 @@
+package ui;
+
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferStrategy;
+import java.util.Arrays;
+
+import game.Clock;
+import game.FixedTimestep;
+import game.World;
+import utils.Contstants;
+import utils.Logger;
+
+public class GameCanvas extends Canvas implements Runnable, KeyListener {
+
+    // number of recent frame times kept for the frame statistics
+    private static final int FRAME_SAMPLES = 240;
+
+    // the simulation being shown. the loop thread steps and draws it holding the
+    // world's lock, so other threads (e.g. saving the recording on exit) see
+    // whole ticks. key presses go through the world's lock-free input queue
+    private World world;
+    private WorldRenderer renderer;
+
+    private BufferStrategy bufferStrategy;
+    private Thread loopThread;
+    private volatile boolean running = false;
+
+    // logic runs at this fixed rate no matter how fast frames are drawn. at most
+    // MAX_CATCH_UP_TICKS are run before a frame is drawn, so a long stall can't
+    // keep the loop from ever rendering again
+    private final FixedTimestep timestep = new FixedTimestep(
+        Clock.TICK_NANOS, Contstants.MAX_CATCH_UP_TICKS, Contstants.MAX_BACKLOG_TICKS);
+    // minimum time between frames when the display can't pace them for us
+    private long frameNanos;
+
+    // how long each of the recent frames took, in nanoseconds
+    private final long[] frameTimes = new long[FRAME_SAMPLES];
+    private int frameCount = 0;
+    private boolean printFrameStats = false;
+
+    public GameCanvas(World world) {
+        /**
+        Initializes the canvas.
+        Swing never paints it; everything is drawn by the render loop instead.
+        @param world - the world to run and display
+        @return void
+        */
+        this.world = world;
+        renderer = new WorldRenderer(world);
+
+        // the canvas shows the camera's view, larger worlds scroll inside it
+        Camera camera = renderer.getCamera();
+        setPreferredSize(new Dimension(camera.getViewWidth(), camera.getViewHeight()));
+        setIgnoreRepaint(true);
+        // let the window keep the keyboard focus, it forwards key events to us
+        setFocusable(false);
+    }
+
+    public void setPrintFrameStats(boolean printFrameStats) {
+        /**
+        Turns printing the frame time statistics once per second on or off.
+        @param printFrameStats - true to print the statistics
+        @return void
+        */
+        this.printFrameStats = printFrameStats;
+    }
+
+    public void setShowProfile(boolean showProfile) {
+        /**
+        Turns the debug overlay with the tick and frame phase times on or off.
+        @param showProfile - true to draw the overlay
+        @return void
+        */
+        renderer.setShowProfile(showProfile);
+    }
+
+    public void start() {
+        /**
+        Starts the render loop.
+        The canvas must be on screen (its window visible) so it can get a buffer strategy.
+        @return void
+        */
+        if (running) {
+            return;
+        }
+        createBuffers();
+        frameNanos = 1_000_000_000L / refreshRate();
+
+        running = true;
+        loopThread = new Thread(this, "game-loop");
+        loopThread.start();
+    }
+
+    public void stop() {
+        /**
+        Stops the render loop and waits for it to finish.
+        @return void
+        */
+        running = false;
+        if (loopThread != null) {
+            try {
+                loopThread.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void createBuffers() {
+        /**
+        Creates a double buffered strategy, asking for page flipping in video memory.
+        If the display can't flip pages, the normal blitting strategy is used.
+        @return void
+        */
+        BufferCapabilities flipping = new BufferCapabilities(
+            new ImageCapabilities(true),
+            new ImageCapabilities(true),
+            BufferCapabilities.FlipContents.UNDEFINED);
+        try {
+            createBufferStrategy(2, flipping);
+        } catch (AWTException exception) {
+            Logger.debug("Page flipping not available, using blitting: " + exception.getMessage());
+            createBufferStrategy(2);
+        }
+        bufferStrategy = getBufferStrategy();
+    }
+
+    private int refreshRate() {
+        /**
+        Gets the refresh rate of the screen the canvas is on.
+        @return the refresh rate in Hz, or 60 if it is unknown
+        */
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration != null) {
+            int rate = configuration.getDevice().getDisplayMode().getRefreshRate();
+            if (rate != DisplayMode.REFRESH_RATE_UNKNOWN && rate > 0) {
+                return rate;
+            }
+        }
+        return 60;
+    }
+
+    @Override
+    public void run() {
+        /**
+        Runs the game loop.
+        The timestep adds up the time that passed and the world is stepped once for
+        every full tick in it, so logic runs at a fixed rate. The leftover time is used
+        to draw the entities part of the way between their last two positions, and a
+        frame is drawn as often as the display allows.
+        @return void
+        */
+        long lastStatsPrint = System.nanoTime();
+        timestep.start(lastStatsPrint);
+
+        while (running) {
+            long frameStart = System.nanoTime();
+
+            synchronized (world) {
+                int ticks = timestep.advance(frameStart);
+                for (int i = 0; i < ticks; i++) {
+                    world.step();
+                }
+                renderFrame(timestep.getInterpolation());
+            }
+            if (timestep.getDroppedLastUpdate() > 0) {
+                Logger.debug("Fell behind, dropped " + timestep.getDroppedLastUpdate() + " ticks. " + timestep.describe());
+            }
+
+            // don't draw frames faster than the screen can show them
+            long elapsed = System.nanoTime() - frameStart;
+            if (elapsed < frameNanos) {
+                sleepNanos(frameNanos - elapsed);
+            }
+
+            recordFrameTime(System.nanoTime() - frameStart);
+            if (printFrameStats && frameStart - lastStatsPrint >= 1_000_000_000L) {
+                lastStatsPrint = frameStart;
+                Logger.debug(getFrameStats() + ", " + timestep.describe());
+            }
+        }
+    }
+
+    private void renderFrame(float interpolation) {
+        /**
+        Draws one frame into the back buffer and shows it.
+        The buffers live in video memory and can lose their contents, in which case
+        the frame is drawn again.
+        @param interpolation - how far into the next tick we are, from 0 to 1
+        @return void
+        */
+        do {
+            do {
+                Graphics graphicsController = bufferStrategy.getDrawGraphics();
+                try {
+                    renderer.render(graphicsController, world, this, interpolation);
+                } finally {
+                    graphicsController.dispose();
+                }
+            } while (bufferStrategy.contentsRestored());
+            bufferStrategy.show();
+        } while (bufferStrategy.contentsLost());
+        world.inputPresented(System.nanoTime());
+
+        // every frame is drawn in full, so the changed tiles are not needed
+        world.getDirtyTiles().clear();
+
+        // this smooths out animations on some systems
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void sleepNanos(long nanos) {
+        /**
+        Sleeps for about the given time.
+        @param nanos - the time to sleep in nanoseconds
+        @return void
+        */
+        try {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void recordFrameTime(long nanos) {
+        /**
+        Stores the duration of a frame for the frame statistics.
+        @param nanos - the frame time in nanoseconds
+        @return void
+        */
+        frameTimes[frameCount % FRAME_SAMPLES] = nanos;
+        frameCount++;
+    }
+
+    public String getFrameStats() {
+        /**
+        Describes how consistent the recent frame times are.
+        It reports the average frame time and rate, the standard deviation (jitter),
+        and the 99th percentile and worst frame time of the recent frames.
+        @return the frame statistics
+        */
+        int samples = Math.min(frameCount, FRAME_SAMPLES);
+        if (samples == 0) {
+            return "no frames yet";
+        }
+        long[] sorted = Arrays.copyOf(frameTimes, samples);
+        Arrays.sort(sorted);
+
+        double mean = 0;
+        for (long time : sorted) {
+            mean += time;
+        }
+        mean /= samples;
+        double variance = 0;
+        for (long time : sorted) {
+            variance += (time - mean) * (time - mean);
+        }
+        double jitter = Math.sqrt(variance / samples);
+        long p99 = sorted[Math.min(samples - 1, (int) (samples * 0.99))];
+        long max = sorted[samples - 1];
+
+        return String.format("frame: avg %.2f ms (%.0f fps), jitter %.2f ms, p99 %.2f ms, max %.2f ms",
+            mean / 1e6, 1e9 / mean, jitter / 1e6, p99 / 1e6, max / 1e6);
+    }
+
+    @Override
+    public void keyTyped(KeyEvent keyPressEvent) {
+        /**
+        Reacts to a key typed event.
+        It is not used but must be defined as part of the KeyListener interface.
+        @param keyPressEvent - the key typed event to react to
+        @return void
+        */
+    }
+
+    @Override
+    public void keyPressed(KeyEvent keyPressEvent) {
+        /**
+        Reacts to a key pressed event.
+        It queues the key press in the world, which moves the player on the next
+        tick. The queue needs no lock, so the event thread never waits for a tick
+        or frame to finish.
+        @param keyPressEvent - the key pressed event to react to
+        @return void
+        */
+        world.keyPressed(keyPressEvent);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent keyPressEvent) {
+        /**
+        Reacts to a key released event.
+        It is not used but must be defined as part of the KeyListener interface.
+        @param keyPressEvent - the key released event to react to
+        @return void
+        */
+    }
+
+    public FixedTimestep getTimestep() {
+        /**
+        Gets the timestep that decides how many ticks the loop runs.
+        @return the timestep, with how many ticks ran late or were dropped
+        */
+        return timestep;
+    }
+
+    public World getWorld() {
+        /**
+        Gets the world displayed by the canvas.
+        @return the world
+        */
+        return world;
+    }
+}
@@ -0,0 +1,139 @@
+package ui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+import utils.SpriteCache;
+
+public class HudText {
+
+    // extra pixels around the text so glyphs that reach past their advance
+    // (e.g. the overhang of bold letters) are not cut off
+    private static final int PADDING = 2;
+
+    private final Font font;
+    private final Color color;
+
+    // the text currently rendered into the image
+    private String text;
+    private BufferedImage image;
+
+    // layout of the rendered text
+    private int textWidth;
+    private int textHeight;
+    private int ascent;
+
+    public HudText(Font font, Color color) {
+        /**
+        Initializes a cached text element.
+        @param font - the font to draw the text with
+        @param color - the color to draw the text with
+        @return void
+        */
+        this.font = font;
+        this.color = color;
+    }
+
+    public void setText(String text) {
+        /**
+        Sets the text to show.
+        The text is only measured and rendered again if it is different from the
+        text that is already cached.
+        @param text - the text to show
+        @return void
+        */
+        if (text.equals(this.text)) {
+            return;
+        }
+        this.text = text;
+        render();
+    }
+
+    private void render() {
+        /**
+        Renders the text into the cached image with antialiasing.
+        @return void
+        */
+        // measure the text with the same hints it is drawn with
+        BufferedImage scratch = SpriteCache.createCompatibleImage(1, 1, Transparency.TRANSLUCENT);
+        Graphics2D measure = scratch.createGraphics();
+        applyHints(measure);
+        FontMetrics metrics = measure.getFontMetrics(font);
+        textWidth = metrics.stringWidth(text);
+        textHeight = metrics.getHeight();
+        ascent = metrics.getAscent();
+        measure.dispose();
+
+        image = SpriteCache.createCompatibleImage(
+            textWidth + PADDING * 2, textHeight + PADDING * 2, Transparency.TRANSLUCENT);
+        Graphics2D g2d = image.createGraphics();
+        applyHints(g2d);
+        g2d.setFont(font);
+        g2d.setColor(color);
+        g2d.drawString(text, PADDING, PADDING + ascent);
+        g2d.dispose();
+    }
+
+    private static void applyHints(Graphics2D g2d) {
+        /**
+        Sets the rendering hints used for nicer text.
+        @param g2d - the graphics to set the hints on
+        @return void
+        */
+        g2d.setRenderingHint(
+            RenderingHints.KEY_TEXT_ANTIALIASING,
+            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setRenderingHint(
+            RenderingHints.KEY_RENDERING,
+            RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(
+            RenderingHints.KEY_FRACTIONALMETRICS,
+            RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+    }
+
+    public void draw(Graphics graphicsController, int x, int baselineY) {
+        /**
+        Draws the cached text.
+        The position is the same as for Graphics.drawString(), so the text ends up
+        exactly where drawing the string directly would put it.
+        @param graphicsController - the graphics controller to draw the text on
+        @param x - the x coordinate of the start of the text
+        @param baselineY - the y coordinate of the text baseline
+        @return void
+        */
+        if (image == null) {
+            return;
+        }
+        graphicsController.drawImage(image, x - PADDING, baselineY - ascent - PADDING, null);
+    }
+
+    public int getTextWidth() {
+        /**
+        Gets the width of the text.
+        @return the width in pixels
+        */
+        return textWidth;
+    }
+
+    public int getTextHeight() {
+        /**
+        Gets the line height of the text.
+        @return the height in pixels
+        */
+        return textHeight;
+    }
+
+    public int getAscent() {
+        /**
+        Gets the ascent of the text's font.
+        @return the ascent in pixels
+        */
+        return ascent;
+    }
+}
@@ -0,0 +1,96 @@
+package ui;
+
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+
+import net.GameClient;
+import pathfinding.BlockedTiles;
+import utils.Contstants;
+
+public class RemoteBoard extends JPanel implements KeyListener {
+
+    // the connection to the server that runs the game; the board only draws
+    // the states it receives and sends the key presses back
+    private GameClient client;
+    // draws the states, made again if a match is played on a board of a
+    // different size
+    private StateRenderer renderer;
+
+    public RemoteBoard(GameClient client) {
+        /**
+        Initializes the board for a connection to a server.
+        It repaints whenever a new state arrives.
+        @param client - the connection, already in a match
+        @return void
+        */
+        this.client = client;
+        BlockedTiles walls;
+        synchronized (client) {
+            walls = client.getWalls();
+        }
+        renderer = new StateRenderer(walls.getColumns(), walls.getRows());
+
+        Camera camera = renderer.getCamera();
+        setPreferredSize(new Dimension(camera.getViewWidth(), camera.getViewHeight()));
+        setBackground(Contstants.tileColor1);
+
+        client.setListener(new Runnable() {
+            public void run() {
+                // repaint() may be called from any thread
+                repaint();
+            }
+        });
+    }
+
+    @Override
+    public void paintComponent(Graphics graphicsController) {
+        /**
+        Paints the board.
+        It draws the newest state received from the server.
+        @param graphicsController - the graphics controller to paint the board on
+        @return void
+        */
+        synchronized (client) {
+            BlockedTiles walls = client.getWalls();
+            if (!renderer.fits(walls)) {
+                renderer = new StateRenderer(walls.getColumns(), walls.getRows());
+            }
+            renderer.render(graphicsController, client.getState(), walls, client.getPlayerIndex(), this);
+        }
+
+        // this smooths out animations on some systems
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    @Override
+    public void keyTyped(KeyEvent keyPressEvent) {
+        /**
+        Reacts to a key typed event.
+        It is not used but must be defined as part of the KeyListener interface.
+        @param keyPressEvent - the key typed event to react to
+        @return void
+        */
+    }
+
+    @Override
+    public void keyPressed(KeyEvent keyPressEvent) {
+        /**
+        Reacts to a key pressed event.
+        It sends the key press to the server, which moves the player on its next tick.
+        @param keyPressEvent - the key pressed event to react to
+        @return void
+        */
+        client.sendKey(keyPressEvent.getKeyCode());
+    }
+
+    @Override
+    public void keyReleased(KeyEvent keyPressEvent) {
+        /**
+        Reacts to a key released event.
+        It is not used but must be defined as part of the KeyListener interface.
+        @param keyPressEvent - the key released event to react to
+        @return void
+        */
+    }
+}
@@ -0,0 +1,154 @@
+package ui;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import game.GameState;
+import pathfinding.BlockedTiles;
+import utils.Contstants;
+import utils.SpriteCache;
+
+public class StateRenderer {
+
+    // the checkered background, rendered once and reused every frame
+    private BackgroundLayer backgroundLayer = new BackgroundLayer();
+    // the part of the board that is on screen, following the player
+    private Camera camera;
+    // the score, timer and game over text, cached between frames
+    private UI ui;
+    // the sprites, the same ones the entities draw themselves with
+    private BufferedImage playerImage = SpriteCache.get("images/player.png");
+    private BufferedImage travelerImage = SpriteCache.get("images/traveler.png");
+    private BufferedImage enemyImage = SpriteCache.get("images/enemy.png");
+    private BufferedImage coinImage = SpriteCache.get("images/coin.png");
+
+    // the tiles that are drawn this frame, inclusive
+    private int firstColumn;
+    private int firstRow;
+    private int lastColumn;
+    private int lastRow;
+
+    // size of the board the renderer was made for
+    private final int columns;
+    private final int rows;
+
+    public StateRenderer(int columns, int rows) {
+        /**
+        Initializes the renderer for a board of the given size.
+        The view shows up to COLUMNS x ROWS tiles; larger boards scroll.
+        @param columns - the number of columns of the board
+        @param rows - the number of rows of the board
+        @return void
+        */
+        this.columns = columns;
+        this.rows = rows;
+        camera = new Camera(columns, rows, Contstants.COLUMNS, Contstants.ROWS);
+        ui = new UI(camera.getViewColumns(), camera.getViewRows());
+    }
+
+    public boolean fits(BlockedTiles walls) {
+        /**
+        Checks if the renderer was made for a board of the size of the given one.
+        @param walls - the walls of the board
+        @return true if the sizes are the same
+        */
+        return walls.getColumns() == columns && walls.getRows() == rows;
+    }
+
+    public Camera getCamera() {
+        /**
+        Gets the camera that decides which part of the board is drawn.
+        @return the camera
+        */
+        return camera;
+    }
+
+    public void render(Graphics graphicsController, GameState state, BlockedTiles walls, int playerIndex,
+            Component component) {
+        /**
+        Draws a complete frame of a state received from a server.
+        It looks the same as a frame of a local world: the background, walls,
+        coins, enemies, travelers, players and the UI on top. Everything is drawn
+        where it was at the tick of the state. The camera follows the viewer's
+        own player, who is drawn last and, if others play too, outlined.
+        @param graphicsController - the graphics controller to draw the frame on
+        @param state - the state to draw
+        @param walls - the walls of the state's board
+        @param playerIndex - the index of the viewer's player in the state
+        @param component - the component being drawn, also used as the image observer
+        @return void
+        */
+        camera.follow(state.getPlayerX(playerIndex), state.getPlayerY(playerIndex));
+        graphicsController.translate(-camera.getX(), -camera.getY());
+
+        firstColumn = camera.getX() / Contstants.TILE_SIZE;
+        firstRow = camera.getY() / Contstants.TILE_SIZE;
+        lastColumn = Math.min(columns - 1, (camera.getX() + camera.getViewWidth() - 1) / Contstants.TILE_SIZE);
+        lastRow = Math.min(rows - 1, (camera.getY() + camera.getViewHeight() - 1) / Contstants.TILE_SIZE);
+
+        backgroundLayer.draw(graphicsController, component, firstColumn, firstRow,
+            lastColumn - firstColumn + 1, lastRow - firstRow + 1);
+
+        if (walls.getBlockedCount() > 0) {
+            graphicsController.setColor(Contstants.wallColor);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int col = firstColumn; col <= lastColumn; col++) {
+                    if (walls.isBlocked(col, row)) {
+                        graphicsController.fillRect(col * Contstants.TILE_SIZE, row * Contstants.TILE_SIZE,
+                            Contstants.TILE_SIZE, Contstants.TILE_SIZE);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < state.getCoinCount(); i++) {
+            drawSprite(graphicsController, coinImage, state.getCoinX(i), state.getCoinY(i), component);
+        }
+        for (int i = 0; i < state.getEnemyCount(); i++) {
+            drawSprite(graphicsController, enemyImage, state.getEnemyX(i), state.getEnemyY(i), component);
+        }
+        for (int i = 0; i < state.getTravelerCount(); i++) {
+            drawSprite(graphicsController, travelerImage, state.getTravelerX(i), state.getTravelerY(i), component);
+        }
+        for (int i = 0; i < state.getPlayerCount(); i++) {
+            if (i != playerIndex) {
+                drawSprite(graphicsController, playerImage, state.getPlayerX(i), state.getPlayerY(i), component);
+            }
+        }
+        int playerX = state.getPlayerX(playerIndex);
+        int playerY = state.getPlayerY(playerIndex);
+        drawSprite(graphicsController, playerImage, playerX, playerY, component);
+        if (state.getPlayerCount() > 1) {
+            graphicsController.setColor(Contstants.playerScoreTextColor);
+            graphicsController.drawRect(playerX * Contstants.TILE_SIZE, playerY * Contstants.TILE_SIZE,
+                Contstants.TILE_SIZE - 1, Contstants.TILE_SIZE - 1);
+        }
+
+        graphicsController.translate(camera.getX(), camera.getY());
+
+        // draw UI elements last so they appear on top
+        ui.drawScore(graphicsController, state.getPlayerScore(playerIndex));
+        ui.drawTravelerScore(graphicsController, state.getTravelerScore());
+        ui.drawTimer(graphicsController, state.getRemainingTime());
+        if (state.isGameOver()) {
+            ui.drawGameOverScreen(graphicsController, state.getWinnerText());
+        }
+    }
+
+    private void drawSprite(Graphics graphicsController, BufferedImage image, int x, int y, Component component) {
+        /**
+        Draws a sprite on a tile if the tile is visible.
+        @param graphicsController - the graphics controller, in world coordinates
+        @param image - the sprite
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @param component - the component being drawn
+        @return void
+        */
+        if (x < firstColumn || x > lastColumn || y < firstRow || y > lastRow) {
+            return;
+        }
+        graphicsController.drawImage(image, x * Contstants.TILE_SIZE, y * Contstants.TILE_SIZE, component);
+    }
+}
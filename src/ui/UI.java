@@ -1,21 +1,92 @@
 package ui;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
-import entities.Player;
-import entities.Traveler;
 import utils.Contstants;
+import utils.Profiler;
+import utils.SpriteCache;
 
 public class UI {
-    public static void drawGameOverScreen(Graphics graphicsController, String winnerText) {
+
+    // the text elements are rendered into cached images, which are only rendered
+    // again when the value they show changes
+    private HudText playerScoreText = new HudText(Contstants.scoreTextFont, Contstants.playerScoreTextColor);
+    private HudText travelerScoreText = new HudText(Contstants.scoreTextFont, Contstants.travelerScoreTextColor);
+    private HudText timerText = new HudText(Contstants.scoreTextFont, Contstants.playerScoreTextColor);
+
+    // the values shown by the text elements
+    private int shownPlayerScore = -1;
+    private int shownTravelerScore = -1;
+    private int shownRemainingTime = -1;
+
+    // the whole game over box, rendered once for the winner it announces
+    private BufferedImage gameOverImage;
+    private String gameOverWinnerText;
+
+    // size of the game over box
+    private static final int GAME_OVER_BOX_WIDTH = 500;
+    private static final int GAME_OVER_BOX_HEIGHT = 200;
+
+    // the debug overlay with the phase times, one line per phase, below the
+    // timer row. it is rendered again twice a second, which keeps the numbers
+    // readable and the overlay cheap enough not to skew the frame times
+    private static final int PROFILE_LINE_HEIGHT = 15;
+    private static final int PROFILE_PADDING = 8;
+    private static final long PROFILE_REFRESH_NANOS = 500_000_000L;
+    private final Rectangle profileBounds = new Rectangle(10, Contstants.TILE_SIZE,
+        440, Profiler.PHASE_COUNT * PROFILE_LINE_HEIGHT + 2 * PROFILE_PADDING);
+    private BufferedImage profileImage;
+    private long profileRenderedAt;
+
+    // size of the view the UI is laid out in, in tiles
+    private final int viewColumns;
+    private final int viewRows;
+
+    public UI(int viewColumns, int viewRows) {
+        /**
+        Initializes the UI for a view of the given size.
+        @param viewColumns - the number of columns on screen
+        @param viewRows - the number of rows on screen
+        @return void
+        */
+        this.viewColumns = viewColumns;
+        this.viewRows = viewRows;
+    }
+
+    public void drawGameOverScreen(Graphics graphicsController, String winnerText) {
         /**
         Draws the complete game over screen with background, game over text, and winner text.
-        This ensures proper layering - background first, then both texts on top.
+        The box is rendered into a cached image the first time it is shown for a winner,
+        and copied from there after that.
         @param graphicsController - the graphics controller
         @param winnerText - the winner message to display
         @return void
         */
-        Graphics2D g2d = (Graphics2D) graphicsController;
+        if (!winnerText.equals(gameOverWinnerText)) {
+            gameOverWinnerText = winnerText;
+            gameOverImage = renderGameOverScreen(winnerText);
+        }
+
+        // Calculate positions
+        int screenCenterY = Contstants.TILE_SIZE * viewRows / 2;
+        int screenWidth = Contstants.TILE_SIZE * viewColumns;
+        int boxX = (screenWidth - GAME_OVER_BOX_WIDTH) / 2;
+        int boxY = screenCenterY - 100; // center the box
+
+        graphicsController.drawImage(gameOverImage, boxX, boxY, null);
+    }
+
+    private BufferedImage renderGameOverScreen(String winnerText) {
+        /**
+        Renders the game over box with the game over text and the winner text.
+        This ensures proper layering - background first, then both texts on top.
+        @param winnerText - the winner message to display
+        @return the rendered box
+        */
+        BufferedImage image = SpriteCache.createCompatibleImage(
+            GAME_OVER_BOX_WIDTH, GAME_OVER_BOX_HEIGHT, Transparency.TRANSLUCENT);
+        Graphics2D g2d = image.createGraphics();
         g2d.setRenderingHint(
             RenderingHints.KEY_TEXT_ANTIALIASING,
             RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
@@ -25,113 +96,185 @@ public class UI {
         g2d.setRenderingHint(
             RenderingHints.KEY_FRACTIONALMETRICS,
             RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-        
-        // Calculate positions
-        int screenCenterY = Contstants.TILE_SIZE * Contstants.ROWS / 2;
-        int screenWidth = Contstants.TILE_SIZE * Contstants.COLUMNS;
-        
+
+        // the box is drawn at the top left of the image, the texts are positioned
+        // relative to its vertical center
+        int boxCenterY = 100;
+
         // STEP 1: Draw the background box FIRST
-        g2d.setColor(new Color(0, 0, 0, 180)); // semi-transparent black
-        int boxWidth = 500;
-        int boxHeight = 200;
-        int boxX = (screenWidth - boxWidth) / 2;
-        int boxY = screenCenterY - 100; // center the box
-        g2d.fillRoundRect(boxX, boxY, boxWidth, boxHeight, 20, 20);
-        
+        g2d.setColor(Contstants.gameOverBoxColor); // semi-transparent black
+        g2d.fillRoundRect(0, 0, GAME_OVER_BOX_WIDTH, GAME_OVER_BOX_HEIGHT, 20, 20);
+
         // STEP 2: Draw "GAME OVER" text
-        g2d.setColor(new Color(255, 0, 0)); // red
-        g2d.setFont(new Font("Lato", Font.BOLD, 60));
+        g2d.setColor(Contstants.gameOverTextColor); // red
+        g2d.setFont(Contstants.gameOverTextFont);
         String gameOverText = "GAME OVER";
         FontMetrics gameOverMetrics = g2d.getFontMetrics();
-        int gameOverX = (screenWidth - gameOverMetrics.stringWidth(gameOverText)) / 2;
-        int gameOverY = screenCenterY - 30;
+        int gameOverX = (GAME_OVER_BOX_WIDTH - gameOverMetrics.stringWidth(gameOverText)) / 2;
+        int gameOverY = boxCenterY - 30;
         g2d.drawString(gameOverText, gameOverX, gameOverY);
-        
+
         // STEP 3: Draw winner text BELOW game over
-        g2d.setColor(new Color(255, 215, 0)); // gold
-        g2d.setFont(new Font("Lato", Font.BOLD, 35));
+        g2d.setColor(Contstants.winnerTextColor); // gold
+        g2d.setFont(Contstants.winnerTextFont);
         FontMetrics winnerMetrics = g2d.getFontMetrics();
-        int winnerX = (screenWidth - winnerMetrics.stringWidth(winnerText)) / 2;
-        int winnerY = screenCenterY + 50;
+        int winnerX = (GAME_OVER_BOX_WIDTH - winnerMetrics.stringWidth(winnerText)) / 2;
+        int winnerY = boxCenterY + 50;
         g2d.drawString(winnerText, winnerX, winnerY);
+
+        g2d.dispose();
+        return image;
     }
 
 
-    public static void drawScore(Graphics graphicsController, Player player) {
+    public void drawScore(Graphics graphicsController, int score) {
         /**
         Draws the score.
         It draws the player's score on the board.
         @param graphicsController - the graphics controller to draw the score on
-        @param player - the player whose score to draw
+        @param score - the player's score
         @return void
         */
-        // set the text to be displayed
-        String text = "$" + player.getScore();
-        // we need to cast the Graphics to Graphics2D to draw nicer text
-        Graphics2D g2d = (Graphics2D) graphicsController;
-        g2d.setRenderingHint(
-            RenderingHints.KEY_TEXT_ANTIALIASING,
-            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_RENDERING,
-            RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_FRACTIONALMETRICS,
-            RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        // skip the score if its row is outside the area being repainted
+        if (!graphicsController.hitClip(0, Contstants.TILE_SIZE * (viewRows - 1), Contstants.TILE_SIZE * viewColumns, Contstants.TILE_SIZE)) {
+            return;
+        }
+
+        // only build and render the text again when the score changed
+        if (score != shownPlayerScore) {
+            shownPlayerScore = score;
+            playerScoreText.setText("$" + shownPlayerScore);
+        }
 
-        // set the text color and font
-        g2d.setColor(Contstants.playerScoreTextColor);
-        g2d.setFont(Contstants.scoreTextFont);
-        
         // draw the score in the bottom center of the screen
         // https://stackoverflow.com/a/27740330/4655368
-        FontMetrics metrics = g2d.getFontMetrics(g2d.getFont());
         // the text will be contained within this rectangle.
         // here I've sized it to be the entire bottom row of board tiles
-        Rectangle rect = new Rectangle(0, Contstants.TILE_SIZE * (Contstants.ROWS - 1), Contstants.TILE_SIZE * Contstants.COLUMNS, Contstants.TILE_SIZE);
+        int rectY = Contstants.TILE_SIZE * (viewRows - 1);
+        int rectWidth = Contstants.TILE_SIZE * viewColumns;
         // determine the x coordinate for the text
-        int x = rect.x + (rect.width - metrics.stringWidth(text)) / 2;
+        int x = (rectWidth - playerScoreText.getTextWidth()) / 2;
         // determine the y coordinate for the text
         // (note we add the ascent, as in java 2d 0 is top of the screen)
-        int y = rect.y + ((rect.height - metrics.getHeight()) / 2) + metrics.getAscent();
+        int y = rectY + ((Contstants.TILE_SIZE - playerScoreText.getTextHeight()) / 2) + playerScoreText.getAscent();
         // draw the string
-        graphicsController.drawString(text, x, y);
+        playerScoreText.draw(graphicsController, x, y);
     }
 
-    public static void drawTravelerScore(Graphics graphicsController, Traveler traveler) {
+    public void drawTravelerScore(Graphics graphicsController, int score) {
         /**
         Draws the traveler's score.
         It displays the traveler's score on the right side of the screen.
         @param graphicsController - the graphics controller to draw the score on
-        @param traveler - the traveler whose score to draw
+        @param score - the score of all travelers together
+        @return void
+        */
+        // skip the score if its row is outside the area being repainted
+        if (!graphicsController.hitClip(0, Contstants.TILE_SIZE * (viewRows - 1), Contstants.TILE_SIZE * viewColumns, Contstants.TILE_SIZE)) {
+            return;
+        }
+
+        // only build and render the text again when the score changed
+        if (score != shownTravelerScore) {
+            shownTravelerScore = score;
+            travelerScoreText.setText("Traveler: $" + shownTravelerScore);
+        }
+
+        // draw in the bottom right area
+        int x = Contstants.TILE_SIZE * viewColumns - travelerScoreText.getTextWidth() - 10;
+        int y = Contstants.TILE_SIZE * (viewRows - 1) +
+                ((Contstants.TILE_SIZE - travelerScoreText.getTextHeight()) / 2) + travelerScoreText.getAscent();
+
+        travelerScoreText.draw(graphicsController, x, y);
+    }
+
+    public void drawTimer(Graphics graphicsController, int remainingTime) {
+        /**
+        Draws the countdown timer.
+        It draws the remaining time on the board in the top center of the screen.
+        @param graphicsController - the graphics controller to draw the timer on
+        @param remainingTime - the remaining time in seconds
+        @return void
+        */
+        // skip the timer if its row is outside the area being repainted
+        if (!graphicsController.hitClip(0, 0, Contstants.TILE_SIZE * viewColumns, Contstants.TILE_SIZE)) {
+            return;
+        }
+
+        // only format and render the text again when a second has passed
+        if (remainingTime != shownRemainingTime) {
+            shownRemainingTime = remainingTime;
+            // format the time as MM:SS
+            int minutes = shownRemainingTime / 60;
+            int seconds = shownRemainingTime % 60;
+            timerText.setText(String.format("%d:%02d", minutes, seconds));
+        }
+
+        // draw the timer in the top center of the screen
+        // the text will be contained within this rectangle (top row)
+        int rectWidth = Contstants.TILE_SIZE * viewColumns;
+        // determine the x coordinate for the text
+        int x = (rectWidth - timerText.getTextWidth()) / 2;
+        // determine the y coordinate for the text
+        int y = ((Contstants.TILE_SIZE - timerText.getTextHeight()) / 2) + timerText.getAscent();
+        // draw the string
+        timerText.draw(graphicsController, x, y);
+    }
+
+    public void drawProfile(Graphics graphicsController, Profiler profiler) {
+        /**
+        Draws the debug overlay with the median, 99th percentile and longest time
+        of every tick and frame phase.
+        @param graphicsController - the graphics controller to draw the overlay on
+        @param profiler - the profiler whose times to draw
         @return void
         */
-        String text = "Traveler: $" + traveler.getScore();
-        
-        // cast to Graphics2D for better rendering
-        Graphics2D g2d = (Graphics2D) graphicsController;
+        if (!graphicsController.hitClip(profileBounds.x, profileBounds.y, profileBounds.width, profileBounds.height)) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (profileImage == null || now - profileRenderedAt >= PROFILE_REFRESH_NANOS) {
+            profileRenderedAt = now;
+            profileImage = renderProfile(profiler);
+        }
+        graphicsController.drawImage(profileImage, profileBounds.x, profileBounds.y, null);
+    }
+
+    private BufferedImage renderProfile(Profiler profiler) {
+        /**
+        Renders the debug overlay's box and text.
+        @param profiler - the profiler whose times to render
+        @return the rendered box
+        */
+        BufferedImage image = profileImage != null ? profileImage : SpriteCache.createCompatibleImage(
+            profileBounds.width, profileBounds.height, Transparency.TRANSLUCENT);
+        Graphics2D g2d = image.createGraphics();
+        // the image is reused, so clear what was rendered into it before
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.setColor(Contstants.profileBoxColor);
+        g2d.fillRect(0, 0, profileBounds.width, profileBounds.height);
+        g2d.setComposite(AlphaComposite.SrcOver);
+
         g2d.setRenderingHint(
             RenderingHints.KEY_TEXT_ANTIALIASING,
             RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_RENDERING,
-            RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_FRACTIONALMETRICS,
-            RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g2d.setColor(Contstants.profileTextColor);
+        g2d.setFont(Contstants.profileTextFont);
+        int ascent = g2d.getFontMetrics().getAscent();
+        for (int phase = 0; phase < Profiler.PHASE_COUNT; phase++) {
+            g2d.drawString(profiler.describe(phase), PROFILE_PADDING, PROFILE_PADDING + phase * PROFILE_LINE_HEIGHT + ascent);
+        }
 
-        // set color and font
-        g2d.setColor(Contstants.travelerScoreTextColor);
-        g2d.setFont(Contstants.scoreTextFont);
-        
-        // draw in the bottom right area
-        FontMetrics metrics = g2d.getFontMetrics(g2d.getFont());
-        int x = Contstants.TILE_SIZE * Contstants.COLUMNS - metrics.stringWidth(text) - 10;
-        int y = Contstants.TILE_SIZE * (Contstants.ROWS - 1) + 
-                ((Contstants.TILE_SIZE - metrics.getHeight()) / 2) + metrics.getAscent();
-        
-        g2d.drawString(text, x, y);
+        g2d.dispose();
+        return image;
     }
-    
-}
 
+    public Rectangle getProfileBounds() {
+        /**
+        Gets the area of the screen the debug overlay covers.
+        @return the area, in screen coordinates
+        */
+        return profileBounds;
+    }
+}
@@ -1,13 +1,30 @@
 package ui;
 
+import java.awt.Component;
+import java.awt.event.KeyListener;
 import javax.swing.*;
 
 public class Window {
     private JFrame window;
-    private Board board;
+    // the component the game is drawn on and the listener that gets the key presses
+    private Component gameComponent;
+    private KeyListener keyListener;
 
     public Window(Board board, JFrame window) {
-        this.board = board;
+        this(board, board, window);
+    }
+
+    public Window(GameCanvas canvas, JFrame window) {
+        this(canvas, canvas, window);
+    }
+
+    public Window(RemoteBoard board, JFrame window) {
+        this(board, board, window);
+    }
+
+    private Window(Component gameComponent, KeyListener keyListener, JFrame window) {
+        this.gameComponent = gameComponent;
+        this.keyListener = keyListener;
         this.window = window;
         
         Setup();
@@ -32,7 +49,7 @@ public class Window {
 
         // don't allow the user to resize the window
         this.window.setResizable(false);
-        // fit the window size around the components (just our jpanel).
+        // fit the window size around the components (just our jpanel or canvas).
         // pack() should be called after setResizable() to avoid issues on some platforms
         this.window.pack();
         // open window in the center of the screen
@@ -42,12 +59,12 @@ public class Window {
     private void AddGameComponents() {
         /**
         Adds the game components to the window.
-        It adds the board to the window and passes keyboard inputs to the board.
+        It adds the board (or canvas) to the window and passes keyboard inputs to it.
         @return void
         */
 
-        this.window.add(board);
-        this.window.addKeyListener(board);
+        this.window.add(gameComponent);
+        this.window.addKeyListener(keyListener);
     }
 
     public void start() {
@@ -0,0 +1,303 @@
+package ui;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+import entities.EntityStore;
+import entities.Traveler;
+import game.Coin;
+import game.OccupancyGrid;
+import game.World;
+import pathfinding.BlockedTiles;
+import utils.Contstants;
+import utils.Profiler;
+import utils.SpriteCache;
+
+public class WorldRenderer {
+
+    // the checkered background, rendered once and reused every frame
+    private BackgroundLayer backgroundLayer = new BackgroundLayer();
+    // the part of the world that is on screen, following the player
+    private Camera camera;
+    // the score, timer and game over text, cached between frames
+    private UI ui;
+    // the sprite shared by all enemies
+    private BufferedImage enemyImage = SpriteCache.get("images/enemy.png");
+
+    // the tiles that are drawn this frame, inclusive. only the view (and of that
+    // only the area being repainted) is drawn, so a frame costs the same no
+    // matter how large the world is
+    private int firstColumn;
+    private int firstRow;
+    private int lastColumn;
+    private int lastRow;
+    // reused to read the area being repainted without allocating
+    private final Rectangle clipBounds = new Rectangle();
+
+    // whether the phase times are drawn over the world
+    private boolean showProfile = false;
+
+    public WorldRenderer(World world) {
+        /**
+        Initializes the renderer for a world.
+        The view shows up to COLUMNS x ROWS tiles; larger worlds scroll.
+        @param world - the world that will be drawn
+        @return void
+        */
+        camera = new Camera(world.getColumns(), world.getRows(), Contstants.COLUMNS, Contstants.ROWS);
+        ui = new UI(camera.getViewColumns(), camera.getViewRows());
+    }
+
+    public Camera getCamera() {
+        /**
+        Gets the camera that decides which part of the world is drawn.
+        @return the camera
+        */
+        return camera;
+    }
+
+    public void render(Graphics graphicsController, World world, Component component, float interpolation) {
+        /**
+        Draws a complete frame of the world.
+        It draws the background, walls, coins, enemies, travelers, player and the UI on top.
+        Both the passive Swing board and the active rendering canvas use this, so
+        they always look the same.
+        @param graphicsController - the graphics controller to draw the frame on
+        @param world - the world to draw
+        @param component - the component being drawn, also used as the image observer
+        @param interpolation - how far into the next tick we are, from 0 (previous
+                               positions) to 1 (current positions)
+        @return void
+        */
+        // when calling g.drawImage() we can use the component for the ImageObserver
+        // because Component implements the ImageObserver interface, so it can
+        // react to imageUpdate() events triggered by g.drawImage()
+
+        Profiler profiler = world.getProfiler();
+        long frameStart = profiler.start(Profiler.FRAME);
+
+        camera.follow(world.getPlayer(), interpolation);
+
+        // draw the world in world coordinates, shifted so the view is on screen
+        graphicsController.translate(-camera.getX(), -camera.getY());
+
+        // the tiles the view touches
+        firstColumn = camera.getX() / Contstants.TILE_SIZE;
+        firstRow = camera.getY() / Contstants.TILE_SIZE;
+        lastColumn = Math.min(world.getColumns() - 1, (camera.getX() + camera.getViewWidth() - 1) / Contstants.TILE_SIZE);
+        lastRow = Math.min(world.getRows() - 1, (camera.getY() + camera.getViewHeight() - 1) / Contstants.TILE_SIZE);
+
+        // draw our graphics.
+
+        long phaseStart = profiler.start(Profiler.FRAME_BACKGROUND);
+        backgroundLayer.draw(graphicsController, component, firstColumn, firstRow,
+            lastColumn - firstColumn + 1, lastRow - firstRow + 1);
+        profiler.stop(Profiler.FRAME_BACKGROUND, phaseStart);
+
+        // everything else only needs the tiles being repainted
+        clipVisibleTiles(graphicsController);
+
+        phaseStart = profiler.start(Profiler.FRAME_WALLS);
+        drawWalls(graphicsController, world);
+        profiler.stop(Profiler.FRAME_WALLS, phaseStart);
+
+        phaseStart = profiler.start(Profiler.FRAME_COINS);
+        drawCoins(graphicsController, world, component);
+        profiler.stop(Profiler.FRAME_COINS, phaseStart);
+
+        phaseStart = profiler.start(Profiler.FRAME_ENEMIES);
+        drawEnemies(graphicsController, world, component, interpolation);
+        profiler.stop(Profiler.FRAME_ENEMIES, phaseStart);
+
+        phaseStart = profiler.start(Profiler.FRAME_SPRITES);
+        drawTravelers(graphicsController, world, component, interpolation);
+
+        world.getPlayer().drawPlayer(graphicsController, component, interpolation);
+        profiler.stop(Profiler.FRAME_SPRITES, phaseStart);
+
+        graphicsController.translate(camera.getX(), camera.getY());
+
+        // draw UI elements last so they appear on top
+        phaseStart = profiler.start(Profiler.FRAME_HUD);
+        ui.drawScore(graphicsController, world.getPlayer().getScore());
+        ui.drawTravelerScore(graphicsController, world.getTravelerScore());
+        ui.drawTimer(graphicsController, world.getClock().getRemainingTime());
+
+        // draw game over message if game is over
+        if (world.isGameOver()) {
+            ui.drawGameOverScreen(graphicsController, world.getWinnerText());
+        }
+
+        if (showProfile) {
+            ui.drawProfile(graphicsController, profiler);
+        }
+        profiler.stop(Profiler.FRAME_HUD, phaseStart);
+
+        profiler.stop(Profiler.FRAME, frameStart);
+    }
+
+    public void setShowProfile(boolean showProfile) {
+        /**
+        Turns the debug overlay with the tick and frame phase times on or off.
+        The times are only there while the world's profiler is enabled.
+        @param showProfile - true to draw the overlay
+        @return void
+        */
+        this.showProfile = showProfile;
+    }
+
+    public boolean isShowingProfile() {
+        /**
+        Checks if the debug overlay with the phase times is drawn.
+        @return true if it is drawn
+        */
+        return showProfile;
+    }
+
+    public Rectangle getProfileBounds() {
+        /**
+        Gets the area of the screen the debug overlay covers.
+        @return the area, in screen coordinates
+        */
+        return ui.getProfileBounds();
+    }
+
+    private void clipVisibleTiles(Graphics graphicsController) {
+        /**
+        Narrows the visible tiles down to the area being repainted.
+        @param graphicsController - the graphics controller, in world coordinates
+        @return void
+        */
+        // getClipBounds() leaves the rectangle alone when there is no clip, so
+        // start from the whole view
+        clipBounds.setBounds(camera.getX(), camera.getY(), camera.getViewWidth(), camera.getViewHeight());
+        graphicsController.getClipBounds(clipBounds);
+        firstColumn = Math.max(firstColumn, clipBounds.x / Contstants.TILE_SIZE);
+        firstRow = Math.max(firstRow, clipBounds.y / Contstants.TILE_SIZE);
+        lastColumn = Math.min(lastColumn, (clipBounds.x + clipBounds.width - 1) / Contstants.TILE_SIZE);
+        lastRow = Math.min(lastRow, (clipBounds.y + clipBounds.height - 1) / Contstants.TILE_SIZE);
+    }
+
+    private void drawWalls(Graphics graphicsController, World world) {
+        /**
+        Draws the walls on the visible tiles.
+        @param graphicsController - the graphics controller to draw the walls on
+        @param world - the world whose walls to draw
+        @return void
+        */
+        BlockedTiles blockedTiles = world.getBlockedTiles();
+        if (blockedTiles.getBlockedCount() == 0) {
+            return;
+        }
+        graphicsController.setColor(Contstants.wallColor);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstColumn; col <= lastColumn; col++) {
+                if (blockedTiles.isBlocked(col, row)) {
+                    graphicsController.fillRect(col * Contstants.TILE_SIZE, row * Contstants.TILE_SIZE,
+                        Contstants.TILE_SIZE, Contstants.TILE_SIZE);
+                }
+            }
+        }
+    }
+
+    private void drawCoins(Graphics graphicsController, World world, Component component) {
+        /**
+        Draws the coins.
+        It draws the coins on the visible tiles. When there are fewer coins than
+        visible tiles it is cheaper to check every coin, otherwise only the visible
+        tiles are looked up in the occupancy grid.
+        @param graphicsController - the graphics controller to draw the coins on
+        @param world - the world whose coins to draw
+        @param component - the component being drawn
+        @return void
+        */
+        if (lastColumn < firstColumn || lastRow < firstRow) {
+            return;
+        }
+
+        ArrayList<Coin> coins = world.getCoins();
+        long visibleTiles = (long) (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1);
+        if (coins.size() <= visibleTiles) {
+            for (Coin coin : coins) {
+                Point position = coin.getPosition();
+                if (isVisible(position.x, position.y)) {
+                    coin.drawCoin(graphicsController, component);
+                }
+            }
+            return;
+        }
+
+        OccupancyGrid occupancyGrid = world.getOccupancyGrid();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstColumn; col <= lastColumn; col++) {
+                int slot = occupancyGrid.getCoinSlot(col, row);
+                if (slot != OccupancyGrid.NONE) {
+                    coins.get(slot).drawCoin(graphicsController, component);
+                }
+            }
+        }
+    }
+
+    private void drawEnemies(Graphics graphicsController, World world, Component component, float interpolation) {
+        /**
+        Draws the enemies.
+        It draws the enemies that are on or moving onto a visible tile, part of the
+        way from their position at the start of the tick to their current position.
+        @param graphicsController - the graphics controller to draw the enemies on
+        @param world - the world whose enemies to draw
+        @param component - the component being drawn
+        @param interpolation - how far into the next tick we are, from 0 to 1
+        @return void
+        */
+        EntityStore store = world.getEntityStore();
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (store.getType(slot) != EntityStore.ENEMY) {
+                continue;
+            }
+            int x = store.getX(slot);
+            int y = store.getY(slot);
+            int previousX = store.getPreviousX(slot);
+            int previousY = store.getPreviousY(slot);
+            if (!isVisible(x, y) && !isVisible(previousX, previousY)) {
+                continue;
+            }
+            int pixelX = Math.round((previousX + (x - previousX) * interpolation) * Contstants.TILE_SIZE);
+            int pixelY = Math.round((previousY + (y - previousY) * interpolation) * Contstants.TILE_SIZE);
+            graphicsController.drawImage(enemyImage, pixelX, pixelY, component);
+        }
+    }
+
+    private void drawTravelers(Graphics graphicsController, World world, Component component, float interpolation) {
+        /**
+        Draws the travelers that are on or moving onto a visible tile.
+        @param graphicsController - the graphics controller to draw the travelers on
+        @param world - the world whose travelers to draw
+        @param component - the component being drawn
+        @param interpolation - how far into the next tick we are, from 0 to 1
+        @return void
+        */
+        ArrayList<Traveler> travelers = world.getTravelers();
+        for (int i = 0; i < travelers.size(); i++) {
+            Traveler traveler = travelers.get(i);
+            Point position = traveler.getPosition();
+            Point previousPosition = traveler.getPreviousPosition();
+            if (isVisible(position.x, position.y) || isVisible(previousPosition.x, previousPosition.y)) {
+                traveler.drawTraveler(graphicsController, component, interpolation);
+            }
+        }
+    }
+
+    private boolean isVisible(int x, int y) {
+        /**
+        Checks if a tile is drawn this frame.
+        @param x - the x coordinate of the tile
+        @param y - the y coordinate of the tile
+        @return true if the tile is visible, false otherwise
+        */
+        return x >= firstColumn && x <= lastColumn && y >= firstRow && y <= lastRow;
+    }
+}
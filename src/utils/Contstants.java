@@ -8,14 +8,33 @@ public class Contstants {
     
     public static final Color travelerScoreTextColor = new Color(255, 0, 0);
     public static final Color playerScoreTextColor = new Color(255, 100, 139);
+
+    public static final Font gameOverTextFont = new Font("Lato", Font.BOLD, 60);
+    public static final Font winnerTextFont = new Font("Lato", Font.BOLD, 35);
+    public static final Color gameOverBoxColor = new Color(0, 0, 0, 180);
+    public static final Color gameOverTextColor = new Color(255, 0, 0);
+    public static final Color winnerTextColor = new Color(255, 215, 0);
+
+    public static final Font profileTextFont = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    public static final Color profileBoxColor = new Color(0, 0, 0, 160);
+    public static final Color profileTextColor = new Color(255, 255, 255);
     
     public static final Color tileColor1 = new Color(66, 245, 239);
     public static final Color tileColor2 = new Color(169, 255, 253);
+    public static final Color wallColor = new Color(52, 73, 94);
     public static final int TILE_SIZE = 50;
     public static final int ROWS = 12;
     public static final int COLUMNS = 18;
     public static final int TOTAL_COINS = 5;
+    public static final int TOTAL_ENEMIES = 3;
     public static final int DELAY = 25;
+    // after a stall the game loops run up to this many ticks per update to catch
+    // up, and give up on time more than this many ticks behind
+    public static final int MAX_CATCH_UP_TICKS = 5;
+    public static final int MAX_BACKLOG_TICKS = 1000 / DELAY;
+    // boards with more tiles than this don't get the whole-board search buffers
+    // (coin distance field, BFS), which cost several ints per tile
+    public static final int MAX_SEARCH_CELLS = 1 << 20;
 
     
     // suppress serialization warning
@@ -0,0 +1,110 @@
+package utils;
+
+import java.util.Arrays;
+
+public class LatencyHistogram {
+
+    // every power of two is split into this many equal buckets (2^SUB_BUCKET_BITS),
+    // so a value is off by at most 1/32 (about 3%) wherever it lies
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values are recorded in nanoseconds, larger ones (about 18 minutes) are capped
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    // values below 2 * SUB_BUCKETS get one bucket each, every power of two above
+    // that gets SUB_BUCKETS buckets
+    private final long[] counts = new long[bucketOf(MAX_VALUE) + 1];
+    private long count = 0;
+    private long max = 0;
+
+    public void record(long nanos) {
+        /**
+        Adds a measured time to the histogram.
+        It is a few arithmetic operations and does not allocate any memory.
+        @param nanos - the time in nanoseconds
+        @return void
+        */
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts[bucketOf(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public long getPercentile(double percentile) {
+        /**
+        Gets the time that the given share of the recorded times are at or below.
+        @param percentile - the share in percent, e.g. 50 for the median or 99
+        @return the time in nanoseconds, or 0 if nothing was recorded
+        */
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                // the top of the bucket, but never more than was actually measured
+                return Math.min(highestValueIn(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    public long getMax() {
+        /**
+        Gets the longest recorded time.
+        @return the time in nanoseconds, or 0 if nothing was recorded
+        */
+        return max;
+    }
+
+    public long getCount() {
+        /**
+        Gets the number of recorded times.
+        @return the count
+        */
+        return count;
+    }
+
+    public void reset() {
+        /**
+        Forgets all recorded times.
+        @return void
+        */
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+
+    private static int bucketOf(long value) {
+        /**
+        Gets the bucket a value is counted in.
+        @param value - the value, between 0 and MAX_VALUE
+        @return the bucket index
+        */
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        // drop the bits below the top SUB_BUCKET_BITS + 1, which leaves a number
+        // between SUB_BUCKETS and 2 * SUB_BUCKETS - 1
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highestValueIn(int bucket) {
+        /**
+        Gets the largest value counted in a bucket.
+        @param bucket - the bucket index
+        @return the value
+        */
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket - shift * SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,154 @@
+package utils;
+
+import java.util.Arrays;
+
+public class LongIntMap {
+
+    // value returned for keys that are not in the map
+    public static final int NONE = -1;
+
+    // marks an empty slot; keys must not be negative
+    private static final long EMPTY = -1L;
+
+    // open addressing with linear probing. the table is kept at most half full,
+    // so probe sequences stay short
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    public LongIntMap(int expectedSize) {
+        /**
+        Initializes an empty map.
+        @param expectedSize - the number of entries the map should hold without growing
+        @return void
+        */
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    public int get(long key) {
+        /**
+        Gets the value of a key.
+        @param key - the key, not negative
+        @return the value, or NONE if the key is not in the map
+        */
+        int slot = slotOf(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    public void put(long key, int value) {
+        /**
+        Sets the value of a key, adding the key if it is not in the map.
+        @param key - the key, not negative
+        @param value - the value
+        @return void
+        */
+        int slot = slotOf(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    public void remove(long key) {
+        /**
+        Removes a key from the map.
+        The entries after it in its probe sequence are shifted back into the gap,
+        so lookups never need tombstones.
+        @param key - the key to remove
+        @return void
+        */
+        int slot = slotOf(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        size--;
+
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = slotOf(keys[next]);
+            // the entry can move into the gap if its home slot is not between
+            // the gap and its current slot (cyclically)
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+    }
+
+    public int size() {
+        /**
+        Gets the number of entries in the map.
+        @return the number of entries
+        */
+        return size;
+    }
+
+    public void clear() {
+        /**
+        Removes every entry, keeping the table's capacity.
+        @return void
+        */
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private int slotOf(long key) {
+        /**
+        Gets the slot a key's probe sequence starts at.
+        The key is scrambled first, so neighboring keys don't fill neighboring slots.
+        @param key - the key
+        @return the home slot of the key
+        */
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void grow() {
+        /**
+        Doubles the table and reinserts every entry.
+        @return void
+        */
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
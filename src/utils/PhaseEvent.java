@@ -0,0 +1,91 @@
+package utils;
+
+import java.util.HashSet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+@Name("game.Phase")
+@Label("Game Phase")
+@Category("Game")
+@Description("One phase of a simulation tick or of drawing a frame")
+@StackTrace(false)
+class PhaseEvent extends Event {
+
+    // only the Profiler uses this class, and only after checking that the
+    // runtime has JFR, so the game still runs on runtimes without it
+
+    // whether any flight recording is running. a listener keeps it up to date,
+    // so checking it costs a field read instead of a call into the recorder
+    private static volatile boolean recording = false;
+    // the recordings that are running
+    private static final HashSet<Recording> runningRecordings = new HashSet<>();
+
+    static {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                // recordings started with -XX:StartFlightRecording run before
+                // the listener is added
+                for (Recording running : recorder.getRecordings()) {
+                    recordingStateChanged(running);
+                }
+            }
+
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                synchronized (runningRecordings) {
+                    if (changed.getState() == RecordingState.RUNNING) {
+                        runningRecordings.add(changed);
+                    } else {
+                        runningRecordings.remove(changed);
+                    }
+                    recording = !runningRecordings.isEmpty();
+                }
+            }
+        });
+    }
+
+    @Label("Phase")
+    String phase;
+
+    static boolean isRecording() {
+        /**
+        Checks if a flight recording is running.
+        Whether it includes the phase events is up to its settings, which
+        commit() checks.
+        @return true if a recording is running
+        */
+        return recording;
+    }
+
+    static Object begin(String phase) {
+        /**
+        Starts timing a phase.
+        @param phase - the name of the phase
+        @return the event, to pass to end()
+        */
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    static void end(Object event) {
+        /**
+        Stops timing a phase and writes its event to the recording, if the
+        recording includes phase events.
+        @param event - the event begin() returned
+        @return void
+        */
+        ((PhaseEvent) event).commit();
+    }
+}
@@ -0,0 +1,222 @@
+package utils;
+
+import jdk.jfr.FlightRecorder;
+
+public class Profiler {
+
+    // the phases of a tick (World.step)
+    public static final int TICK = 0;
+    public static final int TICK_CLOCK = 1;
+    public static final int TICK_PLAYER = 2;
+    public static final int TICK_TRAVELERS = 3;
+    public static final int TICK_ENEMIES = 4;
+    public static final int TICK_COLLISIONS = 5;
+    // the phases of a frame (WorldRenderer.render)
+    public static final int FRAME = 6;
+    public static final int FRAME_BACKGROUND = 7;
+    public static final int FRAME_WALLS = 8;
+    public static final int FRAME_COINS = 9;
+    public static final int FRAME_ENEMIES = 10;
+    public static final int FRAME_SPRITES = 11;
+    public static final int FRAME_HUD = 12;
+    // input latency, recorded with record(): from a key press until the tick
+    // applied it, and until a frame showing it was on screen
+    public static final int INPUT_TO_STATE = 13;
+    public static final int INPUT_TO_PRESENT = 14;
+
+    // names of the phases, by phase; sub-phases are prefixed with their parent
+    private static final String[] PHASE_NAMES = {
+        "tick", "tick.clock", "tick.player", "tick.travelers", "tick.enemies", "tick.collisions",
+        "frame", "frame.background", "frame.walls", "frame.coins", "frame.enemies", "frame.sprites", "frame.hud",
+        "input.state", "input.present"
+    };
+    public static final int PHASE_COUNT = PHASE_NAMES.length;
+
+    // whether this runtime has Java Flight Recorder (JDK 11 and later, and
+    // JDK 8u262 and later). flight recorder events are written whenever a
+    // recording with them is running, e.g. with -XX:StartFlightRecording
+    private static final boolean JFR_AVAILABLE = hasFlightRecorder();
+
+    // one histogram per phase, only filled while histograms are enabled. they
+    // take about 10 KB each, so they are only created once they are enabled
+    private LatencyHistogram[] histograms;
+    private boolean enabled = false;
+
+    // the flight recorder events of the phases that are running, by phase
+    private final Object[] openEvents = new Object[PHASE_COUNT];
+    // whether a recording is running. the recorder is only asked when a
+    // tick or frame starts and its phases go by that answer, so a recording
+    // that starts halfway through a tick doesn't get half of its phases
+    private boolean recording = false;
+
+    public long start(int phase) {
+        /**
+        Marks the start of a phase.
+        A profiler is used by the one thread that steps and draws its world, so
+        it does not lock. When neither histograms nor a recording are on this
+        costs next to nothing.
+        @param phase - the phase, one of the constants above
+        @return the start time to pass to stop(), or 0 if histograms are off
+        */
+        if (phase == TICK || phase == FRAME) {
+            // loading an event class starts up the whole recorder, which takes
+            // a few hundred milliseconds, so wait until something else has
+            // started it (a recording)
+            recording = JFR_AVAILABLE && FlightRecorder.isInitialized() && PhaseEvent.isRecording();
+        }
+        if (recording) {
+            beginEvent(phase);
+        }
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void stop(int phase, long start) {
+        /**
+        Marks the end of a phase, recording how long it took.
+        @param phase - the phase passed to start()
+        @param start - the time start() returned
+        @return void
+        */
+        if (recording) {
+            endEvent(phase);
+        }
+        if (enabled) {
+            histograms[phase].record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(int phase, long nanos) {
+        /**
+        Records a time that was measured elsewhere, e.g. input latency, which
+        starts on one thread and ends on another.
+        @param phase - the phase
+        @param nanos - the time in nanoseconds
+        @return void
+        */
+        if (enabled) {
+            histograms[phase].record(nanos);
+        }
+    }
+
+    private void beginEvent(int phase) {
+        /**
+        Starts the flight recorder event of a phase.
+        It is kept out of start() so that start() stays small enough to be
+        inlined wherever it is called.
+        @param phase - the phase
+        @return void
+        */
+        openEvents[phase] = PhaseEvent.begin(PHASE_NAMES[phase]);
+    }
+
+    private void endEvent(int phase) {
+        /**
+        Ends and writes the flight recorder event of a phase, if it was started.
+        @param phase - the phase
+        @return void
+        */
+        if (openEvents[phase] != null) {
+            PhaseEvent.end(openEvents[phase]);
+            openEvents[phase] = null;
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        /**
+        Turns recording the phase times into the histograms on or off.
+        @param enabled - true to record the phase times
+        @return void
+        */
+        if (enabled && histograms == null) {
+            histograms = new LatencyHistogram[PHASE_COUNT];
+            for (int phase = 0; phase < PHASE_COUNT; phase++) {
+                histograms[phase] = new LatencyHistogram();
+            }
+        }
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        /**
+        Checks if the phase times are recorded into the histograms.
+        @return true if they are recorded
+        */
+        return enabled;
+    }
+
+    public LatencyHistogram getHistogram(int phase) {
+        /**
+        Gets the histogram of a phase's times.
+        @param phase - the phase
+        @return the histogram, or null if histograms were never enabled
+        */
+        return histograms != null ? histograms[phase] : null;
+    }
+
+    public static String getPhaseName(int phase) {
+        /**
+        Gets the name of a phase, as written to the flight recorder events.
+        @param phase - the phase
+        @return the name
+        */
+        return PHASE_NAMES[phase];
+    }
+
+    public String describe(int phase) {
+        /**
+        Describes the recorded times of a phase.
+        @param phase - the phase
+        @return a line with the median, 99th percentile and longest time in microseconds
+        */
+        if (histograms == null) {
+            return PHASE_NAMES[phase] + " (not profiled)";
+        }
+        LatencyHistogram histogram = histograms[phase];
+        return String.format("%-17s p50 %8.1f  p99 %8.1f  max %8.1f us",
+            PHASE_NAMES[phase],
+            histogram.getPercentile(50) / 1e3,
+            histogram.getPercentile(99) / 1e3,
+            histogram.getMax() / 1e3);
+    }
+
+    public String describe() {
+        /**
+        Describes the recorded times of every phase that has any.
+        @return one line per phase
+        */
+        StringBuilder report = new StringBuilder();
+        for (int phase = 0; histograms != null && phase < PHASE_COUNT; phase++) {
+            if (histograms[phase].getCount() == 0) {
+                continue;
+            }
+            if (report.length() > 0) {
+                report.append('\n');
+            }
+            report.append(describe(phase));
+        }
+        return report.toString();
+    }
+
+    public void reset() {
+        /**
+        Forgets all recorded times.
+        @return void
+        */
+        for (int phase = 0; histograms != null && phase < PHASE_COUNT; phase++) {
+            histograms[phase].reset();
+        }
+    }
+
+    private static boolean hasFlightRecorder() {
+        /**
+        Checks if the flight recorder classes can be loaded.
+        @return true if they can
+        */
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError exception) {
+            return false;
+        }
+    }
+}
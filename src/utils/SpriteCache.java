@@ -0,0 +1,93 @@
+package utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+public class SpriteCache {
+
+    // sprites that have already been loaded, by filename
+    private static final Map<String, BufferedImage> sprites = new HashMap<>();
+
+    public static synchronized BufferedImage get(String filename) {
+        /**
+        Gets the sprite for an image file.
+        The file is read from disk only the first time it is asked for. The sprite is
+        scaled to TILE_SIZE and stored in a format that matches the display, so it
+        can be drawn without scaling or converting. Every caller shares the same
+        image, so it must not be modified.
+        @param filename - the filename of the image to load
+        @return the shared sprite, or null if the image could not be loaded
+        */
+        if (sprites.containsKey(filename)) {
+            return sprites.get(filename);
+        }
+
+        BufferedImage sprite = null;
+        try {
+            BufferedImage source = ImageIO.read(new File(filename));
+            if (source != null) {
+                sprite = toCompatibleImage(source, Contstants.TILE_SIZE, Contstants.TILE_SIZE);
+            } else {
+                Logger.error("Unable to load image: " + filename + ": unsupported format");
+            }
+        } catch (IOException exception) {
+            Logger.imageLoadError(filename, exception);
+        }
+
+        // remember failures too so a missing file is not read again every time
+        sprites.put(filename, sprite);
+        return sprite;
+    }
+
+    public static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        /**
+        Creates an empty image in the format of the default screen.
+        When there is no display (headless mode) a plain ARGB or RGB image is used.
+        @param width - the width of the image
+        @param height - the height of the image
+        @param transparency - one of the java.awt.Transparency constants
+        @return the new image
+        */
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration configuration = GraphicsEnvironment
+                .getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice()
+                .getDefaultConfiguration();
+            return configuration.createCompatibleImage(width, height, transparency);
+        }
+        int type = transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        return new BufferedImage(width, height, type);
+    }
+
+    private static BufferedImage toCompatibleImage(BufferedImage source, int width, int height) {
+        /**
+        Scales an image once into a display-compatible image.
+        @param source - the decoded image
+        @param width - the width to scale to
+        @param height - the height to scale to
+        @return the scaled, compatible image
+        */
+        BufferedImage image = createCompatibleImage(width, height, source.getColorModel().getTransparency());
+        Graphics2D g2d = image.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.setRenderingHint(
+            RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.setRenderingHint(
+            RenderingHints.KEY_RENDERING,
+            RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return image;
+    }
+}